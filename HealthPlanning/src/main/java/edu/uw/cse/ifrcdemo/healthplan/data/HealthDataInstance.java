@@ -20,6 +20,8 @@ import edu.uw.cse.ifrcdemo.healthplan.model.HealthServiceRepository;
 import edu.uw.cse.ifrcdemo.healthplan.model.HealthServicesForTaskRespository;
 import edu.uw.cse.ifrcdemo.healthplan.model.HealthTaskRepository;
 import edu.uw.cse.ifrcdemo.planningsharedlib.data.InvalidCsvException;
+import edu.uw.cse.ifrcdemo.planningsharedlib.logic.CsvValidationEngine;
+import edu.uw.cse.ifrcdemo.planningsharedlib.logic.CsvValidationReport;
 import edu.uw.cse.ifrcdemo.planningsharedlib.model.authorization.AuthorizationRepository;
 import edu.uw.cse.ifrcdemo.planningsharedlib.model.authorization.DbAuthorizationRepository;
 import edu.uw.cse.ifrcdemo.planningsharedlib.model.csv.CsvRepository;
@@ -31,20 +33,15 @@ import edu.uw.cse.ifrcdemo.planningsharedlib.model.location.LocationRepository;
 import edu.uw.cse.ifrcdemo.planningsharedlib.model.preference.PreferencesStore;
 import edu.uw.cse.ifrcdemo.planningsharedlib.model.rctemplate.RcTemplateRepository;
 import edu.uw.cse.ifrcdemo.healthplan.util.AuxiliaryPropertyUtil;
-import edu.uw.cse.ifrcdemo.planningsharedlib.util.CsvFileUtil;
+import edu.uw.cse.ifrcdemo.planningsharedlib.util.CsvLoadPlan;
 import edu.uw.cse.ifrcdemo.planningsharedlib.util.DbUtil;
-import edu.uw.cse.ifrcdemo.sharedlib.consts.GenConsts;
 import edu.uw.cse.ifrcdemo.sharedlib.model.config.AuxiliaryProperty;
 import edu.uw.cse.ifrcdemo.sharedlib.model.row.*;
-import edu.uw.cse.ifrcdemo.sharedlib.util.FileUtil;
-import edu.uw.cse.ifrcdemo.translations.TranslationConsts;
-import edu.uw.cse.ifrcdemo.translations.TranslationUtil;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import javax.persistence.EntityManagerFactory;
@@ -178,101 +175,30 @@ public class HealthDataInstance {
     }
 
     private static CompletableFuture<CsvRepository> readAllCsvs(Path dataPath, CsvRepository csvRepo) {
-        return CompletableFuture
-            .allOf(
-                CsvFileUtil.readBaseTableWithCustomTable(dataPath, CsvBeneficiaryEntity.class, csvRepo),
-                CsvFileUtil.readBaseTableWithCustomTable(dataPath, CsvIndividual.class, csvRepo),
-                CsvFileUtil.readBaseTable(dataPath, CsvHealthTask.class, csvRepo),
-                CsvFileUtil.readBaseTable(dataPath, CsvHealthService.class, csvRepo),
-                CsvFileUtil.readBaseTable(dataPath, CsvHealthServicesForTask.class, csvRepo),
-                    CsvFileUtil.readBaseTable(dataPath, CsvAuthorization.class, csvRepo),
-                    CsvFileUtil.readBaseTable(dataPath, CsvDistribution.class, csvRepo),
-                    CsvFileUtil.readBaseTable(dataPath, CsvEntitlement.class, csvRepo),
-                    CsvFileUtil.readBaseTable(dataPath, CsvAuthorization.class, csvRepo),
-                    CsvFileUtil.readBaseTable(dataPath, CsvDistribution.class, csvRepo)
-            )
-            .thenApplyAsync(__ -> csvRepo);
+        return CsvLoadPlan
+            .forDirectory(dataPath)
+            .baseTableWithCustomTable(CsvBeneficiaryEntity.class)
+            .baseTableWithCustomTable(CsvIndividual.class)
+            .baseTable(CsvHealthTask.class)
+            .baseTable(CsvHealthService.class)
+            .baseTable(CsvHealthServicesForTask.class)
+            .baseTable(CsvAuthorization.class)
+            .baseTable(CsvDistribution.class)
+            .baseTable(CsvEntitlement.class)
+            .load(csvRepo);
     }
 
     private static String validateCsvs(CsvRepository csvRepo) {
         CsvValidator csvValidator = new CsvValidator();
 
-        boolean beneficiaryEntitiesStatus = csvRepo
-            .readTypedCsv(CsvBeneficiaryEntity.class)
-            .orElseThrow(IllegalStateException::new)
-            .stream()
-            .allMatch(csvValidator.validateBeneficiaryEntity(csvRepo));
+        CsvValidationReport report = new CsvValidationEngine().validate(csvRepo, Arrays.asList(
+                csvValidator.beneficiaryEntityRules(csvRepo),
+                csvValidator.individualRules(csvRepo),
+                csvValidator.healthTaskRules(),
+                csvValidator.healthServiceRules(),
+                csvValidator.healthServicesForTaskRules()
+        ));
 
-        boolean entitlementsStatus = csvRepo
-                .readTypedCsv(CsvEntitlement.class)
-                .orElseThrow(IllegalStateException::new)
-                .stream()
-                .allMatch(csvValidator.validateEntitlement());
-
-        boolean authorizationStatus = csvRepo
-                .readTypedCsv(CsvAuthorization.class)
-                .orElseThrow(IllegalStateException::new)
-                .stream()
-                .allMatch(csvValidator.validateAuthorization(csvRepo));
-
-        boolean distributionStatus = csvRepo
-                .readTypedCsv(CsvDistribution.class)
-                .orElseThrow(IllegalStateException::new)
-                .stream()
-                .allMatch(csvValidator.validateDistribution());
-
-        boolean individualsStatus = csvRepo
-            .readTypedCsv(CsvIndividual.class)
-            .orElseThrow(IllegalStateException::new)
-            .stream()
-            .allMatch(csvValidator.validateIndividual(csvRepo));
-
-        boolean healthTaskStatus =
-            csvRepo.readTypedCsv(CsvHealthTask.class).orElseThrow(IllegalStateException::new)
-                    .stream().allMatch(csvValidator.validateHealthTask(csvRepo));
-
-        boolean healthServiceStatus = csvRepo
-                .readTypedCsv(CsvHealthService.class)
-                .orElseThrow(IllegalStateException::new)
-                .stream()
-                .allMatch(csvValidator.validateHealthService(csvRepo));
-
-        boolean healthServicesForTaskStatus = csvRepo
-                .readTypedCsv(CsvHealthServicesForTask.class)
-                .orElseThrow(IllegalStateException::new)
-                .stream()
-                .allMatch(csvValidator.validateHealthServicesForTask(csvRepo));
-
-        List<String> invalidTables = new ArrayList<>();
-        if (!beneficiaryEntitiesStatus) {
-            invalidTables.add(FileUtil.getFileName(CsvBeneficiaryEntity.class));
-        }
-
-        if (!individualsStatus) {
-            invalidTables.add(FileUtil.getFileName(CsvIndividual.class));
-        }
-
-        if (!healthTaskStatus) {
-            invalidTables.add(FileUtil.getFileName(CsvHealthTask.class));
-        }
-
-        if (!healthServiceStatus) {
-            invalidTables.add(FileUtil.getFileName(CsvHealthService.class));
-        }
-
-        if (!healthServicesForTaskStatus) {
-            invalidTables.add(FileUtil.getFileName(CsvHealthServicesForTask.class));
-        }
-
-        if (!invalidTables.isEmpty()) {
-            String invalidCsvMsg = TranslationUtil
-                .getTranslations()
-                .getString(TranslationConsts.INVALID_CSV_ERROR);
-
-            invalidTables.add(0, invalidCsvMsg);
-            return String.join(GenConsts.NEW_LINE, invalidTables);
-        }
-
-        return null;
+        return report.getMessage();
     }
 }
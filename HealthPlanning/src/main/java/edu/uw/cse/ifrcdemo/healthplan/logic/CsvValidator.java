@@ -15,31 +15,40 @@
 package edu.uw.cse.ifrcdemo.healthplan.logic;
 
 import edu.uw.cse.ifrcdemo.planningsharedlib.logic.BaseCsvValidator;
+import edu.uw.cse.ifrcdemo.planningsharedlib.logic.CsvTableRules;
 import edu.uw.cse.ifrcdemo.planningsharedlib.model.csv.CsvRepository;
 import edu.uw.cse.ifrcdemo.sharedlib.model.row.CsvHealthTask;
 import edu.uw.cse.ifrcdemo.sharedlib.model.row.CsvHealthService;
 import edu.uw.cse.ifrcdemo.sharedlib.model.row.CsvHealthServicesForTask;
 import edu.uw.cse.ifrcdemo.sharedlib.model.stub.SyncRow;
 import java.util.function.Predicate;
-import java.util.stream.Stream;
 
 public class CsvValidator extends BaseCsvValidator {
 
     public Predicate<CsvHealthTask> validateHealthTask(CsvRepository csvRepo) {
-        return columnValidator(Stream.of(
-                SyncRow::getRowId
-        ));
+        return healthTaskRules()::accepts;
     }
 
     public Predicate<CsvHealthService> validateHealthService(CsvRepository csvRepo) {
-        return columnValidator(Stream.of(
-                SyncRow::getRowId
-        ));
+        return healthServiceRules()::accepts;
     }
 
     public Predicate<CsvHealthServicesForTask> validateHealthServicesForTask(CsvRepository csvRepo) {
-        return columnValidator(Stream.of(
-                SyncRow::getRowId
-        ));
+        return healthServicesForTaskRules()::accepts;
+    }
+
+    public CsvTableRules<CsvHealthTask> healthTaskRules() {
+        return CsvTableRules.forTable(CsvHealthTask.class)
+                .required(ROW_ID_COLUMN, SyncRow::getRowId);
+    }
+
+    public CsvTableRules<CsvHealthService> healthServiceRules() {
+        return CsvTableRules.forTable(CsvHealthService.class)
+                .required(ROW_ID_COLUMN, SyncRow::getRowId);
+    }
+
+    public CsvTableRules<CsvHealthServicesForTask> healthServicesForTaskRules() {
+        return CsvTableRules.forTable(CsvHealthServicesForTask.class)
+                .required(ROW_ID_COLUMN, SyncRow::getRowId);
     }
 }
@@ -17,7 +17,9 @@ package edu.uw.cse.ifrcdemo.healthplan.model;
 import edu.uw.cse.ifrcdemo.healthplan.entity.ServicesForProgram;
 import edu.uw.cse.ifrcdemo.planningsharedlib.model.AbstractOdkRepository;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import javax.persistence.EntityTransaction;
@@ -88,7 +90,6 @@ public class HealthServicesForTaskRespository extends AbstractOdkRepository<Serv
         EntityTransaction tx = null;
         List<ServicesForProgram> hsft = null;
         try {
-            em = getEmf().createEntityManager();
             tx = em.getTransaction();
             tx.begin();
 
@@ -108,4 +109,34 @@ public class HealthServicesForTaskRespository extends AbstractOdkRepository<Serv
 
         return hsft;
     }
-}
\ No newline at end of file
+
+    /**
+     * Loads every services for task row in a single query, grouped by task rowId.
+     * Within a task the services are in the same order as getHealthServicesForTask.
+     */
+    public Map<String, List<ServicesForProgram>> getHealthServicesForTasksByTaskId() {
+        EntityManager em = getEmf().createEntityManager();
+        EntityTransaction tx = null;
+        List<ServicesForProgram> hsft = null;
+        try {
+            tx = em.getTransaction();
+            tx.begin();
+
+            hsft = em
+                    .createQuery("SELECT d FROM ServicesForProgram d ORDER BY d.serviceId ASC", ServicesForProgram.class)
+                    .getResultList();
+
+            tx.commit();
+        } catch (RuntimeException e) {
+            if (tx != null && tx.isActive()) { tx.rollback(); }
+            throw (e);
+        } finally {
+            em.close();
+        }
+
+        return hsft
+                .stream()
+                .filter(sfp -> sfp.getProgramId() != null)
+                .collect(Collectors.groupingBy(ServicesForProgram::getProgramId));
+    }
+}
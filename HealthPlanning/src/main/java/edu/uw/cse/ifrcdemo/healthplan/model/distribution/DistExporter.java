@@ -101,6 +101,8 @@ public class DistExporter {
                 .readIndexedTypedCsv(CsvBeneficiaryEntity.class)
                 .orElseThrow(IllegalStateException::new);
 
+        Map<String, Entitlement> existingEntitlements = entitlementRepository.findEntitlementsByMember(authorization);
+
         LinkedList<Entitlement> newOrUpdatedEnt = new LinkedList<>();
         for (String entitledMemberId : entitledIds) {
             Individual entitledMember = indexedCsvMember.get(entitledMemberId);
@@ -109,9 +111,11 @@ public class DistExporter {
 
             // TODO: clean up
 
-            Entitlement entitlement = entitlementRepository
-                    .findEntitlement(authorization, entitledMemberId, entitledMemberBenUnitId)
-                    .orElseGet(EnabledEntitlement::new);
+            Entitlement entitlement = existingEntitlements.get(
+                    EntitlementRepository.getMemberKey(entitledMemberId, entitledMemberBenUnitId));
+            if (entitlement == null) {
+                entitlement = new EnabledEntitlement();
+            }
 
             entitlement.setAuthorization(authorization);
             entitlement.setBeneficiaryEntityId(entitledMemberBenUnitId);
@@ -154,13 +158,16 @@ public class DistExporter {
         PrimitiveIterator.OfLong unusedCodesItr = authorization.isAssignItemCode() ?
                 getUnusedItemCodeItr(authorization) : null;
 
+        Map<String, Entitlement> existingEntitlements = entitlementRepository.findEntitlementsByRcId(authorization);
+
         return RangeUtil
                 .toLongStream(authorization.getVoucherRanges())
                 .mapToObj(Long::toString)
                 .map(rcId -> {
-                    Entitlement entitlement = entitlementRepository
-                            .findEntitlement(authorization, rcId)
-                            .orElseGet(EnabledEntitlement::new);
+                    Entitlement entitlement = existingEntitlements.get(rcId);
+                    if (entitlement == null) {
+                        entitlement = new EnabledEntitlement();
+                    }
 
                     entitlement.setAuthorization(authorization);
                     entitlement.setBeneficiaryEntityId(rcId);
@@ -19,8 +19,7 @@ import com.fasterxml.jackson.databind.SequenceWriter;
 import com.fasterxml.jackson.dataformat.csv.CsvMapper;
 import edu.uw.cse.ifrcdemo.planningsharedlib.model.csv.CsvRepository;
 import edu.uw.cse.ifrcdemo.planningsharedlib.util.BeneficiaryUtilBase;
-import edu.uw.cse.ifrcdemo.sharedlib.consts.csv.MobileDbConsts;
-import edu.uw.cse.ifrcdemo.sharedlib.model.row.CsvBeneficiaryEntity;
+import edu.uw.cse.ifrcdemo.planningsharedlib.util.MemberDataIndex;
 import edu.uw.cse.ifrcdemo.sharedlib.model.row.CsvIndividual;
 import edu.uw.cse.ifrcdemo.sharedlib.model.row.UntypedSyncRow;
 import edu.uw.cse.ifrcdemo.sharedlib.util.CsvMapperUtil;
@@ -36,49 +35,14 @@ import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 public class BeneficiaryUtil extends BeneficiaryUtilBase {
+  /**
+   * Builds a {@link MemberDataIndex} for a single member. Use the index
+   * directly when merging data for more than one member.
+   */
   public static UntypedSyncRow getAllDataOnMember(CsvIndividual member,
                                                   CsvRepository csvRepository) {
-    UntypedSyncRow mergedRow = new UntypedSyncRow();
-
-    // start with all columns in individual's base table
-    addRowsFromTable(
-        MobileDbConsts.TableNames.INDIVIDUAL_TABLE_NAME, member.getRowId(), mergedRow, csvRepository);
-
-    // merge in individual's custom table columns
-    mergeCustomTableRow(member, csvRepository, mergedRow);
-
-    String beneficiaryEntityId = member.getBeneficiaryEntityRowId();
-    // merge in corresponding beneficiary entity's base table columns
-    addRowsFromTable(
-        MobileDbConsts.TableNames.BENEFICIARY_ENTITY_TABLE_NAME, beneficiaryEntityId, mergedRow, csvRepository);
-
-    // merge in corresponding beneficiary entity's custom table columns
-    CsvBeneficiaryEntity beneficiaryEntity = csvRepository
-        .readIndexedTypedCsv(CsvBeneficiaryEntity.class)
-        .orElseThrow(IllegalStateException::new)
-        .get(beneficiaryEntityId);
-    mergeCustomTableRow(beneficiaryEntity, csvRepository, mergedRow);
-
-    // commented out because visits aren't in health
-    // iterate through the visit entries and find the relevant ones
-    // Visits are added twice
-    //  1. Columns prefixed by table name
-    //  2. Columns prefixed by visit program id
-//    List<CsvVisit> relevantVisits = csvRepository
-//        .readTypedCsv(CsvVisit.class)
-//        .orElseThrow(IllegalStateException::new)
-//        .stream()
-//        .filter(v -> member.getRowId().equals(v.getMemberId()))
-//        .collect(Collectors.toList());
-
-//    relevantVisits.forEach(v -> mergeCustomTableRow(v, csvRepository, mergedRow));
-//
-//    Map<String, List<CsvVisit>> visitsByVisitProgram = relevantVisits
-//        .stream()
-//        .collect(Collectors.groupingBy(CsvVisit::getVisitProgramId));
-
-    mergedRow.setRowId(member.getRowId());
-    return mergedRow;
+    // visits aren't in health, so only the member and beneficiary entity are merged
+    return new MemberDataIndex(csvRepository).getAllDataOnMember(member);
   }
 
   public static void writeDataForMemberAsCsv(Collection<String> memberIds,
@@ -107,9 +71,10 @@ public class BeneficiaryUtil extends BeneficiaryUtilBase {
   private static void writeMemberDataCsv(Stream<CsvIndividual> memberBaseTable,
                                          Path csvPath,
                                          CsvRepository csvRepository) throws IOException {
+    MemberDataIndex memberDataIndex = new MemberDataIndex(csvRepository);
 
     List<UntypedSyncRow> memberData = memberBaseTable
-            .map(member -> BeneficiaryUtil.getAllDataOnMember(member, csvRepository))
+            .map(memberDataIndex::getAllDataOnMember)
             .collect(Collectors.toList());
 
     Set<String> columnSet = memberData
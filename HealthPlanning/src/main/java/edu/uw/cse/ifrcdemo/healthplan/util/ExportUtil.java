@@ -90,9 +90,12 @@ public class ExportUtil {
                 .getAllDistributions()
                 .forEach(distExporter::exportDistribution);
 
-        writeChangesForHealthTask(outputPath);
+        // every step of this export sees the same snapshot of the tasks
+        List<CsvHealthTask> activeHealthTasks = getActiveHealthTasks();
+
+        writeChangesForHealthTask(outputPath, activeHealthTasks);
         writeChangesForHealthServices(outputPath);
-        writeChangesForHealthServicesForTask(outputPath);
+        writeChangesForHealthServicesForTask(outputPath, activeHealthTasks);
         writeChangesForEntitlement(outputPath);
         writeChangesForAuthorization(outputPath);
         writeChangesForDistribution(outputPath);
@@ -100,13 +103,15 @@ public class ExportUtil {
     }
 
 
-    private boolean writeChangesForHealthTask(Path outputPath) {
-        List<CsvHealthTask> htFromDb = healthTaskRepository.getAllHealthTasks()
+    private List<CsvHealthTask> getActiveHealthTasks() {
+        return healthTaskRepository.getAllHealthTasks()
                 .stream()
                 .filter(ht -> !ht.getStatus().equals(HealthTaskStatus.DISABLED.name()))
                 .map(HealthTaskUtil::toCsvHealthTask)
                 .collect(Collectors.toList());
+    }
 
+    private boolean writeChangesForHealthTask(Path outputPath, List<CsvHealthTask> htFromDb) {
       //  Map<String, CsvHealthTask> indexedHt = csvRepository
       //          .readIndexedTypedCsv(CsvHealthTask.class)
       //          .orElseThrow(IllegalStateException::new);
@@ -130,25 +135,19 @@ public class ExportUtil {
         return writeChanges(outputPath, serviceFromDb, Service.class, CsvHealthService.class);
     }
 
-    private boolean writeChangesForHealthServicesForTask(Path outputPath) {
+    private boolean writeChangesForHealthServicesForTask(Path outputPath, List<CsvHealthTask> activeHtFromDb) {
 
         List<CsvHealthServicesForTask> activeServicesForTasks = new ArrayList<CsvHealthServicesForTask>();
 
-        List<CsvHealthTask> activeHtFromDb = healthTaskRepository.getAllHealthTasks()
-                .stream()
-                .filter(ht -> !ht.getStatus().equals(HealthTaskStatus.DISABLED.name()))
-                .map(HealthTaskUtil::toCsvHealthTask)
-                .collect(Collectors.toList());
+        Map<String, List<edu.uw.cse.ifrcdemo.healthplan.entity.ServicesForProgram>> servicesByTask =
+                hsftRepository.getHealthServicesForTasksByTaskId();
 
         for(CsvHealthTask ht : activeHtFromDb) {
-            List<CsvHealthServicesForTask> servicesForTask = hsftRepository.getHealthServicesForTask(ht.getRowId())
+            servicesByTask
+                .getOrDefault(ht.getRowId(), Collections.emptyList())
                 .stream()
                 .map(HealthServicesForTaskUtil::toCsvHealthServicesForTask)
-                .collect(Collectors.toList());
-
-            if(servicesForTask != null && !servicesForTask.isEmpty()) {
-                activeServicesForTasks.addAll(servicesForTask);
-            }
+                .forEach(activeServicesForTasks::add);
         }
 
         return writeChanges(outputPath, activeServicesForTasks, ServicesForProgram.class, CsvHealthServicesForTask.class);
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2016-2022 University of Washington
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *  Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *  Neither the name of the University of Washington nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE UNIVERSITY OF WASHINGTON AND CONTRIBUTORS “AS IS” AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE UNIVERSITY OF WASHINGTON OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+
+package edu.uw.cse.ifrcdemo.healthplan.model.csv;
+
+import edu.uw.cse.ifrcdemo.planningsharedlib.logic.ResourceInputStreamSupplier;
+import edu.uw.cse.ifrcdemo.planningsharedlib.model.csv.FileCsvRepository;
+import edu.uw.cse.ifrcdemo.sharedlib.model.row.CsvIndividual;
+import edu.uw.cse.ifrcdemo.sharedlib.model.row.UntypedSyncRow;
+import edu.uw.cse.ifrcdemo.sharedlib.util.FileUtil;
+import org.apache.commons.io.IOUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class FileCsvRepositoryTest {
+  private static final Path CSV_PATH = Paths.get("csv", "50_member");
+  private static final String MEMBERS_CSV = "members.csv";
+
+  private static final int BENCHMARK_ROWS = 200_000;
+  private static final int BENCHMARK_RUNS = 5;
+
+  private final Logger logger = LogManager.getLogger(FileCsvRepositoryTest.class);
+
+  @Test
+  void baseTableMatchesSeparateReads() throws IOException {
+    byte[] content = readMembers();
+
+    FileCsvRepository separate = new FileCsvRepository();
+    List<UntypedSyncRow> untyped = separate.readUntypedCsv(MEMBERS_CSV, new ByteArrayInputStream(content), true).join();
+    separate.readTypedCsv(CsvIndividual.class, new ByteArrayInputStream(content), true).join();
+
+    FileCsvRepository base = new FileCsvRepository();
+    List<CsvIndividual> typed = base
+        .readBaseCsv(CsvIndividual.class, MEMBERS_CSV, new ByteArrayInputStream(content), true)
+        .join();
+
+    assertEquals(separate.readTypedCsv(CsvIndividual.class).orElseThrow(IllegalStateException::new), typed);
+    assertSame(typed, base.readTypedCsv(CsvIndividual.class).orElseThrow(IllegalStateException::new));
+    assertEquals(untyped, base.readUntypedCsv(MEMBERS_CSV).orElseThrow(IllegalStateException::new));
+  }
+
+  /**
+   * Compares parsing a base table once per view with
+   * {@link FileCsvRepository#readBaseCsv(Class, String, InputStream, boolean)}.
+   *
+   * Run with mvn test -Dtest.excludedGroups= -Dgroups=benchmark
+   */
+  @Test
+  @Tag("benchmark")
+  void benchmarkReadBaseCsv() throws IOException {
+    byte[] content = replicateMembers(BENCHMARK_ROWS);
+
+    long separateNanos = Long.MAX_VALUE;
+    long baseNanos = Long.MAX_VALUE;
+    for (int i = 0; i < BENCHMARK_RUNS; i++) {
+      long start = System.nanoTime();
+      FileCsvRepository separate = new FileCsvRepository();
+      separate.readUntypedCsv(MEMBERS_CSV, new ByteArrayInputStream(content), true).join();
+      separate.readTypedCsv(CsvIndividual.class, new ByteArrayInputStream(content), true).join();
+      separateNanos = Math.min(separateNanos, System.nanoTime() - start);
+
+      start = System.nanoTime();
+      List<CsvIndividual> typed = new FileCsvRepository()
+          .readBaseCsv(CsvIndividual.class, MEMBERS_CSV, new ByteArrayInputStream(content), true)
+          .join();
+      baseNanos = Math.min(baseNanos, System.nanoTime() - start);
+
+      assertEquals(BENCHMARK_ROWS, typed.size());
+    }
+
+    logger.info("{} rows: untyped + typed parse {} ms, readBaseCsv {} ms",
+        BENCHMARK_ROWS,
+        TimeUnit.NANOSECONDS.toMillis(separateNanos),
+        TimeUnit.NANOSECONDS.toMillis(baseNanos)
+    );
+  }
+
+  private byte[] readMembers() throws IOException {
+    String resource = FileUtil.getPathToCSV(CSV_PATH, MEMBERS_CSV).toString();
+
+    try (InputStream in = new ResourceInputStreamSupplier(resource).get()) {
+      return IOUtils.toByteArray(in);
+    }
+  }
+
+  // repeats the member rows under new row ids
+  private byte[] replicateMembers(int rows) throws IOException {
+    List<String> lines = IOUtils.readLines(new ByteArrayInputStream(readMembers()), StandardCharsets.UTF_8);
+
+    StringBuilder builder = new StringBuilder(lines.get(0)).append('\n');
+    for (int i = 0; i < rows; i++) {
+      String line = lines.get(1 + i % (lines.size() - 1));
+      builder
+          .append("\"uuid:benchmark-").append(i).append('"')
+          .append(line, line.indexOf(','), line.length())
+          .append('\n');
+    }
+
+    return builder.toString().getBytes(StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2016-2022 University of Washington
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *  Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *  Neither the name of the University of Washington nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE UNIVERSITY OF WASHINGTON AND CONTRIBUTORS “AS IS” AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE UNIVERSITY OF WASHINGTON OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+
+
+package edu.uw.cse.ifrcdemo.healthplan.util;
+
+import edu.uw.cse.ifrcdemo.planningsharedlib.logic.ResourceInputStreamSupplier;
+import edu.uw.cse.ifrcdemo.planningsharedlib.model.csv.CsvRepository;
+import edu.uw.cse.ifrcdemo.planningsharedlib.model.csv.FileCsvRepository;
+import edu.uw.cse.ifrcdemo.planningsharedlib.util.CsvLoadPlan;
+import edu.uw.cse.ifrcdemo.sharedlib.model.row.CsvBeneficiaryEntity;
+import edu.uw.cse.ifrcdemo.sharedlib.model.row.CsvIndividual;
+import edu.uw.cse.ifrcdemo.sharedlib.util.FileUtil;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CsvLoadPlanTest {
+  private static final Path CSV_PATH = Paths.get("csv", "50_member");
+
+  private Map<String, AtomicInteger> reads;
+  private Set<Thread> readThreads;
+  private CsvLoadPlan plan;
+
+  @BeforeEach
+  void setUp() {
+    reads = new ConcurrentHashMap<>();
+    readThreads = ConcurrentHashMap.newKeySet();
+    plan = new CsvLoadPlan(filename -> () -> {
+      reads.computeIfAbsent(filename, __ -> new AtomicInteger()).incrementAndGet();
+      readThreads.add(Thread.currentThread());
+      return new ResourceInputStreamSupplier(FileUtil.getPathToCSV(CSV_PATH, filename).toString()).get();
+    });
+  }
+
+  @Test
+  void everyFileIsReadOnce() {
+    CsvRepository repo = plan
+        .baseTable(CsvIndividual.class)
+        .baseTableWithCustomTable(CsvBeneficiaryEntity.class)
+        .baseTableWithCustomTable(CsvIndividual.class)
+        .baseTable(CsvBeneficiaryEntity.class)
+        .threads(2)
+        .load(new FileCsvRepository())
+        .join();
+
+    assertEquals(new HashSet<>(Arrays.asList(
+        "members.csv",
+        "custom_members_1.csv",
+        "custom_members_2.csv",
+        "beneficiary_entities.csv",
+        "custom_beneficiary_entities_1.csv",
+        "custom_beneficiary_entities_2.csv"
+    )), reads.keySet());
+    reads.forEach((filename, count) -> assertEquals(1, count.get(), filename));
+
+    assertTrue(repo.readTypedCsv(CsvIndividual.class).isPresent());
+    assertTrue(repo.readUntypedCsv("custom_members_1.csv").isPresent());
+  }
+
+  @Test
+  void filesAreParsedOnThePlanExecutor() {
+    plan
+        .baseTableWithCustomTable(CsvIndividual.class)
+        .baseTableWithCustomTable(CsvBeneficiaryEntity.class)
+        .load(new FileCsvRepository())
+        .join();
+
+    assertFalse(readThreads.isEmpty());
+    readThreads.forEach(thread -> assertFalse(thread instanceof ForkJoinWorkerThread, thread.getName()));
+  }
+
+  @Test
+  void loadStatsAreRecorded() {
+    CsvRepository repo = plan
+        .baseTableWithCustomTable(CsvIndividual.class)
+        .load(new FileCsvRepository())
+        .join();
+
+    assertEquals(reads.keySet(), plan.getLoadStats().keySet());
+    assertEquals(
+        repo.readTypedCsv(CsvIndividual.class).orElseThrow(IllegalStateException::new).size(),
+        plan.getLoadStats().get("members.csv").getRows()
+    );
+    assertEquals(
+        repo.readUntypedCsv("custom_members_2.csv").orElseThrow(IllegalStateException::new).size(),
+        plan.getLoadStats().get("custom_members_2.csv").getRows()
+    );
+  }
+}
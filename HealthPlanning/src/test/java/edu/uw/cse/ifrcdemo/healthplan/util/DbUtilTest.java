@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2016-2022 University of Washington
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *  Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *  Neither the name of the University of Washington nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE UNIVERSITY OF WASHINGTON AND CONTRIBUTORS “AS IS” AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE UNIVERSITY OF WASHINGTON OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+
+
+package edu.uw.cse.ifrcdemo.healthplan.util;
+
+import edu.uw.cse.ifrcdemo.healthplan.data.HealthDataInstance;
+import edu.uw.cse.ifrcdemo.planningsharedlib.consts.DbConsts;
+import edu.uw.cse.ifrcdemo.planningsharedlib.entity.Authorization;
+import edu.uw.cse.ifrcdemo.planningsharedlib.entity.EnabledEntitlement;
+import edu.uw.cse.ifrcdemo.planningsharedlib.entity.Entitlement;
+import edu.uw.cse.ifrcdemo.planningsharedlib.entity.Item;
+import edu.uw.cse.ifrcdemo.planningsharedlib.model.authorization.DbAuthorizationRepository;
+import edu.uw.cse.ifrcdemo.planningsharedlib.model.entitlement.EntitlementRepository;
+import edu.uw.cse.ifrcdemo.planningsharedlib.util.DbUtil;
+import edu.uw.cse.ifrcdemo.sharedlib.model.datattype.AuthorizationStatus;
+import edu.uw.cse.ifrcdemo.sharedlib.model.datattype.AuthorizationType;
+import edu.uw.cse.ifrcdemo.sharedlib.model.datattype.ExtraFieldEntitlements;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import org.apache.commons.io.FileUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DbUtilTest {
+  private static final int BENCHMARK_ENTITLEMENTS = 50_000;
+  private static final int BENCHMARK_AUTHORIZATIONS = 2_000;
+  private static final int BENCHMARK_QUERIES = 50;
+  private static final int BENCHMARK_RUNS = 3;
+
+  private final Logger logger = LogManager.getLogger(DbUtilTest.class);
+
+  private Path tempDir;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    tempDir = Files.createTempDirectory("dbutil");
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    FileUtils.deleteDirectory(tempDir.toFile());
+  }
+
+  @Test
+  void pragmasReachSqliteJdbc() {
+    EntityManagerFactory emf = newProfile(tempDir.resolve("health.db"));
+
+    try {
+      assertEquals("wal", pragma(emf, "journal_mode"));
+      // NORMAL
+      assertEquals(1L, ((Number) pragma(emf, "synchronous")).longValue());
+      assertEquals(
+          Long.parseLong(DbConsts.DEFAULT_SQLITE_CACHE_SIZE),
+          ((Number) pragma(emf, "cache_size")).longValue()
+      );
+    } finally {
+      emf.close();
+    }
+  }
+
+  @Test
+  void systemPropertyOverridesProfile() {
+    System.setProperty(DbConsts.SQLITE_JOURNAL_MODE_KEY, "TRUNCATE");
+
+    try {
+      EntityManagerFactory emf = newProfile(tempDir.resolve("health.db"));
+
+      try {
+        assertEquals("truncate", pragma(emf, "journal_mode"));
+      } finally {
+        emf.close();
+      }
+    } finally {
+      System.clearProperty(DbConsts.SQLITE_JOURNAL_MODE_KEY);
+    }
+  }
+
+  /**
+   * Compares {@link EntitlementRepository#bulkSaveEntitlement(List)} on a
+   * database opened with the old properties and with
+   * {@link DbUtil#createEntityManagerFactory(String, String)}.
+   *
+   * Run with mvn test -Dtest.excludedGroups= -Dgroups=benchmark
+   */
+  @Test
+  @Tag("benchmark")
+  void benchmarkEntitlementBulkInsert() {
+    long oldNanos = Long.MAX_VALUE;
+    long newNanos = Long.MAX_VALUE;
+    for (int i = 0; i < BENCHMARK_RUNS; i++) {
+      oldNanos = Math.min(oldNanos, timeBulkInsert(tempDir.resolve("old" + i + ".db"), this::oldProfile));
+      newNanos = Math.min(newNanos, timeBulkInsert(tempDir.resolve("new" + i + ".db"), this::newProfile));
+    }
+
+    logger.info("{} entitlements: old profile {} ms, new profile {} ms",
+        BENCHMARK_ENTITLEMENTS,
+        TimeUnit.NANOSECONDS.toMillis(oldNanos),
+        TimeUnit.NANOSECONDS.toMillis(newNanos)
+    );
+  }
+
+  /**
+   * Compares {@link DbAuthorizationRepository#getAuthorizations(AuthorizationStatus)}
+   * on a database opened with the old properties and with
+   * {@link DbUtil#createEntityManagerFactory(String, String)}.
+   *
+   * Run with mvn test -Dtest.excludedGroups= -Dgroups=benchmark
+   */
+  @Test
+  @Tag("benchmark")
+  void benchmarkAuthorizationQueries() {
+    long oldNanos = Long.MAX_VALUE;
+    long newNanos = Long.MAX_VALUE;
+    for (int i = 0; i < BENCHMARK_RUNS; i++) {
+      oldNanos = Math.min(oldNanos, timeQueries(tempDir.resolve("old" + i + ".db"), this::oldProfile));
+      newNanos = Math.min(newNanos, timeQueries(tempDir.resolve("new" + i + ".db"), this::newProfile));
+    }
+
+    logger.info("{} authorizations x {} queries: old profile {} ms, new profile {} ms",
+        BENCHMARK_AUTHORIZATIONS,
+        BENCHMARK_QUERIES,
+        TimeUnit.NANOSECONDS.toMillis(oldNanos),
+        TimeUnit.NANOSECONDS.toMillis(newNanos)
+    );
+  }
+
+  private long timeBulkInsert(Path db, Function<Path, EntityManagerFactory> profile) {
+    EntityManagerFactory emf = profile.apply(db);
+
+    try {
+      Authorization authorization = persistAuthorizations(emf, 1).get(0);
+
+      List<Entitlement> entitlements = new ArrayList<>(BENCHMARK_ENTITLEMENTS);
+      for (int i = 0; i < BENCHMARK_ENTITLEMENTS; i++) {
+        EnabledEntitlement entitlement = new EnabledEntitlement();
+        entitlement.setAuthorization(authorization);
+        entitlement.setBeneficiaryEntityId("uuid:benchmark-" + i);
+        entitlements.add(entitlement);
+      }
+
+      long start = System.nanoTime();
+      new EntitlementRepository(emf).bulkSaveEntitlement(entitlements).join();
+      return System.nanoTime() - start;
+    } finally {
+      emf.close();
+    }
+  }
+
+  private long timeQueries(Path db, Function<Path, EntityManagerFactory> profile) {
+    EntityManagerFactory emf = profile.apply(db);
+
+    try {
+      persistAuthorizations(emf, BENCHMARK_AUTHORIZATIONS);
+      DbAuthorizationRepository repository = new DbAuthorizationRepository(emf);
+
+      long start = System.nanoTime();
+      for (int i = 0; i < BENCHMARK_QUERIES; i++) {
+        List<Authorization> active = repository.getAuthorizations(AuthorizationStatus.ACTIVE).join();
+        assertEquals(BENCHMARK_AUTHORIZATIONS / 2, active.size());
+      }
+      return System.nanoTime() - start;
+    } finally {
+      emf.close();
+    }
+  }
+
+  // every other authorization is active
+  private List<Authorization> persistAuthorizations(EntityManagerFactory emf, int count) {
+    EntityManager em = emf.createEntityManager();
+    em.getTransaction().begin();
+
+    Item item = new Item();
+    item.setName("benchmark");
+    em.persist(item);
+
+    List<Authorization> authorizations = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      Authorization authorization = new Authorization();
+      authorization.setType(AuthorizationType.REQUIRED_REGISTRATION);
+      authorization.setItem(item);
+      authorization.setExtraFieldEntitlements(ExtraFieldEntitlements.NONE);
+      authorization.setStatus(i % 2 == 0 ? AuthorizationStatus.ACTIVE : AuthorizationStatus.INACTIVE);
+      em.persist(authorization);
+      authorizations.add(authorization);
+    }
+
+    em.getTransaction().commit();
+    em.close();
+
+    return authorizations;
+  }
+
+  private Object pragma(EntityManagerFactory emf, String name) {
+    EntityManager em = emf.createEntityManager();
+
+    try {
+      return em.createNativeQuery("PRAGMA " + name).getSingleResult();
+    } finally {
+      em.close();
+    }
+  }
+
+  // the properties used before the performance profile
+  private EntityManagerFactory oldProfile(Path db) {
+    Map<String, String> props = new HashMap<>();
+    props.put(DbConsts.PERSISTENCE_JDBC_URL_KEY, DbConsts.JDBC_SQLITE_PREFIX + db.toAbsolutePath());
+    props.put("foreign_keys", "true");
+
+    return Persistence.createEntityManagerFactory(HealthDataInstance.HEALTH_DATABASE, props);
+  }
+
+  private EntityManagerFactory newProfile(Path db) {
+    return DbUtil.createEntityManagerFactory(db.toAbsolutePath().toString(), HealthDataInstance.HEALTH_DATABASE);
+  }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2016-2022 University of Washington
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *  Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *  Neither the name of the University of Washington nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE UNIVERSITY OF WASHINGTON AND CONTRIBUTORS “AS IS” AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE UNIVERSITY OF WASHINGTON OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+
+package edu.uw.cse.ifrcdemo.healthplan.util;
+
+import edu.uw.cse.ifrcdemo.healthplan.data.HealthDataInstance;
+import edu.uw.cse.ifrcdemo.healthplan.entity.HealthTask;
+import edu.uw.cse.ifrcdemo.healthplan.entity.ServicesForProgram;
+import edu.uw.cse.ifrcdemo.healthplan.logic.HealthTaskStatus;
+import edu.uw.cse.ifrcdemo.healthplan.model.HealthServiceRepository;
+import edu.uw.cse.ifrcdemo.healthplan.model.HealthServicesForTaskRespository;
+import edu.uw.cse.ifrcdemo.healthplan.model.HealthTaskRepository;
+import edu.uw.cse.ifrcdemo.healthplan.model.csv.MockCsvRepository;
+import edu.uw.cse.ifrcdemo.healthplan.model.distribution.DistExporter;
+import edu.uw.cse.ifrcdemo.planningsharedlib.consts.DbConsts;
+import edu.uw.cse.ifrcdemo.planningsharedlib.model.authorization.DbAuthorizationRepository;
+import edu.uw.cse.ifrcdemo.planningsharedlib.model.distribution.DistributionRepository;
+import edu.uw.cse.ifrcdemo.planningsharedlib.model.entitlement.EntitlementRepository;
+import edu.uw.cse.ifrcdemo.sharedlib.model.row.BaseSyncRow;
+import edu.uw.cse.ifrcdemo.sharedlib.model.row.CsvAuthorization;
+import edu.uw.cse.ifrcdemo.sharedlib.model.row.CsvDistribution;
+import edu.uw.cse.ifrcdemo.sharedlib.model.row.CsvEntitlement;
+import edu.uw.cse.ifrcdemo.sharedlib.model.row.CsvHealthService;
+import edu.uw.cse.ifrcdemo.sharedlib.model.row.CsvHealthServicesForTask;
+import edu.uw.cse.ifrcdemo.sharedlib.model.row.CsvHealthTask;
+import edu.uw.cse.ifrcdemo.sharedlib.util.FileUtil;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import org.apache.commons.io.FileUtils;
+import org.apache.logging.log4j.LogManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExportUtilTest {
+  private static final String HIBERNATE_GENERATE_STATISTICS_KEY = "hibernate.generate_statistics";
+  private static final int SERVICES_PER_TASK = 2;
+
+  private Path tempDir;
+  private EntityManagerFactory emf;
+  private Statistics statistics;
+  private ExportUtil exportUtil;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    tempDir = Files.createTempDirectory("export");
+
+    Map<String, String> props = new HashMap<>();
+    props.put(DbConsts.PERSISTENCE_JDBC_URL_KEY,
+        DbConsts.JDBC_SQLITE_PREFIX + tempDir.resolve("health.db").toAbsolutePath());
+    props.put(HIBERNATE_GENERATE_STATISTICS_KEY, Boolean.TRUE.toString());
+
+    emf = Persistence.createEntityManagerFactory(HealthDataInstance.HEALTH_DATABASE, props);
+    statistics = emf.unwrap(SessionFactory.class).getStatistics();
+
+    Map<Class<? extends BaseSyncRow>, List<? extends BaseSyncRow>> typedCsv = new HashMap<>();
+    typedCsv.put(CsvHealthTask.class, Collections.emptyList());
+    typedCsv.put(CsvHealthService.class, Collections.emptyList());
+    typedCsv.put(CsvHealthServicesForTask.class, Collections.emptyList());
+    typedCsv.put(CsvDistribution.class, Collections.emptyList());
+    typedCsv.put(CsvAuthorization.class, Collections.emptyList());
+    typedCsv.put(CsvEntitlement.class, Collections.emptyList());
+
+    exportUtil = new ExportUtil(
+        new HealthTaskRepository(emf),
+        new HealthServiceRepository(emf),
+        new HealthServicesForTaskRespository(emf),
+        new DistributionRepository(emf),
+        new DbAuthorizationRepository(emf),
+        new EntitlementRepository(emf),
+        new MockCsvRepository(Collections.emptyMap(), typedCsv),
+        new DistExporter(LogManager.getLogger(ExportUtilTest.class)),
+        LogManager.getLogger(ExportUtilTest.class),
+        Collections.emptyMap()
+    );
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    emf.close();
+    FileUtils.deleteDirectory(tempDir.toFile());
+  }
+
+  @Test
+  void queryCountDoesNotGrowWithTasks() throws IOException {
+    addTasks(0, 5);
+    long fewTasksQueries = countExportQueries();
+
+    addTasks(5, 50);
+    long manyTasksQueries = countExportQueries();
+
+    assertEquals(fewTasksQueries, manyTasksQueries);
+  }
+
+  @Test
+  void tasksAndServicesForTasksAreQueriedOnce() throws IOException {
+    addTasks(0, 20);
+    countExportQueries();
+
+    assertEquals(1, getExecutionCount("FROM HealthTask"));
+    assertEquals(1, getExecutionCount("FROM ServicesForProgram"));
+  }
+
+  @Test
+  void disabledTasksAreNotExported() throws IOException {
+    // every other task is disabled
+    List<String> enabledTaskIds = addTasks(0, 10);
+    countExportQueries();
+
+    // the csv repository is empty, so every service of an enabled task is written as a new row after the header
+    List<String> lines = Files.readAllLines(
+        tempDir.resolve(FileUtil.getFileName(CsvHealthServicesForTask.class)));
+    assertEquals(1 + enabledTaskIds.size() * SERVICES_PER_TASK, lines.size());
+
+    for (String line : lines.subList(1, lines.size())) {
+      assertTrue(enabledTaskIds.stream().anyMatch(line::contains), line);
+    }
+  }
+
+  private long countExportQueries() {
+    statistics.clear();
+    exportUtil.export(tempDir);
+    return statistics.getQueryExecutionCount();
+  }
+
+  private long getExecutionCount(String queryFragment) {
+    long count = 0;
+    for (String query : statistics.getQueries()) {
+      if (query.contains(queryFragment)) {
+        count += statistics.getQueryStatistics(query).getExecutionCount();
+      }
+    }
+    return count;
+  }
+
+  private List<String> addTasks(int from, int to) {
+    List<String> enabledTaskIds = new ArrayList<>();
+    EntityManager em = emf.createEntityManager();
+    try {
+      em.getTransaction().begin();
+
+      for (int i = from; i < to; i++) {
+        HealthTask task = new HealthTask();
+        task.setName("task " + i);
+        task.setStatus(i % 2 == 0 ? HealthTaskStatus.ENABLED.name() : HealthTaskStatus.DISABLED.name());
+        em.persist(task);
+
+        if (i % 2 == 0) {
+          enabledTaskIds.add(task.getRowId());
+        }
+
+        for (int j = 0; j < SERVICES_PER_TASK; j++) {
+          ServicesForProgram servicesForProgram = new ServicesForProgram();
+          servicesForProgram.setProgramId(task.getRowId());
+          servicesForProgram.setServiceId("service " + j);
+          em.persist(servicesForProgram);
+        }
+      }
+
+      em.getTransaction().commit();
+    } finally {
+      em.close();
+    }
+
+    return enabledTaskIds;
+  }
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright (c) 2016-2022 University of Washington
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *  Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *  Neither the name of the University of Washington nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE UNIVERSITY OF WASHINGTON AND CONTRIBUTORS “AS IS” AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE UNIVERSITY OF WASHINGTON OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+
+package edu.uw.cse.ifrcdemo.mustachetopdf;
+
+import com.github.mustachejava.Mustache;
+import com.openhtmltopdf.extend.FSCacheEx;
+import com.openhtmltopdf.extend.FSCacheValue;
+import com.openhtmltopdf.extend.FSStream;
+import com.openhtmltopdf.extend.impl.FSDefaultCacheStore;
+import com.openhtmltopdf.outputdevice.helper.BaseRendererBuilder;
+import com.openhtmltopdf.pdfboxout.PdfRendererBuilder;
+import edu.uw.cse.ifrcdemo.sharedlib.consts.GenConsts;
+import edu.uw.cse.ifrcdemo.translations.LogStr;
+import org.apache.commons.io.IOUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.message.FormattedMessage;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.multipdf.PDFMergerUtility;
+import org.jsoup.Jsoup;
+import org.jsoup.helper.W3CDom;
+import org.w3c.dom.Document;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.openhtmltopdf.pdfboxout.PdfRendererBuilder.PAGE_SIZE_LETTER_HEIGHT;
+import static com.openhtmltopdf.pdfboxout.PdfRendererBuilder.PAGE_SIZE_LETTER_UNITS;
+import static com.openhtmltopdf.pdfboxout.PdfRendererBuilder.PAGE_SIZE_LETTER_WIDTH;
+
+/**
+ * Renders any number of documents with the same page layout and resources.
+ *
+ * Font metrics, resolved resource URIs and the content of classpath
+ * resources, such as stylesheets and images, are kept for the lifetime of the
+ * session instead of being loaded again for every document. A session is
+ * thread-safe, documents may be rendered from several threads at once.
+ */
+public class PdfSession {
+	private static final String PDF_RES_DIR = "/static";
+	private static final char URI_KEY_SEPARATOR = '\n';
+	private static final int INITIAL_HTML_CAPACITY = 64 * 1024;
+	// heap used by the merger before it spills to temporary files
+	private static final long MERGE_MAIN_MEMORY_BYTES = 16 * 1024 * 1024;
+	private static final String TEMP_FILE_PREFIX = "pdf-session";
+	// protocols of resolved classpath resources
+	private static final String[] RESOURCE_PROTOCOLS = { "file", "jar" };
+
+	private static final Logger logger = LogManager.getLogger(PdfSession.class);
+
+	private final boolean landscape;
+
+	private final FSCacheEx<String, FSCacheValue> fontMetricsCache;
+	// baseUri + separator + uri -> resolved uri, empty if the resource does not exist
+	private final Map<String, Optional<String>> resolvedUris;
+	// resolved uri -> content, only for resources resolved by this session
+	private final Map<String, byte[]> resourceContent;
+
+	private PdfSession(boolean landscape) {
+		this.landscape = landscape;
+		this.fontMetricsCache = new FSDefaultCacheStore();
+		this.resolvedUris = new ConcurrentHashMap<>();
+		this.resourceContent = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * A session for documents that use the page size declared by their stylesheet.
+	 */
+	public static PdfSession create() {
+		return new PdfSession(false);
+	}
+
+	/**
+	 * A session for documents printed on landscape letter pages.
+	 */
+	public static PdfSession createLandscape() {
+		return new PdfSession(true);
+	}
+
+	public void render(Mustache mustache, Object scopes, Path output) throws Exception {
+		render(executeTemplate(mustache, scopes), output);
+	}
+
+	public void render(String html5, Path output) throws Exception {
+		render(parseHtml(html5), output);
+	}
+
+	public void render(Document document, Path output) throws Exception {
+		try (OutputStream stream = Files.newOutputStream(output)) {
+			render(document, stream);
+		}
+	}
+
+	public void render(Document document, OutputStream stream) throws Exception {
+		PdfRendererBuilder builder = new PdfRendererBuilder()
+				.useUriResolver(this::resolveUri)
+				.useProtocolsStreamImplementation(this::openResource, RESOURCE_PROTOCOLS)
+				.useCacheStore(BaseRendererBuilder.CacheStore.PDF_FONT_METRICS, fontMetricsCache)
+				.withW3cDocument(document, PDF_RES_DIR)
+				.toStream(stream);
+
+		if (landscape) {
+			builder.useDefaultPageSize(PAGE_SIZE_LETTER_HEIGHT, PAGE_SIZE_LETTER_WIDTH,
+					PAGE_SIZE_LETTER_UNITS);
+		}
+
+		builder.run();
+	}
+
+	/**
+	 * Renders the template once per scope, scopes.get(i) is written to outputs.get(i).
+	 */
+	public void renderToFiles(Mustache mustache, List<?> scopes, List<Path> outputs) throws Exception {
+		if (scopes.size() != outputs.size()) {
+			throw new IllegalArgumentException("scopes and outputs must have the same size");
+		}
+
+		for (int i = 0; i < scopes.size(); i++) {
+			render(mustache, scopes.get(i), outputs.get(i));
+		}
+	}
+
+	/**
+	 * Renders the template once per scope and writes the pages of every
+	 * document, in the order of scopes, into a single pdf.
+	 *
+	 * Each document is rendered to a temporary file, and the merger keeps at
+	 * most MERGE_MAIN_MEMORY_BYTES in memory, so the batch size is not
+	 * limited by the heap.
+	 */
+	public void renderToSingleFile(Mustache mustache, List<?> scopes, Path output) throws Exception {
+		List<Path> documents = new ArrayList<>(scopes.size());
+
+		try {
+			PDFMergerUtility merger = new PDFMergerUtility();
+
+			for (Object scope : scopes) {
+				Path document = Files.createTempFile(TEMP_FILE_PREFIX, GenConsts.PDF_FILE_EXTENSION);
+				documents.add(document);
+
+				render(mustache, scope, document);
+				merger.addSource(document.toFile());
+			}
+
+			try (OutputStream stream = Files.newOutputStream(output)) {
+				merger.setDestinationStream(stream);
+				merger.mergeDocuments(MemoryUsageSetting.setupMixed(MERGE_MAIN_MEMORY_BYTES));
+			}
+		} finally {
+			for (Path document : documents) {
+				Files.deleteIfExists(document);
+			}
+		}
+	}
+
+	private static String executeTemplate(Mustache mustache, Object scopes) throws Exception {
+		StringWriter sw = new StringWriter(INITIAL_HTML_CAPACITY);
+		mustache.execute(sw, scopes).flush();
+		return sw.toString();
+	}
+
+	private static Document parseHtml(String html5) {
+		// templates are html5 rather than xhtml, so they go through jsoup
+		return new W3CDom().fromJsoup(Jsoup.parse(html5));
+	}
+
+	private String resolveUri(String baseUri, String uri) {
+		if (uri == null || uri.isEmpty()) {
+			return null;
+		}
+
+		try {
+			URI uri1 = new URI(uri);
+
+			// absolute uris include data uris of attachments, they are not worth caching
+			if (uri1.isAbsolute()) {
+				return uri1.toString();
+			}
+		} catch (URISyntaxException e) {
+			logger.warn(new FormattedMessage(LogStr.LOG_INVALID_RESOURCE_URI, uri), e);
+			return null;
+		}
+
+		return resolvedUris
+				.computeIfAbsent(baseUri + URI_KEY_SEPARATOR + uri, __ -> Optional.ofNullable(resolveResource(baseUri, uri)))
+				.orElse(null);
+	}
+
+	private String resolveResource(String baseUri, String uri) {
+		String separator = (baseUri.endsWith(GenConsts.PATH_SEPARATOR) || uri.startsWith(GenConsts.PATH_SEPARATOR)) ? GenConsts.EMPTY_STRING : GenConsts.PATH_SEPARATOR;
+
+		URL resource = PdfSession.class.getResource(baseUri + separator + uri);
+		if (resource == null) {
+			return null;
+		}
+
+		String resolved = resource.toString();
+		byte[] content = readResource(resolved);
+		if (content != null) {
+			resourceContent.put(resolved, content);
+		}
+
+		return resolved;
+	}
+
+	private FSStream openResource(String uri) {
+		byte[] content = resourceContent.get(uri);
+
+		return new FSStream() {
+			@Override
+			public InputStream getStream() {
+				if (content != null) {
+					return new ByteArrayInputStream(content);
+				}
+
+				// not resolved by this session, read without caching
+				try {
+					return new URL(uri).openStream();
+				} catch (IOException e) {
+					logger.warn(new FormattedMessage(LogStr.LOG_FAILED_TO_READ_IGNORED, uri), e);
+					return null;
+				}
+			}
+
+			@Override
+			public Reader getReader() {
+				InputStream stream = getStream();
+				return stream != null ? new InputStreamReader(stream, StandardCharsets.UTF_8) : null;
+			}
+		};
+	}
+
+	private static byte[] readResource(String uri) {
+		try (InputStream stream = new URL(uri).openStream()) {
+			return IOUtils.toByteArray(stream);
+		} catch (IOException e) {
+			logger.warn(new FormattedMessage(LogStr.LOG_FAILED_TO_READ_IGNORED, uri), e);
+			return null;
+		}
+	}
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2016-2022 University of Washington
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *  Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *  Neither the name of the University of Washington nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE UNIVERSITY OF WASHINGTON AND CONTRIBUTORS “AS IS” AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE UNIVERSITY OF WASHINGTON OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+
+package edu.uw.cse.ifrcdemo.mustachetopdf;
+
+import com.github.mustachejava.DefaultMustacheFactory;
+import com.github.mustachejava.Mustache;
+import org.apache.commons.io.FileUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PdfSessionTest {
+  private static final String TEMPLATE = "<html><head><link rel=\"stylesheet\" href=\"pdf-session-test.css\"/></head>"
+      + "<body><p class=\"name\">{{name}}</p></body></html>";
+  private static final List<String> NAMES = Arrays.asList("first", "second", "third");
+
+  private static final int BENCHMARK_DOCUMENTS = 100;
+
+  private final Logger logger = LogManager.getLogger(PdfSessionTest.class);
+
+  private Path outputDir;
+  private Mustache template;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    outputDir = Files.createTempDirectory(PdfSessionTest.class.getSimpleName());
+    template = new DefaultMustacheFactory().compile(new StringReader(TEMPLATE), PdfSessionTest.class.getSimpleName());
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    FileUtils.deleteDirectory(outputDir.toFile());
+  }
+
+  @Test
+  void renderToFilesWritesOneDocumentPerScope() throws Exception {
+    List<Path> outputs = outputs(NAMES.size());
+
+    PdfSession.create().renderToFiles(template, scopes(NAMES), outputs);
+
+    for (int i = 0; i < NAMES.size(); i++) {
+      try (PDDocument document = PDDocument.load(outputs.get(i).toFile())) {
+        assertEquals(1, document.getNumberOfPages());
+        assertTrue(new PDFTextStripper().getText(document).contains(NAMES.get(i)));
+      }
+    }
+  }
+
+  @Test
+  void renderToFilesRejectsMismatchedOutputs() {
+    assertThrows(IllegalArgumentException.class,
+        () -> PdfSession.create().renderToFiles(template, scopes(NAMES), outputs(NAMES.size() - 1)));
+  }
+
+  @Test
+  void renderToSingleFileKeepsScopeOrder() throws Exception {
+    Path output = outputDir.resolve("merged.pdf");
+
+    PdfSession.create().renderToSingleFile(template, scopes(NAMES), output);
+
+    try (PDDocument document = PDDocument.load(output.toFile())) {
+      assertEquals(NAMES.size(), document.getNumberOfPages());
+
+      PDFTextStripper stripper = new PDFTextStripper();
+      for (int i = 0; i < NAMES.size(); i++) {
+        stripper.setStartPage(i + 1);
+        stripper.setEndPage(i + 1);
+        assertTrue(stripper.getText(document).contains(NAMES.get(i)));
+      }
+    }
+  }
+
+  /**
+   * Compares a new session per document, which loads fonts and resources
+   * every time, with one session for the whole batch.
+   *
+   * Run with mvn test -Dtest.excludedGroups= -Dgroups=benchmark
+   */
+  @Test
+  @Tag("benchmark")
+  void benchmarkSessionReuse() throws Exception {
+    List<String> names = new ArrayList<>(BENCHMARK_DOCUMENTS);
+    for (int i = 0; i < BENCHMARK_DOCUMENTS; i++) {
+      names.add("document " + i);
+    }
+    List<?> scopes = scopes(names);
+    List<Path> outputs = outputs(BENCHMARK_DOCUMENTS);
+
+    // warm up the renderer before timing either path
+    PdfSession.create().render(template, scopes.get(0), outputs.get(0));
+
+    long start = System.nanoTime();
+    for (int i = 0; i < BENCHMARK_DOCUMENTS; i++) {
+      PdfSession.create().render(template, scopes.get(i), outputs.get(i));
+    }
+    long perDocumentNanos = System.nanoTime() - start;
+
+    start = System.nanoTime();
+    PdfSession.create().renderToFiles(template, scopes, outputs);
+    long sessionNanos = System.nanoTime() - start;
+
+    logger.info("{} documents: new session per document {} ms, one session {} ms",
+        BENCHMARK_DOCUMENTS,
+        TimeUnit.NANOSECONDS.toMillis(perDocumentNanos),
+        TimeUnit.NANOSECONDS.toMillis(sessionNanos)
+    );
+  }
+
+  private static List<Map<String, String>> scopes(List<String> names) {
+    List<Map<String, String>> scopes = new ArrayList<>(names.size());
+    for (String name : names) {
+      scopes.add(Collections.singletonMap("name", name));
+    }
+
+    return scopes;
+  }
+
+  private List<Path> outputs(int count) {
+    List<Path> outputs = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      outputs.add(outputDir.resolve(i + ".pdf"));
+    }
+
+    return outputs;
+  }
+}
@@ -18,8 +18,44 @@ public class DbConsts {
 
     public static final String DB_IN_JAR_RESOURCE_NAME = "/database";
 
-    public static final String[] PERSISTENCE_OVERRIDE_KEYS = { "javax.persistence.jdbc.url" };
     public static final String PERSISTENCE_JDBC_URL_KEY = "javax.persistence.jdbc.url";
     public static final String JDBC_SQLITE_PREFIX = "jdbc:sqlite:";
 
+    // hibernate.connection.* properties are handed to the sqlite driver as pragmas
+    public static final String SQLITE_JOURNAL_MODE_KEY = "hibernate.connection.journal_mode";
+    public static final String SQLITE_SYNCHRONOUS_KEY = "hibernate.connection.synchronous";
+    public static final String SQLITE_CACHE_SIZE_KEY = "hibernate.connection.cache_size";
+    public static final String SQLITE_MMAP_SIZE_KEY = "hibernate.connection.mmap_size";
+
+    public static final String HIBERNATE_BATCH_SIZE_KEY = "hibernate.jdbc.batch_size";
+    public static final String HIBERNATE_ORDER_INSERTS_KEY = "hibernate.order_inserts";
+    public static final String HIBERNATE_ORDER_UPDATES_KEY = "hibernate.order_updates";
+    public static final String HIBERNATE_SHOW_SQL_KEY = "hibernate.show_sql";
+    public static final String HIBERNATE_FLUSH_MODE_KEY = "hibernate.flushMode";
+
+    // a negative cache_size is in KiB
+    public static final String DEFAULT_SQLITE_JOURNAL_MODE = "WAL";
+    public static final String DEFAULT_SQLITE_SYNCHRONOUS = "NORMAL";
+    public static final String DEFAULT_SQLITE_CACHE_SIZE = "-16384";
+    public static final String DEFAULT_SQLITE_MMAP_SIZE = "268435456";
+    public static final String DEFAULT_HIBERNATE_BATCH_SIZE = "50";
+
+    // system property overriding EntitlementRepository's batch size
+    public static final String ENTITLEMENT_BATCH_SIZE_KEY = "rc2.entitlement.batch_size";
+
+    public static final String[] SQLITE_SIDECAR_SUFFIXES = { "-wal", "-shm" };
+
+    public static final String[] PERSISTENCE_OVERRIDE_KEYS = {
+        PERSISTENCE_JDBC_URL_KEY,
+        SQLITE_JOURNAL_MODE_KEY,
+        SQLITE_SYNCHRONOUS_KEY,
+        SQLITE_CACHE_SIZE_KEY,
+        SQLITE_MMAP_SIZE_KEY,
+        HIBERNATE_BATCH_SIZE_KEY,
+        HIBERNATE_ORDER_INSERTS_KEY,
+        HIBERNATE_ORDER_UPDATES_KEY,
+        HIBERNATE_SHOW_SQL_KEY,
+        HIBERNATE_FLUSH_MODE_KEY
+    };
+
 }
@@ -26,122 +26,120 @@ import edu.uw.cse.ifrcdemo.sharedlib.util.FileUtil;
 import edu.uw.cse.ifrcdemo.sharedlib.util.StringUtil;
 
 import java.util.Collections;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import java.util.function.Predicate;
-import java.util.stream.Stream;
+import org.opendatakit.sync.client.SyncClient;
 
 public class BaseCsvValidator {
 
     private static final String NON_EMPTY_STRING = "STRING";
 
-    public Predicate<CsvBeneficiaryEntity> validateBeneficiaryEntity(CsvRepository csvRepo) {
-      return beneficiaryEntityDisabled()
-          .or(validateBeneficiaryEntityColumns()
-              .and(noCustomTable().or(formIdValidator(csvRepo)))
-              .and(noCustomTable().or(customTableRowIdValidator(csvRepo)))
-          );
-    }
+    protected static final String ROW_ID_COLUMN = SyncClient.ID_ROW_DEF;
+    protected static final String DATE_CREATED_COLUMN = "date_created";
+    protected static final String STATUS_COLUMN = "status";
+    protected static final String BENEFICIARY_ENTITY_ID_COLUMN = "beneficiary_entity_id";
+    protected static final String BENEFICIARY_ENTITY_ROW_ID_COLUMN = "beneficiary_entity_row_id";
+    protected static final String DISTRIBUTION_ID_COLUMN = "distribution_id";
 
-    protected Predicate<CsvBeneficiaryEntity> beneficiaryEntityDisabled() {
-      return csvBeneficiaryEntity -> csvBeneficiaryEntity.getStatus() == BeneficiaryEntityStatus.DISABLED;
-    }
+    /*
+     * The validate* predicates accept a row when the matching *Rules accept
+     * it, so the rules are only defined once.
+     */
 
-    protected Predicate<CsvBeneficiaryEntity> validateBeneficiaryEntityColumns() {
-      return columnValidator(Stream.of(
-          SyncRow::getRowId,
-          CsvBeneficiaryEntity::getBeneficiaryEntityId,
-          CsvBeneficiaryEntity::getDateCreated,
-          CsvBeneficiaryEntity::getStatus
-      ));
+    public Predicate<CsvBeneficiaryEntity> validateBeneficiaryEntity(CsvRepository csvRepo) {
+      return beneficiaryEntityRules(csvRepo)::accepts;
     }
 
     public Predicate<CsvDistribution> validateDistribution() {
-        return columnValidator(Stream.of(
-                SyncRow::getRowId,
-                CsvDistribution::getName,
-                CsvDistribution::getStatus
-        ));
+        return distributionRules()::accepts;
     }
 
     public Predicate<CsvAuthorization> validateAuthorization(CsvRepository csvRepo) {
-        return this.<CsvAuthorization>columnValidator(Stream.of(
-                        SyncRow::getRowId,
-                        CsvAuthorization::getType,
-                        CsvAuthorization::getStatus,
-                        CsvAuthorization::getDistributionId
-                ))
-                .and(crossTableIdValidator(
-                        CsvDistribution.class,
-                        CsvAuthorization::getDistributionId,
-                        csvRepo
-                ));
+        return authorizationRules(csvRepo)::accepts;
     }
 
     public Predicate<CsvEntitlement> validateEntitlement() {
-        return columnValidator(Stream.of(
-                SyncRow::getRowId,
-                CsvEntitlement::getAuthorizationId,
-                CsvEntitlement::getAuthorizationType,
-                CsvEntitlement::getDateCreated,
-                CsvEntitlement::getIsOverride,
-                CsvEntitlement::getItemId,
-                CsvEntitlement::getStatus,
-                csvEntitlement -> csvEntitlement.getAuthorizationType() == AuthorizationType.REQUIRED_REGISTRATION ?
-                        csvEntitlement.getBeneficiaryEntityId() :
-                        NON_EMPTY_STRING // just needs some non-empty string
-        ));
+        return entitlementRules()::accepts;
     }
 
     public Predicate<CsvIndividual> validateIndividual(CsvRepository csvRepo) {
-      return individualDisabled()
-          .or(validateIndividualColumns()
-              .and(noCustomTable().or(formIdValidator(csvRepo)))
-              .and(noCustomTable().or(customTableRowIdValidator(csvRepo)))
-              .and(crossTableIdValidator(CsvBeneficiaryEntity.class, Individual::getBeneficiaryEntityRowId, csvRepo))
-          );
+      return individualRules(csvRepo)::accepts;
     }
 
-    protected Predicate<CsvIndividual> individualDisabled() {
-      return csvIndividual -> csvIndividual.getStatus() == IndividualStatus.DISABLED;
-    }
-
-    protected Predicate<CsvIndividual> validateIndividualColumns() {
-      return columnValidator(Stream.of(
-          SyncRow::getRowId,
-          CsvIndividual::getBeneficiaryEntityRowId,
-          CsvIndividual::getDateCreated,
-          CsvIndividual::getStatus
-      ));
-    }
-
-    protected <T extends BaseSyncRow> Predicate<T> columnValidator(Stream<Function<T, Object>> valueExtractors) {
-      return valueExtractors
-          .map(keyGetter -> (Predicate<T>) row -> {
-            Object value = keyGetter.apply(row);
-            return value != null && (!(value instanceof String) || !((String) value).isEmpty());
-          })
-          .reduce(Predicate::and)
-          .orElse(__ -> true);
-    }
-
-    protected Predicate<HasCustomTable> formIdValidator(CsvRepository csvRepo) {
-      return formIdValidator(csvRepo, HasCustomTable::getCustomTableFormId);
+    protected Predicate<CsvBeneficiaryEntity> beneficiaryEntityDisabled() {
+      return csvBeneficiaryEntity -> csvBeneficiaryEntity.getStatus() == BeneficiaryEntityStatus.DISABLED;
     }
 
-    protected <T> Predicate<T> formIdValidator(CsvRepository csvRepo, Function<T, String> colExtractor) {
-      return colExtractor
-          .andThen(FileUtil::getFileName)
-          .andThen(csvRepo::readUntypedCsv)
-          .andThen(Optional::isPresent)
-          ::apply;
+    protected Predicate<CsvIndividual> individualDisabled() {
+      return csvIndividual -> csvIndividual.getStatus() == IndividualStatus.DISABLED;
     }
 
-    protected Predicate<HasCustomTable> customTableRowIdValidator(CsvRepository csvRepo) {
-      return row -> csvRepo
-          .readIndexedUntypedCsv(FileUtil.getFileName(row.getCustomTableFormId()))
-          .orElseGet(Collections::emptyMap)
-          .containsKey(row.getCustomTableRowId());
+    /*
+     * The *Rules methods report every failed rule of every row. Cross-table
+     * lookups are resolved once per table rather than once per row.
+     */
+
+    public CsvTableRules<CsvBeneficiaryEntity> beneficiaryEntityRules(CsvRepository csvRepo) {
+      return CsvTableRules.forTable(CsvBeneficiaryEntity.class)
+          .exemptWhen(beneficiaryEntityDisabled())
+          .required(ROW_ID_COLUMN, SyncRow::getRowId)
+          .required(BENEFICIARY_ENTITY_ID_COLUMN, CsvBeneficiaryEntity::getBeneficiaryEntityId)
+          .required(DATE_CREATED_COLUMN, CsvBeneficiaryEntity::getDateCreated)
+          .required(STATUS_COLUMN, CsvBeneficiaryEntity::getStatus)
+          .rule("custom_beneficiary_entity_form_id", CsvTableRules.RULE_FORM_EXISTS,
+              noCustomTable().or(indexedFormIdValidator(csvRepo)))
+          .rule("custom_beneficiary_entity_row_id", CsvTableRules.RULE_ROW_EXISTS,
+              noCustomTable().or(indexedCustomTableRowIdValidator(csvRepo)));
+    }
+
+    public CsvTableRules<CsvIndividual> individualRules(CsvRepository csvRepo) {
+      return CsvTableRules.forTable(CsvIndividual.class)
+          .exemptWhen(individualDisabled())
+          .required(ROW_ID_COLUMN, SyncRow::getRowId)
+          .required(BENEFICIARY_ENTITY_ROW_ID_COLUMN, CsvIndividual::getBeneficiaryEntityRowId)
+          .required(DATE_CREATED_COLUMN, CsvIndividual::getDateCreated)
+          .required(STATUS_COLUMN, CsvIndividual::getStatus)
+          .rule("custom_member_form_id", CsvTableRules.RULE_FORM_EXISTS,
+              noCustomTable().or(indexedFormIdValidator(csvRepo)))
+          .rule("custom_member_row_id", CsvTableRules.RULE_ROW_EXISTS,
+              noCustomTable().or(indexedCustomTableRowIdValidator(csvRepo)))
+          .rule(BENEFICIARY_ENTITY_ROW_ID_COLUMN, CsvTableRules.RULE_ROW_EXISTS,
+              indexedCrossTableIdValidator(CsvBeneficiaryEntity.class, Individual::getBeneficiaryEntityRowId, csvRepo));
+    }
+
+    public CsvTableRules<CsvDistribution> distributionRules() {
+      return CsvTableRules.forTable(CsvDistribution.class)
+          .required(ROW_ID_COLUMN, SyncRow::getRowId)
+          .required("name", CsvDistribution::getName)
+          .required(STATUS_COLUMN, CsvDistribution::getStatus);
+    }
+
+    public CsvTableRules<CsvAuthorization> authorizationRules(CsvRepository csvRepo) {
+      return CsvTableRules.forTable(CsvAuthorization.class)
+          .required(ROW_ID_COLUMN, SyncRow::getRowId)
+          .required("type", CsvAuthorization::getType)
+          .required(STATUS_COLUMN, CsvAuthorization::getStatus)
+          .required(DISTRIBUTION_ID_COLUMN, CsvAuthorization::getDistributionId)
+          .rule(DISTRIBUTION_ID_COLUMN, CsvTableRules.RULE_ROW_EXISTS,
+              indexedCrossTableIdValidator(CsvDistribution.class, CsvAuthorization::getDistributionId, csvRepo));
+    }
+
+    public CsvTableRules<CsvEntitlement> entitlementRules() {
+      return CsvTableRules.forTable(CsvEntitlement.class)
+          .required(ROW_ID_COLUMN, SyncRow::getRowId)
+          .required("authorization_id", CsvEntitlement::getAuthorizationId)
+          .required("authorization_type", CsvEntitlement::getAuthorizationType)
+          .required(DATE_CREATED_COLUMN, CsvEntitlement::getDateCreated)
+          .required("is_override", CsvEntitlement::getIsOverride)
+          .required("item_id", CsvEntitlement::getItemId)
+          .required(STATUS_COLUMN, CsvEntitlement::getStatus)
+          .required(BENEFICIARY_ENTITY_ID_COLUMN,
+              csvEntitlement -> csvEntitlement.getAuthorizationType() == AuthorizationType.REQUIRED_REGISTRATION ?
+                  csvEntitlement.getBeneficiaryEntityId() :
+                  NON_EMPTY_STRING);
     }
 
     protected Predicate<HasCustomTable> noCustomTable() {
@@ -153,21 +151,59 @@ public class BaseCsvValidator {
       return row -> StringUtil.isNullOrEmpty(row.getCustomTableRowId());
     }
 
-    protected <T extends BaseSyncRow> Predicate<T> crossTableIdValidator(Function<T, String> formIdExtractor,
-                                                                         Function<T, String> refIdExtractor,
-                                                                         CsvRepository csvRepo) {
-      return row -> csvRepo
-          .readIndexedUntypedCsv(FileUtil.getFileName(formIdExtractor.apply(row)))
-          .orElseGet(Collections::emptyMap)
-          .containsKey(refIdExtractor.apply(row));
-    }
-
-    protected <T extends BaseSyncRow> Predicate<T> crossTableIdValidator(Class<? extends BaseSyncRow> foreignTable,
-                                                                         Function<T, String> refIdExtractor,
-                                                                         CsvRepository csvRepo) {
-      return row -> csvRepo
+    protected Predicate<HasCustomTable> indexedFormIdValidator(CsvRepository csvRepo) {
+      return indexedFormIdValidator(csvRepo, HasCustomTable::getCustomTableFormId);
+    }
+
+    /**
+     * Checks that the CSV of the form returned by colExtractor exists,
+     * remembering the answer for each form.
+     */
+    protected <T> Predicate<T> indexedFormIdValidator(CsvRepository csvRepo, Function<T, String> colExtractor) {
+      Map<String, Boolean> formExists = new ConcurrentHashMap<>();
+
+      return row -> formExists.computeIfAbsent(
+          FileUtil.getFileName(colExtractor.apply(row)),
+          filename -> csvRepo.readUntypedCsv(filename).isPresent()
+      );
+    }
+
+    /**
+     * Checks that the custom table row of a row exists, resolving the row ids
+     * of each custom table only once.
+     */
+    protected Predicate<HasCustomTable> indexedCustomTableRowIdValidator(CsvRepository csvRepo) {
+      Map<String, Set<String>> rowIdsByForm = new ConcurrentHashMap<>();
+
+      return row -> {
+        Set<String> rowIds = rowIdsByForm.computeIfAbsent(
+            FileUtil.getFileName(row.getCustomTableFormId()),
+            filename -> csvRepo
+                .readIndexedUntypedCsv(filename)
+                .<Set<String>>map(Map::keySet)
+                .orElseGet(Collections::emptySet)
+        );
+
+        return row.getCustomTableRowId() != null && rowIds.contains(row.getCustomTableRowId());
+      };
+    }
+
+    /**
+     * Checks that the id returned by refIdExtractor is a row of foreignTable.
+     * The row ids of foreignTable are resolved once, when the predicate is
+     * created.
+     */
+    protected <T> Predicate<T> indexedCrossTableIdValidator(Class<? extends BaseSyncRow> foreignTable,
+                                                            Function<T, String> refIdExtractor,
+                                                            CsvRepository csvRepo) {
+      Set<String> rowIds = csvRepo
           .readIndexedTypedCsv(foreignTable)
-          .orElseGet(Collections::emptyMap)
-          .containsKey(refIdExtractor.apply(row));
+          .<Set<String>>map(Map::keySet)
+          .orElseGet(Collections::emptySet);
+
+      return row -> {
+        String refId = refIdExtractor.apply(row);
+        return refId != null && rowIds.contains(refId);
+      };
     }
 }
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2016-2022 University of Washington
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *  Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *  Neither the name of the University of Washington nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE UNIVERSITY OF WASHINGTON AND CONTRIBUTORS “AS IS” AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE UNIVERSITY OF WASHINGTON OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+
+package edu.uw.cse.ifrcdemo.planningsharedlib.logic;
+
+import edu.uw.cse.ifrcdemo.planningsharedlib.model.csv.CsvRepository;
+import edu.uw.cse.ifrcdemo.planningsharedlib.util.MemberDataIndex;
+import edu.uw.cse.ifrcdemo.sharedlib.model.datattype.BeneficiaryEntityStatus;
+import edu.uw.cse.ifrcdemo.sharedlib.model.datattype.IndividualStatus;
+import edu.uw.cse.ifrcdemo.sharedlib.model.row.CsvBeneficiaryEntity;
+import edu.uw.cse.ifrcdemo.sharedlib.model.row.CsvIndividual;
+import edu.uw.cse.ifrcdemo.sharedlib.model.row.UntypedSyncRow;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Filters members with a compiled set of authorization criteria.
+ *
+ * Members are pruned by status before their data is merged, so disabled
+ * members (or members of disabled beneficiary units) are never tested.
+ */
+public class BaseEntitlementFilter {
+
+    /**
+     * @param forMember true to return every qualifying member, false to return
+     *                  the first qualifying member of each beneficiary unit
+     * @return a stream of individual row id
+     */
+    protected static Stream<String> filterMembers(CsvRepository csvRepository,
+                                                  MemberDataIndex memberDataIndex,
+                                                  Predicate<UntypedSyncRow> predicate,
+                                                  boolean forMember) {
+        Map<String, CsvIndividual> indexedCsvIndividual = csvRepository
+                .readIndexedTypedCsv(CsvIndividual.class)
+                .orElseThrow(IllegalStateException::new);
+
+        Predicate<CsvIndividual> qualifies = member -> predicate.test(memberDataIndex.getAllDataOnMember(member));
+
+        if (forMember) {
+            return indexedCsvIndividual
+                    .values()
+                    .stream()
+                    .filter(member -> IndividualStatus.ENABLED == member.getStatus())
+                    .filter(qualifies)
+                    .map(CsvIndividual::getRowId);
+        }
+
+        Map<String, CsvBeneficiaryEntity> indexedCsvBeneficiaryEntity = csvRepository
+                .readIndexedTypedCsv(CsvBeneficiaryEntity.class)
+                .orElseThrow(IllegalStateException::new);
+
+        // group members of enabled beneficiary units such that beneficiary id -> list of members
+        Map<String, List<CsvIndividual>> membersByUnit = indexedCsvIndividual
+                .values()
+                .stream()
+                .filter(member -> member.getBeneficiaryEntityRowId() != null)
+                .filter(member -> isEnabled(indexedCsvBeneficiaryEntity.get(member.getBeneficiaryEntityRowId())))
+                .collect(Collectors.groupingBy(
+                        CsvIndividual::getBeneficiaryEntityRowId,
+                        LinkedHashMap::new,
+                        Collectors.toList()
+                ));
+
+        // TODO: would this work if there is a qualifying beneficiary unit
+        //       but that unit has no member?
+        // at most 1 member from each beneficiary unit is included,
+        // the rest of the unit is not tested once a member qualifies
+        return membersByUnit
+                .values()
+                .stream()
+                .map(members -> members.stream().filter(qualifies).findFirst())
+                .filter(Optional::isPresent)
+                .map(Optional::get)
+                .map(CsvIndividual::getRowId);
+    }
+
+    private static boolean isEnabled(CsvBeneficiaryEntity beneficiaryEntity) {
+        return beneficiaryEntity != null && BeneficiaryEntityStatus.ENABLED == beneficiaryEntity.getStatus();
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2016-2022 University of Washington
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *  Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *  Neither the name of the University of Washington nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE UNIVERSITY OF WASHINGTON AND CONTRIBUTORS “AS IS” AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE UNIVERSITY OF WASHINGTON OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+
+
+package edu.uw.cse.ifrcdemo.planningsharedlib.logic;
+
+import edu.uw.cse.ifrcdemo.sharedlib.model.row.BaseSyncRow;
+import edu.uw.cse.ifrcdemo.sharedlib.util.FileUtil;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * The validation rules of one CSV table.
+ *
+ * Unlike a composed Predicate, every rule is checked on every row so that a
+ * single pass reports all the problems of a table. Rows matching an exemption,
+ * e.g. disabled beneficiary entities, are not checked at all.
+ */
+public class CsvTableRules<T extends BaseSyncRow> {
+    public static final String RULE_REQUIRED = "required";
+    public static final String RULE_FORM_EXISTS = "form_exists";
+    public static final String RULE_ROW_EXISTS = "row_exists";
+
+    private final Class<T> table;
+    private final String tableName;
+    private final List<Rule<T>> rules = new ArrayList<>();
+    private Predicate<? super T> exemption = __ -> false;
+
+    private CsvTableRules(Class<T> table) {
+        this.table = table;
+        this.tableName = FileUtil.getFileName(table);
+    }
+
+    public static <T extends BaseSyncRow> CsvTableRules<T> forTable(Class<T> table) {
+        return new CsvTableRules<>(table);
+    }
+
+    public CsvTableRules<T> exemptWhen(Predicate<? super T> exemption) {
+        this.exemption = exemption;
+        return this;
+    }
+
+    public CsvTableRules<T> required(String column, Function<T, Object> valueExtractor) {
+        return rule(column, RULE_REQUIRED, row -> {
+            Object value = valueExtractor.apply(row);
+            return value != null && (!(value instanceof String) || !((String) value).isEmpty());
+        });
+    }
+
+    public CsvTableRules<T> rule(String column, String rule, Predicate<? super T> predicate) {
+        rules.add(new Rule<>(column, rule, predicate));
+        return this;
+    }
+
+    public Class<T> getTable() {
+        return table;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    /**
+     * @return whether row is exempt or passes every rule
+     */
+    public boolean accepts(T row) {
+        if (exemption.test(row)) {
+            return true;
+        }
+
+        for (Rule<T> rule : rules) {
+            if (!rule.predicate.test(row)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    public List<CsvViolation> validate(List<T> rows) {
+        List<CsvViolation> violations = new ArrayList<>();
+
+        for (T row : rows) {
+            if (exemption.test(row)) {
+                continue;
+            }
+
+            for (Rule<T> rule : rules) {
+                if (!rule.predicate.test(row)) {
+                    violations.add(new CsvViolation(tableName, row.getRowId(), rule.column, rule.name));
+                }
+            }
+        }
+
+        return violations;
+    }
+
+    private static class Rule<T> {
+        private final String column;
+        private final String name;
+        private final Predicate<? super T> predicate;
+
+        Rule(String column, String name, Predicate<? super T> predicate) {
+            this.column = column;
+            this.name = name;
+            this.predicate = predicate;
+        }
+    }
+}
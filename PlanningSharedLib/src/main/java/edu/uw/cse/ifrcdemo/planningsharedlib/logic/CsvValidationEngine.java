@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2016-2022 University of Washington
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *  Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *  Neither the name of the University of Washington nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE UNIVERSITY OF WASHINGTON AND CONTRIBUTORS “AS IS” AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE UNIVERSITY OF WASHINGTON OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+
+
+package edu.uw.cse.ifrcdemo.planningsharedlib.logic;
+
+import edu.uw.cse.ifrcdemo.planningsharedlib.model.csv.CsvRepository;
+import edu.uw.cse.ifrcdemo.sharedlib.model.row.BaseSyncRow;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Validates CSV tables on a bounded pool of threads.
+ *
+ * Each table is split into chunks of rows which are validated independently,
+ * so a single large table is spread over the pool as well. Violations are
+ * reported in table order and, within a table, in row order.
+ */
+public class CsvValidationEngine {
+    private static final int ROWS_PER_TASK = 5000;
+
+    private final int threads;
+
+    public CsvValidationEngine() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public CsvValidationEngine(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be positive");
+        }
+
+        this.threads = threads;
+    }
+
+    public CsvValidationReport validate(CsvRepository csvRepo, List<CsvTableRules<?>> tables) {
+        List<Callable<List<CsvViolation>>> tasks = new ArrayList<>();
+        for (CsvTableRules<?> table : tables) {
+            addTasks(csvRepo, table, tasks);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, tasks.size())));
+        try {
+            List<CsvViolation> violations = new ArrayList<>();
+            for (Future<List<CsvViolation>> result : executor.invokeAll(tasks)) {
+                violations.addAll(result.get());
+            }
+
+            return new CsvValidationReport(violations);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private <T extends BaseSyncRow> void addTasks(CsvRepository csvRepo,
+                                                  CsvTableRules<T> table,
+                                                  List<Callable<List<CsvViolation>>> tasks) {
+        List<T> rows = csvRepo.readTypedCsv(table.getTable()).orElseThrow(IllegalStateException::new);
+
+        for (int start = 0; start < rows.size(); start += ROWS_PER_TASK) {
+            List<T> chunk = rows.subList(start, Math.min(rows.size(), start + ROWS_PER_TASK));
+            tasks.add(() -> table.validate(chunk));
+        }
+    }
+}
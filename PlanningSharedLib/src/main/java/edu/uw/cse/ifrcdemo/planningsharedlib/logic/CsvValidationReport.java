@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2016-2022 University of Washington
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *  Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *  Neither the name of the University of Washington nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE UNIVERSITY OF WASHINGTON AND CONTRIBUTORS “AS IS” AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE UNIVERSITY OF WASHINGTON OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+
+
+package edu.uw.cse.ifrcdemo.planningsharedlib.logic;
+
+import edu.uw.cse.ifrcdemo.sharedlib.consts.GenConsts;
+import edu.uw.cse.ifrcdemo.translations.TranslationConsts;
+import edu.uw.cse.ifrcdemo.translations.TranslationUtil;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Every violation found while validating a set of CSV tables, grouped by
+ * table in validation order.
+ */
+public class CsvValidationReport {
+    private static final int MAX_LISTED_VIOLATIONS = 20;
+    private static final String INDENT = "  ";
+    private static final String ELLIPSIS = "...";
+
+    private final Map<String, List<CsvViolation>> violationsByTable;
+
+    public CsvValidationReport(List<CsvViolation> violations) {
+        this.violationsByTable = new LinkedHashMap<>();
+
+        for (CsvViolation violation : violations) {
+            violationsByTable.computeIfAbsent(violation.getTable(), __ -> new ArrayList<>()).add(violation);
+        }
+    }
+
+    public boolean isValid() {
+        return violationsByTable.isEmpty();
+    }
+
+    public Set<String> getInvalidTables() {
+        return Collections.unmodifiableSet(violationsByTable.keySet());
+    }
+
+    public List<CsvViolation> getViolations(String table) {
+        return Collections.unmodifiableList(violationsByTable.getOrDefault(table, Collections.emptyList()));
+    }
+
+    public int getViolationCount() {
+        return violationsByTable.values().stream().mapToInt(List::size).sum();
+    }
+
+    /**
+     * Lists the invalid tables, each followed by its first violations.
+     * Returns null when every table is valid.
+     */
+    public String getMessage() {
+        if (isValid()) {
+            return null;
+        }
+
+        List<String> lines = new ArrayList<>();
+        lines.add(TranslationUtil.getTranslations().getString(TranslationConsts.INVALID_CSV_ERROR));
+
+        for (Map.Entry<String, List<CsvViolation>> entry : violationsByTable.entrySet()) {
+            List<CsvViolation> violations = entry.getValue();
+            lines.add(entry.getKey());
+
+            for (CsvViolation violation : violations.subList(0, Math.min(violations.size(), MAX_LISTED_VIOLATIONS))) {
+                lines.add(INDENT + violation.getRowId() + GenConsts.SPACE + violation.getColumn() +
+                    GenConsts.SPACE + violation.getRule());
+            }
+
+            if (violations.size() > MAX_LISTED_VIOLATIONS) {
+                lines.add(INDENT + ELLIPSIS + GenConsts.SPACE + (violations.size() - MAX_LISTED_VIOLATIONS));
+            }
+        }
+
+        return String.join(GenConsts.NEW_LINE, lines);
+    }
+}
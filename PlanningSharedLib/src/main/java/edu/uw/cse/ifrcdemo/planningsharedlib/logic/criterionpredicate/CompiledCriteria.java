@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2016-2022 University of Washington
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *  Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *  Neither the name of the University of Washington nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE UNIVERSITY OF WASHINGTON AND CONTRIBUTORS “AS IS” AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE UNIVERSITY OF WASHINGTON OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+
+package edu.uw.cse.ifrcdemo.planningsharedlib.logic.criterionpredicate;
+
+import edu.uw.cse.ifrcdemo.planningsharedlib.model.criteria.AuthorizationCriterion;
+import edu.uw.cse.ifrcdemo.sharedlib.model.row.UntypedSyncRow;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * An OR of ANDs of criterion predicates, built once per set of rules.
+ *
+ * Within each rule the clauses are sorted by {@link CriterionPredicate#getCost()}
+ * so that a row is rejected by the cheapest clause that can reject it, and the
+ * rules themselves are sorted by their total cost. Ties keep the order in
+ * which the clauses were entered.
+ */
+public class CompiledCriteria implements Predicate<UntypedSyncRow> {
+    private final List<Conjunction> rules;
+
+    private CompiledCriteria(List<Conjunction> rules) {
+        this.rules = rules;
+    }
+
+    /**
+     * Compiles non-empty rules, an empty list of rules matches every row.
+     */
+    public static Predicate<UntypedSyncRow> compile(List<List<AuthorizationCriterion>> rules,
+                                                    Function<AuthorizationCriterion, Predicate<UntypedSyncRow>> predicateFactory) {
+        if (rules.isEmpty()) {
+            return __ -> true;
+        }
+
+        List<Conjunction> conjunctions = new ArrayList<>(rules.size());
+        for (List<AuthorizationCriterion> rule : rules) {
+            conjunctions.add(new Conjunction(rule, predicateFactory));
+        }
+        conjunctions.sort(Comparator.comparingInt(conjunction -> conjunction.cost));
+
+        return new CompiledCriteria(conjunctions);
+    }
+
+    @Override
+    public boolean test(UntypedSyncRow untypedSyncRow) {
+        for (int i = 0; i < rules.size(); i++) {
+            if (rules.get(i).test(untypedSyncRow)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static class Conjunction {
+        private final Predicate<UntypedSyncRow>[] clauses;
+        private final int cost;
+
+        @SuppressWarnings("unchecked")
+        private Conjunction(List<AuthorizationCriterion> rule,
+                            Function<AuthorizationCriterion, Predicate<UntypedSyncRow>> predicateFactory) {
+            List<Predicate<UntypedSyncRow>> predicates = new ArrayList<>(rule.size());
+            for (AuthorizationCriterion criterion : rule) {
+                predicates.add(predicateFactory.apply(criterion));
+            }
+            predicates.sort(Comparator.comparingInt(CriterionPredicate::costOf));
+
+            this.clauses = predicates.toArray(new Predicate[0]);
+            this.cost = predicates.stream().mapToInt(CriterionPredicate::costOf).sum();
+        }
+
+        private boolean test(UntypedSyncRow untypedSyncRow) {
+            for (Predicate<UntypedSyncRow> clause : clauses) {
+                if (!clause.test(untypedSyncRow)) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+    }
+}
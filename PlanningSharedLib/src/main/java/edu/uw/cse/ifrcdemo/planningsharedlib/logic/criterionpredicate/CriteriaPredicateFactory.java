@@ -20,8 +20,10 @@ import edu.uw.cse.ifrcdemo.planningsharedlib.model.criteria.AuthorizationCriteri
 import edu.uw.cse.ifrcdemo.planningsharedlib.model.distribution.DistributionRepository;
 import edu.uw.cse.ifrcdemo.planningsharedlib.model.entitlement.EntitlementRepository;
 import edu.uw.cse.ifrcdemo.planningsharedlib.model.csv.CsvRepository;
+import edu.uw.cse.ifrcdemo.planningsharedlib.util.CriteriaUtil;
 import edu.uw.cse.ifrcdemo.sharedlib.model.row.UntypedSyncRow;
 
+import java.util.List;
 import java.util.function.Predicate;
 
 public class CriteriaPredicateFactory {
@@ -45,5 +47,12 @@ public class CriteriaPredicateFactory {
 
         return new SimpleCriterionPredicate(criterion);
     }
+
+    /**
+     * Builds one predicate for an OR of ANDs of criteria, see {@link CompiledCriteria}.
+     */
+    public Predicate<UntypedSyncRow> compile(List<List<AuthorizationCriterion>> rules) {
+        return CompiledCriteria.compile(CriteriaUtil.removeEmptyRules(rules), this::createPredicate);
+    }
 }
 
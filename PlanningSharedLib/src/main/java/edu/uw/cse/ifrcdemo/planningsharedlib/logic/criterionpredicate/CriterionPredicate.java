@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2016-2022 University of Washington
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *  Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *  Neither the name of the University of Washington nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE UNIVERSITY OF WASHINGTON AND CONTRIBUTORS “AS IS” AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE UNIVERSITY OF WASHINGTON OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+
+package edu.uw.cse.ifrcdemo.planningsharedlib.logic.criterionpredicate;
+
+import edu.uw.cse.ifrcdemo.sharedlib.model.row.UntypedSyncRow;
+
+import java.util.function.Predicate;
+
+/**
+ * A criterion predicate that can estimate how expensive it is to test a row,
+ * so that {@link CompiledCriteria} can run cheap clauses first.
+ */
+public interface CriterionPredicate extends Predicate<UntypedSyncRow> {
+    // the outcome is known without reading the row
+    int COST_CONSTANT = 0;
+    // a single column lookup
+    int COST_COLUMN = 1;
+    // a column lookup followed by parsing the value
+    int COST_PARSE = 2;
+    // a lookup into an index built from another table
+    int COST_INDEX = 3;
+    // predicates that do not implement this interface
+    int COST_UNKNOWN = 10;
+    // a database query per row
+    int COST_QUERY = 20;
+
+    int getCost();
+
+    static int costOf(Predicate<UntypedSyncRow> predicate) {
+        return predicate instanceof CriterionPredicate ?
+            ((CriterionPredicate) predicate).getCost() :
+            COST_UNKNOWN;
+    }
+}
@@ -23,31 +23,27 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.opendatakit.aggregate.odktables.rest.TableConstants;
 
-import java.time.Instant;
 import java.time.LocalDate;
-import java.time.ZoneOffset;
-import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
-import java.time.temporal.ChronoUnit;
+import java.time.format.DateTimeParseException;
 import java.util.Locale;
-import java.util.function.Predicate;
+import java.util.concurrent.TimeUnit;
+
+public class DateCreatedPredicate implements CriterionPredicate {
+  private static final long MILLIS_PER_DAY = TimeUnit.DAYS.toMillis(1);
 
-public class DateCreatedPredicate implements Predicate<UntypedSyncRow> {
   private final AuthorizationCriterion authorizationCriterion;
   private final GenerateBy generateBy;
   private final Logger logger;
 
+  private final String dateCreatedColumn;
+  // null if the criterion is not a date, then no row matches
+  private final Long criterionEpochDay;
+
   public DateCreatedPredicate(AuthorizationCriterion authorizationCriterion, GenerateBy generateBy) {
     this.authorizationCriterion = authorizationCriterion;
     this.generateBy = generateBy;
     this.logger = LogManager.getLogger(DateCreatedPredicate.class);
-  }
-
-  @Override
-  public boolean test(UntypedSyncRow untypedSyncRow) {
-    if (untypedSyncRow == null || untypedSyncRow.getRowId() == null) {
-      return false;
-    }
 
     // choose the appropriate date_created field based on forMember value
     // use member's date_create when forMember == true
@@ -55,19 +51,31 @@ public class DateCreatedPredicate implements Predicate<UntypedSyncRow> {
     String tableId = generateBy == GenerateBy.HOUSEHOLD_MEMBER ?
         MobileDbConsts.TableNames.INDIVIDUAL_TABLE_NAME :
         MobileDbConsts.TableNames.BENEFICIARY_ENTITY_TABLE_NAME;
-    String givenTimeString = untypedSyncRow.getColumns().get(tableId + "_" + MobileDbConsts.DATE_CREATED_COLUMN);
+    this.dateCreatedColumn = tableId + "_" + MobileDbConsts.DATE_CREATED_COLUMN;
+
+    this.criterionEpochDay = parseEpochDay(authorizationCriterion.getValue());
+  }
+
+  @Override
+  public int getCost() {
+    return criterionEpochDay != null ? COST_PARSE : COST_CONSTANT;
+  }
+
+  @Override
+  public boolean test(UntypedSyncRow untypedSyncRow) {
+    if (untypedSyncRow == null || untypedSyncRow.getRowId() == null || criterionEpochDay == null) {
+      return false;
+    }
+
+    String givenTimeString = untypedSyncRow.getColumns().get(dateCreatedColumn);
+    if (givenTimeString == null) {
+      return false;
+    }
 
-    ZonedDateTime criterion;
-    ZonedDateTime given;
+    // both sides are compared as days since epoch in UTC
+    long givenEpochDay;
     try {
-      criterion = LocalDate
-          .parse(authorizationCriterion.getValue(), DateTimeFormatter.ISO_LOCAL_DATE)
-          .atStartOfDay(ZoneOffset.UTC);
-
-      given = Instant
-          .ofEpochMilli(TableConstants.milliSecondsFromNanos(givenTimeString, Locale.ROOT))
-          .atZone(ZoneOffset.UTC)
-          .truncatedTo(ChronoUnit.DAYS);
+      givenEpochDay = Math.floorDiv(TableConstants.milliSecondsFromNanos(givenTimeString, Locale.ROOT), MILLIS_PER_DAY);
     } catch (IllegalArgumentException e) {
       // given contains malformed datetime
       logger.catching(Level.WARN, e);
@@ -76,13 +84,27 @@ public class DateCreatedPredicate implements Predicate<UntypedSyncRow> {
 
     switch (authorizationCriterion.getOperator()) {
       case EQ:
-        return given.compareTo(criterion) == 0;
+        return givenEpochDay == criterionEpochDay;
       case GT:
-        return given.compareTo(criterion) > 0;
+        return givenEpochDay > criterionEpochDay;
       case LT:
-        return given.compareTo(criterion) < 0;
+        return givenEpochDay < criterionEpochDay;
       default:
         return false;
     }
   }
+
+  private Long parseEpochDay(String criterion) {
+    if (criterion == null) {
+      return null;
+    }
+
+    try {
+      return LocalDate.parse(criterion, DateTimeFormatter.ISO_LOCAL_DATE).toEpochDay();
+    } catch (DateTimeParseException e) {
+      // criterion contains malformed date
+      logger.catching(Level.WARN, e);
+      return null;
+    }
+  }
 }
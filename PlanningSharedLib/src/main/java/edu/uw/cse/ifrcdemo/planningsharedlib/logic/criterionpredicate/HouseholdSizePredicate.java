@@ -17,8 +17,8 @@ package edu.uw.cse.ifrcdemo.planningsharedlib.logic.criterionpredicate;
 
 import edu.uw.cse.ifrcdemo.planningsharedlib.model.criteria.AuthorizationCriterion;
 import edu.uw.cse.ifrcdemo.planningsharedlib.model.csv.CsvRepository;
+import edu.uw.cse.ifrcdemo.planningsharedlib.util.BeneficiaryUtilBase;
 import edu.uw.cse.ifrcdemo.sharedlib.consts.csv.MobileDbConsts;
-import edu.uw.cse.ifrcdemo.sharedlib.model.row.CsvIndividual;
 import edu.uw.cse.ifrcdemo.sharedlib.model.row.UntypedSyncRow;
 import edu.uw.cse.ifrcdemo.translations.LogStr;
 import org.apache.commons.lang3.math.NumberUtils;
@@ -26,36 +26,41 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.math.BigDecimal;
-import java.util.function.Predicate;
 
-public class HouseholdSizePredicate implements Predicate<UntypedSyncRow> {
+public class HouseholdSizePredicate implements CriterionPredicate {
 
     private AuthorizationCriterion authorizationCriterion;
     private CsvRepository repository;
+    private final BigDecimal criterionNumber;
     private final Logger logger;
 
     public HouseholdSizePredicate(AuthorizationCriterion authorizationCriterion, CsvRepository repository) {
         this.authorizationCriterion = authorizationCriterion;
         this.repository = repository;
+        this.criterionNumber = NumberUtils.createBigDecimal(authorizationCriterion.getValue());
         this.logger = LogManager.getLogger(HouseholdSizePredicate.class);
     }
 
+    @Override
+    public int getCost() {
+        return COST_INDEX;
+    }
+
     @Override
     public boolean test(UntypedSyncRow untypedSyncRow) {
         if (untypedSyncRow == null || authorizationCriterion.getField() == null) {
             return false;
         }
-        String criterion = authorizationCriterion.getValue();
 
-        Long given = repository.readTypedCsv(CsvIndividual.class)
+        String beneficiaryEntityRowId = BeneficiaryUtilBase.getFromCombinedRow(untypedSyncRow,
+                MobileDbConsts.TableNames.INDIVIDUAL_TABLE_NAME, MobileDbConsts.BENEFICIARY_ENTITY_ROW_ID);
+
+        Long given = beneficiaryEntityRowId == null ? 0L : repository.readHouseholdSizeIndex()
                 .orElseThrow(IllegalStateException::new)
-                .stream()
-                .filter(p -> p.getBeneficiaryEntityRowId().equals(untypedSyncRow.getColumns().get(MobileDbConsts.TableNames.INDIVIDUAL_TABLE_NAME + "_" + MobileDbConsts.BENEFICIARY_ENTITY_ROW_ID)))
-                .count();
+                .getOrDefault(beneficiaryEntityRowId, 0L);
 
         logger.trace(LogStr.LOG_TESTING_WITH_CRITERION, given::toString, authorizationCriterion::toString);
 
-        BigDecimal criterionNumber = NumberUtils.createBigDecimal(criterion);
         BigDecimal givenNumber = new BigDecimal(given);
 
         switch (authorizationCriterion.getOperator()) {
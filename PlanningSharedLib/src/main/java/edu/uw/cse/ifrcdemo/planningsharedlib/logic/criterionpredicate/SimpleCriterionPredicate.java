@@ -25,28 +25,60 @@ import org.apache.logging.log4j.Logger;
 import java.math.BigDecimal;
 import java.util.function.Predicate;
 
-public class SimpleCriterionPredicate implements Predicate<UntypedSyncRow> {
+public class SimpleCriterionPredicate implements CriterionPredicate {
     private final AuthorizationCriterion authorizationCriterion;
 
+    // resolved once, a criterion is tested against every member
+    private final String combinedColumnName;
+    private final BigDecimal criterionNumber;
+
     private final Logger logger;
 
     public SimpleCriterionPredicate(AuthorizationCriterion authorizationCriterion) {
         this.authorizationCriterion = authorizationCriterion;
         this.logger = LogManager.getLogger(SimpleCriterionPredicate.class);
+
+        this.combinedColumnName = authorizationCriterion.getField() == null ? null :
+            BeneficiaryUtilBase.getCombinedColumnName(
+                authorizationCriterion.getField().getTableId(),
+                authorizationCriterion.getField().getColumn()
+            );
+
+        String criterion = authorizationCriterion.getValue();
+        this.criterionNumber = NumberUtils.isCreatable(criterion) ? NumberUtils.createBigDecimal(criterion) : null;
+    }
+
+    @Override
+    public int getCost() {
+        if (authorizationCriterion.getField() == null) {
+            return COST_CONSTANT;
+        }
+
+        if (authorizationCriterion.getOperator() == null) {
+            return COST_COLUMN;
+        }
+
+        switch (authorizationCriterion.getOperator()) {
+            case EQ:
+            case NE:
+                return criterionNumber != null ? COST_PARSE : COST_COLUMN;
+            case GT:
+            case LT:
+                // GT and LT have to be a number
+                return criterionNumber != null ? COST_PARSE : COST_CONSTANT;
+            default:
+                return COST_CONSTANT;
+        }
     }
 
     @Override
     public boolean test(UntypedSyncRow untypedSyncRows) {
-        if (untypedSyncRows == null || authorizationCriterion.getField() == null) {
+        if (untypedSyncRows == null || combinedColumnName == null) {
             return false;
         }
 
         String criterion = authorizationCriterion.getValue();
-        String given = BeneficiaryUtilBase.getFromCombinedRow(
-                untypedSyncRows,
-                authorizationCriterion.getField().getTableId(),
-                authorizationCriterion.getField().getColumn()
-        );
+        String given = untypedSyncRows.getColumns().get(combinedColumnName);
 
         if (given == null) {
             logger.debug(LogStr.LOG_TESTING_WITH_CRITERION_GIVEN_IS_NULL, authorizationCriterion::toString);
@@ -55,10 +87,9 @@ public class SimpleCriterionPredicate implements Predicate<UntypedSyncRow> {
 
         logger.trace(LogStr.LOG_TESTING_WITH_CRITERION, given::toString, authorizationCriterion::toString);
 
-        boolean isNumber = NumberUtils.isCreatable(criterion) && NumberUtils.isCreatable(given);
-        BigDecimal criterionNumber = BigDecimal.ZERO, givenNumber = BigDecimal.ZERO;
+        boolean isNumber = criterionNumber != null && NumberUtils.isCreatable(given);
+        BigDecimal givenNumber = BigDecimal.ZERO;
         if (isNumber) {
-            criterionNumber = NumberUtils.createBigDecimal(criterion);
             givenNumber = NumberUtils.createBigDecimal(given);
         }
 
@@ -68,13 +99,13 @@ public class SimpleCriterionPredicate implements Predicate<UntypedSyncRow> {
                     logger.trace(LogStr.LOG_USING_NUMBER_COMPARATOR);
                     return givenNumber.compareTo(criterionNumber) == 0;
                 }
-                return criterion.equalsIgnoreCase(given);
+                return given.equalsIgnoreCase(criterion);
             case NE:
                 if (isNumber) {
                     logger.trace(LogStr.LOG_USING_NUMBER_COMPARATOR);
                     return givenNumber.compareTo(criterionNumber) != 0;
                 }
-                return !criterion.equalsIgnoreCase(given);
+                return !given.equalsIgnoreCase(criterion);
             case GT:
                 if (isNumber) {
                     logger.trace(LogStr.LOG_USING_NUMBER_COMPARATOR);
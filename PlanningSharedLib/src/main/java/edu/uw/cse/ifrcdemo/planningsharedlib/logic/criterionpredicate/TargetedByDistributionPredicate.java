@@ -29,10 +29,9 @@ import edu.uw.cse.ifrcdemo.sharedlib.model.row.UntypedSyncRow;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
-import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
-public class TargetedByDistributionPredicate implements Predicate<UntypedSyncRow> {
+public class TargetedByDistributionPredicate implements CriterionPredicate {
     private final DistributionRepository distributionRepository;
     private final EntitlementRepository entitlementRepository;
 
@@ -59,6 +58,11 @@ public class TargetedByDistributionPredicate implements Predicate<UntypedSyncRow
                 .collect(Collectors.toSet());
     }
 
+    @Override
+    public int getCost() {
+        return COST_QUERY;
+    }
+
     @Override
     public boolean test(UntypedSyncRow untypedSyncRow) {
         if (untypedSyncRow == null || authorizationCriterion.getField() == null) {
@@ -0,0 +1,289 @@
+/*
+ * Copyright (c) 2016-2022 University of Washington
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *  Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *  Neither the name of the University of Washington nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE UNIVERSITY OF WASHINGTON AND CONTRIBUTORS “AS IS” AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE UNIVERSITY OF WASHINGTON OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+
+package edu.uw.cse.ifrcdemo.planningsharedlib.model.csv;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Row lists of CSV tables kept under a memory budget.
+ *
+ * Every entry is weighted with an estimate of its retained size. Once the
+ * total weight exceeds the budget the least recently used entries that have a
+ * loader are evicted, and they are loaded again on their next access. Entries
+ * read from a one-shot input have no loader and are never evicted.
+ *
+ * Values derived from an entry's rows, such as indexes, live and die with the
+ * entry.
+ *
+ * Loaders run on the calling thread outside of any map operation, so a loader
+ * may read other keys of the cache. Concurrent readers of a key that is being
+ * loaded wait for that load instead of starting their own.
+ */
+class CsvCache {
+  @FunctionalInterface
+  interface Loader<T> {
+    LoadedTable<T> load();
+  }
+
+  static final class LoadedTable<T> {
+    private final List<T> rows;
+    private final long weight;
+
+    LoadedTable(List<T> rows, long weight) {
+      this.rows = rows;
+      this.weight = weight;
+    }
+  }
+
+  private final long budget;
+  private final Map<Object, Entry> entries;
+
+  private final AtomicLong clock = new AtomicLong();
+  private final AtomicLong weight = new AtomicLong();
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong loads = new AtomicLong();
+  private final AtomicLong loadNanos = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+
+  CsvCache(long budget) {
+    if (budget < 0) {
+      throw new IllegalArgumentException("budget must not be negative");
+    }
+
+    this.budget = budget;
+    this.entries = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Loads the table under key unless it is already cached and purge is false.
+   *
+   * @param reloader loader used after an eviction, null pins the entry
+   */
+  <T> List<T> load(Object key, boolean purge, Loader<T> loader, Loader<T> reloader) {
+    Entry loading = new Entry(new CompletableFuture<>(), reloader);
+    Entry entry = entries.compute(key, (__, curr) -> {
+      if (curr != null && curr.rows != null && !purge) {
+        return curr;
+      }
+
+      return replace(curr, loading);
+    });
+
+    if (entry != loading) {
+      hits.incrementAndGet();
+      entry.touch();
+      return rowsOf(entry);
+    }
+
+    misses.incrementAndGet();
+    return fill(key, entry, loader);
+  }
+
+  <T> Optional<List<T>> get(Object key) {
+    return getEntry(key).map(this::rowsOf);
+  }
+
+  /**
+   * Returns the value derived from the rows under key, computing it on first
+   * access.
+   *
+   * @param bytesPerRow estimated retained size of the derived value per row
+   */
+  <T, V> Optional<V> derive(Object key, String name, Function<List<T>, V> function, long bytesPerRow) {
+    return getEntry(key).map(entry -> {
+      CompletableFuture<Object> computing = new CompletableFuture<>();
+      CompletableFuture<Object> value = entry.derived.putIfAbsent(name, computing);
+      if (value != null) {
+        return (V) value.join();
+      }
+
+      try {
+        List<T> rows = rowsOf(entry);
+        V derived = function.apply(rows);
+        addWeight(key, entry, rows.size() * bytesPerRow);
+
+        computing.complete(derived);
+        return derived;
+      } catch (RuntimeException e) {
+        entry.derived.remove(name, computing);
+        computing.completeExceptionally(e);
+        throw e;
+      }
+    });
+  }
+
+  CsvCacheStats getStats() {
+    return new CsvCacheStats(hits.get(), misses.get(), loads.get(), loadNanos.get(), evictions.get(),
+        weight.get(), budget);
+  }
+
+  private Optional<Entry> getEntry(Object key) {
+    Entry entry = entries.get(key);
+    if (entry == null) {
+      return Optional.empty();
+    }
+
+    if (entry.rows != null) {
+      hits.incrementAndGet();
+      entry.touch();
+      rowsOf(entry);
+      return Optional.of(entry);
+    }
+
+    // evicted, load it again
+    Entry loading = new Entry(new CompletableFuture<>(), entry.reloader);
+    Entry current = entries.computeIfPresent(key, (__, curr) -> curr.rows != null ? curr : replace(curr, loading));
+
+    if (current == null) {
+      return Optional.empty();
+    }
+
+    if (current != loading) {
+      hits.incrementAndGet();
+      current.touch();
+    } else {
+      misses.incrementAndGet();
+      fill(key, current, current.reloader);
+    }
+
+    rowsOf(current);
+    return Optional.of(current);
+  }
+
+  /**
+   * Swaps curr for next, must be called from within a map operation on the
+   * key.
+   */
+  private Entry replace(Entry curr, Entry next) {
+    if (curr != null) {
+      weight.addAndGet(-curr.weight.get());
+    }
+
+    return next;
+  }
+
+  /**
+   * Runs loader for an entry that was just put under key and completes its
+   * rows. A failed load is dropped from the cache, or marked evicted if it
+   * can be retried, and its exception rethrown to every waiting reader.
+   */
+  private <T> List<T> fill(Object key, Entry entry, Loader<T> loader) {
+    LoadedTable<T> table;
+    try {
+      long start = System.nanoTime();
+      table = loader.load();
+      loadNanos.addAndGet(System.nanoTime() - start);
+      loads.incrementAndGet();
+    } catch (RuntimeException e) {
+      entries.computeIfPresent(key, (__, curr) -> {
+        if (curr != entry) {
+          return curr;
+        }
+
+        return entry.reloader != null ? new Entry(null, entry.reloader) : null;
+      });
+      entry.rows.completeExceptionally(e);
+      throw e;
+    }
+
+    addWeight(key, entry, table.weight);
+    entry.touch();
+    entry.rows.complete(table.rows);
+
+    evictIfNeeded(key);
+    return table.rows;
+  }
+
+  /**
+   * Adds to the weight of entry and to the total, unless entry has been
+   * replaced under key in the meantime.
+   */
+  private void addWeight(Object key, Entry entry, long entryWeight) {
+    entries.computeIfPresent(key, (__, curr) -> {
+      if (curr == entry) {
+        entry.weight.addAndGet(entryWeight);
+        weight.addAndGet(entryWeight);
+      }
+
+      return curr;
+    });
+  }
+
+  private void evictIfNeeded(Object keepKey) {
+    while (weight.get() > budget) {
+      Object victim = null;
+      long victimAccess = Long.MAX_VALUE;
+
+      for (Map.Entry<Object, Entry> candidate : entries.entrySet()) {
+        Entry entry = candidate.getValue();
+        if (entry.isEvictable() && entry.lastAccess < victimAccess &&
+            !Objects.equals(candidate.getKey(), keepKey)) {
+          victim = candidate.getKey();
+          victimAccess = entry.lastAccess;
+        }
+      }
+
+      if (victim == null) {
+        // everything left is pinned, loading or in use
+        return;
+      }
+
+      entries.computeIfPresent(victim, (__, curr) -> {
+        if (!curr.isEvictable()) {
+          return curr;
+        }
+
+        evictions.incrementAndGet();
+        return replace(curr, new Entry(null, curr.reloader));
+      });
+    }
+  }
+
+  private <T> List<T> rowsOf(Entry entry) {
+    return (List<T>) entry.rows.join();
+  }
+
+  private final class Entry {
+    // null once evicted, incomplete while loading
+    private final CompletableFuture<List<?>> rows;
+    private final Loader reloader;
+    private final AtomicLong weight;
+    private final Map<String, CompletableFuture<Object>> derived;
+    private volatile long lastAccess;
+
+    Entry(CompletableFuture<List<?>> rows, Loader reloader) {
+      this.rows = rows;
+      this.reloader = reloader;
+      this.weight = new AtomicLong();
+      this.derived = new ConcurrentHashMap<>();
+    }
+
+    boolean isEvictable() {
+      return reloader != null && rows != null && rows.isDone() && !rows.isCompletedExceptionally();
+    }
+
+    void touch() {
+      lastAccess = clock.incrementAndGet();
+    }
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2016-2022 University of Washington
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *  Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *  Neither the name of the University of Washington nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE UNIVERSITY OF WASHINGTON AND CONTRIBUTORS “AS IS” AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE UNIVERSITY OF WASHINGTON OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+
+package edu.uw.cse.ifrcdemo.planningsharedlib.model.csv;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Point in time statistics of a {@link FileCsvRepository}'s cache.
+ */
+public class CsvCacheStats {
+  private final long hitCount;
+  private final long missCount;
+  private final long loadCount;
+  private final long totalLoadTimeNanos;
+  private final long evictionCount;
+  private final long weightBytes;
+  private final long budgetBytes;
+
+  public CsvCacheStats(long hitCount, long missCount, long loadCount, long totalLoadTimeNanos,
+                       long evictionCount, long weightBytes, long budgetBytes) {
+    this.hitCount = hitCount;
+    this.missCount = missCount;
+    this.loadCount = loadCount;
+    this.totalLoadTimeNanos = totalLoadTimeNanos;
+    this.evictionCount = evictionCount;
+    this.weightBytes = weightBytes;
+    this.budgetBytes = budgetBytes;
+  }
+
+  public long getHitCount() {
+    return hitCount;
+  }
+
+  public long getMissCount() {
+    return missCount;
+  }
+
+  public long getLoadCount() {
+    return loadCount;
+  }
+
+  public long getTotalLoadTimeNanos() {
+    return totalLoadTimeNanos;
+  }
+
+  public long getEvictionCount() {
+    return evictionCount;
+  }
+
+  /**
+   * @return estimated retained size of the cached tables
+   */
+  public long getWeightBytes() {
+    return weightBytes;
+  }
+
+  public long getBudgetBytes() {
+    return budgetBytes;
+  }
+
+  public double getHitRate() {
+    long requestCount = hitCount + missCount;
+    return requestCount == 0 ? 1.0 : (double) hitCount / requestCount;
+  }
+
+  @Override
+  public String toString() {
+    return "CsvCacheStats{" +
+        "hitCount=" + hitCount +
+        ", missCount=" + missCount +
+        ", loadCount=" + loadCount +
+        ", totalLoadTimeMillis=" + TimeUnit.NANOSECONDS.toMillis(totalLoadTimeNanos) +
+        ", evictionCount=" + evictionCount +
+        ", weightBytes=" + weightBytes +
+        ", budgetBytes=" + budgetBytes +
+        '}';
+  }
+}
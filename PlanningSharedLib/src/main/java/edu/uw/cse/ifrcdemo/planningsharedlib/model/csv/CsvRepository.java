@@ -15,6 +15,7 @@
 package edu.uw.cse.ifrcdemo.planningsharedlib.model.csv;
 
 import edu.uw.cse.ifrcdemo.sharedlib.model.row.BaseSyncRow;
+import edu.uw.cse.ifrcdemo.sharedlib.model.row.CsvIndividual;
 import edu.uw.cse.ifrcdemo.sharedlib.model.row.UntypedSyncRow;
 
 import java.io.InputStream;
@@ -22,10 +23,38 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 public interface CsvRepository {
   CompletableFuture<List<UntypedSyncRow>> readUntypedCsv(String filename, InputStream input, boolean purgeCache);
 
+  /**
+   * Like {@link #readUntypedCsv(String, InputStream, boolean)}, source may be
+   * used to read the table again later.
+   */
+  default CompletableFuture<List<UntypedSyncRow>> readUntypedCsv(String filename,
+                                                                 Supplier<InputStream> source,
+                                                                 boolean purgeCache) {
+    return CompletableFuture
+        .supplyAsync(source)
+        .thenCompose(input -> readUntypedCsv(filename, input, purgeCache));
+  }
+
+  /**
+   * Like {@link #readUntypedCsv(String, Supplier, boolean)}, the table is
+   * read on executor. Implementations parse it there as well.
+   */
+  default CompletableFuture<List<UntypedSyncRow>> readUntypedCsv(String filename,
+                                                                 Supplier<InputStream> source,
+                                                                 boolean purgeCache,
+                                                                 Executor executor) {
+    return CompletableFuture
+        .supplyAsync(source, executor)
+        .thenCompose(input -> readUntypedCsv(filename, input, purgeCache));
+  }
+
   Optional<List<UntypedSyncRow>> readUntypedCsv(String filename);
 
   <T extends BaseSyncRow> CompletableFuture<List<? extends BaseSyncRow>> readTypedCsv(Class<T> clazz,
@@ -34,7 +63,57 @@ public interface CsvRepository {
 
   <T extends BaseSyncRow> Optional<List<T>> readTypedCsv(Class<T> clazz);
 
+  /**
+   * Reads a base table into both the untyped cache, under filename, and the
+   * typed cache. Implementations parse the input once for both views.
+   */
+  <T extends BaseSyncRow> CompletableFuture<List<T>> readBaseCsv(Class<T> clazz,
+                                                                 String filename,
+                                                                 InputStream input,
+                                                                 boolean purgeCache);
+
+  /**
+   * Like {@link #readBaseCsv(Class, String, InputStream, boolean)}, source may
+   * be used to read the table again later.
+   */
+  default <T extends BaseSyncRow> CompletableFuture<List<T>> readBaseCsv(Class<T> clazz,
+                                                                         String filename,
+                                                                         Supplier<InputStream> source,
+                                                                         boolean purgeCache) {
+    return CompletableFuture
+        .supplyAsync(source)
+        .thenCompose(input -> readBaseCsv(clazz, filename, input, purgeCache));
+  }
+
+  /**
+   * Like {@link #readBaseCsv(Class, String, Supplier, boolean)}, the table is
+   * read on executor. Implementations parse it there as well.
+   */
+  default <T extends BaseSyncRow> CompletableFuture<List<T>> readBaseCsv(Class<T> clazz,
+                                                                         String filename,
+                                                                         Supplier<InputStream> source,
+                                                                         boolean purgeCache,
+                                                                         Executor executor) {
+    return CompletableFuture
+        .supplyAsync(source, executor)
+        .thenCompose(input -> readBaseCsv(clazz, filename, input, purgeCache));
+  }
+
   Optional<Map<String, UntypedSyncRow>> readIndexedUntypedCsv(String filename);
 
   <T extends BaseSyncRow> Optional<Map<String, T>> readIndexedTypedCsv(Class<T> clazz);
+
+  /**
+   * @return beneficiary entity row id -> number of members in that beneficiary entity
+   */
+  default Optional<Map<String, Long>> readHouseholdSizeIndex() {
+    return readTypedCsv(CsvIndividual.class).map(CsvRepository::buildHouseholdSizeIndex);
+  }
+
+  static Map<String, Long> buildHouseholdSizeIndex(List<CsvIndividual> members) {
+    return members
+        .stream()
+        .filter(member -> member.getBeneficiaryEntityRowId() != null)
+        .collect(Collectors.groupingBy(CsvIndividual::getBeneficiaryEntityRowId, Collectors.counting()));
+  }
 }
@@ -19,16 +19,19 @@ import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.dataformat.csv.CsvMapper;
 import edu.uw.cse.ifrcdemo.sharedlib.consts.GenConsts;
 import edu.uw.cse.ifrcdemo.sharedlib.model.row.BaseSyncRow;
+import edu.uw.cse.ifrcdemo.sharedlib.model.row.CsvIndividual;
 import edu.uw.cse.ifrcdemo.sharedlib.model.row.UntypedSyncRow;
 import edu.uw.cse.ifrcdemo.sharedlib.util.CsvMapperUtil;
 import edu.uw.cse.ifrcdemo.translations.LogStr;
 import edu.uw.cse.ifrcdemo.translations.TranslationConsts;
 import edu.uw.cse.ifrcdemo.translations.TranslationUtil;
+import org.apache.commons.io.input.CountingInputStream;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -36,31 +39,36 @@ import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 public class FileCsvRepository implements CsvRepository {
+  // rough retained size estimates used to weigh cache entries
+  private static final long BYTES_PER_INPUT_BYTE = 3;
+  private static final long BYTES_PER_ROW = 96;
+  private static final long BYTES_PER_INDEX_ENTRY = 48;
 
+  // the executor CompletableFuture's async methods use when none is given
+  private static final Executor DEFAULT_EXECUTOR = ForkJoinPool.getCommonPoolParallelism() > 1
+      ? ForkJoinPool.commonPool()
+      : runnable -> new Thread(runnable).start();
 
-  private final Map<String, List<UntypedSyncRow>> untypedCsv;
-  private final Map<Class<? extends BaseSyncRow>, List<? extends BaseSyncRow>> typedCsv;
-  private final Map<String, Map<String, ? extends BaseSyncRow>> indexedCsv; // TODO: not efficient
+  private static final String ROW_ID_INDEX = "rowIdIndex";
+  private static final String HOUSEHOLD_SIZE_INDEX = "householdSizeIndex";
+
+  // untyped tables are cached by filename, typed tables by class
+  private final CsvCache cache;
 
   private final CsvMapper mapper;
   private final Map<Class<? extends BaseSyncRow>, ObjectReader> objectReaderCache;
 
   private final Logger logger;
 
-  private Map<String, List<UntypedSyncRow>> getUntypedCsv() {
-    return untypedCsv;
-  }
-
-  private Map<Class<? extends BaseSyncRow>, List<? extends BaseSyncRow>> getTypedCsv() {
-    return typedCsv;
-  }
-
-  private Map<String, Map<String, ? extends BaseSyncRow>> getIndexedCsv() {
-    return indexedCsv;
+  private CsvCache getCache() {
+    return cache;
   }
 
   private CsvMapper getMapper() {
@@ -72,9 +80,15 @@ public class FileCsvRepository implements CsvRepository {
   }
 
   public FileCsvRepository() {
-    this.untypedCsv = new ConcurrentHashMap<>();
-    this.typedCsv = new ConcurrentHashMap<>();
-    this.indexedCsv = new ConcurrentHashMap<>();
+    this(Runtime.getRuntime().maxMemory() / 2);
+  }
+
+  /**
+   * @param cacheBudgetBytes estimated heap the cached tables may retain before
+   *                         tables that can be read again are evicted
+   */
+  public FileCsvRepository(long cacheBudgetBytes) {
+    this.cache = new CsvCache(cacheBudgetBytes);
 
     this.mapper = CsvMapperUtil.getCsvMapper(true);
     this.objectReaderCache = new ConcurrentHashMap<>();
@@ -82,8 +96,13 @@ public class FileCsvRepository implements CsvRepository {
     this.logger = LogManager.getLogger(FileCsvRepository.class);
   }
 
+  public CsvCacheStats getCacheStats() {
+    return getCache().getStats();
+  }
+
   /**
-   * Reads in an untyped csv and stores in cache by path
+   * Reads in an untyped csv and stores in cache by path.
+   * The table is pinned in the cache because the input cannot be read again.
    *
    * @param filename
    * @param input
@@ -92,39 +111,58 @@ public class FileCsvRepository implements CsvRepository {
    */
   @Override
   public CompletableFuture<List<UntypedSyncRow>> readUntypedCsv(String filename, InputStream input, boolean purgeCache) {
-    return CompletableFuture.supplyAsync(() -> getUntypedCsv().compute(filename, (__, curr) -> {
-      try {
-        if (curr == null || purgeCache) {
-          logger.debug(LogStr.LOG_READING_TABLE_FROM, filename::toString, input::toString);
-
-          try (MappingIterator<UntypedSyncRow> iterator = getObjectReader(UntypedSyncRow.class).readValues(input)) {
-            return Collections.unmodifiableList(iterator.readAll());
+    return CompletableFuture
+        .supplyAsync(() -> {
+          try {
+            return getCache().<UntypedSyncRow>load(filename, purgeCache, () -> parseUntypedCsv(filename, input), null);
+          } finally {
+            closeQuietly(input);
           }
-        } else {
-          logger.debug(LogStr.LOG_TABLE_ALREADY_EXISTS, filename);
-          return Collections.unmodifiableList(curr);
-        }
-      } catch (IOException e) {
-        String tmp = TranslationUtil.getTranslations().getString(TranslationConsts.FAILED_READ_ERROR) + GenConsts.SPACE;
-        throw new CompletionException(tmp + filename, e);
-      } finally {
-        try {
-          input.close();
-        } catch (IOException e) {
-          logger.catching(e);
-        }
-      }
-    })).thenApply(list -> {
-      logger.debug(LogStr.LOG_READ_ROWS_FOR, list.size(), filename);
-      logger.debug(LogStr.LOG_COMPUTING_INDEX_FOR, filename);
+        })
+        .thenApply(list -> indexUntypedRows(filename, list));
+  }
+
+  /**
+   * Reads in an untyped csv and stores in cache by path.
+   * The table is read from source again if it has been evicted.
+   *
+   * @param filename
+   * @param source
+   * @param purgeCache
+   * @return
+   */
+  @Override
+  public CompletableFuture<List<UntypedSyncRow>> readUntypedCsv(String filename,
+                                                                Supplier<InputStream> source,
+                                                                boolean purgeCache) {
+    return readUntypedCsv(filename, source, purgeCache, DEFAULT_EXECUTOR);
+  }
 
-      getIndexedCsv().put(filename, indexRowList(list));
-      return list;
-    });
+  /**
+   * {@link #readUntypedCsv(String, Supplier, boolean)} parsing the table on
+   * executor.
+   *
+   * @param filename
+   * @param source
+   * @param purgeCache
+   * @param executor
+   * @return
+   */
+  @Override
+  public CompletableFuture<List<UntypedSyncRow>> readUntypedCsv(String filename,
+                                                                Supplier<InputStream> source,
+                                                                boolean purgeCache,
+                                                                Executor executor) {
+    CsvCache.Loader<UntypedSyncRow> loader = () -> parseUntypedCsv(filename, source.get());
+
+    return CompletableFuture
+        .supplyAsync(() -> getCache().load(filename, purgeCache, loader, loader), executor)
+        .thenApply(list -> indexUntypedRows(filename, list));
   }
 
   /**
-   * Reads in a typed csv and stores in cache by path
+   * Reads in a typed csv and stores in cache by path.
+   * The table is pinned in the cache because the input cannot be read again.
    *
    * @param clazz
    * @param input
@@ -135,35 +173,74 @@ public class FileCsvRepository implements CsvRepository {
   public <T extends BaseSyncRow> CompletableFuture<List<? extends BaseSyncRow>> readTypedCsv(Class<T> clazz,
                                                                                              InputStream input,
                                                                                              boolean purgeCache) {
-    return CompletableFuture.supplyAsync(() -> getTypedCsv().compute(clazz, (__, curr) -> {
-      try {
-        if (curr == null || purgeCache) {
-          logger.debug(LogStr.LOG_READING_TABLE_FROM, clazz::getSimpleName, input::toString);
-
-          try (MappingIterator<T> iterator = getObjectReader(clazz).readValues(input)) {
-            return Collections.unmodifiableList(iterator.readAll());
+    return CompletableFuture
+        .supplyAsync(() -> {
+          try {
+            return getCache().<T>load(clazz, purgeCache, () -> parseTypedCsv(clazz, input), null);
+          } finally {
+            closeQuietly(input);
           }
-        } else {
-          logger.debug(LogStr.LOG_TABLE_ALREADY_EXISTS, clazz::getSimpleName);
-          return Collections.unmodifiableList(curr);
-        }
-      } catch (IOException e) {
-        String tmp = TranslationUtil.getTranslations().getString(TranslationConsts.FAILED_READ_ERROR) + GenConsts.SPACE;
-        throw new CompletionException(tmp + clazz.getSimpleName(), e);
-      } finally {
-        try {
-          input.close();
-        } catch (IOException e) {
-          logger.catching(e);
-        }
-      }
-    })).thenApply(list -> {
-      logger.debug(LogStr.LOG_READ_ROWS_FOR, list::size, clazz::getSimpleName);
-      logger.debug(LogStr.LOG_COMPUTING_INDEX_FOR, clazz::getSimpleName);
+        })
+        .thenApply(list -> indexTypedRows(clazz, list));
+  }
+
+  /**
+   * Parses the table once into untyped rows and projects every row onto clazz.
+   * Typed rows share their value strings with the untyped rows. An evicted
+   * typed table is projected again from the untyped table.
+   *
+   * @param clazz
+   * @param filename
+   * @param input
+   * @param purgeCache
+   * @return
+   */
+  @Override
+  public <T extends BaseSyncRow> CompletableFuture<List<T>> readBaseCsv(Class<T> clazz,
+                                                                        String filename,
+                                                                        InputStream input,
+                                                                        boolean purgeCache) {
+    return readUntypedCsv(filename, input, purgeCache)
+        .thenApply(untypedRows -> projectTypedCsv(clazz, filename, untypedRows, purgeCache));
+  }
+
+  /**
+   * {@link #readBaseCsv(Class, String, InputStream, boolean)} with an untyped
+   * table that is read from source again if it has been evicted.
+   *
+   * @param clazz
+   * @param filename
+   * @param source
+   * @param purgeCache
+   * @return
+   */
+  @Override
+  public <T extends BaseSyncRow> CompletableFuture<List<T>> readBaseCsv(Class<T> clazz,
+                                                                        String filename,
+                                                                        Supplier<InputStream> source,
+                                                                        boolean purgeCache) {
+    return readBaseCsv(clazz, filename, source, purgeCache, DEFAULT_EXECUTOR);
+  }
 
-      getIndexedCsv().put(clazz.getCanonicalName(), indexRowList(list));
-      return list;
-    });
+  /**
+   * {@link #readBaseCsv(Class, String, Supplier, boolean)} parsing and
+   * projecting the table on executor.
+   *
+   * @param clazz
+   * @param filename
+   * @param source
+   * @param purgeCache
+   * @param executor
+   * @return
+   */
+  @Override
+  public <T extends BaseSyncRow> CompletableFuture<List<T>> readBaseCsv(Class<T> clazz,
+                                                                        String filename,
+                                                                        Supplier<InputStream> source,
+                                                                        boolean purgeCache,
+                                                                        Executor executor) {
+    return readUntypedCsv(filename, source, purgeCache, executor)
+        .thenApplyAsync(untypedRows -> projectTypedCsv(clazz, filename, untypedRows, purgeCache), executor);
   }
 
   /**
@@ -176,9 +253,7 @@ public class FileCsvRepository implements CsvRepository {
   public Optional<List<UntypedSyncRow>> readUntypedCsv(String filename) {
     logger.trace(LogStr.LOG_READING_FROM_CACHE, filename);
 
-    return Optional
-        .ofNullable(getUntypedCsv().get(filename))
-        .map(Collections::unmodifiableList);
+    return getCache().get(filename);
   }
 
   /**
@@ -191,30 +266,133 @@ public class FileCsvRepository implements CsvRepository {
   public <T extends BaseSyncRow> Optional<List<T>> readTypedCsv(Class<T> clazz) {
     logger.trace(LogStr.LOG_READING_FROM_CACHE, clazz::getSimpleName);
 
-    return Optional
-        .ofNullable(getTypedCsv().get(clazz))
-        .map(list -> (List<T>) list)
-        .map(Collections::unmodifiableList);
+    return getCache().get(clazz);
   }
 
   @Override
   public Optional<Map<String, UntypedSyncRow>> readIndexedUntypedCsv(String filename) {
     logger.trace(LogStr.LOG_READING_INDEXED_FROM_CACHE, filename);
 
-    return Optional
-        .ofNullable(getIndexedCsv().get(filename))
-        .map(map -> (Map<String, UntypedSyncRow>) map)
-        .map(Collections::unmodifiableMap);
+    return getCache().<UntypedSyncRow, Map<String, UntypedSyncRow>>derive(
+        filename, ROW_ID_INDEX, this::indexRowList, BYTES_PER_INDEX_ENTRY);
   }
 
   @Override
   public <T extends BaseSyncRow> Optional<Map<String, T>> readIndexedTypedCsv(Class<T> clazz) {
     logger.trace(LogStr.LOG_READING_INDEXED_FROM_CACHE, clazz::getSimpleName);
 
-    return Optional
-        .ofNullable(getIndexedCsv().get(clazz.getCanonicalName()))
-        .map(map -> (Map<String, T>) map)
-        .map(Collections::unmodifiableMap);
+    return getCache().<T, Map<String, T>>derive(clazz, ROW_ID_INDEX, this::indexRowList, BYTES_PER_INDEX_ENTRY);
+  }
+
+  @Override
+  public Optional<Map<String, Long>> readHouseholdSizeIndex() {
+    return getCache().<CsvIndividual, Map<String, Long>>derive(
+        CsvIndividual.class,
+        HOUSEHOLD_SIZE_INDEX,
+        rows -> Collections.unmodifiableMap(CsvRepository.buildHouseholdSizeIndex(rows)),
+        0
+    );
+  }
+
+  private CsvCache.LoadedTable<UntypedSyncRow> parseUntypedCsv(String filename, InputStream input) {
+    logger.debug(LogStr.LOG_READING_TABLE_FROM, filename::toString, input::toString);
+
+    try (CountingInputStream countingInput = new CountingInputStream(input);
+         MappingIterator<UntypedSyncRow> iterator = getObjectReader(UntypedSyncRow.class).readValues(countingInput)) {
+      List<UntypedSyncRow> rows = iterator.readAll();
+      UntypedSyncRow.compact(rows);
+
+      return new CsvCache.LoadedTable<>(Collections.unmodifiableList(rows), weigh(countingInput, rows));
+    } catch (IOException e) {
+      String tmp = TranslationUtil.getTranslations().getString(TranslationConsts.FAILED_READ_ERROR) + GenConsts.SPACE;
+      throw new CompletionException(tmp + filename, e);
+    }
+  }
+
+  private <T extends BaseSyncRow> CsvCache.LoadedTable<T> parseTypedCsv(Class<T> clazz, InputStream input) {
+    logger.debug(LogStr.LOG_READING_TABLE_FROM, clazz::getSimpleName, input::toString);
+
+    try (CountingInputStream countingInput = new CountingInputStream(input);
+         MappingIterator<T> iterator = getObjectReader(clazz).readValues(countingInput)) {
+      List<T> rows = iterator.readAll();
+
+      return new CsvCache.LoadedTable<>(Collections.unmodifiableList(rows), weigh(countingInput, rows));
+    } catch (IOException e) {
+      String tmp = TranslationUtil.getTranslations().getString(TranslationConsts.FAILED_READ_ERROR) + GenConsts.SPACE;
+      throw new CompletionException(tmp + clazz.getSimpleName(), e);
+    }
+  }
+
+  private <T extends BaseSyncRow> List<T> projectTypedCsv(Class<T> clazz,
+                                                          String filename,
+                                                          List<UntypedSyncRow> untypedRows,
+                                                          boolean purgeCache) {
+    CsvCache.Loader<T> reloader = () -> projectTypedRows(clazz, filename, getCache()
+        .<UntypedSyncRow>get(filename)
+        .orElseThrow(IllegalStateException::new));
+
+    List<T> typedRows = getCache().load(
+        clazz,
+        purgeCache,
+        () -> projectTypedRows(clazz, filename, untypedRows),
+        reloader
+    );
+
+    return (List<T>) indexTypedRows(clazz, typedRows);
+  }
+
+  private <T extends BaseSyncRow> CsvCache.LoadedTable<T> projectTypedRows(Class<T> clazz,
+                                                                           String filename,
+                                                                           List<UntypedSyncRow> untypedRows) {
+    logger.debug(LogStr.LOG_PROJECTING_TABLE_FROM, clazz::getSimpleName, filename::toString);
+
+    try {
+      List<T> list = new ArrayList<>(untypedRows.size());
+      for (UntypedSyncRow row : untypedRows) {
+        list.add(getMapper().convertValue(row, clazz));
+      }
+
+      // values are shared with the untyped rows
+      return new CsvCache.LoadedTable<>(Collections.unmodifiableList(list), list.size() * BYTES_PER_ROW);
+    } catch (IllegalArgumentException e) {
+      String tmp = TranslationUtil.getTranslations().getString(TranslationConsts.FAILED_READ_ERROR) + GenConsts.SPACE;
+      throw new CompletionException(tmp + clazz.getSimpleName(), e);
+    }
+  }
+
+  private List<UntypedSyncRow> indexUntypedRows(String filename, List<UntypedSyncRow> list) {
+    logger.debug(LogStr.LOG_READ_ROWS_FOR, list.size(), filename);
+    logger.debug(LogStr.LOG_COMPUTING_INDEX_FOR, filename);
+
+    // build the index right away to surface duplicate row ids while loading
+    readIndexedUntypedCsv(filename);
+    logger.debug(LogStr.LOG_CSV_CACHE_STATS, this::getCacheStats);
+
+    return list;
+  }
+
+  private <T extends BaseSyncRow> List<? extends BaseSyncRow> indexTypedRows(Class<T> clazz,
+                                                                             List<? extends BaseSyncRow> list) {
+    logger.debug(LogStr.LOG_READ_ROWS_FOR, list::size, clazz::getSimpleName);
+    logger.debug(LogStr.LOG_COMPUTING_INDEX_FOR, clazz::getSimpleName);
+
+    // build the index right away to surface duplicate row ids while loading
+    readIndexedTypedCsv(clazz);
+    logger.debug(LogStr.LOG_CSV_CACHE_STATS, this::getCacheStats);
+
+    return list;
+  }
+
+  private long weigh(CountingInputStream input, List<?> rows) {
+    return input.getByteCount() * BYTES_PER_INPUT_BYTE + rows.size() * BYTES_PER_ROW;
+  }
+
+  private void closeQuietly(InputStream input) {
+    try {
+      input.close();
+    } catch (IOException e) {
+      logger.catching(e);
+    }
   }
 
   private ObjectReader getObjectReader(Class<? extends BaseSyncRow> clazz) {
@@ -227,6 +405,6 @@ public class FileCsvRepository implements CsvRepository {
   }
 
   private <T extends BaseSyncRow> Map<String, T> indexRowList(List<T> list, Function<T, ? extends String> keyFunc) {
-    return list.stream().collect(Collectors.toMap(keyFunc, Function.identity()));
+    return Collections.unmodifiableMap(list.stream().collect(Collectors.toMap(keyFunc, Function.identity())));
   }
 }
@@ -14,6 +14,7 @@
 
 package edu.uw.cse.ifrcdemo.planningsharedlib.model.entitlement;
 
+import edu.uw.cse.ifrcdemo.planningsharedlib.consts.DbConsts;
 import edu.uw.cse.ifrcdemo.planningsharedlib.entity.Authorization;
 import edu.uw.cse.ifrcdemo.planningsharedlib.entity.DisabledEntitlement;
 import edu.uw.cse.ifrcdemo.planningsharedlib.entity.EnabledEntitlement;
@@ -22,48 +23,76 @@ import edu.uw.cse.ifrcdemo.planningsharedlib.entity.Entitlement_;
 import edu.uw.cse.ifrcdemo.planningsharedlib.model.AbstractOdkRepository;
 import edu.uw.cse.ifrcdemo.planningsharedlib.model.csv.CsvRepository;
 import edu.uw.cse.ifrcdemo.sharedlib.consts.GenConsts;
-import edu.uw.cse.ifrcdemo.sharedlib.consts.csv.MobileDbConsts;
 import edu.uw.cse.ifrcdemo.sharedlib.model.datattype.EntitlementStatus;
 import edu.uw.cse.ifrcdemo.sharedlib.model.row.CsvBeneficiaryEntity;
 import edu.uw.cse.ifrcdemo.sharedlib.model.row.CsvEntitlement;
 import edu.uw.cse.ifrcdemo.sharedlib.model.row.CsvIndividual;
 import edu.uw.cse.ifrcdemo.translations.PrintOutStr;
+import org.hibernate.Session;
 import org.hibernate.annotations.QueryHints;
 import org.opendatakit.aggregate.odktables.rest.TableConstants;
 
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
-import javax.persistence.NoResultException;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Root;
 import javax.persistence.metamodel.SingularAttribute;
 import java.beans.PropertyChangeSupport;
 import java.time.Instant;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 
 public class EntitlementRepository extends AbstractOdkRepository<Entitlement> {
-  // TODO: make this more flexible
-  private static final int BULK_INSERT_BATCH_SIZE = 20;
+  public static final int DEFAULT_BATCH_SIZE = 500;
+  // SQLite allows at most 999 bound variables per statement
+  private static final int MAX_IN_PARAMETERS = 999;
+  private static final String MEMBER_KEY_SEPARATOR = "\t";
 
   private final PropertyChangeSupport pcs;
+  private final int batchSize;
 
   public PropertyChangeSupport getPcs() {
     return pcs;
   }
 
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  /**
+   * Uses the batch size set with the {@link DbConsts#ENTITLEMENT_BATCH_SIZE_KEY}
+   * system property, or {@link #DEFAULT_BATCH_SIZE}.
+   */
   public EntitlementRepository(EntityManagerFactory emf) {
+    this(emf, Integer.getInteger(DbConsts.ENTITLEMENT_BATCH_SIZE_KEY, DEFAULT_BATCH_SIZE));
+  }
+
+  /**
+   * @param batchSize number of entitlements written per JDBC batch and kept in
+   *                  the persistence context between flushes
+   */
+  public EntitlementRepository(EntityManagerFactory emf, int batchSize) {
     super(emf);
+
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("batchSize must be positive");
+    }
+
     this.pcs = new PropertyChangeSupport(this);
+    this.batchSize = batchSize;
   }
 
   public CompletableFuture<Void> bulkSaveEntitlement(List<? extends Entitlement> entitlements) {
     return CompletableFuture.runAsync(() -> {
-      EntityManager em = getEmf().createEntityManager();
+      EntityManager em = createBatchEntityManager();
       em.getTransaction().begin();
 
       try {
@@ -71,7 +100,7 @@ public class EntitlementRepository extends AbstractOdkRepository<Entitlement> {
         entitlements.get(i).getPersistenceEntity(em);
 
         // flush the batch to release memory
-        if (i > 0 && i % BULK_INSERT_BATCH_SIZE == 0) {
+        if (i > 0 && i % getBatchSize() == 0) {
           em.flush();
           em.clear();
         }
@@ -89,119 +118,133 @@ public class EntitlementRepository extends AbstractOdkRepository<Entitlement> {
     });
   }
 
-  // TODO: clean up
+  /**
+   * Imports the entitlements CSV in batches of {@link #getBatchSize()} rows.
+   *
+   * Authorizations are resolved from a map loaded once per import and the
+   * database entitlements of each batch are loaded with a single query, so the
+   * import no longer issues per-row lookups.
+   */
   public CompletableFuture<Void> updateOrInsertFromCsv(CsvRepository csvRepository) {
     return CompletableFuture.runAsync(() -> {
       List<CsvEntitlement> entitlements = csvRepository
           .readTypedCsv(CsvEntitlement.class)
           .orElseThrow(IllegalStateException::new);
 
-      List<CsvBeneficiaryEntity> csvBeneficiaryEntities = csvRepository
-          .readTypedCsv(CsvBeneficiaryEntity.class)
-          .orElseThrow(IllegalStateException::new);
+      // beneficiary unit rcId -> beneficiary entity row id
+      Map<String, String> beneficiaryUnitRowIds = new HashMap<>();
+      csvRepository
+          .readIndexedTypedCsv(CsvBeneficiaryEntity.class)
+          .orElseThrow(IllegalStateException::new)
+          .forEach((rowId, beneficiaryEntity) -> {
+            if (beneficiaryEntity.getBeneficiaryEntityId() != null) {
+              beneficiaryUnitRowIds.putIfAbsent(beneficiaryEntity.getBeneficiaryEntityId(), rowId);
+            }
+          });
 
-      List<CsvIndividual> csvIndividuals = csvRepository
-          .readTypedCsv(CsvIndividual.class)
-          .orElseThrow(IllegalStateException::new);
+      // getMemberKey(member rcId, beneficiary entity row id) -> individual row id
+      Map<String, String> memberRowIds = new HashMap<>();
+      csvRepository
+          .readIndexedTypedCsv(CsvIndividual.class)
+          .orElseThrow(IllegalStateException::new)
+          .forEach((rowId, individual) -> memberRowIds.putIfAbsent(
+              getMemberKey(individual.getMemberId(), individual.getBeneficiaryEntityRowId()), rowId));
 
-      EntityManager em = getEmf().createEntityManager();
+      EntityManager em = createBatchEntityManager();
       em.getTransaction().begin();
 
       try {
-        for (int i = 0; i < entitlements.size(); i++) {
-          CsvEntitlement csvEntitlement = entitlements.get(i);
-
-          Entitlement entitlement = csvEntitlement.getStatus() == EntitlementStatus.ENABLED ?
-              new EnabledEntitlement() :
-              new DisabledEntitlement();
-
-          entitlement.setRowId(csvEntitlement.getRowId());
-          entitlement.setDateCreated(Instant.ofEpochMilli(TableConstants.milliSecondsFromNanos(
-              csvEntitlement.getDateCreated(), Locale.ROOT)));
-          entitlement.setOverride(Boolean.parseBoolean(csvEntitlement.getIsOverride()));
-          entitlement.setAssignedItemCode(csvEntitlement.getAssignedItemCode());
-
-          try {
-            entitlement.setAuthorization(em
-                .createQuery("SELECT a FROM Authorization a WHERE a.rowId = :rowId", Authorization.class)
-                .setParameter(MobileDbConsts.ROW_ID, csvEntitlement.getAuthorizationId())
-                .getSingleResult()
-            );
-          } catch (Exception e) {
-            // this entitlement is invalid
-            continue;
-          }
+        Map<String, Long> authorizationIds = new HashMap<>();
+        for (Object[] authorization : em
+            .createQuery("SELECT a.rowId, a.id FROM Authorization a", Object[].class)
+            .getResultList()) {
+          authorizationIds.put((String) authorization[0], (Long) authorization[1]);
+        }
+
+        for (int batchStart = 0; batchStart < entitlements.size(); batchStart += getBatchSize()) {
+          List<CsvEntitlement> batch =
+              entitlements.subList(batchStart, Math.min(batchStart + getBatchSize(), entitlements.size()));
+
+          Map<String, Entitlement> dbEntitlements = findEntitlementsByRowId(em, batch);
+
+          for (CsvEntitlement csvEntitlement : batch) {
+            Long authorizationId = authorizationIds.get(csvEntitlement.getAuthorizationId());
+            if (authorizationId == null) {
+              // this entitlement is invalid
+              continue;
+            }
 
-          entitlement.setBeneficiaryUnitRcId(csvEntitlement.getBeneficiaryEntityId());
-          entitlement.setMemberRcId(csvEntitlement.getMemberId());
+            Entitlement dbEntitlement = dbEntitlements.get(csvEntitlement.getRowId());
 
-          entitlement.setStatus(csvEntitlement.getStatus());
-          entitlement.setStatusReason(csvEntitlement.getStatusReason());
+            if (dbEntitlement != null && csvEntitlement.getCreateUser() != null &&
+                !csvEntitlement.getCreateUser().equals(dbEntitlement.getCreateUser())) {
+              System.out.println(PrintOutStr.UPDATING_ENTITLEMENT_CREATE_USER_FROM_CSV_IS_DIFFERENT_FROM_CREATE_USER_IN_THE_DATABASE);
+            }
 
-          entitlement.setCreateUser(csvEntitlement.getCreateUser());
-          entitlement.setGroupReadOnly(csvEntitlement.getRowFilterScope().getGroupReadOnly());
+            Entitlement entitlement;
+            if (dbEntitlement != null && dbEntitlement.getStatus() == csvEntitlement.getStatus()) {
+              // update the managed entity in place
+              entitlement = dbEntitlement;
+            } else {
+              entitlement = csvEntitlement.getStatus() == EntitlementStatus.ENABLED ?
+                  new EnabledEntitlement() :
+                  new DisabledEntitlement();
+            }
 
-          try {
-            Long id = em
-                .createQuery("SELECT e.id FROM Entitlement e WHERE e.rowId = :rowId", Long.class)
-                .setParameter(MobileDbConsts.ROW_ID, csvEntitlement.getRowId())
-                .getSingleResult();
+            entitlement.setRowId(csvEntitlement.getRowId());
+            entitlement.setDateCreated(Instant.ofEpochMilli(TableConstants.milliSecondsFromNanos(
+                csvEntitlement.getDateCreated(), Locale.ROOT)));
+            entitlement.setOverride(Boolean.parseBoolean(csvEntitlement.getIsOverride()));
+            entitlement.setAssignedItemCode(csvEntitlement.getAssignedItemCode());
+            entitlement.setAuthorization(em.getReference(Authorization.class, authorizationId));
 
-            // if status is changed, move from one table to another
-            // is there a better way to do this?
-            Entitlement dbEntitlement = em.find(Entitlement.class, id);
+            entitlement.setBeneficiaryUnitRcId(csvEntitlement.getBeneficiaryEntityId());
+            entitlement.setMemberRcId(csvEntitlement.getMemberId());
+
+            entitlement.setStatus(csvEntitlement.getStatus());
+            entitlement.setStatusReason(csvEntitlement.getStatusReason());
+
+            entitlement.setCreateUser(csvEntitlement.getCreateUser());
+            entitlement.setGroupReadOnly(csvEntitlement.getRowFilterScope().getGroupReadOnly());
+
+            if (entitlement == dbEntitlement) {
+              continue;
+            }
 
-            entitlement.setBeneficiaryEntityId(dbEntitlement.getBeneficiaryEntityId());
-            entitlement.setIndividualId(dbEntitlement.getIndividualId());
+            if (dbEntitlement != null) {
+              // status is changed, move from one table to another
+              entitlement.setBeneficiaryEntityId(dbEntitlement.getBeneficiaryEntityId());
+              entitlement.setIndividualId(dbEntitlement.getIndividualId());
 
-            if (dbEntitlement.getStatus() != csvEntitlement.getStatus()) {
               em.remove(dbEntitlement);
               em.flush();
             } else {
-              entitlement.setId(id);
-            }
+              // this is a new entitlement, it has to be an override
+              entitlement.setOverride(true);
 
-            if (entitlement.getCreateUser() != null &&
-                !entitlement.getCreateUser().equals(dbEntitlement.getCreateUser())) {
-              System.out.println(PrintOutStr.UPDATING_ENTITLEMENT_CREATE_USER_FROM_CSV_IS_DIFFERENT_FROM_CREATE_USER_IN_THE_DATABASE);
+              // lookup these 2 ids from the CSV
+              // this should only be done for new entitlements (overrides)
+              String beneficiaryEntityRowId = beneficiaryUnitRowIds
+                  .getOrDefault(csvEntitlement.getBeneficiaryEntityId(), GenConsts.EMPTY_STRING);
+
+              String individualId = memberRowIds.getOrDefault(
+                  getMemberKey(csvEntitlement.getMemberId(), beneficiaryEntityRowId),
+                  GenConsts.EMPTY_STRING
+              );
+
+              entitlement.setBeneficiaryEntityId(beneficiaryEntityRowId);
+              entitlement.setIndividualId(individualId);
             }
-          } catch (NoResultException e) {
-            // this is a new entitlement, it has to be an override
-            entitlement.setOverride(true);
-
-            // lookup these 2 ids from the CSV
-            // this should only be done for new entitlements (overrides)
-
-            String beneficiaryEntityRowId = csvBeneficiaryEntities
-                .stream()
-                .filter(x -> x
-                    .getBeneficiaryEntityId()
-                    .equals(csvEntitlement.getBeneficiaryEntityId())
-                )
-                .findAny()
-                .map(CsvBeneficiaryEntity::getRowId)
-                .orElse(GenConsts.EMPTY_STRING);
-
-            String individualId = csvIndividuals
-                .stream()
-                .filter(x -> x.getBeneficiaryEntityRowId().equals(beneficiaryEntityRowId) &&
-                    x.getMemberId().equals(csvEntitlement.getMemberId())
-                )
-                .findAny()
-                .map(CsvIndividual::getRowId)
-                .orElse(GenConsts.EMPTY_STRING);
-
-            entitlement.setBeneficiaryEntityId(beneficiaryEntityRowId);
-            entitlement.setIndividualId(individualId);
-          }
 
-          entitlement.getPersistenceEntity(em);
+            em.persist(entitlement);
 
-          // flush the batch to release memory
-          if (i > 0 && i % BULK_INSERT_BATCH_SIZE == 0) {
-            em.flush();
-            em.clear();
+            // the CSV may contain the same row more than once
+            dbEntitlements.put(entitlement.getRowId(), entitlement);
           }
+
+          // flush the batch to release memory
+          em.flush();
+          em.clear();
         }
 
         em.getTransaction().commit();
@@ -216,6 +259,31 @@ public class EntitlementRepository extends AbstractOdkRepository<Entitlement> {
     });
   }
 
+  private Map<String, Entitlement> findEntitlementsByRowId(EntityManager em, List<CsvEntitlement> csvEntitlements) {
+    List<String> rowIds = csvEntitlements
+        .stream()
+        .map(CsvEntitlement::getRowId)
+        .distinct()
+        .collect(Collectors.toList());
+
+    Map<String, Entitlement> entitlements = new HashMap<>();
+    for (int chunkStart = 0; chunkStart < rowIds.size(); chunkStart += MAX_IN_PARAMETERS) {
+      em
+          .createQuery("SELECT e FROM Entitlement e WHERE e.rowId IN :rowIds", Entitlement.class)
+          .setParameter("rowIds", rowIds.subList(chunkStart, Math.min(chunkStart + MAX_IN_PARAMETERS, rowIds.size())))
+          .getResultList()
+          .forEach(entitlement -> entitlements.putIfAbsent(entitlement.getRowId(), entitlement));
+    }
+
+    return entitlements;
+  }
+
+  private EntityManager createBatchEntityManager() {
+    EntityManager em = getEmf().createEntityManager();
+    em.unwrap(Session.class).setJdbcBatchSize(getBatchSize());
+    return em;
+  }
+
   public CompletableFuture<List<Entitlement>> getEntitlements() {
     return CompletableFuture.supplyAsync(() -> {
       EntityManager em = getEmf().createEntityManager();
@@ -269,6 +337,59 @@ public class EntitlementRepository extends AbstractOdkRepository<Entitlement> {
     });
   }
 
+  /**
+   * Loads every entitlement of an authorization with a single query, keyed by
+   * {@link #getMemberKey(String, String)} of its individual and beneficiary entity row ids.
+   * The bulk counterpart of {@link #findEntitlement(Authorization, String, String)}.
+   */
+  public Map<String, Entitlement> findEntitlementsByMember(Authorization authorization) {
+    return indexEntitlements(authorization,
+        entitlement -> getMemberKey(entitlement.getIndividualId(), entitlement.getBeneficiaryEntityId()));
+  }
+
+  /**
+   * Loads every entitlement of an authorization with a single query, keyed by
+   * member or beneficiary unit rcId depending on the authorization.
+   * The bulk counterpart of {@link #findEntitlement(Authorization, String)}.
+   */
+  public Map<String, Entitlement> findEntitlementsByRcId(Authorization authorization) {
+    return indexEntitlements(authorization, authorization.getForIndividual() ?
+        Entitlement::getMemberRcId :
+        Entitlement::getBeneficiaryUnitRcId);
+  }
+
+  public static String getMemberKey(String memberId, String beneficiaryUnitId) {
+    return memberId + MEMBER_KEY_SEPARATOR + beneficiaryUnitId;
+  }
+
+  private Map<String, Entitlement> indexEntitlements(Authorization authorization,
+                                                     Function<Entitlement, String> keyMapper) {
+    EntityManager em = getEmf().createEntityManager();
+    em.getTransaction().begin();
+
+    List<Entitlement> resultList;
+    try {
+      resultList = em
+          .createQuery("SELECT e FROM Entitlement e WHERE e.authorization = :auth", Entitlement.class)
+          .setParameter("auth", authorization)
+          .getResultList();
+
+      em.getTransaction().commit();
+    } catch (RuntimeException e) {
+      if (em.getTransaction().isActive()) {
+        em.getTransaction().rollback();
+      }
+      throw e;
+    } finally {
+      em.close();
+    }
+
+    // keep the first match like the single entitlement lookups do
+    return resultList
+        .stream()
+        .collect(Collectors.toMap(keyMapper, Function.identity(), (first, second) -> first, HashMap::new));
+  }
+
   public Optional<Entitlement> findEntitlement(Authorization authorization, String memberId, String beneficiaryUnitId) {
     EntityManager em = getEmf().createEntityManager();
     em.getTransaction().begin();
@@ -17,13 +17,53 @@ package edu.uw.cse.ifrcdemo.planningsharedlib.persistence;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import edu.uw.cse.ifrcdemo.translations.LogStr;
 import org.apache.logging.log4j.Logger;
 
 import javax.persistence.AttributeConverter;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.UnaryOperator;
 
 public abstract class AbsJacksonConverter<T> implements AttributeConverter<T, String> {
+  // readers and writers are immutable and thread-safe, one of each is built per converter class
+  private static final ObjectMapper objectMapper = new ObjectMapper();
+  private static final ConcurrentMap<Class<?>, ObjectReader> readers = new ConcurrentHashMap<>();
+  private static final ConcurrentMap<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
+
+  // db value -> parsed attribute, only handed out as copies
+  private final Map<String, T> attributeCache;
+  private final UnaryOperator<T> attributeCopier;
+
+  protected AbsJacksonConverter() {
+    this.attributeCache = null;
+    this.attributeCopier = null;
+  }
+
+  /**
+   * Keeps up to cacheSize parsed attributes keyed by their db value. Entities
+   * may modify their attributes, so each lookup returns copier's copy of the
+   * cached attribute.
+   */
+  protected AbsJacksonConverter(int cacheSize, UnaryOperator<T> copier) {
+    if (cacheSize < 1) {
+      throw new IllegalArgumentException("cacheSize must be positive");
+    }
+
+    this.attributeCache = Collections.synchronizedMap(new LinkedHashMap<String, T>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, T> eldest) {
+        return size() > cacheSize;
+      }
+    });
+    this.attributeCopier = copier;
+  }
 
   protected abstract String getDefaultDbValue();
   protected abstract T getDefaultEntityAttribute();
@@ -40,7 +80,7 @@ public abstract class AbsJacksonConverter<T> implements AttributeConverter<T, St
     }
 
     try {
-      return new ObjectMapper().writerFor(getTypeReference()).writeValueAsString(attribute);
+      return getWriter().writeValueAsString(attribute);
     } catch (JsonProcessingException e) {
       // ignore, use default
     }
@@ -56,12 +96,33 @@ public abstract class AbsJacksonConverter<T> implements AttributeConverter<T, St
       return getDefaultEntityAttribute();
     }
 
+    if (attributeCache != null) {
+      T cached = attributeCache.get(dbData);
+      if (cached != null) {
+        return attributeCopier.apply(cached);
+      }
+    }
+
     try {
-      return new ObjectMapper().readerFor(getTypeReference()).readValue(dbData);
+      T attribute = getReader().readValue(dbData);
+
+      if (attributeCache != null && attribute != null) {
+        attributeCache.put(dbData, attributeCopier.apply(attribute));
+      }
+
+      return attribute;
     } catch (IOException e) {
       // ignore, use default
     }
 
     return getDefaultEntityAttribute();
   }
+
+  private ObjectReader getReader() {
+    return readers.computeIfAbsent(getClass(), __ -> objectMapper.readerFor(getTypeReference()));
+  }
+
+  private ObjectWriter getWriter() {
+    return writers.computeIfAbsent(getClass(), __ -> objectMapper.writerFor(getTypeReference()));
+  }
 }
@@ -16,6 +16,7 @@ package edu.uw.cse.ifrcdemo.planningsharedlib.persistence;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import edu.uw.cse.ifrcdemo.planningsharedlib.model.criteria.AuthorizationCriterion;
+import edu.uw.cse.ifrcdemo.planningsharedlib.util.CriteriaUtil;
 import edu.uw.cse.ifrcdemo.sharedlib.consts.GenConsts;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -28,6 +29,9 @@ import java.util.List;
 @Converter
 public class AuthorizationRuleConverter extends AbsJacksonConverter<List<List<AuthorizationCriterion>>>
     implements AttributeConverter<List<List<AuthorizationCriterion>>, String> {
+  // authorizations of the same distribution tend to share their rules
+  private static final int RULE_CACHE_SIZE = 256;
+
   private final Logger logger;
 
   @Override
@@ -36,6 +40,8 @@ public class AuthorizationRuleConverter extends AbsJacksonConverter<List<List<Au
   }
 
   public AuthorizationRuleConverter() {
+    // criteria are immutable, copying the lists is enough
+    super(RULE_CACHE_SIZE, CriteriaUtil::deepCopyRules);
     logger = LogManager.getLogger(AuthorizationRuleConverter.class);
   }
 
@@ -24,9 +24,12 @@ import javax.persistence.AttributeConverter;
 import javax.persistence.Converter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 
 @Converter
 public class RangeListConverter extends AbsJacksonConverter<List<Range>> implements AttributeConverter<List<Range>, String> {
+  private static final int RANGE_CACHE_SIZE = 256;
+
   private final Logger logger;
 
   @Override
@@ -35,6 +38,11 @@ public class RangeListConverter extends AbsJacksonConverter<List<Range>> impleme
   }
 
   public RangeListConverter() {
+    super(RANGE_CACHE_SIZE, ranges -> ranges
+        .stream()
+        .map(range -> new Range(range.getMin(), range.getMax()))
+        .collect(Collectors.toList())
+    );
     this.logger = LogManager.getLogger(RangeListConverter.class);
   }
 
@@ -161,12 +161,17 @@ public class OtherController {
       end = temp;
     }
 
-    List<BarcodeVoucher> barcodes = IntStream
+    List<String> codes = IntStream
         .rangeClosed(start, end)
-        .mapToObj(String::valueOf).parallel().map(
-            i -> new BarcodeVoucher(i, barcodeFormModel.getText(),
-                BarcodeGeneratorConst.DATA_URI_PREFIX + BarcodeGeneratorSingleton
-                    .generateBase64Barcode(i))).collect(Collectors.toList());
+        .mapToObj(String::valueOf)
+        .collect(Collectors.toList());
+    List<String> images = BarcodeGeneratorSingleton.generateBase64Barcodes(codes);
+
+    List<BarcodeVoucher> barcodes = IntStream
+        .range(0, codes.size())
+        .mapToObj(i -> new BarcodeVoucher(codes.get(i), barcodeFormModel.getText(),
+            BarcodeGeneratorConst.DATA_URI_PREFIX + images.get(i)))
+        .collect(Collectors.toList());
 
     barcodeFormModel.setVoucherList(barcodes);
   }
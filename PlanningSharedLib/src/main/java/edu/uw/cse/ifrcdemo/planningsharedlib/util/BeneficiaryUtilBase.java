@@ -23,15 +23,33 @@ import edu.uw.cse.ifrcdemo.sharedlib.util.StringUtil;
 
 import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
 
 public class BeneficiaryUtilBase {
+    static final char COLUMN_SEPARATOR = GenConsts.UNDERSCORE.charAt(0);
 
+    // prefix -> column -> remapped column name, so that every merged row shares the same key instances
+    private static final ConcurrentMap<String, ConcurrentMap<String, String>> remappedColumnNames =
+        new ConcurrentHashMap<>();
+    // names past this many are built on every call instead of being cached
+    static final int MAX_REMAPPED_COLUMN_NAMES = 10000;
+    private static final AtomicInteger remappedColumnNameCount = new AtomicInteger();
 
     public static String getFromCombinedRow(UntypedSyncRow combinedRow, String tableId, String column) {
       return combinedRow.getColumns().get(BeneficiaryUtilBase.colNameRemap(tableId, column));
     }
 
+    /**
+     * Returns the key of a table's column in a combined row, for callers that
+     * look up the same column on many rows.
+     */
+    public static String getCombinedColumnName(String tableId, String column) {
+      return BeneficiaryUtilBase.colNameRemap(tableId, column);
+    }
+
 
     protected static UntypedSyncRow mergeCustomTableRow(HasCustomTable baseTableRow,
                                                         CsvRepository repository,
@@ -84,8 +102,30 @@ public class BeneficiaryUtilBase {
       return mergeTarget;
     }
 
-    private static String colNameRemap(String prefix, String column) {
-      return prefix + GenConsts.UNDERSCORE + column;
+    static String colNameRemap(String prefix, String column) {
+      if (prefix == null || column == null) {
+        return prefix + GenConsts.UNDERSCORE + column;
+      }
+
+      ConcurrentMap<String, String> columns = remappedColumnNames.get(prefix);
+      String remapped = columns != null ? columns.get(column) : null;
+      if (remapped != null) {
+        return remapped;
+      }
+
+      remapped = prefix + GenConsts.UNDERSCORE + column;
+      if (remappedColumnNameCount.get() < MAX_REMAPPED_COLUMN_NAMES) {
+        String existing = remappedColumnNames
+            .computeIfAbsent(prefix, p -> new ConcurrentHashMap<>())
+            .putIfAbsent(column, remapped);
+
+        if (existing != null) {
+          return existing;
+        }
+        remappedColumnNameCount.incrementAndGet();
+      }
+
+      return remapped;
     }
 
     protected static BiConsumer<String, String> remapPut(Map<String, String> map, String prefix) {
@@ -107,10 +107,11 @@ public class CsvFileUtil {
                     .map(customTableExtractor)
                     .distinct()
                     .filter(StringUtil::isNotNullAndNotEmpty)
-                    .map(formId -> CompletableFuture
-                        .supplyAsync(inputStreamSupplier.apply(formId))
-                        .thenCompose(stream -> repo.readUntypedCsv(FileUtil.getFileName(formId), stream, true))
-                    )
+                    .map(formId -> repo.readUntypedCsv(
+                        FileUtil.getFileName(formId),
+                        inputStreamSupplier.apply(formId),
+                        true
+                    ))
                     .toArray(CompletableFuture<?>[]::new)
             )
         );
@@ -134,14 +135,9 @@ public class CsvFileUtil {
 
     String filename = FileUtil.getFileName(tableClass);
 
-    return CompletableFuture.allOf(
-        CompletableFuture
-            .supplyAsync(inputStreamSupplier)
-            .thenCompose(stream -> repo.readTypedCsv(tableClass, stream, true)),
-        CompletableFuture
-            .supplyAsync(inputStreamSupplier)
-            .thenCompose(stream -> repo.readUntypedCsv(filename, stream, true))
-    );
+    return repo
+        .readBaseCsv(tableClass, filename, inputStreamSupplier, true)
+        .thenAccept(__ -> {});
   }
 
   public static List<Integer> readRangeCsv(File csvFile) {
@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2016-2022 University of Washington
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *  Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *  Neither the name of the University of Washington nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE UNIVERSITY OF WASHINGTON AND CONTRIBUTORS “AS IS” AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE UNIVERSITY OF WASHINGTON OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+
+
+package edu.uw.cse.ifrcdemo.planningsharedlib.util;
+
+import edu.uw.cse.ifrcdemo.planningsharedlib.logic.FileInputStreamSupplier;
+import edu.uw.cse.ifrcdemo.planningsharedlib.model.csv.CsvRepository;
+import edu.uw.cse.ifrcdemo.sharedlib.model.row.BaseSyncRow;
+import edu.uw.cse.ifrcdemo.sharedlib.model.stub.HasCustomTable;
+import edu.uw.cse.ifrcdemo.sharedlib.util.FileUtil;
+import edu.uw.cse.ifrcdemo.sharedlib.util.StringUtil;
+import edu.uw.cse.ifrcdemo.translations.LogStr;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Loads the CSV tables of a snapshot into a {@link CsvRepository}.
+ *
+ * Tables are declared up front and each file is read once, even when a table
+ * is declared twice or several base tables refer to the same custom table.
+ * Custom tables are read once the base table referring to them is loaded.
+ * Files are read and parsed on an executor owned by the plan, and the row
+ * count and load time of every file are recorded.
+ */
+public class CsvLoadPlan {
+  private static final Logger logger = LogManager.getLogger(CsvLoadPlan.class);
+
+  private final Function<String, Supplier<InputStream>> inputStreamSupplier;
+  private final Map<Class<? extends BaseSyncRow>, TableLoad<?>> tables = new LinkedHashMap<>();
+  private final Map<String, TableLoadStats> loadStats = new ConcurrentHashMap<>();
+  private int threads = Runtime.getRuntime().availableProcessors();
+
+  /**
+   * @param inputStreamSupplier maps a file name, e.g. members.csv, to its content
+   */
+  public CsvLoadPlan(Function<String, Supplier<InputStream>> inputStreamSupplier) {
+    this.inputStreamSupplier = Objects.requireNonNull(inputStreamSupplier);
+  }
+
+  public static CsvLoadPlan forDirectory(Path csvPath) {
+    Objects.requireNonNull(csvPath);
+
+    return new CsvLoadPlan(filename -> new FileInputStreamSupplier(FileUtil.getPathToCSV(csvPath, filename)));
+  }
+
+  public CsvLoadPlan threads(int threads) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("threads must be positive");
+    }
+
+    this.threads = threads;
+    return this;
+  }
+
+  public <T extends BaseSyncRow> CsvLoadPlan baseTable(Class<T> tableClass) {
+    tables.putIfAbsent(Objects.requireNonNull(tableClass), new TableLoad<>(tableClass, null));
+    return this;
+  }
+
+  public <T extends BaseSyncRow & HasCustomTable> CsvLoadPlan baseTableWithCustomTable(Class<T> tableClass) {
+    return baseTableWithCustomTable(tableClass, HasCustomTable::getCustomTableFormId);
+  }
+
+  /**
+   * Declares a base table whose rows refer to custom tables. A table declared
+   * both with and without custom tables is loaded once, with them.
+   */
+  public <T extends BaseSyncRow> CsvLoadPlan baseTableWithCustomTable(Class<T> tableClass,
+                                                                      Function<? super T, String> customTableExtractor) {
+    tables.put(Objects.requireNonNull(tableClass), new TableLoad<>(tableClass, customTableExtractor));
+    return this;
+  }
+
+  /**
+   * @return the load statistics of every file read so far, by file name
+   */
+  public Map<String, TableLoadStats> getLoadStats() {
+    return Collections.unmodifiableMap(loadStats);
+  }
+
+  public CompletableFuture<CsvRepository> load(CsvRepository repo) {
+    Objects.requireNonNull(repo);
+
+    ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, tables.size())));
+    Map<String, CompletableFuture<Void>> customTableLoads = new ConcurrentHashMap<>();
+
+    CompletableFuture<?>[] tableLoads = tables
+        .values()
+        .stream()
+        .map(table -> loadTable(table, repo, executor, customTableLoads))
+        .toArray(CompletableFuture<?>[]::new);
+
+    return CompletableFuture
+        .allOf(tableLoads)
+        .whenComplete((__, throwable) -> executor.shutdown())
+        .thenApply(__ -> repo);
+  }
+
+  private <T extends BaseSyncRow> CompletableFuture<Void> loadTable(TableLoad<T> table,
+                                                                     CsvRepository repo,
+                                                                     ExecutorService executor,
+                                                                     Map<String, CompletableFuture<Void>> customTableLoads) {
+    String filename = FileUtil.getFileName(table.tableClass);
+
+    AtomicLong start = new AtomicLong();
+    CompletableFuture<Void> baseTableLoad = repo
+        .readBaseCsv(table.tableClass, filename, timedSource(filename, start), true, executor)
+        .thenAccept(rows -> recordLoad(filename, rows.size(), start.get()));
+
+    if (table.customTableExtractor == null) {
+      return baseTableLoad;
+    }
+
+    return baseTableLoad.thenComposeAsync(__ -> CompletableFuture.allOf(repo
+        .readTypedCsv(table.tableClass)
+        .orElseThrow(IllegalStateException::new) // should not happen
+        .stream()
+        .map(table.customTableExtractor)
+        .filter(StringUtil::isNotNullAndNotEmpty)
+        .distinct()
+        .map(FileUtil::getFileName)
+        .map(customFilename -> customTableLoads.computeIfAbsent(
+            customFilename,
+            key -> loadCustomTable(key, repo, executor)
+        ))
+        .toArray(CompletableFuture<?>[]::new)
+    ), executor);
+  }
+
+  private CompletableFuture<Void> loadCustomTable(String filename, CsvRepository repo, ExecutorService executor) {
+    AtomicLong start = new AtomicLong();
+    return repo
+        .readUntypedCsv(filename, timedSource(filename, start), true, executor)
+        .thenAccept(rows -> recordLoad(filename, rows.size(), start.get()));
+  }
+
+  /**
+   * Source of filename that records when it was first opened, so queueing on
+   * the executor does not count towards the load time.
+   */
+  private Supplier<InputStream> timedSource(String filename, AtomicLong start) {
+    Supplier<InputStream> source = inputStreamSupplier.apply(filename);
+
+    return () -> {
+      start.compareAndSet(0, System.nanoTime());
+      return source.get();
+    };
+  }
+
+  private void recordLoad(String filename, int rows, long start) {
+    long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+    loadStats.put(filename, new TableLoadStats(rows, millis));
+    logger.debug(LogStr.LOG_LOADED_TABLE, rows, filename, millis);
+  }
+
+  public static class TableLoadStats {
+    private final int rows;
+    private final long millis;
+
+    TableLoadStats(int rows, long millis) {
+      this.rows = rows;
+      this.millis = millis;
+    }
+
+    public int getRows() {
+      return rows;
+    }
+
+    public long getMillis() {
+      return millis;
+    }
+  }
+
+  private static class TableLoad<T extends BaseSyncRow> {
+    private final Class<T> tableClass;
+    private final Function<? super T, String> customTableExtractor;
+
+    TableLoad(Class<T> tableClass, Function<? super T, String> customTableExtractor) {
+      this.tableClass = tableClass;
+      this.customTableExtractor = customTableExtractor;
+    }
+  }
+}
@@ -45,6 +45,11 @@ public class DbUtil {
     if (resource != null) {
       logger.info(LogStr.LOG_FOUND_BUNDLED_DATABASE_COPYING);
 
+      // a write-ahead log left by the replaced database must not be replayed onto the copy
+      for (String suffix : DbConsts.SQLITE_SIDECAR_SUFFIXES) {
+        Files.deleteIfExists(target.resolveSibling(target.getFileName() + suffix));
+      }
+
       Files.copy(resource, target, StandardCopyOption.REPLACE_EXISTING);
     }
 
@@ -72,6 +77,15 @@ public class DbUtil {
 
     props.put("foreign_keys", "true");
 
+    // performance profile, every entry can be overridden with a system property of the same name
+    props.put(DbConsts.SQLITE_JOURNAL_MODE_KEY, DbConsts.DEFAULT_SQLITE_JOURNAL_MODE);
+    props.put(DbConsts.SQLITE_SYNCHRONOUS_KEY, DbConsts.DEFAULT_SQLITE_SYNCHRONOUS);
+    props.put(DbConsts.SQLITE_CACHE_SIZE_KEY, DbConsts.DEFAULT_SQLITE_CACHE_SIZE);
+    props.put(DbConsts.SQLITE_MMAP_SIZE_KEY, DbConsts.DEFAULT_SQLITE_MMAP_SIZE);
+    props.put(DbConsts.HIBERNATE_BATCH_SIZE_KEY, DbConsts.DEFAULT_HIBERNATE_BATCH_SIZE);
+    props.put(DbConsts.HIBERNATE_ORDER_INSERTS_KEY, Boolean.TRUE.toString());
+    props.put(DbConsts.HIBERNATE_ORDER_UPDATES_KEY, Boolean.TRUE.toString());
+
     for (String key : DbConsts.PERSISTENCE_OVERRIDE_KEYS) {
       String value = System.getProperty(key);
 
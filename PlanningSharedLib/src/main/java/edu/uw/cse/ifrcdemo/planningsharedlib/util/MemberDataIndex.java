@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2016-2022 University of Washington
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *  Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *  Neither the name of the University of Washington nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE UNIVERSITY OF WASHINGTON AND CONTRIBUTORS “AS IS” AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE UNIVERSITY OF WASHINGTON OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+
+
+package edu.uw.cse.ifrcdemo.planningsharedlib.util;
+
+import edu.uw.cse.ifrcdemo.planningsharedlib.model.csv.CsvRepository;
+import edu.uw.cse.ifrcdemo.sharedlib.consts.csv.MobileDbConsts;
+import edu.uw.cse.ifrcdemo.sharedlib.model.row.CsvBeneficiaryEntity;
+import edu.uw.cse.ifrcdemo.sharedlib.model.row.CsvIndividual;
+import edu.uw.cse.ifrcdemo.sharedlib.model.row.UntypedSyncRow;
+import edu.uw.cse.ifrcdemo.sharedlib.model.stub.HasCustomTable;
+import edu.uw.cse.ifrcdemo.sharedlib.util.FileUtil;
+import edu.uw.cse.ifrcdemo.sharedlib.util.StringUtil;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Joins members with their beneficiary entity and custom table rows.
+ *
+ * Tables are looked up once per index rather than once per member, so
+ * create one index for a pass over the members and reuse it for each of
+ * them. The rows returned are {@link MergedSyncRow}s over the indexed rows.
+ */
+public class MemberDataIndex {
+  protected final CsvRepository csvRepository;
+
+  private final Map<String, CsvBeneficiaryEntity> beneficiaryEntities;
+  private final Map<String, Optional<Map<String, UntypedSyncRow>>> untypedTables = new ConcurrentHashMap<>();
+
+  public MemberDataIndex(CsvRepository csvRepository) {
+    this.csvRepository = csvRepository;
+    this.beneficiaryEntities = csvRepository
+        .readIndexedTypedCsv(CsvBeneficiaryEntity.class)
+        .orElseThrow(IllegalStateException::new);
+  }
+
+  public UntypedSyncRow getAllDataOnMember(CsvIndividual member) {
+    MergedSyncRow mergedRow = new MergedSyncRow();
+
+    // start with all columns in individual's base table
+    addRowFromTable(mergedRow, MobileDbConsts.TableNames.INDIVIDUAL_TABLE_NAME, member.getRowId(),
+        MobileDbConsts.TableNames.INDIVIDUAL_TABLE_NAME);
+
+    // merge in individual's custom table columns
+    addCustomTableRow(mergedRow, member, member.getCustomTableFormId());
+
+    String beneficiaryEntityId = member.getBeneficiaryEntityRowId();
+    // merge in corresponding beneficiary entity's base table columns
+    addRowFromTable(mergedRow, MobileDbConsts.TableNames.BENEFICIARY_ENTITY_TABLE_NAME, beneficiaryEntityId,
+        MobileDbConsts.TableNames.BENEFICIARY_ENTITY_TABLE_NAME);
+
+    // merge in corresponding beneficiary entity's custom table columns
+    CsvBeneficiaryEntity beneficiaryEntity = beneficiaryEntityId != null
+        ? beneficiaryEntities.get(beneficiaryEntityId)
+        : null;
+    if (beneficiaryEntity != null) {
+      addCustomTableRow(mergedRow, beneficiaryEntity, beneficiaryEntity.getCustomTableFormId());
+    }
+
+    addRelatedRows(member, mergedRow);
+
+    mergedRow.setRowId(member.getRowId());
+    return mergedRow;
+  }
+
+  /**
+   * Adds rows other than the member's and beneficiary entity's,
+   * e.g. visits, to the merged row.
+   */
+  protected void addRelatedRows(CsvIndividual member, MergedSyncRow mergedRow) {
+    // nothing to add by default
+  }
+
+  protected void addRowFromTable(MergedSyncRow mergedRow, String tableId, String rowId, String columnPrefix) {
+    if (rowId == null) {
+      return;
+    }
+
+    // the row is only looked up once one of its columns is
+    mergedRow.add(columnPrefix, () -> getIndexedUntypedTable(tableId)
+        .map(table -> table.get(rowId))
+        .map(UntypedSyncRow::getColumns)
+        .orElse(null));
+  }
+
+  protected void addCustomTableRow(MergedSyncRow mergedRow, HasCustomTable baseTableRow, String columnPrefix) {
+    if (StringUtil.isNullOrEmpty(baseTableRow.getCustomTableFormId()) ||
+        StringUtil.isNullOrEmpty(baseTableRow.getCustomTableRowId())) {
+      return;
+    }
+
+    addRowFromTable(mergedRow, baseTableRow.getCustomTableFormId(), baseTableRow.getCustomTableRowId(),
+        columnPrefix);
+  }
+
+  private Optional<Map<String, UntypedSyncRow>> getIndexedUntypedTable(String tableId) {
+    return untypedTables.computeIfAbsent(tableId,
+        id -> csvRepository.readIndexedUntypedCsv(FileUtil.getFileName(id)));
+  }
+}
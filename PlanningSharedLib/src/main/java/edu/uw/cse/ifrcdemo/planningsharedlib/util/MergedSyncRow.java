@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2016-2022 University of Washington
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *  Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *  Neither the name of the University of Washington nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE UNIVERSITY OF WASHINGTON AND CONTRIBUTORS “AS IS” AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE UNIVERSITY OF WASHINGTON OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+
+
+package edu.uw.cse.ifrcdemo.planningsharedlib.util;
+
+import com.fasterxml.jackson.annotation.JsonAnyGetter;
+import edu.uw.cse.ifrcdemo.sharedlib.model.row.UntypedSyncRow;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+/**
+ * A read-only row made of other rows' columns, each renamed to
+ * prefix_column.
+ *
+ * The underlying rows are referenced rather than copied. Single column
+ * lookups go straight to the row that holds the column; the sorted map of all
+ * columns is only built when the columns are iterated. As with successive
+ * puts into one map, a column added later hides an earlier column with the
+ * same name.
+ *
+ * A row can also be added as a supplier, which is called the first time a
+ * column with its prefix is looked up. Testing a few columns then only
+ * resolves the rows those columns come from.
+ */
+public class MergedSyncRow extends UntypedSyncRow {
+  private final List<Source> sources = new ArrayList<>();
+  private final Map<String, String> columnsView = new ColumnsView();
+  private Map<String, String> materializedColumns;
+
+  public MergedSyncRow() {
+    super(Collections.emptyMap());
+  }
+
+  public MergedSyncRow add(String prefix, Map<String, String> columns) {
+    if (columns != null && !columns.isEmpty()) {
+      sources.add(new Source(prefix, columns));
+      materializedColumns = null;
+    }
+
+    return this;
+  }
+
+  /**
+   * Adds the columns returned by supplier, which may return null.
+   */
+  public MergedSyncRow add(String prefix, Supplier<Map<String, String>> supplier) {
+    sources.add(new Source(prefix, supplier));
+    materializedColumns = null;
+
+    return this;
+  }
+
+  @Override
+  @JsonAnyGetter
+  public Map<String, String> getColumns() {
+    return columnsView;
+  }
+
+  @Override
+  public void anySetter(String key, String value) {
+    throw new UnsupportedOperationException();
+  }
+
+  private Map<String, String> materialize() {
+    if (materializedColumns == null) {
+      Map<String, String> columns = new TreeMap<>();
+      for (Source source : sources) {
+        source.getColumns().forEach((k, v) -> columns.put(BeneficiaryUtilBase.colNameRemap(source.prefix, k), v));
+      }
+
+      materializedColumns = Collections.unmodifiableMap(columns);
+    }
+
+    return materializedColumns;
+  }
+
+  /**
+   * @return the index of the source holding key, or -1
+   */
+  private int findSource(Object key) {
+    if (!(key instanceof String)) {
+      return -1;
+    }
+
+    String column = (String) key;
+    for (int i = sources.size() - 1; i >= 0; i--) {
+      Source source = sources.get(i);
+      int prefixLength = source.prefix.length();
+
+      if (column.length() > prefixLength &&
+          column.charAt(prefixLength) == BeneficiaryUtilBase.COLUMN_SEPARATOR &&
+          column.startsWith(source.prefix) &&
+          source.getColumns().containsKey(column.substring(prefixLength + 1))) {
+        return i;
+      }
+    }
+
+    return -1;
+  }
+
+  @Override
+  public String toString() {
+    return "MergedSyncRow{" +
+        "columns=" + materialize() +
+        "} ";
+  }
+
+  private class ColumnsView extends AbstractMap<String, String> {
+    @Override
+    public String get(Object key) {
+      int sourceIdx = findSource(key);
+      if (sourceIdx < 0) {
+        return null;
+      }
+
+      Source source = sources.get(sourceIdx);
+      return source.getColumns().get(((String) key).substring(source.prefix.length() + 1));
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return findSource(key) >= 0;
+    }
+
+    @Override
+    public boolean isEmpty() {
+      for (Source source : sources) {
+        if (!source.getColumns().isEmpty()) {
+          return false;
+        }
+      }
+
+      return true;
+    }
+
+    @Override
+    public int size() {
+      return materialize().size();
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+      return materialize().entrySet();
+    }
+  }
+
+  private static class Source {
+    private final String prefix;
+    private Supplier<Map<String, String>> supplier;
+    private Map<String, String> columns;
+
+    Source(String prefix, Map<String, String> columns) {
+      this.prefix = prefix;
+      this.columns = columns;
+    }
+
+    Source(String prefix, Supplier<Map<String, String>> supplier) {
+      this.prefix = prefix;
+      this.supplier = supplier;
+    }
+
+    Map<String, String> getColumns() {
+      if (supplier != null) {
+        Map<String, String> supplied = supplier.get();
+        columns = supplied != null ? supplied : Collections.emptyMap();
+        supplier = null;
+      }
+
+      return columns;
+    }
+  }
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright (c) 2016-2022 University of Washington
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *  Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *  Neither the name of the University of Washington nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE UNIVERSITY OF WASHINGTON AND CONTRIBUTORS “AS IS” AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE UNIVERSITY OF WASHINGTON OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+
+package edu.uw.cse.ifrcdemo.planningsharedlib.logic.criterionpredicate;
+
+import edu.uw.cse.ifrcdemo.planningsharedlib.logic.BuiltinCriteriaFields;
+import edu.uw.cse.ifrcdemo.planningsharedlib.model.GenerateBy;
+import edu.uw.cse.ifrcdemo.planningsharedlib.model.criteria.AuthorizationCriterion;
+import edu.uw.cse.ifrcdemo.planningsharedlib.model.criteria.CriterionField;
+import edu.uw.cse.ifrcdemo.planningsharedlib.model.criteria.CriterionOperator;
+import edu.uw.cse.ifrcdemo.planningsharedlib.util.BeneficiaryUtilBase;
+import edu.uw.cse.ifrcdemo.planningsharedlib.util.CriteriaUtil;
+import edu.uw.cse.ifrcdemo.sharedlib.consts.csv.MobileDbConsts;
+import edu.uw.cse.ifrcdemo.sharedlib.model.row.UntypedSyncRow;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.opendatakit.aggregate.odktables.rest.TableConstants;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CriteriaPredicateFactoryTest {
+  private static final String TABLE_ID = "members";
+  private static final String[] COLUMNS = { "age", "score", "status" };
+  private static final String[] VALUES = { "0", "1", "2", "3", "4", "5", "6", "7", "8", "9", "1.5", "yes", "no" };
+  private static final String DATE_CREATED_COLUMN =
+      MobileDbConsts.TableNames.INDIVIDUAL_TABLE_NAME + "_" + MobileDbConsts.DATE_CREATED_COLUMN;
+  private static final LocalDate FIRST_DAY = LocalDate.of(2020, 1, 1);
+  private static final int DAYS = 9;
+
+  private static final int ROWS = 500;
+  private static final int RULE_SETS = 200;
+
+  private static final int BENCHMARK_ROWS = 200_000;
+  private static final int BENCHMARK_RUNS = 5;
+
+  private final Logger logger = LogManager.getLogger(CriteriaPredicateFactoryTest.class);
+
+  private final CriteriaPredicateFactory factory = new CriteriaPredicateFactory(
+      null,
+      criterion -> new DateCreatedPredicate(criterion, GenerateBy.HOUSEHOLD_MEMBER)
+  );
+
+  @Test
+  void compiledRulesMatchReduction() {
+    Random random = new Random(42);
+    List<UntypedSyncRow> rows = randomRows(random, ROWS);
+
+    for (int i = 0; i < RULE_SETS; i++) {
+      List<List<AuthorizationCriterion>> rules = randomRules(random);
+
+      Predicate<UntypedSyncRow> compiled = factory.compile(rules);
+      Predicate<UntypedSyncRow> reduced = reduce(rules);
+
+      for (UntypedSyncRow row : rows) {
+        assertEquals(reduced.test(row), compiled.test(row), () -> rules + " " + row);
+      }
+    }
+  }
+
+  @Test
+  void emptyRulesMatchEveryRow() {
+    UntypedSyncRow row = randomRows(new Random(42), 1).get(0);
+
+    assertTrue(factory.compile(null).test(row));
+    assertTrue(factory.compile(Collections.emptyList()).test(row));
+    assertTrue(factory.compile(Arrays.asList(Collections.emptyList(), Collections.emptyList())).test(row));
+  }
+
+  @Test
+  void constantFalseClauseRunsFirst() {
+    AtomicInteger queries = new AtomicInteger();
+    CriterionPredicate query = new CriterionPredicate() {
+      @Override
+      public int getCost() {
+        return COST_QUERY;
+      }
+
+      @Override
+      public boolean test(UntypedSyncRow row) {
+        queries.incrementAndGet();
+        return true;
+      }
+    };
+
+    // GT has to be a number
+    AuthorizationCriterion notANumber = criterion(COLUMNS[0], CriterionOperator.GT, "yes");
+    AuthorizationCriterion queried = criterion(COLUMNS[1], CriterionOperator.EQ, "1");
+    Predicate<UntypedSyncRow> compiled = CompiledCriteria.compile(
+        Collections.singletonList(Arrays.asList(queried, notANumber)),
+        criterion -> criterion == queried ? query : new SimpleCriterionPredicate(criterion)
+    );
+
+    for (UntypedSyncRow row : randomRows(new Random(42), ROWS)) {
+      assertFalse(compiled.test(row));
+    }
+    assertEquals(0, queries.get());
+  }
+
+  @Test
+  void malformedDateCriterionMatchesNoRow() {
+    AuthorizationCriterion malformed = dateCriterion(CriterionOperator.LT, "not a date");
+
+    DateCreatedPredicate predicate = new DateCreatedPredicate(malformed, GenerateBy.HOUSEHOLD_MEMBER);
+    assertEquals(CriterionPredicate.COST_CONSTANT, predicate.getCost());
+
+    Predicate<UntypedSyncRow> compiled = factory.compile(Collections.singletonList(Collections.singletonList(malformed)));
+    for (UntypedSyncRow row : randomRows(new Random(42), ROWS)) {
+      assertFalse(compiled.test(row));
+    }
+  }
+
+  /**
+   * Compares {@link CriteriaPredicateFactory#compile(List)} with reducing the
+   * criterion predicates with {@link Predicate#and} and {@link Predicate#or}.
+   *
+   * Run with mvn test -Dtest.excludedGroups= -Dgroups=benchmark
+   */
+  @Test
+  @Tag("benchmark")
+  void benchmarkCompile() {
+    Random random = new Random(42);
+    List<UntypedSyncRow> rows = randomRows(random, BENCHMARK_ROWS);
+    List<List<AuthorizationCriterion>> rules = Arrays.asList(
+        Arrays.asList(
+            criterion(COLUMNS[2], CriterionOperator.EQ, "yes"),
+            criterion(COLUMNS[0], CriterionOperator.GT, "3"),
+            dateCriterion(CriterionOperator.GT, FIRST_DAY.plusDays(2).toString())
+        ),
+        Arrays.asList(
+            dateCriterion(CriterionOperator.LT, FIRST_DAY.plusDays(4).toString()),
+            criterion(COLUMNS[1], CriterionOperator.LT, "5"),
+            criterion(COLUMNS[2], CriterionOperator.NE, "no")
+        ),
+        Arrays.asList(
+            criterion(COLUMNS[0], CriterionOperator.EQ, "7"),
+            criterion(COLUMNS[1], CriterionOperator.GT, "yes")
+        )
+    );
+
+    long reducedNanos = Long.MAX_VALUE;
+    long compiledNanos = Long.MAX_VALUE;
+    for (int i = 0; i < BENCHMARK_RUNS; i++) {
+      long start = System.nanoTime();
+      long reducedMatches = rows.stream().filter(reduce(rules)).count();
+      reducedNanos = Math.min(reducedNanos, System.nanoTime() - start);
+
+      start = System.nanoTime();
+      long compiledMatches = rows.stream().filter(factory.compile(rules)).count();
+      compiledNanos = Math.min(compiledNanos, System.nanoTime() - start);
+
+      assertEquals(reducedMatches, compiledMatches);
+    }
+
+    logger.info("{} rows: Predicate::and/or reduction {} ms, compile {} ms",
+        BENCHMARK_ROWS,
+        TimeUnit.NANOSECONDS.toMillis(reducedNanos),
+        TimeUnit.NANOSECONDS.toMillis(compiledNanos)
+    );
+  }
+
+  // how the entitlement filters combined the rules before compile()
+  private Predicate<UntypedSyncRow> reduce(List<List<AuthorizationCriterion>> rules) {
+    List<List<AuthorizationCriterion>> cleanedRules = CriteriaUtil.removeEmptyRules(rules);
+
+    return cleanedRules.isEmpty() ? (__ -> true) : cleanedRules
+        .stream()
+        .map(rule -> rule
+            .stream()
+            .map(factory::createPredicate)
+            .reduce(Predicate::and)
+            .orElse(__ -> true)
+        )
+        .reduce(Predicate::or)
+        .orElse(__ -> true);
+  }
+
+  private List<UntypedSyncRow> randomRows(Random random, int count) {
+    List<UntypedSyncRow> rows = new ArrayList<>(count);
+
+    for (int i = 0; i < count; i++) {
+      UntypedSyncRow row = new UntypedSyncRow();
+      row.setRowId("row" + i);
+
+      for (String column : COLUMNS) {
+        // some rows lack a column
+        if (random.nextInt(10) > 0) {
+          row.getColumns().put(BeneficiaryUtilBase.getCombinedColumnName(TABLE_ID, column), pick(random, VALUES));
+        }
+      }
+
+      long millis = TimeUnit.DAYS.toMillis(FIRST_DAY.plusDays(random.nextInt(DAYS)).toEpochDay()) +
+          random.nextInt((int) TimeUnit.DAYS.toMillis(1));
+      row.getColumns().put(DATE_CREATED_COLUMN, TableConstants.nanoSecondsFromMillis(millis, Locale.ROOT));
+
+      rows.add(row);
+    }
+
+    return rows;
+  }
+
+  private List<List<AuthorizationCriterion>> randomRules(Random random) {
+    List<List<AuthorizationCriterion>> rules = new ArrayList<>();
+
+    int ruleCount = random.nextInt(4);
+    for (int i = 0; i < ruleCount; i++) {
+      List<AuthorizationCriterion> rule = new ArrayList<>();
+
+      int criterionCount = random.nextInt(4);
+      for (int j = 0; j < criterionCount; j++) {
+        CriterionOperator operator = pick(random, CriterionOperator.values());
+
+        // GT and LT with a value that is not a number, and malformed dates, are constant false clauses
+        if (random.nextInt(5) == 0) {
+          String day = random.nextInt(5) > 0 ? FIRST_DAY.plusDays(random.nextInt(DAYS)).toString() : "not a date";
+          rule.add(dateCriterion(operator, day));
+        } else {
+          rule.add(criterion(pick(random, COLUMNS), operator, pick(random, VALUES)));
+        }
+      }
+
+      rules.add(rule);
+    }
+
+    return rules;
+  }
+
+  private static AuthorizationCriterion criterion(String column, CriterionOperator operator, String value) {
+    return new AuthorizationCriterion(new CriterionField(TABLE_ID, column), operator, value);
+  }
+
+  private static AuthorizationCriterion dateCriterion(CriterionOperator operator, String value) {
+    return new AuthorizationCriterion(
+        new CriterionField(BuiltinCriteriaFields.TABLE_ID, MobileDbConsts.DATE_CREATED_COLUMN), operator, value);
+  }
+
+  private static <T> T pick(Random random, T[] values) {
+    return values[random.nextInt(values.length)];
+  }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2016-2022 University of Washington
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *  Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *  Neither the name of the University of Washington nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE UNIVERSITY OF WASHINGTON AND CONTRIBUTORS “AS IS” AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE UNIVERSITY OF WASHINGTON OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+
+package edu.uw.cse.ifrcdemo.planningsharedlib.model.csv;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CsvCacheTest {
+  private static final long BUDGET = 100;
+
+  private static final String UNTYPED_KEY = "members.csv";
+  private static final Class<?> TYPED_KEY = Integer.class;
+  private static final String OTHER_KEY = "other.csv";
+
+  @Test
+  void evictsLeastRecentlyUsedOverBudget() {
+    CsvCache cache = new CsvCache(BUDGET);
+    CountingLoader first = new CountingLoader(60, "a");
+    CountingLoader second = new CountingLoader(60, "b");
+
+    cache.load("first", false, first, first);
+    cache.load("second", false, second, second);
+
+    CsvCacheStats stats = cache.getStats();
+    assertEquals(1, stats.getEvictionCount());
+    assertEquals(60, stats.getWeightBytes());
+
+    // reloading the first table evicts the second
+    assertEquals(Collections.singletonList("a"), cache.get("first").orElseThrow(IllegalStateException::new));
+    assertEquals(2, first.count.get());
+
+    stats = cache.getStats();
+    assertEquals(2, stats.getEvictionCount());
+    assertEquals(60, stats.getWeightBytes());
+  }
+
+  @Test
+  void derivedValuesAreWeighedAndEvictedWithTheirEntry() {
+    CsvCache cache = new CsvCache(BUDGET);
+    CountingLoader loader = new CountingLoader(40, "a", "b");
+
+    cache.load("first", false, loader, loader);
+    List<String> first = cache.<String, List<String>>derive("first", "upper", this::upperCase, 10)
+        .orElseThrow(IllegalStateException::new);
+    List<String> again = cache.<String, List<String>>derive("first", "upper", this::upperCase, 10)
+        .orElseThrow(IllegalStateException::new);
+
+    assertEquals(Arrays.asList("A", "B"), first);
+    assertSame(first, again);
+    assertEquals(60, cache.getStats().getWeightBytes());
+
+    CountingLoader other = new CountingLoader(60, "c");
+    cache.load("second", false, other, other);
+
+    assertEquals(1, cache.getStats().getEvictionCount());
+    assertEquals(60, cache.getStats().getWeightBytes());
+  }
+
+  @Test
+  void reloadsEvictedTypedTableFromEvictedUntypedTable() {
+    CsvCache cache = new CsvCache(BUDGET);
+    CountingLoader untypedLoader = new CountingLoader(60, "1", "2", "3");
+    AtomicInteger projections = new AtomicInteger();
+
+    CsvCache.Loader<Integer> projection = () -> {
+      projections.incrementAndGet();
+      List<Integer> rows = cache.<String>get(UNTYPED_KEY)
+          .orElseThrow(IllegalStateException::new)
+          .stream()
+          .map(Integer::valueOf)
+          .collect(Collectors.toList());
+      return new CsvCache.LoadedTable<>(rows, 30);
+    };
+
+    cache.load(UNTYPED_KEY, false, untypedLoader, untypedLoader);
+    List<Integer> typed = cache.load(TYPED_KEY, false, projection, projection);
+
+    // pushes both tables out of the cache
+    CountingLoader otherLoader = new CountingLoader(80, "x");
+    cache.load(OTHER_KEY, false, otherLoader, otherLoader);
+    assertEquals(2, cache.getStats().getEvictionCount());
+
+    assertEquals(typed, cache.<Integer>get(TYPED_KEY).orElseThrow(IllegalStateException::new));
+    assertEquals(2, projections.get());
+    assertEquals(2, untypedLoader.count.get());
+  }
+
+  @Test
+  void pinnedEntriesAreNeverEvicted() {
+    CsvCache cache = new CsvCache(BUDGET);
+    CountingLoader pinned = new CountingLoader(150, "pinned");
+    CountingLoader reloadable = new CountingLoader(10, "reloadable");
+
+    cache.load("pinned", false, pinned, null);
+    cache.load("reloadable", false, reloadable, reloadable);
+    cache.load(OTHER_KEY, false, reloadable, reloadable);
+
+    assertEquals(Collections.singletonList("pinned"), cache.get("pinned").orElseThrow(IllegalStateException::new));
+    assertEquals(1, pinned.count.get());
+
+    // the reloadable tables are evicted instead, except the one just loaded
+    CsvCacheStats stats = cache.getStats();
+    assertEquals(1, stats.getEvictionCount());
+    assertEquals(160, stats.getWeightBytes());
+  }
+
+  @Test
+  void countsHitsMissesAndLoads() {
+    CsvCache cache = new CsvCache(BUDGET);
+    CountingLoader loader = new CountingLoader(10, "a");
+
+    cache.load(UNTYPED_KEY, false, loader, loader);
+    cache.load(UNTYPED_KEY, false, loader, loader);
+    cache.get(UNTYPED_KEY);
+    cache.get(OTHER_KEY);
+    cache.load(UNTYPED_KEY, true, loader, loader);
+
+    CsvCacheStats stats = cache.getStats();
+    assertEquals(2, stats.getHitCount());
+    assertEquals(2, stats.getMissCount());
+    assertEquals(2, stats.getLoadCount());
+    assertEquals(2, loader.count.get());
+    assertEquals(0, stats.getEvictionCount());
+    assertEquals(10, stats.getWeightBytes());
+    assertEquals(0.5, stats.getHitRate());
+  }
+
+  @Test
+  void concurrentReadersShareOneLoad() throws Exception {
+    CsvCache cache = new CsvCache(BUDGET);
+    CountDownLatch loading = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicInteger loads = new AtomicInteger();
+
+    CsvCache.Loader<String> loader = () -> {
+      loads.incrementAndGet();
+      loading.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return new CsvCache.LoadedTable<>(Collections.singletonList("a"), 10);
+    };
+
+    CompletableFuture<List<String>> first = CompletableFuture
+        .supplyAsync(() -> cache.load(UNTYPED_KEY, false, loader, loader));
+    assertTrue(loading.await(10, TimeUnit.SECONDS));
+
+    CompletableFuture<List<String>> second = CompletableFuture
+        .supplyAsync(() -> cache.load(UNTYPED_KEY, false, loader, loader));
+
+    // other keys are not blocked by the load
+    CountingLoader other = new CountingLoader(10, "b");
+    assertEquals(Collections.singletonList("b"), cache.load(OTHER_KEY, false, other, other));
+    assertFalse(second.isDone());
+
+    release.countDown();
+    assertSame(first.get(10, TimeUnit.SECONDS), second.get(10, TimeUnit.SECONDS));
+    assertEquals(1, loads.get());
+  }
+
+  @Test
+  void failedLoadIsNotCached() {
+    CsvCache cache = new CsvCache(BUDGET);
+    CsvCache.Loader<String> failing = () -> {
+      throw new IllegalStateException();
+    };
+
+    assertThrows(IllegalStateException.class, () -> cache.load(UNTYPED_KEY, false, failing, null));
+    assertFalse(cache.get(UNTYPED_KEY).isPresent());
+
+    CountingLoader loader = new CountingLoader(10, "a");
+    assertEquals(Collections.singletonList("a"), cache.load(UNTYPED_KEY, false, loader, loader));
+    assertEquals(10, cache.getStats().getWeightBytes());
+  }
+
+  private List<String> upperCase(List<String> rows) {
+    return rows.stream().map(String::toUpperCase).collect(Collectors.toList());
+  }
+
+  private static class CountingLoader implements CsvCache.Loader<String> {
+    private final long weight;
+    private final List<String> rows;
+    private final AtomicInteger count = new AtomicInteger();
+
+    CountingLoader(long weight, String... rows) {
+      this.weight = weight;
+      this.rows = Collections.unmodifiableList(Arrays.asList(rows));
+    }
+
+    @Override
+    public CsvCache.LoadedTable<String> load() {
+      count.incrementAndGet();
+      return new CsvCache.LoadedTable<>(rows, weight);
+    }
+  }
+}
@@ -21,6 +21,8 @@ import edu.uw.cse.ifrcdemo.planningsharedlib.model.distribution.DistributionRepo
 import edu.uw.cse.ifrcdemo.planningsharedlib.model.entitlement.EntitlementRepository;
 import edu.uw.cse.ifrcdemo.distplan.model.visitprogram.VisitProgramRepository;
 import edu.uw.cse.ifrcdemo.planningsharedlib.data.InvalidCsvException;
+import edu.uw.cse.ifrcdemo.planningsharedlib.logic.CsvValidationEngine;
+import edu.uw.cse.ifrcdemo.planningsharedlib.logic.CsvValidationReport;
 import edu.uw.cse.ifrcdemo.planningsharedlib.model.csv.CsvRepository;
 import edu.uw.cse.ifrcdemo.planningsharedlib.model.csv.FileCsvRepository;
 import edu.uw.cse.ifrcdemo.planningsharedlib.model.item.ItemRepository;
@@ -28,9 +30,8 @@ import edu.uw.cse.ifrcdemo.planningsharedlib.model.preference.PreferencesStore;
 import edu.uw.cse.ifrcdemo.planningsharedlib.model.rctemplate.RcTemplateRepository;
 import edu.uw.cse.ifrcdemo.planningsharedlib.model.location.LocationRepository;
 import edu.uw.cse.ifrcdemo.distplan.util.AuxiliaryPropertyUtil;
-import edu.uw.cse.ifrcdemo.planningsharedlib.util.CsvFileUtil;
+import edu.uw.cse.ifrcdemo.planningsharedlib.util.CsvLoadPlan;
 import edu.uw.cse.ifrcdemo.planningsharedlib.util.DbUtil;
-import edu.uw.cse.ifrcdemo.sharedlib.consts.GenConsts;
 import edu.uw.cse.ifrcdemo.sharedlib.model.config.AuxiliaryProperty;
 import edu.uw.cse.ifrcdemo.sharedlib.model.row.CsvAuthorization;
 import edu.uw.cse.ifrcdemo.sharedlib.model.row.CsvAuthorizationReport;
@@ -41,17 +42,13 @@ import edu.uw.cse.ifrcdemo.sharedlib.model.row.CsvEntitlement;
 import edu.uw.cse.ifrcdemo.sharedlib.model.row.CsvIndividual;
 import edu.uw.cse.ifrcdemo.sharedlib.model.row.CsvVisit;
 import edu.uw.cse.ifrcdemo.sharedlib.model.row.CsvVisitProgram;
-import edu.uw.cse.ifrcdemo.sharedlib.util.FileUtil;
-import edu.uw.cse.ifrcdemo.translations.TranslationConsts;
-import edu.uw.cse.ifrcdemo.translations.TranslationUtil;
 
 import javax.persistence.EntityManagerFactory;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 
@@ -157,105 +154,33 @@ public class ReliefDataInstance {
     }
 
     private static CompletableFuture<CsvRepository> readAllCsvs(Path dataPath, CsvRepository csvRepo) {
-        return CompletableFuture
-            .allOf(
-                CsvFileUtil.readBaseTableWithCustomTable(dataPath, CsvBeneficiaryEntity.class, csvRepo),
-                CsvFileUtil.readBaseTableWithCustomTable(dataPath, CsvIndividual.class, csvRepo),
-                CsvFileUtil.readBaseTableWithCustomTable(dataPath, CsvVisit.class, csvRepo),
-                CsvFileUtil.readBaseTableWithCustomTable(dataPath, CsvVisitProgram.class,
-                    CsvVisitProgram::getCustomVisitTableId, csvRepo),
-                CsvFileUtil.readBaseTable(dataPath, CsvEntitlement.class, csvRepo),
-                CsvFileUtil.readBaseTable(dataPath, CsvAuthorization.class, csvRepo),
-                CsvFileUtil.readBaseTable(dataPath, CsvDistribution.class, csvRepo),
-                CsvFileUtil.readBaseTableWithCustomTable(dataPath, CsvDelivery.class, csvRepo),
-                CsvFileUtil.readBaseTable(dataPath, CsvAuthorizationReport.class, csvRepo)
-            )
-            .thenApplyAsync(__ -> csvRepo);
+        return CsvLoadPlan
+            .forDirectory(dataPath)
+            .baseTableWithCustomTable(CsvBeneficiaryEntity.class)
+            .baseTableWithCustomTable(CsvIndividual.class)
+            .baseTableWithCustomTable(CsvVisit.class)
+            .baseTableWithCustomTable(CsvVisitProgram.class, CsvVisitProgram::getCustomVisitTableId)
+            .baseTable(CsvEntitlement.class)
+            .baseTable(CsvAuthorization.class)
+            .baseTable(CsvDistribution.class)
+            .baseTableWithCustomTable(CsvDelivery.class)
+            .baseTable(CsvAuthorizationReport.class)
+            .load(csvRepo);
     }
 
     private static String validateCsvs(CsvRepository csvRepo) {
         CsvValidator csvValidator = new CsvValidator();
 
-        boolean beneficiaryEntitiesStatus = csvRepo
-            .readTypedCsv(CsvBeneficiaryEntity.class)
-            .orElseThrow(IllegalStateException::new)
-            .stream()
-            .allMatch(csvValidator.validateBeneficiaryEntity(csvRepo));
-
-        boolean individualsStatus = csvRepo
-            .readTypedCsv(CsvIndividual.class)
-            .orElseThrow(IllegalStateException::new)
-            .stream()
-            .allMatch(csvValidator.validateIndividual(csvRepo));
-
-        boolean entitlementsStatus = csvRepo
-            .readTypedCsv(CsvEntitlement.class)
-            .orElseThrow(IllegalStateException::new)
-            .stream()
-            .allMatch(csvValidator.validateEntitlement());
-
-        boolean authorizationStatus = csvRepo
-            .readTypedCsv(CsvAuthorization.class)
-            .orElseThrow(IllegalStateException::new)
-            .stream()
-            .allMatch(csvValidator.validateAuthorization(csvRepo));
-
-        boolean visitProgramStatus = csvRepo
-            .readTypedCsv(CsvVisitProgram.class)
-            .orElseThrow(IllegalStateException::new)
-            .stream()
-            .allMatch(csvValidator.validateVisitProgram(csvRepo));
-
-        boolean visitStatus = csvRepo
-            .readTypedCsv(CsvVisit.class)
-            .orElseThrow(IllegalStateException::new)
-            .stream()
-            .allMatch(csvValidator.validateVisit(csvRepo));
-
-        boolean distributionStatus = csvRepo
-            .readTypedCsv(CsvDistribution.class)
-            .orElseThrow(IllegalStateException::new)
-            .stream()
-            .allMatch(csvValidator.validateDistribution());
-
-        List<String> invalidTables = new ArrayList<>();
-        if (!beneficiaryEntitiesStatus) {
-            invalidTables.add(FileUtil.getFileName(CsvBeneficiaryEntity.class));
-        }
-
-        if (!individualsStatus) {
-            invalidTables.add(FileUtil.getFileName(CsvIndividual.class));
-        }
-
-        if (!entitlementsStatus) {
-            invalidTables.add(FileUtil.getFileName(CsvEntitlement.class));
-        }
-
-        if (!authorizationStatus) {
-            invalidTables.add(FileUtil.getFileName(CsvAuthorization.class));
-        }
-
-        if (!visitProgramStatus) {
-            invalidTables.add(FileUtil.getFileName(CsvVisitProgram.class));
-        }
-
-        if (!visitStatus) {
-            invalidTables.add(FileUtil.getFileName(CsvVisit.class));
-        }
-
-        if (!distributionStatus) {
-            invalidTables.add(FileUtil.getFileName(CsvDistribution.class));
-        }
-
-        if (!invalidTables.isEmpty()) {
-            String invalidCsvMsg = TranslationUtil
-                .getTranslations()
-                .getString(TranslationConsts.INVALID_CSV_ERROR);
-
-            invalidTables.add(0, invalidCsvMsg);
-            return String.join(GenConsts.NEW_LINE, invalidTables);
-        }
-
-        return null;
+        CsvValidationReport report = new CsvValidationEngine().validate(csvRepo, Arrays.asList(
+                csvValidator.beneficiaryEntityRules(csvRepo),
+                csvValidator.individualRules(csvRepo),
+                csvValidator.entitlementRules(),
+                csvValidator.authorizationRules(csvRepo),
+                csvValidator.visitProgramRules(csvRepo),
+                csvValidator.visitRules(csvRepo),
+                csvValidator.distributionRules()
+        ));
+
+        return report.getMessage();
     }
 }
@@ -15,6 +15,7 @@
 package edu.uw.cse.ifrcdemo.distplan.logic;
 
 import edu.uw.cse.ifrcdemo.planningsharedlib.logic.BaseCsvValidator;
+import edu.uw.cse.ifrcdemo.planningsharedlib.logic.CsvTableRules;
 import edu.uw.cse.ifrcdemo.planningsharedlib.model.csv.CsvRepository;
 import edu.uw.cse.ifrcdemo.sharedlib.model.datattype.AuthorizationType;
 import edu.uw.cse.ifrcdemo.sharedlib.model.row.CsvAuthorization;
@@ -27,43 +28,50 @@ import edu.uw.cse.ifrcdemo.sharedlib.model.row.CsvVisitProgram;
 import edu.uw.cse.ifrcdemo.sharedlib.model.stub.SyncRow;
 
 import java.util.function.Predicate;
-import java.util.stream.Stream;
 
 public class CsvValidator extends BaseCsvValidator {
+  private static final String CUSTOM_VISIT_FORM_ID_COLUMN = "custom_visit_form_id";
+  private static final String CUSTOM_VISIT_TABLE_ID_COLUMN = "custom_visit_table_id";
+  private static final String VISIT_PROGRAM_ID_COLUMN = "visit_program_id";
+  private static final String BENEFICIARY_UNIT_ID_COLUMN = "beneficiary_unit_id";
+  private static final String MEMBER_ID_COLUMN = "member_id";
 
   public Predicate<CsvVisit> validateVisit(CsvRepository csvRepo) {
-    return validateVisitColumns()
-        .and(formIdValidator(csvRepo))
-        .and(noCustomTableRowId().or(customTableRowIdValidator(csvRepo)))
-        .and(crossTableIdValidator(CsvVisitProgram.class, CsvVisit::getVisitProgramId, csvRepo))
-        .and(crossTableIdValidator(CsvIndividual.class, CsvVisit::getMemberId, csvRepo))
-        .and(crossTableIdValidator(CsvBeneficiaryEntity.class, CsvVisit::getBeneficiaryUnitId, csvRepo));
+    return visitRules(csvRepo)::accepts;
   }
 
-  private Predicate<CsvVisit> validateVisitColumns() {
-    return columnValidator(Stream.of(
-        SyncRow::getRowId,
-        CsvVisit::getCustomVisitFormId,
-        CsvVisit::getCustomVisitTableId,
-        CsvVisit::getVisitProgramId,
-        CsvVisit::getBeneficiaryUnitId,
-        CsvVisit::getMemberId
-    ));
+  public Predicate<CsvVisitProgram> validateVisitProgram(CsvRepository csvRepo) {
+    return visitProgramRules(csvRepo)::accepts;
   }
 
-  public Predicate<CsvVisitProgram> validateVisitProgram(CsvRepository csvRepo) {
-    return validateVisitProgramColumns()
-        .and(formIdValidator(csvRepo, CsvVisitProgram::getCustomVisitTableId));
+  public CsvTableRules<CsvVisit> visitRules(CsvRepository csvRepo) {
+    return CsvTableRules.forTable(CsvVisit.class)
+        .required(ROW_ID_COLUMN, SyncRow::getRowId)
+        .required(CUSTOM_VISIT_FORM_ID_COLUMN, CsvVisit::getCustomVisitFormId)
+        .required(CUSTOM_VISIT_TABLE_ID_COLUMN, CsvVisit::getCustomVisitTableId)
+        .required(VISIT_PROGRAM_ID_COLUMN, CsvVisit::getVisitProgramId)
+        .required(BENEFICIARY_UNIT_ID_COLUMN, CsvVisit::getBeneficiaryUnitId)
+        .required(MEMBER_ID_COLUMN, CsvVisit::getMemberId)
+        .rule(CUSTOM_VISIT_FORM_ID_COLUMN, CsvTableRules.RULE_FORM_EXISTS, indexedFormIdValidator(csvRepo))
+        .rule("custom_visit_row_id", CsvTableRules.RULE_ROW_EXISTS,
+            noCustomTableRowId().or(indexedCustomTableRowIdValidator(csvRepo)))
+        .rule(VISIT_PROGRAM_ID_COLUMN, CsvTableRules.RULE_ROW_EXISTS,
+            indexedCrossTableIdValidator(CsvVisitProgram.class, CsvVisit::getVisitProgramId, csvRepo))
+        .rule(MEMBER_ID_COLUMN, CsvTableRules.RULE_ROW_EXISTS,
+            indexedCrossTableIdValidator(CsvIndividual.class, CsvVisit::getMemberId, csvRepo))
+        .rule(BENEFICIARY_UNIT_ID_COLUMN, CsvTableRules.RULE_ROW_EXISTS,
+            indexedCrossTableIdValidator(CsvBeneficiaryEntity.class, CsvVisit::getBeneficiaryUnitId, csvRepo));
   }
 
-  private Predicate<CsvVisitProgram> validateVisitProgramColumns() {
-    return columnValidator(Stream.of(
-        SyncRow::getRowId,
-        CsvVisitProgram::getCustomVisitFormId,
-        CsvVisitProgram::getCustomVisitTableId,
-        CsvVisitProgram::getDateCreated,
-        CsvVisitProgram::getForMember,
-        CsvVisitProgram::getName
-    ));
+  public CsvTableRules<CsvVisitProgram> visitProgramRules(CsvRepository csvRepo) {
+    return CsvTableRules.forTable(CsvVisitProgram.class)
+        .required(ROW_ID_COLUMN, SyncRow::getRowId)
+        .required(CUSTOM_VISIT_FORM_ID_COLUMN, CsvVisitProgram::getCustomVisitFormId)
+        .required(CUSTOM_VISIT_TABLE_ID_COLUMN, CsvVisitProgram::getCustomVisitTableId)
+        .required(DATE_CREATED_COLUMN, CsvVisitProgram::getDateCreated)
+        .required("for_member", CsvVisitProgram::getForMember)
+        .required("name", CsvVisitProgram::getName)
+        .rule(CUSTOM_VISIT_TABLE_ID_COLUMN, CsvTableRules.RULE_FORM_EXISTS,
+            indexedFormIdValidator(csvRepo, CsvVisitProgram::getCustomVisitTableId));
   }
 }
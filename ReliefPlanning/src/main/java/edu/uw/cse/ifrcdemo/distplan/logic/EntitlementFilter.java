@@ -14,31 +14,24 @@
 
 package edu.uw.cse.ifrcdemo.distplan.logic;
 
+import edu.uw.cse.ifrcdemo.planningsharedlib.logic.BaseEntitlementFilter;
 import edu.uw.cse.ifrcdemo.planningsharedlib.logic.criterionpredicate.CriteriaPredicateFactory;
 import edu.uw.cse.ifrcdemo.planningsharedlib.model.criteria.AuthorizationCriterion;
 import edu.uw.cse.ifrcdemo.planningsharedlib.model.distribution.DistributionRepository;
 import edu.uw.cse.ifrcdemo.planningsharedlib.model.entitlement.EntitlementRepository;
 import edu.uw.cse.ifrcdemo.distplan.model.visitprogram.VisitProgramRepository;
-import edu.uw.cse.ifrcdemo.distplan.util.BeneficiaryUtil;
-import edu.uw.cse.ifrcdemo.planningsharedlib.util.CriteriaUtil;
+import edu.uw.cse.ifrcdemo.distplan.util.ReliefMemberDataIndex;
 import edu.uw.cse.ifrcdemo.distplan.util.ExportUtil;
 import edu.uw.cse.ifrcdemo.planningsharedlib.model.GenerateBy;
 import edu.uw.cse.ifrcdemo.planningsharedlib.model.csv.CsvRepository;
-import edu.uw.cse.ifrcdemo.sharedlib.model.datattype.BeneficiaryEntityStatus;
-import edu.uw.cse.ifrcdemo.sharedlib.model.datattype.IndividualStatus;
-import edu.uw.cse.ifrcdemo.sharedlib.model.row.CsvBeneficiaryEntity;
-import edu.uw.cse.ifrcdemo.sharedlib.model.row.CsvIndividual;
 import edu.uw.cse.ifrcdemo.sharedlib.model.row.CsvVisit;
 import edu.uw.cse.ifrcdemo.sharedlib.model.row.UntypedSyncRow;
-import edu.uw.cse.ifrcdemo.sharedlib.model.stub.SyncRow;
 
 import java.util.List;
-import java.util.Map;
 import java.util.function.Predicate;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
-public class EntitlementFilter {
+public class EntitlementFilter extends BaseEntitlementFilter {
   /**
    *
    * @param repository
@@ -53,7 +46,7 @@ public class EntitlementFilter {
         repository,
             new InternalCsvReportFields(repository, null, null)
     );
-    Predicate<UntypedSyncRow> predicate = buildPredicateFromRules(rules, predicateFactory);
+    Predicate<UntypedSyncRow> predicate = predicateFactory.compile(rules);
 
     return filterByPredicate(repository, null, predicate, forMember);
   }
@@ -74,7 +67,7 @@ public class EntitlementFilter {
             new InternalCsvReportFields(csvRepository, distributionRepository, entitlementRepository)
     );
 
-    Predicate<UntypedSyncRow> predicate = buildPredicateFromRules(rules, predicateFactory);
+    Predicate<UntypedSyncRow> predicate = predicateFactory.compile(rules);
 
     return filterByPredicate(csvRepository, visitProgramRepository, predicate, true);
   }
@@ -83,10 +76,6 @@ public class EntitlementFilter {
                                                   VisitProgramRepository visitProgramRepository,
                                                   Predicate<UntypedSyncRow> predicate,
                                                   boolean forMember) {
-    Map<String, CsvIndividual> indexedCsvIndividual = csvRepository
-        .readIndexedTypedCsv(CsvIndividual.class)
-        .orElseThrow(IllegalStateException::new);
-
     List<CsvVisit> extraVisits;
     if (visitProgramRepository != null) {
       extraVisits = ExportUtil.generateVisitUpdate(visitProgramRepository, csvRepository);
@@ -94,58 +83,9 @@ public class EntitlementFilter {
       extraVisits = null;
     }
 
-    // TODO: would this work if there is a qualifying beneficiary unit
-    //       but that unit has no member?
-    Stream<String> rowIdStream = indexedCsvIndividual
-        .values()
-        .stream()
-        .map(member -> BeneficiaryUtil.getAllDataOnMember(member, csvRepository, visitProgramRepository, extraVisits))
-        .filter(predicate)
-        .map(SyncRow::getRowId);
-
-    // filter stream so that at most 1 member from each beneficiary unit is included
-    if (!forMember) {
-      Map<String, CsvBeneficiaryEntity> indexedCsvBeneficiaryEntity = csvRepository
-          .readIndexedTypedCsv(CsvBeneficiaryEntity.class)
-          .orElseThrow(IllegalStateException::new);
-
-      // group individual ids into a map such that beneficiary id -> list of individual id
-      // for each entry in the map, pick the first in the list
-      rowIdStream = rowIdStream.collect(Collectors.collectingAndThen(
-          Collectors.groupingBy(id -> indexedCsvIndividual
-              .get(id)
-              .getBeneficiaryEntityRowId()
-          ),
-          memberGroupedByUnit -> memberGroupedByUnit
-              .entrySet()
-              .stream()
-              .filter(entry -> BeneficiaryEntityStatus.ENABLED ==
-                  indexedCsvBeneficiaryEntity.get(entry.getKey()).getStatus())
-              .map(entry -> entry.getValue().get(0))
-      ));
-    } else {
-      rowIdStream = rowIdStream.filter(memberRowId ->
-          IndividualStatus.ENABLED == indexedCsvIndividual.get(memberRowId).getStatus()
-      );
-    }
-
-    return rowIdStream;
-  }
-
-  private static Predicate<UntypedSyncRow> buildPredicateFromRules(List<List<AuthorizationCriterion>> rules,
-                                                                   CriteriaPredicateFactory predicateFactory) {
-    List<List<AuthorizationCriterion>> cleanedRules = CriteriaUtil.removeEmptyRules(rules);
+    ReliefMemberDataIndex memberDataIndex =
+        new ReliefMemberDataIndex(csvRepository, visitProgramRepository, extraVisits);
 
-    // collapse rules into 1 predicate
-    return cleanedRules.isEmpty() ? (__ -> true) : cleanedRules
-        .stream()
-        .map(rule -> rule
-            .stream()
-            .map(predicateFactory::createPredicate)
-            .reduce(Predicate::and)
-            .orElse(__ -> true)
-        )
-        .reduce(Predicate::or)
-        .orElse(__ -> true);
+    return filterMembers(csvRepository, memberDataIndex, predicate, forMember);
   }
 }
@@ -16,6 +16,7 @@ package edu.uw.cse.ifrcdemo.distplan.logic.criterionpredicate;
 
 import edu.uw.cse.ifrcdemo.planningsharedlib.model.criteria.AuthorizationCriterion;
 import edu.uw.cse.ifrcdemo.distplan.util.BeneficiaryUtil;
+import edu.uw.cse.ifrcdemo.planningsharedlib.logic.criterionpredicate.CriterionPredicate;
 import edu.uw.cse.ifrcdemo.planningsharedlib.model.criteria.CriterionOperator;
 import edu.uw.cse.ifrcdemo.planningsharedlib.model.csv.CsvRepository;
 import edu.uw.cse.ifrcdemo.sharedlib.consts.csv.MobileDbConsts;
@@ -24,10 +25,9 @@ import edu.uw.cse.ifrcdemo.sharedlib.model.row.UntypedSyncRow;
 import edu.uw.cse.ifrcdemo.sharedlib.util.StringUtil;
 
 import java.util.Map;
-import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
-public class TargetedByVisitProgramPredicate implements Predicate<UntypedSyncRow> {
+public class TargetedByVisitProgramPredicate implements CriterionPredicate {
   private final AuthorizationCriterion authorizationCriterion;
   private final boolean includeUnrealized;
 
@@ -50,6 +50,11 @@ public class TargetedByVisitProgramPredicate implements Predicate<UntypedSyncRow
         ));
   }
 
+  @Override
+  public int getCost() {
+    return COST_INDEX;
+  }
+
   @Override
   public boolean test(UntypedSyncRow untypedSyncRow) {
     if (untypedSyncRow == null || authorizationCriterion.getField() == null) {
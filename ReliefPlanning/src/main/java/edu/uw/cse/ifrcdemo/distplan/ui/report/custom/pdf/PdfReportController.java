@@ -28,7 +28,7 @@ import edu.uw.cse.ifrcdemo.planningsharedlib.model.entitlement.EntitlementReposi
 import edu.uw.cse.ifrcdemo.distplan.model.visitprogram.VisitProgramListDto;
 import edu.uw.cse.ifrcdemo.distplan.model.visitprogram.VisitProgramRepository;
 import edu.uw.cse.ifrcdemo.planningsharedlib.ui.formatter.CriteriaFormatter;
-import edu.uw.cse.ifrcdemo.distplan.util.BeneficiaryUtil;
+import edu.uw.cse.ifrcdemo.distplan.util.ReliefMemberDataIndex;
 import edu.uw.cse.ifrcdemo.planningsharedlib.util.CriteriaUtil;
 import edu.uw.cse.ifrcdemo.distplan.util.ExportUtil;
 import edu.uw.cse.ifrcdemo.distreport.consts.ReportConsts;
@@ -267,11 +267,12 @@ public class PdfReportController {
         .orElseThrow(IllegalStateException::new);
 
     List<CsvVisit> extraVisits = ExportUtil.generateVisitUpdate(visitProgramRepo, csvRepo);
+    ReliefMemberDataIndex memberDataIndex = new ReliefMemberDataIndex(csvRepo, visitProgramRepo, extraVisits);
 
     return EntitlementFilter
         .filterForCsvReport(csvRepo, distributionRepo, entitlementRepo, visitProgramRepo, rules)
         .map(indexedMember::get)
-        .map(member -> BeneficiaryUtil.getAllDataOnMember(member, csvRepo, visitProgramRepo, extraVisits))
+        .map(memberDataIndex::getAllDataOnMember)
         .collect(Collectors.toList());
   }
 
@@ -17,12 +17,9 @@ package edu.uw.cse.ifrcdemo.distplan.util;
 import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SequenceWriter;
 import com.fasterxml.jackson.dataformat.csv.CsvMapper;
-import edu.uw.cse.ifrcdemo.distplan.model.visitprogram.VisitProgramListDto;
 import edu.uw.cse.ifrcdemo.distplan.model.visitprogram.VisitProgramRepository;
 import edu.uw.cse.ifrcdemo.planningsharedlib.model.csv.CsvRepository;
 import edu.uw.cse.ifrcdemo.planningsharedlib.util.BeneficiaryUtilBase;
-import edu.uw.cse.ifrcdemo.sharedlib.consts.csv.MobileDbConsts;
-import edu.uw.cse.ifrcdemo.sharedlib.model.row.CsvBeneficiaryEntity;
 import edu.uw.cse.ifrcdemo.sharedlib.model.row.CsvIndividual;
 import edu.uw.cse.ifrcdemo.sharedlib.model.row.CsvVisit;
 import edu.uw.cse.ifrcdemo.sharedlib.model.row.UntypedSyncRow;
@@ -40,101 +37,15 @@ import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 public class BeneficiaryUtil extends BeneficiaryUtilBase {
+  /**
+   * Builds a {@link ReliefMemberDataIndex} for a single member. Use the index
+   * directly when merging data for more than one member.
+   */
   public static UntypedSyncRow getAllDataOnMember(CsvIndividual member,
                                                   CsvRepository csvRepository,
                                                   VisitProgramRepository visitProgramRepository,
                                                   List<CsvVisit> newVisits) {
-    UntypedSyncRow mergedRow = new UntypedSyncRow();
-
-    // start with all columns in individual's base table
-    addRowsFromTable(
-        MobileDbConsts.TableNames.INDIVIDUAL_TABLE_NAME, member.getRowId(), mergedRow, csvRepository);
-
-    // merge in individual's custom table columns
-    mergeCustomTableRow(member, csvRepository, mergedRow);
-
-    String beneficiaryEntityId = member.getBeneficiaryEntityRowId();
-    // merge in corresponding beneficiary entity's base table columns
-    addRowsFromTable(
-        MobileDbConsts.TableNames.BENEFICIARY_ENTITY_TABLE_NAME, beneficiaryEntityId, mergedRow, csvRepository);
-
-    // merge in corresponding beneficiary entity's custom table columns
-    CsvBeneficiaryEntity beneficiaryEntity = csvRepository
-        .readIndexedTypedCsv(CsvBeneficiaryEntity.class)
-        .orElseThrow(IllegalStateException::new)
-        .get(beneficiaryEntityId);
-    mergeCustomTableRow(beneficiaryEntity, csvRepository, mergedRow);
-
-    // iterate through the visit entries and find the relevant ones
-    // Visits are added twice
-    //  1. Columns prefixed by table name
-    //  2. Columns prefixed by visit program id
-    List<CsvVisit> relevantVisits = csvRepository
-        .readTypedCsv(CsvVisit.class)
-        .orElseThrow(IllegalStateException::new)
-        .stream()
-        .filter(v -> member.getRowId().equals(v.getMemberId()))
-        .collect(Collectors.toList());
-
-    relevantVisits.forEach(v -> mergeCustomTableRow(v, csvRepository, mergedRow));
-
-    if (visitProgramRepository != null) {
-      Map<String, List<CsvVisit>> visitsByVisitProgram = relevantVisits
-          .stream()
-          .collect(Collectors.groupingBy(CsvVisit::getVisitProgramId));
-
-      Map<String, String> visitProgramIdNameMap = visitProgramRepository
-          .getVisitProgramListDto()
-          .stream()
-          .collect(Collectors.toMap(VisitProgramListDto::getRowId, VisitProgramListDto::getName));
-
-      for (Map.Entry<String, List<CsvVisit>> entry : visitsByVisitProgram.entrySet()) {
-        String columnPrefix = MobileDbConsts.TableNames.VISIT_PROGRAM_TABLE_NAME +
-            visitProgramIdNameMap.get(entry.getKey()) +
-            entry.getKey();
-
-        for (CsvVisit visit : entry.getValue()) {
-          addRowsFromTable(
-              MobileDbConsts.TableNames.VISIT_TABLE_NAME,
-              visit.getRowId(),
-              columnPrefix,
-              mergedRow,
-              csvRepository
-          );
-
-          mergeCustomTableRow(visit, columnPrefix, csvRepository, mergedRow);
-        }
-      }
-
-      if (newVisits != null) {
-        Map<String, List<CsvVisit>> newVisitsByVisitProgram = newVisits
-            .stream()
-            .filter(v -> member.getRowId().equals(v.getMemberId()))
-            .collect(Collectors.groupingBy(CsvVisit::getVisitProgramId));
-
-        CsvMapper csvMapper = CsvMapperUtil.getCsvMapper(true);
-
-        for (Map.Entry<String, List<CsvVisit>> entry : newVisitsByVisitProgram.entrySet()) {
-          String columnPrefix = MobileDbConsts.TableNames.VISIT_PROGRAM_TABLE_NAME +
-              visitProgramIdNameMap.get(entry.getKey()) +
-              entry.getKey();
-
-          for (CsvVisit visit : entry.getValue()) {
-            csvMapper
-                .convertValue(visit, UntypedSyncRow.class)
-                .getColumns()
-                .forEach(remapPut(mergedRow.getColumns(), columnPrefix));
-
-            // this will not add any column if we don't have
-            // the custom form in the CsvRepository
-            mergeCustomTableRow(visit, columnPrefix, csvRepository, mergedRow);
-          }
-        }
-      }
-    }
-
-    mergedRow.setRowId(member.getRowId());
-    return mergedRow;
+    return new ReliefMemberDataIndex(csvRepository, visitProgramRepository, newVisits).getAllDataOnMember(member);
   }
 
   public static void writeDataForMemberAsCsv(Collection<String> memberIds,
@@ -166,9 +77,11 @@ public class BeneficiaryUtil extends BeneficiaryUtilBase {
                                          CsvRepository csvRepository,
                                          VisitProgramRepository visitProgramRepository) throws IOException {
     List<CsvVisit> extraVisits = ExportUtil.generateVisitUpdate(visitProgramRepository, csvRepository);
+    ReliefMemberDataIndex memberDataIndex =
+        new ReliefMemberDataIndex(csvRepository, visitProgramRepository, extraVisits);
 
     List<UntypedSyncRow> memberData = memberBaseTable
-            .map(member -> BeneficiaryUtil.getAllDataOnMember(member, csvRepository, visitProgramRepository, extraVisits))
+            .map(memberDataIndex::getAllDataOnMember)
             .collect(Collectors.toList());
 
     Set<String> columnSet = memberData
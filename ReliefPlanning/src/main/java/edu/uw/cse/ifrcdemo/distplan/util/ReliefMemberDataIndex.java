@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2016-2022 University of Washington
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *  Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *  Neither the name of the University of Washington nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE UNIVERSITY OF WASHINGTON AND CONTRIBUTORS “AS IS” AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE UNIVERSITY OF WASHINGTON OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+
+
+package edu.uw.cse.ifrcdemo.distplan.util;
+
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import edu.uw.cse.ifrcdemo.distplan.model.visitprogram.VisitProgramListDto;
+import edu.uw.cse.ifrcdemo.distplan.model.visitprogram.VisitProgramRepository;
+import edu.uw.cse.ifrcdemo.planningsharedlib.model.csv.CsvRepository;
+import edu.uw.cse.ifrcdemo.planningsharedlib.util.MemberDataIndex;
+import edu.uw.cse.ifrcdemo.planningsharedlib.util.MergedSyncRow;
+import edu.uw.cse.ifrcdemo.sharedlib.consts.csv.MobileDbConsts;
+import edu.uw.cse.ifrcdemo.sharedlib.model.row.CsvIndividual;
+import edu.uw.cse.ifrcdemo.sharedlib.model.row.CsvVisit;
+import edu.uw.cse.ifrcdemo.sharedlib.model.row.UntypedSyncRow;
+import edu.uw.cse.ifrcdemo.sharedlib.util.CsvMapperUtil;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * {@link MemberDataIndex} that also merges in each member's visits.
+ *
+ * Visits are grouped by member once. Visits are added twice
+ *  1. Columns prefixed by table name
+ *  2. Columns prefixed by visit program id, only when a visit program
+ *     repository is given
+ */
+public class ReliefMemberDataIndex extends MemberDataIndex {
+  private final Map<String, List<CsvVisit>> visitsByMember;
+  private final Map<String, List<NewVisit>> newVisitsByMember;
+  private final Map<String, String> visitProgramNames;
+  private final Map<String, String> visitProgramColumnPrefixes = new ConcurrentHashMap<>();
+
+  public ReliefMemberDataIndex(CsvRepository csvRepository,
+                               VisitProgramRepository visitProgramRepository,
+                               List<CsvVisit> newVisits) {
+    super(csvRepository);
+
+    this.visitsByMember = csvRepository
+        .readTypedCsv(CsvVisit.class)
+        .orElseThrow(IllegalStateException::new)
+        .stream()
+        .filter(v -> v.getMemberId() != null)
+        .collect(Collectors.groupingBy(CsvVisit::getMemberId));
+
+    if (visitProgramRepository != null) {
+      this.visitProgramNames = visitProgramRepository
+          .getVisitProgramListDto()
+          .stream()
+          .collect(Collectors.toMap(VisitProgramListDto::getRowId, VisitProgramListDto::getName));
+    } else {
+      this.visitProgramNames = null;
+    }
+
+    if (visitProgramRepository != null && newVisits != null) {
+      CsvMapper csvMapper = CsvMapperUtil.getCsvMapper(true);
+
+      this.newVisitsByMember = newVisits
+          .stream()
+          .filter(v -> v.getMemberId() != null)
+          .map(v -> new NewVisit(v, csvMapper.convertValue(v, UntypedSyncRow.class).getColumns()))
+          .collect(Collectors.groupingBy(v -> v.visit.getMemberId()));
+    } else {
+      this.newVisitsByMember = Collections.emptyMap();
+    }
+  }
+
+  @Override
+  protected void addRelatedRows(CsvIndividual member, MergedSyncRow mergedRow) {
+    List<CsvVisit> relevantVisits = visitsByMember.getOrDefault(member.getRowId(), Collections.emptyList());
+
+    relevantVisits.forEach(v -> addCustomTableRow(mergedRow, v, v.getCustomTableFormId()));
+
+    if (visitProgramNames == null) {
+      return;
+    }
+
+    for (Map.Entry<String, List<CsvVisit>> entry :
+        groupByVisitProgram(relevantVisits, Function.identity()).entrySet()) {
+      String columnPrefix = getVisitProgramColumnPrefix(entry.getKey());
+
+      for (CsvVisit visit : entry.getValue()) {
+        addRowFromTable(mergedRow, MobileDbConsts.TableNames.VISIT_TABLE_NAME, visit.getRowId(), columnPrefix);
+        addCustomTableRow(mergedRow, visit, columnPrefix);
+      }
+    }
+
+    List<NewVisit> relevantNewVisits = newVisitsByMember.getOrDefault(member.getRowId(), Collections.emptyList());
+    for (Map.Entry<String, List<NewVisit>> entry :
+        groupByVisitProgram(relevantNewVisits, v -> v.visit).entrySet()) {
+      String columnPrefix = getVisitProgramColumnPrefix(entry.getKey());
+
+      for (NewVisit newVisit : entry.getValue()) {
+        mergedRow.add(columnPrefix, newVisit.columns);
+
+        // this will not add any column if we don't have
+        // the custom form in the CsvRepository
+        addCustomTableRow(mergedRow, newVisit.visit, columnPrefix);
+      }
+    }
+  }
+
+  private String getVisitProgramColumnPrefix(String visitProgramId) {
+    return visitProgramColumnPrefixes.computeIfAbsent(visitProgramId, id ->
+        MobileDbConsts.TableNames.VISIT_PROGRAM_TABLE_NAME + visitProgramNames.get(id) + id);
+  }
+
+  private static <T> Map<String, List<T>> groupByVisitProgram(List<T> visits, Function<T, CsvVisit> toVisit) {
+    if (visits.isEmpty()) {
+      return Collections.emptyMap();
+    }
+
+    return visits
+        .stream()
+        .collect(Collectors.groupingBy(
+            v -> toVisit.apply(v).getVisitProgramId(),
+            LinkedHashMap::new,
+            Collectors.toList()
+        ));
+  }
+
+  private static class NewVisit {
+    private final CsvVisit visit;
+    private final Map<String, String> columns;
+
+    NewVisit(CsvVisit visit, Map<String, String> columns) {
+      this.visit = visit;
+      this.columns = columns;
+    }
+  }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2016-2022 University of Washington
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *  Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *  Neither the name of the University of Washington nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE UNIVERSITY OF WASHINGTON AND CONTRIBUTORS “AS IS” AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE UNIVERSITY OF WASHINGTON OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+
+
+package edu.uw.cse.ifrcdemo.distplan.logic;
+
+import edu.uw.cse.ifrcdemo.planningsharedlib.logic.CsvTableRules;
+import edu.uw.cse.ifrcdemo.planningsharedlib.logic.CsvValidationEngine;
+import edu.uw.cse.ifrcdemo.planningsharedlib.logic.CsvValidationReport;
+import edu.uw.cse.ifrcdemo.planningsharedlib.logic.CsvViolation;
+import edu.uw.cse.ifrcdemo.planningsharedlib.model.csv.CsvRepository;
+import edu.uw.cse.ifrcdemo.sharedlib.model.datattype.BeneficiaryEntityStatus;
+import edu.uw.cse.ifrcdemo.sharedlib.model.datattype.IndividualStatus;
+import edu.uw.cse.ifrcdemo.sharedlib.model.row.BaseSyncRow;
+import edu.uw.cse.ifrcdemo.sharedlib.model.row.CsvBeneficiaryEntity;
+import edu.uw.cse.ifrcdemo.sharedlib.model.row.CsvIndividual;
+import edu.uw.cse.ifrcdemo.sharedlib.model.row.UntypedSyncRow;
+import edu.uw.cse.ifrcdemo.sharedlib.util.FileUtil;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CsvValidationEngineTest {
+  private static final int INDIVIDUAL_COUNT = 100000;
+  private static final int INDIVIDUALS_PER_ENTITY = 4;
+  private static final String DATE_CREATED = "2020-01-01T00:00:00.000000000";
+
+  private CsvValidator csvValidator;
+  private List<CsvBeneficiaryEntity> entities;
+  private List<CsvIndividual> individuals;
+
+  @BeforeEach
+  void generateSnapshot() {
+    csvValidator = new CsvValidator();
+    entities = new ArrayList<>();
+    individuals = new ArrayList<>();
+
+    for (int i = 0; i < INDIVIDUAL_COUNT / INDIVIDUALS_PER_ENTITY; i++) {
+      CsvBeneficiaryEntity entity = new CsvBeneficiaryEntity();
+      entity.setRowId("be-" + i);
+      entity.setBeneficiaryEntityId("BE" + i);
+      entity.setDateCreated(DATE_CREATED);
+      entity.setStatus(BeneficiaryEntityStatus.ENABLED);
+      entities.add(entity);
+    }
+
+    for (int i = 0; i < INDIVIDUAL_COUNT; i++) {
+      CsvIndividual individual = new CsvIndividual();
+      individual.setRowId("member-" + i);
+      individual.setBeneficiaryEntityRowId("be-" + (i / INDIVIDUALS_PER_ENTITY));
+      individual.setDateCreated(DATE_CREATED);
+      individual.setStatus(IndividualStatus.ENABLED);
+      individuals.add(individual);
+    }
+  }
+
+  @Test
+  @DisplayName("Valid 100k member snapshot")
+  void validSnapshot() {
+    CsvValidationReport report = validate();
+
+    assertTrue(report.isValid());
+    assertNull(report.getMessage());
+  }
+
+  @Test
+  @DisplayName("Every violation of a 100k member snapshot is reported")
+  void reportsEveryViolation() {
+    entities.get(5).setBeneficiaryEntityId(null);
+    individuals.get(10).setBeneficiaryEntityRowId("be-unknown");
+    individuals.get(20).setDateCreated(null);
+    individuals.get(20).setStatus(null);
+    individuals.get(INDIVIDUAL_COUNT - 1).setBeneficiaryEntityRowId(null);
+
+    // disabled rows are not validated
+    individuals.get(30).setStatus(IndividualStatus.DISABLED);
+    individuals.get(30).setBeneficiaryEntityRowId("be-unknown");
+
+    CsvValidationReport report = validate();
+
+    assertEquals(Arrays.asList(FileUtil.getFileName(CsvBeneficiaryEntity.class),
+        FileUtil.getFileName(CsvIndividual.class)), new ArrayList<>(report.getInvalidTables()));
+    assertEquals(6, report.getViolationCount());
+
+    assertEquals(
+        Arrays.asList("be-5 beneficiary_entity_id required"),
+        describe(report.getViolations(FileUtil.getFileName(CsvBeneficiaryEntity.class)))
+    );
+    assertEquals(
+        Arrays.asList(
+            "member-10 beneficiary_entity_row_id row_exists",
+            "member-20 date_created required",
+            "member-20 status required",
+            "member-99999 beneficiary_entity_row_id required",
+            "member-99999 beneficiary_entity_row_id row_exists"
+        ),
+        describe(report.getViolations(FileUtil.getFileName(CsvIndividual.class)))
+    );
+  }
+
+  private CsvValidationReport validate() {
+    CsvRepository csvRepo = new InMemoryCsvRepository()
+        .with(CsvBeneficiaryEntity.class, entities)
+        .with(CsvIndividual.class, individuals);
+
+    List<CsvTableRules<?>> rules = Arrays.asList(
+        csvValidator.beneficiaryEntityRules(csvRepo),
+        csvValidator.individualRules(csvRepo)
+    );
+
+    return new CsvValidationEngine(4).validate(csvRepo, rules);
+  }
+
+  private static List<String> describe(List<CsvViolation> violations) {
+    return violations
+        .stream()
+        .map(violation -> violation.getRowId() + " " + violation.getColumn() + " " + violation.getRule())
+        .collect(Collectors.toList());
+  }
+
+  private static class InMemoryCsvRepository implements CsvRepository {
+    private final Map<Class<?>, List<? extends BaseSyncRow>> tables = new HashMap<>();
+
+    <T extends BaseSyncRow> InMemoryCsvRepository with(Class<T> clazz, List<T> rows) {
+      tables.put(clazz, rows);
+      return this;
+    }
+
+    @Override
+    public CompletableFuture<List<UntypedSyncRow>> readUntypedCsv(String filename,
+                                                                  InputStream input,
+                                                                  boolean purgeCache) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Optional<List<UntypedSyncRow>> readUntypedCsv(String filename) {
+      return Optional.empty();
+    }
+
+    @Override
+    public <T extends BaseSyncRow> CompletableFuture<List<? extends BaseSyncRow>> readTypedCsv(Class<T> clazz,
+                                                                                               InputStream input,
+                                                                                               boolean purgeCache) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <T extends BaseSyncRow> CompletableFuture<List<T>> readBaseCsv(Class<T> clazz,
+                                                                          String filename,
+                                                                          InputStream input,
+                                                                          boolean purgeCache) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends BaseSyncRow> Optional<List<T>> readTypedCsv(Class<T> clazz) {
+      return Optional.ofNullable((List<T>) tables.get(clazz));
+    }
+
+    @Override
+    public Optional<Map<String, UntypedSyncRow>> readIndexedUntypedCsv(String filename) {
+      return Optional.empty();
+    }
+
+    @Override
+    public <T extends BaseSyncRow> Optional<Map<String, T>> readIndexedTypedCsv(Class<T> clazz) {
+      return readTypedCsv(clazz)
+          .map(rows -> rows.stream().collect(Collectors.toMap(BaseSyncRow::getRowId, Function.identity())));
+    }
+  }
+}
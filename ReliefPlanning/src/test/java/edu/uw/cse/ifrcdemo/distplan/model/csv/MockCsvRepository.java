@@ -75,6 +75,11 @@ public class MockCsvRepository implements CsvRepository {
     throw new UnsupportedOperationException();
   }
 
+  @Override
+  public <T extends BaseSyncRow> CompletableFuture<List<T>> readBaseCsv(Class<T> clazz, String filename, InputStream input, boolean purgeCache) {
+    throw new UnsupportedOperationException();
+  }
+
   @Override
   public Optional<List<UntypedSyncRow>> readUntypedCsv(String filename) {
     return Optional
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2016-2022 University of Washington
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *  Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *  Neither the name of the University of Washington nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE UNIVERSITY OF WASHINGTON AND CONTRIBUTORS “AS IS” AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE UNIVERSITY OF WASHINGTON OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+
+package edu.uw.cse.ifrcdemo.distplan.util;
+
+import edu.uw.cse.ifrcdemo.planningsharedlib.util.MergedSyncRow;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MergedSyncRowTest {
+  @Test
+  void suppliersAreOnlyCalledForLookedUpPrefixes() {
+    AtomicInteger memberCalls = new AtomicInteger();
+    AtomicInteger customCalls = new AtomicInteger();
+
+    MergedSyncRow row = new MergedSyncRow()
+        .add("members", () -> {
+          memberCalls.incrementAndGet();
+          return Collections.singletonMap("age", "30");
+        })
+        .add("custom_members_1", () -> {
+          customCalls.incrementAndGet();
+          return Collections.singletonMap("income", "100");
+        });
+
+    assertEquals("30", row.getColumns().get("members_age"));
+    assertEquals("30", row.getColumns().get("members_age"));
+    assertEquals(1, memberCalls.get());
+    assertEquals(0, customCalls.get());
+
+    assertEquals(2, row.getColumns().size());
+    assertEquals(1, customCalls.get());
+  }
+
+  @Test
+  void laterRowsHideEarlierColumns() {
+    Map<String, String> visit = new HashMap<>();
+    visit.put("status", "done");
+
+    MergedSyncRow row = new MergedSyncRow()
+        .add("visits", () -> Collections.singletonMap("status", "pending"))
+        .add("visits", visit)
+        .add("members", () -> null);
+
+    assertEquals("done", row.getColumns().get("visits_status"));
+    assertTrue(row.getColumns().containsKey("visits_status"));
+    assertNull(row.getColumns().get("members_status"));
+    assertFalse(row.getColumns().isEmpty());
+    assertEquals(1, row.getColumns().size());
+  }
+
+  @Test
+  void rowWithOnlyEmptySuppliersIsEmpty() {
+    MergedSyncRow row = new MergedSyncRow()
+        .add("members", () -> null)
+        .add("beneficiary_entities", Collections::emptyMap);
+
+    assertTrue(row.getColumns().isEmpty());
+  }
+}
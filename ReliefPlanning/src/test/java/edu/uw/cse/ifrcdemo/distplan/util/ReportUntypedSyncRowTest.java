@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2016-2022 University of Washington
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *  Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *  Neither the name of the University of Washington nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE UNIVERSITY OF WASHINGTON AND CONTRIBUTORS “AS IS” AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE UNIVERSITY OF WASHINGTON OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+
+package edu.uw.cse.ifrcdemo.distplan.util;
+
+import edu.uw.cse.ifrcdemo.distreport.consts.ReportConsts;
+import edu.uw.cse.ifrcdemo.distreport.logic.ReportGenerator;
+import edu.uw.cse.ifrcdemo.distreport.model.ReportUntypedSyncRow;
+import edu.uw.cse.ifrcdemo.sharedlib.consts.GenConsts;
+import edu.uw.cse.ifrcdemo.sharedlib.consts.csv.MobileDbConsts;
+import edu.uw.cse.ifrcdemo.sharedlib.model.row.UntypedSyncRow;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ReportUntypedSyncRowTest {
+  private static final Path DATA_PATH = Paths.get("data");
+  private static final String TABLE_ID = "members";
+  private static final String DATE_CREATED = "2020-01-02T03:04:05.678000000";
+  private static final String PARSED_DATE_CREATED = "Thu, 2 Jan 2020 03:04:05 GMT";
+
+  private static final int TABLE_COUNT = 5;
+  private static final int ROWS_PER_TABLE = 1000;
+  private static final int BENCHMARK_ROWS_PER_TABLE = 100000;
+
+  private final Logger logger = LogManager.getLogger(ReportUntypedSyncRowTest.class);
+
+  @Test
+  void parsedDateIsComputedOnceOnFirstAccess() {
+    UntypedSyncRow row = newRow("row-1", DATE_CREATED);
+    ReportUntypedSyncRow wrapped = new ReportUntypedSyncRow(row, TABLE_ID, DATA_PATH);
+
+    assertEquals(PARSED_DATE_CREATED, wrapped.getParsed_date_created());
+
+    row.getColumns().put(MobileDbConsts.DATE_CREATED_COLUMN, "2021-01-01T00:00:00.000000000");
+    assertEquals(PARSED_DATE_CREATED, wrapped.getParsed_date_created());
+  }
+
+  @Test
+  void rowWithoutDateHasNoParsedDate() {
+    ReportUntypedSyncRow wrapped = new ReportUntypedSyncRow(newRow("row-1", null), TABLE_ID, DATA_PATH);
+
+    assertNull(wrapped.getParsed_date_created());
+    assertNull(wrapped.getParsed_date_created());
+  }
+
+  @Test
+  void malformedDateOnlyFailsWhenRead() {
+    Map<String, List<ReportUntypedSyncRow>> wrappedTables = ReportGenerator.buildWrappedTables(
+        Collections.singletonMap(TABLE_ID, Collections.singletonList(newRow("row-1", "not a date"))),
+        DATA_PATH
+    );
+
+    ReportUntypedSyncRow wrapped = wrappedTables.get(getScopeName(TABLE_ID)).get(0);
+    assertThrows(IllegalArgumentException.class, wrapped::getParsed_date_created);
+  }
+
+  @Test
+  void wrapReportSet() {
+    Map<String, List<UntypedSyncRow>> tables = buildTables(ROWS_PER_TABLE);
+
+    Map<String, List<ReportUntypedSyncRow>> wrappedTables = ReportGenerator.buildWrappedTables(tables, DATA_PATH);
+
+    assertEquals(TABLE_COUNT, wrappedTables.size());
+    for (Map.Entry<String, List<UntypedSyncRow>> table : tables.entrySet()) {
+      List<ReportUntypedSyncRow> wrappedRows = wrappedTables.get(getScopeName(table.getKey()));
+      assertEquals(ROWS_PER_TABLE, wrappedRows.size());
+
+      // the wrapper reads the row's own columns
+      assertSame(table.getValue().get(0).getColumns(), wrappedRows.get(0).getColumns());
+    }
+  }
+
+  /**
+   * Run with mvn test -Dtest.excludedGroups= -Dgroups=benchmark
+   */
+  @Test
+  @Tag("benchmark")
+  @DisplayName("Wrap a 500k row report set")
+  void benchmarkWrapReportSet() {
+    Map<String, List<UntypedSyncRow>> tables = buildTables(BENCHMARK_ROWS_PER_TABLE);
+
+    long start = System.nanoTime();
+    Map<String, List<ReportUntypedSyncRow>> wrappedTables = ReportGenerator.buildWrappedTables(tables, DATA_PATH);
+    long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+    logger.info("wrapped {} rows in {} ms", TABLE_COUNT * BENCHMARK_ROWS_PER_TABLE, elapsed);
+    assertEquals(TABLE_COUNT, wrappedTables.size());
+  }
+
+  private static Map<String, List<UntypedSyncRow>> buildTables(int rowsPerTable) {
+    Map<String, List<UntypedSyncRow>> tables = new HashMap<>();
+    for (int t = 0; t < TABLE_COUNT; t++) {
+      List<UntypedSyncRow> rows = new ArrayList<>(rowsPerTable);
+      for (int i = 0; i < rowsPerTable; i++) {
+        rows.add(newRow("row-" + i, DATE_CREATED));
+      }
+      tables.put("table_" + t, rows);
+    }
+
+    return tables;
+  }
+
+  private static String getScopeName(String tableId) {
+    return ReportConsts.WRAPPED_SCOPE_NAME + GenConsts.PERIOD + tableId;
+  }
+
+  private static UntypedSyncRow newRow(String rowId, String dateCreated) {
+    UntypedSyncRow row = new UntypedSyncRow();
+    row.setRowId(rowId);
+    row.getColumns().put(MobileDbConsts.DATE_CREATED_COLUMN, dateCreated);
+    return row;
+  }
+}
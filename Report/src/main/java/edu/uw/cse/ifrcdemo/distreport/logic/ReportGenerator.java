@@ -51,11 +51,17 @@ import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.ResourceBundle;
 import java.util.Set;
-import java.util.function.BiConsumer;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -82,27 +88,29 @@ public class ReportGenerator {
             return;
         }
 
-        Map<String, byte[]> fileBytes;
+        CsvMapper mapper = CsvMapperUtil.getCsvMapper(true);
+
+        List<Path> files;
+        Map<String, List<UntypedSyncRow>> parsedFiles;
         try {
-            fileBytes = readAllFiles(inputPath);
+            files = listFiles(inputPath);
+            parsedFiles = parseAllFiles(mapper, files);
         } catch (IOException e) {
             logger.error(LogStr.LOG_FAILED_TO_READ_FILES, e);
             DialogUtil.showErrorDialog(viewPanel, translations.getString(TranslationConsts.CANNOT_READ_DIR_ERROR));
             return;
         }
 
-        CsvMapper mapper = CsvMapperUtil.getCsvMapper(true);
-
         Map<Class<? extends BaseSyncRow>, List<BaseSyncRow>> baseTables;
         try {
-            baseTables = parseBaseTables(mapper, fileBytes);
+            baseTables = parseBaseTables(mapper, files, parsedFiles);
         } catch (RuntimeException e) {
             logger.error(LogStr.LOG_FAILED_TO_PARSE_BASE_TABLES, e);
             DialogUtil.showErrorDialog(viewPanel, e.getMessage());
             return;
         }
 
-        Map<String, List<UntypedSyncRow>> allTables = parseAllTables(mapper, fileBytes);
+        Map<String, List<UntypedSyncRow>> allTables = parseAllTables(parsedFiles);
 
         Map<Class<? extends BaseSyncRow>, Map<String, BaseSyncRow>> baseTablesIndexed =
                 TableUtil.indexTables(baseTables);
@@ -111,9 +119,20 @@ public class ReportGenerator {
 
         copyBaseTableToCustomTable(baseTables, allTablesIndexed);
 
+        // the template is compiled once and shared by every worker
+        Mustache template = mustacheFactory.compile(ReportConsts.TEMPLATE_PATH);
+
         Set<String> validAuthId = baseTablesIndexed.get(CsvAuthorization.class).keySet();
-        groupRowsByAuth(allTables, validAuthId)
-                .forEach(reportPrinter(baseTablesIndexed, allTablesIndexed, inputPath, outputPath));
+        Map<String, Path> reportPaths = buildReportPaths(baseTablesIndexed.get(CsvAuthorization.class), outputPath);
+        int failed = printReports(
+                groupRowsByAuth(allTables, validAuthId),
+                reportPrinter(template, baseTablesIndexed, allTablesIndexed, inputPath, reportPaths)
+        );
+
+        if (failed > 0) {
+            DialogUtil.showErrorDialog(viewPanel, failed + GenConsts.SPACE + translations.getString(TranslationConsts.REPORTS_FAILED_ERROR));
+            return;
+        }
 
         DialogUtil.showConfirmDialog(viewPanel, translations.getString(TranslationConsts.DONE_LABEL), translations.getString(TranslationConsts.REPORT_GENERATED_MSG));
     }
@@ -177,41 +196,75 @@ public class ReportGenerator {
                 ));
     }
 
-    private static Map<String, byte[]> readAllFiles(Path dataPath) throws IOException {
+    private static List<Path> listFiles(Path dataPath) throws IOException {
         try (Stream<Path> files = Files.list(dataPath)) {
-            Map<String, byte[]> map = files
+            return files
                     .filter(Files::isRegularFile)
                     .filter(Files::isReadable)
-                    .collect(Collectors.toMap(
-                            path -> path.getFileName().toString(),
-                            path -> {
-                                try {
-                                    return Files.readAllBytes(path);
-                                } catch (IOException e) {
-                                    // ignore this file
-                                    logger.warn(new FormattedMessage(LogStr.LOG_FAILED_TO_READ_IGNORED, path.toAbsolutePath().toString()), e);
-                                    return new byte[0];
-                                }
-                            }
-                    ));
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Renders one report per authorization on a pool of at most one thread per
+     * core. Reports are submitted in authorization id order and their outcome
+     * is collected in that order, so the log reads the same on every run.
+     *
+     * @return the number of reports that failed
+     */
+    private static int printReports(Map<String, Map<String, List<UntypedSyncRow>>> groupedTables,
+                                    ReportPrinter<Map<String, List<UntypedSyncRow>>> printer) {
+        List<String> authIds = new ArrayList<>(groupedTables.keySet());
+        Collections.sort(authIds);
+
+        int threads = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), authIds.size()));
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        AtomicInteger completed = new AtomicInteger();
+        int failed = 0;
 
-            // remove ignored entries from the map
-            map.values().removeIf(arr -> arr.length == 0);
+        try {
+            List<Future<?>> reports = new ArrayList<>(authIds.size());
+            for (String authId : authIds) {
+                reports.add(executor.submit(() -> {
+                    long startTime = System.nanoTime();
+                    printer.print(authId, groupedTables.get(authId));
+
+                    logger.info(LogStr.LOG_REPORT_PROGRESS, completed.incrementAndGet(), authIds.size(), authId,
+                            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+                    return null;
+                }));
+            }
 
-            return map;
+            for (int i = 0; i < reports.size(); i++) {
+                try {
+                    reports.get(i).get();
+                } catch (ExecutionException e) {
+                    failed++;
+                    logger.error(new FormattedMessage(LogStr.LOG_FAILED_TO_GENERATE_PDF_FOR, authIds.get(i)), e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            // reports that were not collected are counted as failed
+            failed = authIds.size() - completed.get();
+        } finally {
+            executor.shutdownNow();
         }
+
+        return failed;
     }
 
     @SuppressWarnings("unchecked")
-    private static <V extends Map> BiConsumer<String, V> reportPrinter(Map<Class<? extends BaseSyncRow>, Map<String, BaseSyncRow>> baseTablesIndexed,
+    private static <V extends Map> ReportPrinter<V> reportPrinter(Mustache template,
+                                                                Map<Class<? extends BaseSyncRow>, Map<String, BaseSyncRow>> baseTablesIndexed,
                                                                 Map<String, Map<String, UntypedSyncRow>> allTablesIndexed, Path inputPath,
-                                                                Path outputPath) {
+                                                                Map<String, Path> reportPaths) {
         return (String authId, V tables) -> {
             CsvAuthorization auth = ((CsvAuthorization) baseTablesIndexed.get(CsvAuthorization.class).get(authId));
-            String authName = auth.getDistributionName()+ GenConsts.UNDERSCORE +  auth.getItemName();
+            String authName = getAuthName(auth);
             String authTableName = MobileDbConsts.TableNames.AUTHORIZATION_TABLE_NAME;
 
-            Path reportPath = outputPath.resolve(getReportFilename(authName));
+            Path reportPath = reportPaths.get(authId);
 
 
             Map<String, Object> scopes = new HashMap<>(tables);
@@ -222,18 +275,74 @@ public class ReportGenerator {
             // add either map of functions or function object to scope. Define this in another class, see ReportMetadata as a example.
             // if you cannot pass in a list from mustache then make the function have access to it
 
-            Mustache template = mustacheFactory.compile(ReportConsts.TEMPLATE_PATH);
+            PdfGenerator.generatePdf(template, scopes, reportPath);
+            logger.info(LogStr.LOG_SUCCESSFULLY_WROTE_REPORT_FOR_TO, authName, reportPath);
+        };
+    }
+
+    /**
+     * Names each report after its authorization. Authorizations that share a
+     * distribution and item name get a numeric suffix, assigned in
+     * authorization id order.
+     */
+    private static Map<String, Path> buildReportPaths(Map<String, BaseSyncRow> authorizations, Path outputPath) {
+        List<String> authIds = new ArrayList<>(authorizations.keySet());
+        Collections.sort(authIds);
+
+        Set<String> usedNames = new HashSet<>();
+        Map<String, Path> reportPaths = new HashMap<>();
+        for (String authId : authIds) {
+            String authName = getAuthName((CsvAuthorization) authorizations.get(authId));
+
+            String reportName = authName;
+            for (int i = 2; !usedNames.add(reportName); i++) {
+                reportName = authName + GenConsts.UNDERSCORE + i;
+            }
+
+            reportPaths.put(authId, outputPath.resolve(getReportFilename(reportName)));
+        }
+
+        return reportPaths;
+    }
+
+    private static String getAuthName(CsvAuthorization auth) {
+        return auth.getDistributionName() + GenConsts.UNDERSCORE + auth.getItemName();
+    }
+
+    /**
+     * Reads every file once as an untyped table. Files that fail to parse are
+     * logged and left out.
+     */
+    private static Map<String, List<UntypedSyncRow>> parseAllFiles(CsvMapper mapper, List<Path> files) {
+        ObjectReader untypedReader = CsvMapperUtil.getReader(mapper, true);
+
+        Map<String, List<UntypedSyncRow>> parsedFiles = new HashMap<>();
+        for (Path path : files) {
+            String filename = path.getFileName().toString();
+
             try {
-                PdfGenerator.generatePdf(template, scopes, reportPath);
-                logger.info(LogStr.LOG_SUCCESSFULLY_WROTE_REPORT_FOR_TO, authName, reportPath);
-            } catch (Exception e) {
-                logger.error(new FormattedMessage(LogStr.LOG_FAILED_TO_GENERATE_PDF_FOR, authName), e);
+                parsedFiles.put(filename, untypedReader.<UntypedSyncRow>readValues(path.toFile()).readAll());
+            } catch (IOException e) {
+                // ignore this table
+                logger.warn(new FormattedMessage(LogStr.LOG_FAILED_TO_PARSE_IGNORED, filename), e);
             }
-        };
+        }
+
+        return parsedFiles;
     }
 
+    /**
+     * Projects the required base tables from their untyped rows, the typed
+     * rows share their values with the untyped ones.
+     */
     private static Map<Class<? extends BaseSyncRow>, List<BaseSyncRow>> parseBaseTables(CsvMapper mapper,
-                                                                                 Map<String, byte[]> fileBytes) {
+                                                                                 List<Path> files,
+                                                                                 Map<String, List<UntypedSyncRow>> parsedFiles) {
+        Set<String> filenames = files
+                .stream()
+                .map(path -> path.getFileName().toString())
+                .collect(Collectors.toSet());
+
         return RequiredCsvs
                 .REQUIRED_CSVS
                 .stream()
@@ -242,26 +351,31 @@ public class ReportGenerator {
                         clazz -> {
                             String filename = FileUtil.getFileName(clazz);
                             ResourceBundle translations = TranslationUtil.getTranslations();
-                            if (!fileBytes.containsKey(filename)) {
+                            if (!filenames.contains(filename)) {
                                 throw new RuntimeException(translations.getString(TranslationConsts.MISSING_BASE_TABLE_ERROR) + GenConsts.SPACE + filename);
                             }
 
+                            List<UntypedSyncRow> untypedRows = parsedFiles.get(filename);
+                            if (untypedRows == null) {
+                                throw new RuntimeException(translations.getString(TranslationConsts.FAILED_PARSE_ERROR) + GenConsts.SPACE + filename);
+                            }
+
                             try {
-                                return CsvMapperUtil
-                                        .getReader(clazz, mapper, true)
-                                        .<BaseSyncRow>readValues(fileBytes.get(filename))
-                                        .readAll();
-                            } catch (IOException e) {
+                                List<BaseSyncRow> rows = new ArrayList<>(untypedRows.size());
+                                for (UntypedSyncRow row : untypedRows) {
+                                    rows.add(mapper.convertValue(row, clazz));
+                                }
+
+                                return rows;
+                            } catch (IllegalArgumentException e) {
                                 throw new RuntimeException(translations.getString(TranslationConsts.FAILED_PARSE_ERROR)+ GenConsts.SPACE + filename, e);
                             }
                         }
                 ));
     }
 
-    private static Map<String, List<UntypedSyncRow>> parseAllTables(CsvMapper mapper, Map<String, byte[]> fileBytes) {
-        ObjectReader untypedReader = CsvMapperUtil.getReader(mapper, true);
-
-        Map<String, List<UntypedSyncRow>> allTables = fileBytes
+    private static Map<String, List<UntypedSyncRow>> parseAllTables(Map<String, List<UntypedSyncRow>> parsedFiles) {
+        Map<String, List<UntypedSyncRow>> allTables = parsedFiles
                 .entrySet()
                 .stream()
                 .collect(Collectors.toMap(
@@ -270,15 +384,7 @@ public class ReportGenerator {
                                 // use filename without extension as key
                                 // assumes that file extension is .csv
                                 .substring(0, entry.getKey().length() - GenConsts.CSV_FILE_EXTENSION.length()),
-                        entry -> {
-                            try {
-                                return untypedReader.<UntypedSyncRow>readValues(entry.getValue()).readAll();
-                            } catch (IOException e) {
-                                // ignore this table
-                                logger.warn(new FormattedMessage(LogStr.LOG_FAILED_TO_PARSE_IGNORED, entry.getKey()), e);
-                                return Collections.emptyList();
-                            }
-                        }
+                        Map.Entry::getValue
                 ));
 
         allTables.values().removeIf(List::isEmpty);
@@ -323,4 +429,9 @@ public class ReportGenerator {
     private static String getReportFilename(String authName) {
         return ReportConsts.REPORT_FILENAME_PREFIX + authName + GenConsts.PDF_FILE_EXTENSION;
     }
+
+    @FunctionalInterface
+    private interface ReportPrinter<V> {
+        void print(String authId, V tables) throws Exception;
+    }
 }
@@ -24,17 +24,30 @@ import java.nio.file.Path;
 import java.time.Instant;
 import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
+import java.util.Collections;
 import java.util.Locale;
 import java.util.Map;
 import java.util.function.Function;
 
+/**
+ * A view of a row for report templates, adding fields computed from the row.
+ *
+ * Wrapping copies nothing. The computed fields are only worked out when a
+ * template first reads them, and the result is kept for later reads.
+ */
 public class ReportUntypedSyncRow extends UntypedSyncRow {
+  private static final DateTimeFormatter PARSED_DATE_FORMATTER =
+      DateTimeFormatter.RFC_1123_DATE_TIME.withZone(ZoneOffset.UTC);
+
+  // compared by reference, a parsed date can be null
+  private static final String NOT_PARSED = new String();
+
   private final UntypedSyncRow row;
   private final String tableId;
   private final Path dataPath;
 
-  private final Function<String, String> attachment;
-  private final String parsed_date_created;
+  private Function<String, String> attachment;
+  private volatile String parsed_date_created = NOT_PARSED;
 
   public UntypedSyncRow getRow() {
     return row;
@@ -49,20 +62,32 @@ public class ReportUntypedSyncRow extends UntypedSyncRow {
   }
 
   public Function<String, String> getAttachment() {
+    if (attachment == null) {
+      attachment = this::attachment;
+    }
+
     return attachment;
   }
 
   public String getParsed_date_created() {
-    return parsed_date_created;
+    String parsed = parsed_date_created;
+
+    if (parsed == NOT_PARSED) {
+      Long timestamp = TableConstants.milliSecondsFromNanos(getColumns().get(MobileDbConsts.DATE_CREATED_COLUMN), Locale.ROOT);
+      parsed = timestamp != null ? PARSED_DATE_FORMATTER.format(Instant.ofEpochMilli(timestamp)) : null;
+      parsed_date_created = parsed;
+    }
+
+    return parsed;
   }
 
   public ReportUntypedSyncRow(UntypedSyncRow row, String tableId, Path dataPath) {
+    // every column is read from the wrapped row
+    super(Collections.emptyMap());
+
     this.row = row;
     this.tableId = tableId;
     this.dataPath = dataPath;
-    this.attachment = this::attachment;
-    Long timestamp = TableConstants.milliSecondsFromNanos(getColumns().get(MobileDbConsts.DATE_CREATED_COLUMN), Locale.ROOT);
-    this.parsed_date_created = timestamp != null ? Instant.ofEpochMilli(timestamp).atZone(ZoneOffset.UTC).format(DateTimeFormatter.RFC_1123_DATE_TIME) : null;
   }
 
   @Override
@@ -24,9 +24,15 @@ public class ServerConsts {
     public static final int PUSH_FINISH_WAIT = 5000;
 
     public static final int MAX_BATCH_SIZE = 500;
+    // every batch carries the table's current dataETag, which changes once a
+    // batch is applied, so batches of one table cannot overlap
+    public static final int MAX_BATCHES_IN_FLIGHT = 1;
+    public static final int UPLOAD_WORKERS = 2;
+    public static final int DOWNLOAD_WORKERS = 2;
 
     public static final String FILES_KEY = "files";
     public static final String FILENAME_KEY = "filename";
+    public static final String MD5_HASH_KEY = "md5hash";
     public static final String TABLE = "table";
     public static final String ETAG = "etag";
     public static final String SYNC_PROTOCOL_VERSION = "2";
@@ -37,7 +43,11 @@ public class ServerConsts {
     public static final String DELETE_OP = "DELETE";
     public static final String OP_STR = "operation";
 
-    public static final String WRITER_ROW_ID = "row Id:";
-    public static final String WRITER_HAD_OUTCOME = "had outcome";
-    public static final String DEFAULT_OUTCOME_FILE_NAME = "outcomeFile.txt";
+    public static final String DEFAULT_OUTCOME_FILE_NAME = "outcomeFile.csv";
+    public static final int OUTCOME_LOG_FLUSH_INTERVAL = 5000;
+    public static final String LEGACY_OUTCOME_FILE_SUFFIX = ".old";
+    public static final String ROW_ETAG_INDEX_SUFFIX = ".rowETagIndex";
+    public static final String TEMP_FILE_SUFFIX = ".tmp";
+    public static final String UPLOAD_MANIFEST_FILE_NAME = ".uploadManifest";
+    public static final String ROW_FETCH_LIMIT = "1000";
     }
@@ -14,6 +14,7 @@
 
 package edu.uw.cse.ifrcdemo.sharedlib.generator;
 
+import edu.uw.cse.ifrcdemo.translations.LogStr;
 import edu.uw.cse.ifrcdemo.translations.TranslationConsts;
 import edu.uw.cse.ifrcdemo.translations.TranslationUtil;
 import java.awt.image.BufferedImage;
@@ -22,18 +23,40 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.ResourceBundle;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 import org.apache.avalon.framework.configuration.Configuration;
 import org.apache.avalon.framework.configuration.ConfigurationException;
 import org.apache.avalon.framework.configuration.DefaultConfigurationBuilder;
 import org.krysalis.barcode4j.BarcodeException;
 import org.krysalis.barcode4j.BarcodeUtil;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.message.FormattedMessage;
 import org.krysalis.barcode4j.output.bitmap.BitmapCanvasProvider;
 import org.xml.sax.SAXException;
 
+/**
+ * Renders the barcodes configured in {@link BarcodeGeneratorConst#CONFIG_XML}.
+ *
+ * Rendered barcodes are kept in an LRU cache keyed by everything that
+ * affects the output, so a value printed again, e.g. on a reprinted voucher
+ * sheet, is not encoded a second time. The symbology is fixed by the
+ * configuration and therefore not part of the key.
+ */
 public class BarcodeGeneratorSingleton {
+    private static final int CACHE_SIZE = 1024;
+
+    private static final Logger logger = LogManager.getLogger(BarcodeGeneratorSingleton.class);
 
     private final org.krysalis.barcode4j.BarcodeGenerator generator;
+    private final Map<BarcodeKey, String> cache;
 
     private static final BarcodeGeneratorSingleton instance = new BarcodeGeneratorSingleton();
 
@@ -47,7 +70,7 @@ public class BarcodeGeneratorSingleton {
         try {
             config = buildConfig();
         } catch (IOException | SAXException | ConfigurationException e) {
-            e.printStackTrace();
+            logger.error(LogStr.LOG_FAILED_TO_PARSE_BARCODE_CONFIGURATION, e);
 
             throw new IllegalStateException(translations.getString(TranslationConsts.FAILED_TO_PARSE_XML_CONFIGURATION_ERROR));
         }
@@ -55,10 +78,17 @@ public class BarcodeGeneratorSingleton {
         try {
             this.generator = BarcodeUtil.getInstance().createBarcodeGenerator(config);
         } catch (ConfigurationException | BarcodeException e) {
-            e.printStackTrace();
+            logger.error(LogStr.LOG_FAILED_TO_CREATE_BARCODE_GENERATOR, e);
 
             throw new IllegalStateException(translations.getString(TranslationConsts.FAILED_TO_CREATE_BARCODE_GENERATOR_ERROR));
         }
+
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<BarcodeKey, String>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<BarcodeKey, String> eldest) {
+                return size() > CACHE_SIZE;
+            }
+        });
     }
 
     private Configuration buildConfig() throws SAXException, IOException, ConfigurationException {
@@ -76,6 +106,44 @@ public class BarcodeGeneratorSingleton {
             int resolution,
             boolean antiAlias,
             int orientation) {
+        BarcodeKey key = new BarcodeKey(message, imgMineType, resolution, antiAlias, orientation);
+
+        return getInstance().getCached(key, () -> renderBitmap(message, imgMineType, resolution, antiAlias, orientation));
+    }
+
+    /**
+     * Renders the default bitmap barcode of every message in parallel. The
+     * result is in the order of messages.
+     */
+    public static List<String> generateBase64Barcodes(List<String> messages) {
+        return messages
+            .parallelStream()
+            .map(BarcodeGeneratorSingleton::generateBase64Barcode)
+            .collect(Collectors.toList());
+    }
+
+    private String getCached(BarcodeKey key, Supplier<String> renderer) {
+        String barcode = cache.get(key);
+
+        if (barcode == null) {
+            barcode = renderer.get();
+
+            // failures are not cached
+            if (barcode != null) {
+                cache.put(key, barcode);
+            }
+        }
+
+        return barcode;
+    }
+
+    // package-private so that tests can compare against an uncached render
+    static String renderBitmap(
+            String message,
+            String imgMineType,
+            int resolution,
+            boolean antiAlias,
+            int orientation) {
         try(ByteArrayOutputStream stream = new ByteArrayOutputStream();
             OutputStream base64Stream = Base64.getEncoder().wrap(stream)) {
             BitmapCanvasProvider canvas = new BitmapCanvasProvider(
@@ -91,8 +159,42 @@ public class BarcodeGeneratorSingleton {
 
             return stream.toString(StandardCharsets.US_ASCII.name());
         } catch (IOException e) {
-            e.printStackTrace();
+            logger.error(new FormattedMessage(LogStr.LOG_FAILED_TO_RENDER_BARCODE_FOR, message), e);
             return null;
         }
     }
+
+    private static class BarcodeKey {
+        private final String message;
+        private final String mimeType;
+        private final int resolution;
+        private final boolean antiAlias;
+        private final int orientation;
+
+        private BarcodeKey(String message, String mimeType, int resolution, boolean antiAlias, int orientation) {
+            this.message = message;
+            this.mimeType = mimeType;
+            this.resolution = resolution;
+            this.antiAlias = antiAlias;
+            this.orientation = orientation;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            BarcodeKey that = (BarcodeKey) o;
+            return resolution == that.resolution &&
+                antiAlias == that.antiAlias &&
+                orientation == that.orientation &&
+                Objects.equals(message, that.message) &&
+                Objects.equals(mimeType, that.mimeType);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(message, mimeType, resolution, antiAlias, orientation);
+        }
+    }
 }
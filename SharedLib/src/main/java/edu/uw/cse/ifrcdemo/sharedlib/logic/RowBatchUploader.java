@@ -0,0 +1,266 @@
+/*
+ * Copyright (c) 2016-2022 University of Washington
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *  Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *  Neither the name of the University of Washington nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE UNIVERSITY OF WASHINGTON AND CONTRIBUTORS “AS IS” AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE UNIVERSITY OF WASHINGTON OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+
+package edu.uw.cse.ifrcdemo.sharedlib.logic;
+
+import edu.uw.cse.ifrcdemo.sharedlib.consts.ServerConsts;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import org.apache.wink.json4j.JSONException;
+import org.opendatakit.aggregate.odktables.rest.TableConstants;
+import org.opendatakit.aggregate.odktables.rest.entity.Row;
+import org.opendatakit.aggregate.odktables.rest.entity.RowOutcome;
+import org.opendatakit.aggregate.odktables.rest.entity.RowOutcome.OutcomeType;
+import org.opendatakit.aggregate.odktables.rest.entity.RowOutcomeList;
+
+/**
+ * Streams rows into per-operation batches and keeps a bounded number of
+ * batch requests in flight.
+ *
+ * Batches are independent unless they share a rowId, in which case the later
+ * batch is only sent once the earlier one has completed. This preserves the
+ * order of the CSV for rows that are, e.g., deleted and then re-inserted.
+ *
+ * Batches go out in the order their operations appear in the CSV, not
+ * grouped as NEW, DELETE, UPDATE and then FORCE_UPDATE. The server applies
+ * each row on its own, so only the order of operations on the same rowId
+ * matters, and that follows the CSV.
+ *
+ * A sender that pushes to a single table through the sync client must use a
+ * maxInFlight of 1. Each batch is checked against the table's current
+ * dataETag, so overlapping batches would reject each other.
+ */
+public class RowBatchUploader implements AutoCloseable {
+
+    @FunctionalInterface
+    public interface RowBatchSender {
+        RowOutcomeList send(String tableId, ArrayList<Row> rows) throws IOException, JSONException;
+    }
+
+    @FunctionalInterface
+    public interface OutcomeHandler {
+        void handle(String operation, List<RowOutcome> outcomes) throws IOException;
+    }
+
+    private final RowBatchSender sender;
+    private final OutcomeHandler outcomeHandler;
+    private final String tableId;
+    private final int batchSize;
+
+    private final ExecutorService executor;
+    private final Semaphore inFlight;
+
+    // only touched by the thread calling add/finish
+    private final Map<String, ArrayList<Row>> pendingBatches = new LinkedHashMap<>();
+    private final Map<String, Set<CompletableFuture<Void>>> pendingDependencies = new LinkedHashMap<>();
+    private final Map<String, String> pendingRowOps = new HashMap<>();
+    private final List<CompletableFuture<Void>> submittedBatches = new ArrayList<>();
+
+    // rowId -> the most recent batch containing that row, cleared once the batch completes
+    private final Map<String, CompletableFuture<Void>> inFlightRows = new ConcurrentHashMap<>();
+
+    private final AtomicInteger rowsSent = new AtomicInteger();
+    private IntConsumer progressListener = count -> {};
+
+    public RowBatchUploader(RowBatchSender sender, OutcomeHandler outcomeHandler, String tableId) {
+        this(sender, outcomeHandler, tableId, ServerConsts.MAX_BATCH_SIZE, ServerConsts.MAX_BATCHES_IN_FLIGHT);
+    }
+
+    public RowBatchUploader(RowBatchSender sender, OutcomeHandler outcomeHandler, String tableId,
+                            int batchSize, int maxInFlight) {
+        if (batchSize < 1 || maxInFlight < 1) {
+            throw new IllegalArgumentException("batchSize and maxInFlight must be positive");
+        }
+
+        this.sender = sender;
+        this.outcomeHandler = outcomeHandler;
+        this.tableId = tableId;
+        this.batchSize = batchSize;
+
+        this.executor = Executors.newFixedThreadPool(maxInFlight);
+        this.inFlight = new Semaphore(maxInFlight);
+    }
+
+    public void setProgressListener(IntConsumer progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    public int getRowsSent() {
+        return rowsSent.get();
+    }
+
+    /**
+     * Queues a row for upload. Blocks when the maximum number of batches are
+     * already in flight.
+     */
+    public void add(String operation, Row row) throws InterruptedException {
+        String rowId = row.getRowId();
+
+        if (rowId != null) {
+            String pendingOp = pendingRowOps.get(rowId);
+            if (pendingOp != null && !pendingOp.equals(operation)) {
+                // the earlier operation on this row has to go out first
+                flush(pendingOp);
+            }
+
+            CompletableFuture<Void> previousBatch = inFlightRows.get(rowId);
+            if (previousBatch != null && !previousBatch.isDone()) {
+                pendingDependencies.computeIfAbsent(operation, op -> new HashSet<>()).add(previousBatch);
+            }
+
+            pendingRowOps.put(rowId, operation);
+        }
+
+        ArrayList<Row> batch = pendingBatches.computeIfAbsent(operation, op -> new ArrayList<>(batchSize));
+        batch.add(row);
+
+        if (batch.size() >= batchSize) {
+            flush(operation);
+        }
+    }
+
+    /**
+     * Sends all partially filled batches and waits for every batch to complete.
+     */
+    public void finish() throws IOException, JSONException, InterruptedException {
+        for (String operation : new ArrayList<>(pendingBatches.keySet())) {
+            flush(operation);
+        }
+
+        try {
+            CompletableFuture.allOf(submittedBatches.toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof JSONException) {
+                throw (JSONException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private void flush(String operation) throws InterruptedException {
+        ArrayList<Row> rows = pendingBatches.remove(operation);
+        Set<CompletableFuture<Void>> dependencies = pendingDependencies.remove(operation);
+
+        if (rows == null || rows.isEmpty()) {
+            return;
+        }
+
+        inFlight.acquire();
+
+        CompletableFuture<Void> prerequisite = dependencies == null
+            ? CompletableFuture.completedFuture(null)
+            : CompletableFuture.allOf(dependencies.toArray(new CompletableFuture<?>[0]));
+
+        CompletableFuture<Void> batchFuture = prerequisite
+            .thenRunAsync(() -> sendBatch(operation, rows), executor);
+
+        for (Row row : rows) {
+            if (row.getRowId() != null) {
+                pendingRowOps.remove(row.getRowId());
+                inFlightRows.put(row.getRowId(), batchFuture);
+            }
+        }
+
+        batchFuture.whenComplete((result, throwable) -> {
+            inFlight.release();
+            for (Row row : rows) {
+                if (row.getRowId() != null) {
+                    inFlightRows.remove(row.getRowId(), batchFuture);
+                }
+            }
+        });
+
+        submittedBatches.add(batchFuture);
+    }
+
+    private void sendBatch(String operation, ArrayList<Row> rows) {
+        try {
+            List<RowOutcome> outcomes = send(rows);
+
+            if (operation.equals(ServerConsts.FORCE_UPDATE_OP)) {
+                outcomes = retryForceUpdate(outcomes);
+            }
+
+            if (!outcomes.isEmpty()) {
+                outcomeHandler.handle(operation, outcomes);
+            }
+        } catch (IOException | JSONException e) {
+            throw new CompletionException(e);
+        }
+
+        progressListener.accept(rowsSent.addAndGet(rows.size()));
+    }
+
+    private List<RowOutcome> retryForceUpdate(List<RowOutcome> outcomes) throws IOException, JSONException {
+        // Re-run processing on any row that is not successful
+        // using the rowETag returned by the server
+        ArrayList<Row> retryRows = new ArrayList<>();
+        List<RowOutcome> finalOutcomes = new ArrayList<>(outcomes.size());
+
+        for (RowOutcome outcome : outcomes) {
+            if (outcome.getOutcome() != OutcomeType.SUCCESS) {
+                String savepointTimestamp =
+                    TableConstants.nanoSecondsFromMillis(System.currentTimeMillis(), Locale.ROOT);
+                retryRows.add(Row.forUpdate(outcome.getRowId(), outcome.getRowETag(), outcome.getFormId(),
+                    outcome.getLocale(), outcome.getSavepointType(), savepointTimestamp,
+                    outcome.getSavepointCreator(), outcome.getRowFilterScope(), outcome.getValues()));
+            } else {
+                finalOutcomes.add(outcome);
+            }
+        }
+
+        if (retryRows.isEmpty()) {
+            return outcomes;
+        }
+
+        finalOutcomes.addAll(send(retryRows));
+        return finalOutcomes;
+    }
+
+    private List<RowOutcome> send(ArrayList<Row> rows) throws IOException, JSONException {
+        RowOutcomeList rowOutcomeList = sender.send(tableId, rows);
+
+        if (rowOutcomeList == null || rowOutcomeList.getRows() == null) {
+            return Collections.emptyList();
+        }
+
+        return rowOutcomeList.getRows();
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2016-2022 University of Washington
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *  Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *  Neither the name of the University of Washington nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE UNIVERSITY OF WASHINGTON AND CONTRIBUTORS “AS IS” AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE UNIVERSITY OF WASHINGTON OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+
+package edu.uw.cse.ifrcdemo.sharedlib.logic;
+
+import edu.uw.cse.ifrcdemo.sharedlib.consts.GenConsts;
+import edu.uw.cse.ifrcdemo.sharedlib.consts.ServerConsts;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import org.apache.wink.json4j.JSONArray;
+import org.apache.wink.json4j.JSONException;
+import org.apache.wink.json4j.JSONObject;
+import org.opendatakit.sync.client.SyncClient;
+
+/**
+ * A persisted rowId to rowETag map for a single table.
+ *
+ * The index remembers the dataETag of the last refresh so that subsequent
+ * refreshes only need to fetch the rows changed since then. The index is
+ * discarded whenever the server, the app or the table's schemaETag changes.
+ */
+public class RowETagIndex {
+    private static final String SEPARATOR = "\t";
+
+    @FunctionalInterface
+    public interface RowPageSource {
+        JSONObject getPage(String dataETag, String cursor) throws IOException, JSONException;
+    }
+
+    private final Path path;
+    private final String serverUrl;
+    private final String appId;
+    private final String schemaETag;
+    private final Map<String, String> rowETags;
+    private String dataETag;
+
+    private RowETagIndex(Path path, String serverUrl, String appId, String schemaETag) {
+        this.path = path;
+        this.serverUrl = serverUrl;
+        this.appId = appId;
+        this.schemaETag = schemaETag;
+        this.rowETags = new HashMap<>();
+    }
+
+    public static Path getIndexPath(Path directory, String tableId) {
+        return directory.resolve(tableId + ServerConsts.ROW_ETAG_INDEX_SUFFIX);
+    }
+
+    /**
+     * Loads the index at path, or returns an empty index if the file does not
+     * exist or was built for a different server, app or schemaETag.
+     */
+    public static RowETagIndex load(Path path, String serverUrl, String appId, String schemaETag)
+        throws IOException {
+        RowETagIndex index = new RowETagIndex(path, serverUrl, appId, schemaETag);
+
+        if (!Files.exists(path)) {
+            return index;
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String headerLine = reader.readLine();
+            String[] header = headerLine != null ? headerLine.split(SEPARATOR, -1) : null;
+            if (header == null || header.length != 4 || !Objects.equals(header[0], serverUrl) ||
+                !Objects.equals(header[1], appId) || !Objects.equals(header[2], nullToEmpty(schemaETag))) {
+                return index;
+            }
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] entry = splitLine(line);
+                if (entry != null && entry[1] != null) {
+                    index.rowETags.put(entry[0], entry[1]);
+                }
+            }
+
+            index.dataETag = header[3].isEmpty() ? null : header[3];
+        }
+
+        return index;
+    }
+
+    /**
+     * Brings the index up to date with the server.
+     *
+     * @param allRows fetches every row of the table, used when the index is empty
+     * @param changedRows fetches the rows changed since a dataETag
+     */
+    public void refresh(RowPageSource allRows, RowPageSource changedRows) throws IOException, JSONException {
+        if (dataETag != null) {
+            try {
+                readPages(changedRows);
+                return;
+            } catch (IOException | JSONException | RuntimeException e) {
+                // the server may no longer know our dataETag, rebuild from scratch
+                dataETag = null;
+            }
+        }
+
+        rowETags.clear();
+        readPages(allRows);
+    }
+
+    public String getRowETag(String rowId) {
+        return rowId != null ? rowETags.get(rowId) : null;
+    }
+
+    public String getDataETag() {
+        return dataETag;
+    }
+
+    public int size() {
+        return rowETags.size();
+    }
+
+    public void save() throws IOException {
+        Files.createDirectories(path.toAbsolutePath().getParent());
+
+        Path tempPath = path.resolveSibling(path.getFileName() + ServerConsts.TEMP_FILE_SUFFIX);
+        try (BufferedWriter writer = Files.newBufferedWriter(tempPath, StandardCharsets.UTF_8)) {
+            writer.write(serverUrl + SEPARATOR + appId + SEPARATOR + nullToEmpty(schemaETag) + SEPARATOR +
+                nullToEmpty(dataETag));
+            writer.newLine();
+
+            for (Map.Entry<String, String> entry : rowETags.entrySet()) {
+                writer.write(entry.getKey() + SEPARATOR + entry.getValue());
+                writer.newLine();
+            }
+        }
+
+        Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private void readPages(RowPageSource source) throws IOException, JSONException {
+        String startingDataETag = dataETag;
+        String latestDataETag = null;
+        String cursor = null;
+        JSONObject page;
+
+        do {
+            page = source.getPage(startingDataETag, cursor);
+            cursor = page.optString(SyncClient.WEB_SAFE_RESUME_CURSOR_JSON);
+
+            JSONArray rows = page.getJSONArray(SyncClient.ROWS_STR_JSON);
+            for (int i = 0; i < rows.size(); i++) {
+                applyRow(rows.getJSONObject(i));
+            }
+
+            if (page.has(SyncClient.DATA_ETAG_JSON) && !page.isNull(SyncClient.DATA_ETAG_JSON)) {
+                latestDataETag = page.getString(SyncClient.DATA_ETAG_JSON);
+            }
+        } while (page.getBoolean(SyncClient.HAS_MORE_RESULTS_JSON));
+
+        dataETag = latestDataETag != null ? latestDataETag : startingDataETag;
+    }
+
+    private void applyRow(JSONObject rowObj) throws JSONException {
+        String rowId = getStringOrNull(rowObj, SyncClient.ID_JSON);
+        if (rowId == null) {
+            return;
+        }
+
+        boolean deleted = rowObj.has(SyncClient.DELETED_JSON) && !rowObj.isNull(SyncClient.DELETED_JSON)
+            && rowObj.getBoolean(SyncClient.DELETED_JSON);
+        String rowETag = getStringOrNull(rowObj, SyncClient.ROW_ETAG_JSON);
+
+        if (deleted || rowETag == null) {
+            rowETags.remove(rowId);
+        } else {
+            rowETags.put(rowId, rowETag);
+        }
+    }
+
+    private static String getStringOrNull(JSONObject obj, String key) throws JSONException {
+        return obj.has(key) && !obj.isNull(key) ? obj.getString(key) : null;
+    }
+
+    private static String[] splitLine(String line) {
+        if (line == null) {
+            return null;
+        }
+
+        int separatorIdx = line.indexOf(SEPARATOR);
+        if (separatorIdx < 0) {
+            return null;
+        }
+
+        String value = line.substring(separatorIdx + 1);
+        return new String[] {
+            line.substring(0, separatorIdx),
+            value.isEmpty() ? null : value
+        };
+    }
+
+    private static String nullToEmpty(String str) {
+        return str != null ? str : GenConsts.EMPTY_STRING;
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2016-2022 University of Washington
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *  Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *  Neither the name of the University of Washington nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE UNIVERSITY OF WASHINGTON AND CONTRIBUTORS “AS IS” AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE UNIVERSITY OF WASHINGTON OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+
+package edu.uw.cse.ifrcdemo.sharedlib.logic;
+
+import edu.uw.cse.ifrcdemo.sharedlib.consts.ServerConsts;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.opendatakit.aggregate.odktables.rest.RFC4180CsvReader;
+import org.opendatakit.aggregate.odktables.rest.RFC4180CsvWriter;
+import org.opendatakit.aggregate.odktables.rest.entity.RowOutcome;
+import org.opendatakit.aggregate.odktables.rest.entity.RowOutcome.OutcomeType;
+
+/**
+ * Records the outcome of every row pushed in an upload session as CSV
+ * (timestamp, tableId, rowId, operation, outcome).
+ *
+ * The file is opened once per session and flushed every
+ * {@link ServerConsts#OUTCOME_LOG_FLUSH_INTERVAL} rows and on close.
+ * An existing file without this header, e.g. one written in the old
+ * free text format, is moved aside and a new file is started.
+ */
+public class RowOutcomeLog implements Closeable {
+    private static final Logger logger = LogManager.getLogger(RowOutcomeLog.class);
+
+    static final String[] HEADER = { "timestamp", "tableId", "rowId", "operation", "outcome" };
+
+    private final String tableId;
+    private final RFC4180CsvWriter writer;
+    private final Map<OutcomeType, Integer> summary = new EnumMap<>(OutcomeType.class);
+    private int unflushedRows;
+
+    public RowOutcomeLog(Path path, String tableId) throws IOException {
+        this.tableId = tableId;
+
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+
+        if (Files.exists(path) && Files.size(path) > 0 && !hasHeader(path)) {
+            moveAside(path);
+        }
+
+        boolean needsHeader = !Files.exists(path) || Files.size(path) == 0;
+        this.writer = new RFC4180CsvWriter(Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND));
+
+        if (needsHeader) {
+            writer.writeNext(HEADER);
+        }
+    }
+
+    public synchronized void record(String operation, List<RowOutcome> outcomes) throws IOException {
+        String timestamp = Instant.now().toString();
+        String[] line = new String[HEADER.length];
+        line[0] = timestamp;
+        line[1] = tableId;
+        line[3] = operation;
+
+        for (RowOutcome outcome : outcomes) {
+            line[2] = outcome.getRowId();
+            line[4] = String.valueOf(outcome.getOutcome());
+            writer.writeNext(line);
+
+            summary.merge(outcome.getOutcome(), 1, Integer::sum);
+        }
+
+        unflushedRows += outcomes.size();
+        if (unflushedRows >= ServerConsts.OUTCOME_LOG_FLUSH_INTERVAL) {
+            writer.flush();
+            unflushedRows = 0;
+        }
+    }
+
+    /**
+     * @return number of rows recorded so far for each outcome type
+     */
+    public synchronized Map<OutcomeType, Integer> getSummary() {
+        return Collections.unmodifiableMap(new EnumMap<>(summary));
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+        logger.info("Row outcomes for {}: {}", tableId, summary);
+    }
+
+    private static boolean hasHeader(Path path) throws IOException {
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            return Arrays.equals(HEADER, new RFC4180CsvReader(reader).readNext());
+        }
+    }
+
+    private static void moveAside(Path path) throws IOException {
+        Path legacyPath = path.resolveSibling(path.getFileName() + ServerConsts.LEGACY_OUTCOME_FILE_SUFFIX);
+        for (int i = 1; Files.exists(legacyPath); i++) {
+            legacyPath = path.resolveSibling(path.getFileName() + ServerConsts.LEGACY_OUTCOME_FILE_SUFFIX + i);
+        }
+
+        Files.move(path, legacyPath);
+        logger.info("Moved outcome file in an older format to {}", legacyPath);
+    }
+}
@@ -20,23 +20,20 @@ import edu.uw.cse.ifrcdemo.translations.TranslationConsts;
 import edu.uw.cse.ifrcdemo.translations.TranslationUtil;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.net.URL;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
 import java.util.ResourceBundle;
-import java.util.SortedMap;
-import java.util.TreeMap;
 import java.util.concurrent.ExecutionException;
 import java.util.zip.DataFormatException;
-import org.apache.http.client.ClientProtocolException;
-import org.apache.wink.json4j.JSONArray;
 import org.apache.wink.json4j.JSONException;
 import org.apache.wink.json4j.JSONObject;
 import org.opendatakit.aggregate.odktables.rest.RFC4180CsvReader;
@@ -45,7 +42,6 @@ import org.opendatakit.aggregate.odktables.rest.TableConstants;
 import org.opendatakit.aggregate.odktables.rest.entity.DataKeyValue;
 import org.opendatakit.aggregate.odktables.rest.entity.Row;
 import org.opendatakit.aggregate.odktables.rest.entity.RowFilterScope;
-import org.opendatakit.aggregate.odktables.rest.entity.RowOutcome;
 import org.opendatakit.aggregate.odktables.rest.entity.RowOutcome.OutcomeType;
 import org.opendatakit.aggregate.odktables.rest.entity.RowOutcomeList;
 import org.opendatakit.suitcase.model.CloudEndpointInfo;
@@ -65,6 +61,10 @@ public class UpdateTask extends SuitcaseSwingWorker<Void> {
     private String version;
     private String tableId;
     private boolean isGUI;
+    // rows and batches go through a client of this task, so that tables can
+    // be pushed in parallel without sharing SyncWrapper's HttpClientContext
+    private SyncClient syncClient;
+    private Map<OutcomeType, Integer> outcomeSummary = Collections.emptyMap();
 
     private Map<String, Integer> colToIdx = new HashMap<String, Integer>();
     private static ArrayList<String> metadataColumns = new ArrayList<String>();
@@ -196,6 +196,14 @@ public class UpdateTask extends SuitcaseSwingWorker<Void> {
 
     @Override
     protected Void doInBackground() throws IOException, JSONException, InterruptedException {
+        try {
+            return pushRows();
+        } finally {
+            closeSyncClient();
+        }
+    }
+
+    private Void pushRows() throws IOException, JSONException, InterruptedException {
         ResourceBundle translations = TranslationUtil.getTranslations();
         setString(translations.getString(TranslationConsts.UPDATE_IN_PROGRESS_MSG));
 
@@ -203,7 +211,7 @@ public class UpdateTask extends SuitcaseSwingWorker<Void> {
 
         // We always want to update the table list as
         // things could have changed during the update
-        syncWrapper.updateTableList();
+        updateTableList(syncWrapper);
 
         // If tableId is not passed in then do nothing
         if (tableId == null) {
@@ -285,291 +293,218 @@ public class UpdateTask extends SuitcaseSwingWorker<Void> {
         rowGroupModify = firstLine[rowGroupModifyIdx];
         rowGroupPrivileged = firstLine[rowGroupPrivilegedIdx];
 
-        // Get the current rows in the table
-        // in order to pull the rowETags
-        SortedMap<String, String> rowIdToRowETag = new TreeMap<>();
-        JSONObject rows;
-        String cursor = null;
-        JSONArray rowResArray = new JSONArray();
-        do {
-            rows = syncWrapper.getRows(tableId, cursor);
-            cursor = rows.optString(SyncClient.WEB_SAFE_RESUME_CURSOR_JSON);
-            JSONArray rowsArray = rows.getJSONArray(SyncClient.ROWS_STR_JSON);
-            rowResArray.addAll(rowsArray);
-        } while (rows.getBoolean(SyncClient.HAS_MORE_RESULTS_JSON));
-
-        setupRowIdToRowETagMap(rowIdToRowETag, rowResArray);
-
-        String[] lineIn;
-        ArrayList<Row> newRowArrayList = new ArrayList<Row>();
-        ArrayList<Row> deletedRowArrayList = new ArrayList<Row>();
-        ArrayList<Row> updatedRowArrayList = new ArrayList<Row>();
-        ArrayList<Row> forceUpdatedRowArrayList = new ArrayList<Row>();
-        while ((lineIn = csvReader.readNext()) != null) {
-
-            operation = lineIn[opIdx];
-            rowId = lineIn[rowIdIdx];
-            rowFormId = lineIn[rowFormIdIdx];
-            rowLocale = lineIn[rowLocaleIdx];
-            rowSavepointType = lineIn[rowSavepointTypeIdx];
-            rowSavepointTimestamp = lineIn[rowSavepointTimestampIdx];
-            rowSavepointCreator = lineIn[rowSavepointCreatorIdx];
-            rowETag = lineIn[rowETagIdx];
-            rowDefaultAccess = lineIn[rowDefaultAccessIdx];
-            rowOwner = lineIn[rowOwnerIdx];
-            rowGroupReadOnly = lineIn[rowGroupReadOnlyIdx];
-            rowGroupModify = lineIn[rowGroupModifyIdx];
-            rowGroupPrivileged = lineIn[rowGroupPrivilegedIdx];
-
-            ArrayList<DataKeyValue> dkvl = new ArrayList<DataKeyValue>();
-            for (int i = 0; i < lineIn.length; i++) {
-                if (isDataColumn(firstLine[i])) {
-                    DataKeyValue dkv = new DataKeyValue(firstLine[i], lineIn[i]);
-                    dkvl.add(dkv);
-                }
-            }
-
-            String opToCompare = operation != null ? operation.toUpperCase() : GenConsts.EMPTY_STRING;
+        // Bring the local rowId -> rowETag index up to date,
+        // only fetching the rows changed since the last push
+        String schemaETag;
+        synchronized (syncWrapper) {
+            schemaETag = cloudEndpointInfo.tableIdExists(tableId) ? cloudEndpointInfo.getSchemaETag(tableId) : null;
+        }
+        if (schemaETag == null || schemaETag.isEmpty()) {
+            throw new IllegalArgumentException(translations.getString(TranslationConsts.TABLE_DOES_NOT_EXIST_ERROR));
+        }
 
-            String existingRowETag = rowId != null ? rowIdToRowETag.get(rowId) : null;
+        RowETagIndex rowETagIndex = RowETagIndex.load(getRowETagIndexPath(), cloudEndpointInfo.getServerUrl(),
+            cloudEndpointInfo.getAppId(), schemaETag);
+        rowETagIndex.refresh(
+            (dataETag, cursor) -> getSyncClient().getRows(cloudEndpointInfo.getServerUrl(),
+                cloudEndpointInfo.getAppId(), tableId, schemaETag, cursor, ServerConsts.ROW_FETCH_LIMIT),
+            (dataETag, cursor) -> getSyncClient().getAllDataChangesSince(cloudEndpointInfo.getServerUrl(),
+                cloudEndpointInfo.getAppId(), tableId, schemaETag, dataETag, cursor, ServerConsts.ROW_FETCH_LIMIT)
+        );
+        rowETagIndex.save();
 
-            // If the operation is an add, update, or force_update,
-            // we need to populate savepoint_creator,
-            // savepoint_timestamp, savepoint_type, and locale if
-            // the value is not supplied
-            if (opToCompare.equals(ServerConsts.FORCE_UPDATE_OP) || opToCompare.equals(ServerConsts.UPDATE_OP) ||
-                    opToCompare.equals(ServerConsts.NEW_OP)) {
+        String[] lineIn;
+        RowOutcomeLog outcomeLog = new RowOutcomeLog(Paths.get(outcomePath), tableId);
+        // one batch in flight, the next batch is built from the CSV while it is sent
+        RowBatchUploader uploader = new RowBatchUploader(
+            (table, rows) -> alterRows(schemaETag, rows),
+            outcomeLog::record,
+            tableId
+        );
+        long uploadStart = System.currentTimeMillis();
+        uploader.setProgressListener(rowsSent -> reportUploadProgress(translations, rowsSent, uploadStart));
 
-                if (rowSavepointCreator == null || rowSavepointCreator.length() == 0) {
-                    rowSavepointCreator = SuitcaseConst.ANONYMOUS_USER;
-                    String suppliedUserName = cloudEndpointInfo.getUserName();
-                    if (suppliedUserName != null && suppliedUserName.length() > 0) {
-                        String privilegedUserName = cloudEndpointInfo.getPrivilegedUserName();
-                        if (privilegedUserName != null && privilegedUserName.length() > 0) {
-                            rowSavepointCreator = cloudEndpointInfo.getPrivilegedUserName();
-                        }
+        try {
+            while ((lineIn = csvReader.readNext()) != null) {
+                operation = lineIn[opIdx];
+                rowId = lineIn[rowIdIdx];
+                rowFormId = lineIn[rowFormIdIdx];
+                rowLocale = lineIn[rowLocaleIdx];
+                rowSavepointType = lineIn[rowSavepointTypeIdx];
+                rowSavepointTimestamp = lineIn[rowSavepointTimestampIdx];
+                rowSavepointCreator = lineIn[rowSavepointCreatorIdx];
+                rowETag = lineIn[rowETagIdx];
+                rowDefaultAccess = lineIn[rowDefaultAccessIdx];
+                rowOwner = lineIn[rowOwnerIdx];
+                rowGroupReadOnly = lineIn[rowGroupReadOnlyIdx];
+                rowGroupModify = lineIn[rowGroupModifyIdx];
+                rowGroupPrivileged = lineIn[rowGroupPrivilegedIdx];
+
+                ArrayList<DataKeyValue> dkvl = new ArrayList<DataKeyValue>();
+                for (int i = 0; i < lineIn.length; i++) {
+                    if (isDataColumn(firstLine[i])) {
+                        DataKeyValue dkv = new DataKeyValue(firstLine[i], lineIn[i]);
+                        dkvl.add(dkv);
                     }
                 }
 
-                if (rowSavepointTimestamp == null || rowSavepointTimestamp.length() == 0) {
-                    rowSavepointTimestamp =
-                        TableConstants.nanoSecondsFromMillis(System.currentTimeMillis(), Locale.ROOT);
-                }
-
-                if (rowSavepointType == null || rowSavepointType.length() == 0) {
-                    rowSavepointType = SavepointTypeManipulator.complete();
-                }
-
-                if (rowLocale == null || rowLocale.length() == 0) {
-                    rowLocale = SuitcaseConst.DEFAULT_LOCALE;
-                }
-            }
-
-            switch (opToCompare) {
-                // Figure out what rows need to be force updated
-                case ServerConsts.FORCE_UPDATE_OP:
-                    Row forceUpdatedRow = Row.forUpdate(rowId, rowETag, rowFormId, rowLocale, rowSavepointType,
-                            rowSavepointTimestamp, rowSavepointCreator,
-                            RowFilterScope.asRowFilter(rowDefaultAccess, rowOwner, rowGroupReadOnly, rowGroupModify, rowGroupPrivileged), dkvl);
-                    if (existingRowETag != null) {
-                        forceUpdatedRow.setRowETag(existingRowETag);
-                    }
-                    forceUpdatedRowArrayList.add(forceUpdatedRow);
-                    break;
-
-                // Figure out what rows need to be updated
-                case ServerConsts.UPDATE_OP:
-                    Row updatedRow = Row.forUpdate(rowId, rowETag, rowFormId, rowLocale, rowSavepointType,
-                            rowSavepointTimestamp, rowSavepointCreator,
-                            RowFilterScope.asRowFilter(rowDefaultAccess, rowOwner, rowGroupReadOnly, rowGroupModify, rowGroupPrivileged), dkvl);
-                    if (existingRowETag != null) {
-                        updatedRow.setRowETag(existingRowETag);
-                    }
-                    updatedRowArrayList.add(updatedRow);
-                    break;
-
-                // Figure out what rows need to be added
-                case ServerConsts.NEW_OP:
-                    Row insertedRow = Row.forInsert(rowId, rowFormId, rowLocale, rowSavepointType,
-                            rowSavepointTimestamp, rowSavepointCreator,
-                            RowFilterScope.asRowFilter(rowDefaultAccess, rowOwner, rowGroupReadOnly, rowGroupModify, rowGroupPrivileged), dkvl);
-                    if (existingRowETag != null) {
-                        insertedRow.setRowETag(existingRowETag);
-                    }
-                    newRowArrayList.add(insertedRow);
-                    break;
-
-                // Figure out what rows need to be deleted
-                case ServerConsts.DELETE_OP:
-                    Row deletedRow = Row.forUpdate(rowId, rowETag, rowFormId, rowLocale, rowSavepointType,
-                            rowSavepointTimestamp, rowSavepointCreator,
-                            RowFilterScope.asRowFilter(rowDefaultAccess, rowOwner, rowGroupReadOnly, rowGroupModify, rowGroupPrivileged), dkvl);
-                    if (existingRowETag != null) {
-                        deletedRow.setRowETag(existingRowETag);
+                String opToCompare = operation != null ? operation.toUpperCase() : GenConsts.EMPTY_STRING;
+
+                String existingRowETag = rowETagIndex.getRowETag(rowId);
+
+                // If the operation is an add, update, or force_update,
+                // we need to populate savepoint_creator,
+                // savepoint_timestamp, savepoint_type, and locale if
+                // the value is not supplied
+                if (opToCompare.equals(ServerConsts.FORCE_UPDATE_OP) || opToCompare.equals(ServerConsts.UPDATE_OP) ||
+                        opToCompare.equals(ServerConsts.NEW_OP)) {
+
+                    if (rowSavepointCreator == null || rowSavepointCreator.length() == 0) {
+                        rowSavepointCreator = SuitcaseConst.ANONYMOUS_USER;
+                        String suppliedUserName = cloudEndpointInfo.getUserName();
+                        if (suppliedUserName != null && suppliedUserName.length() > 0) {
+                            String privilegedUserName = cloudEndpointInfo.getPrivilegedUserName();
+                            if (privilegedUserName != null && privilegedUserName.length() > 0) {
+                                rowSavepointCreator = cloudEndpointInfo.getPrivilegedUserName();
+                            }
+                        }
                     }
-                    deletedRow.setDeleted(true);
-                    deletedRowArrayList.add(deletedRow);
-                    break;
-
-                default:
-                    String msg = translations.getString(TranslationConsts.OPERATION_LABEL) + GenConsts.SPACE + operation + GenConsts.SPACE + translations.getString(TranslationConsts.IS_NOT_SUPPORTED);
-                    throw new IllegalArgumentException(msg);
-            }
-        }
-
-        // Get the schemaETag
-        // Get the dataETag
-        // Finally bulk upload the rows with the different collections
-        String schemaETag = null;
-        if (cloudEndpointInfo.tableIdExists(tableId)) {
-            schemaETag = cloudEndpointInfo.getSchemaETag(tableId);
-        }
-
-        // Used to handle row outcomes
-        ArrayList<RowOutcome> outcomeList = null;
 
-        // Handle the new rows
-        String dataETag = null;
-        if (newRowArrayList.size() > 0) {
-            dataETag = syncWrapper.getDataETag(tableId, schemaETag);
-            outcomeList = handleRowBatches(syncWrapper, dataPath, tableId, newRowArrayList);
-            if (outcomeList != null && outcomeList.size() > 0) {
-                handleRowOutcomeList(outcomeList);
-            }
-        }
-
-        // Handle the deleted rows
-        if (deletedRowArrayList.size() > 0) {
-            dataETag = syncWrapper.getDataETag(tableId, schemaETag);
-            outcomeList = handleRowBatches(syncWrapper, dataPath, tableId, deletedRowArrayList);
-            if (outcomeList != null && outcomeList.size() > 0) {
-                handleRowOutcomeList(outcomeList);
-            }
-        }
+                    if (rowSavepointTimestamp == null || rowSavepointTimestamp.length() == 0) {
+                        rowSavepointTimestamp =
+                            TableConstants.nanoSecondsFromMillis(System.currentTimeMillis(), Locale.ROOT);
+                    }
 
-        // Handle the updated rows
-        if (updatedRowArrayList.size() > 0) {
-            dataETag = syncWrapper.getDataETag(tableId, schemaETag);
-            outcomeList = handleRowBatches(syncWrapper, dataPath, tableId, updatedRowArrayList);
-            if (outcomeList != null && outcomeList.size() > 0) {
-                handleRowOutcomeList(outcomeList);
-            }
-        }
+                    if (rowSavepointType == null || rowSavepointType.length() == 0) {
+                        rowSavepointType = SavepointTypeManipulator.complete();
+                    }
 
-        // Handle the force-updated rows
-        if (forceUpdatedRowArrayList.size() > 0) {
-            dataETag = syncWrapper.getDataETag(tableId, schemaETag);
-            outcomeList = handleRowBatches(syncWrapper, dataPath, tableId, forceUpdatedRowArrayList);
-            if (outcomeList != null && outcomeList.size() > 0) {
-                // Re-run processing on any row that is not successful
-                ArrayList<Row> forceUpdatedRowArrayList2 = new ArrayList<Row>();
-                for (int i = 0; i < outcomeList.size(); i++) {
-                    RowOutcome outcome = outcomeList.get(i);
-                    String v_savepoint_timestamp =
-                        TableConstants.nanoSecondsFromMillis(System.currentTimeMillis(), Locale.ROOT);
-                    Row updatedRow = Row.forUpdate(outcome.getRowId(), outcome.getRowETag(), outcome.getFormId(),
-                            outcome.getLocale(), outcome.getSavepointType(), v_savepoint_timestamp,
-                            outcome.getSavepointCreator(), outcome.getRowFilterScope(), outcome.getValues());
-
-                    if (outcome.getOutcome() != OutcomeType.SUCCESS) {
-                        forceUpdatedRowArrayList2.add(updatedRow);
+                    if (rowLocale == null || rowLocale.length() == 0) {
+                        rowLocale = SuitcaseConst.DEFAULT_LOCALE;
                     }
                 }
 
-                if (forceUpdatedRowArrayList2.size() > 0) {
-                    dataETag = syncWrapper.getDataETag(tableId, schemaETag);
-                    outcomeList = handleRowBatches(syncWrapper, dataPath, tableId, forceUpdatedRowArrayList2);
-                }
+                switch (opToCompare) {
+                    // Figure out what rows need to be force updated
+                    case ServerConsts.FORCE_UPDATE_OP:
+                        Row forceUpdatedRow = Row.forUpdate(rowId, rowETag, rowFormId, rowLocale, rowSavepointType,
+                                rowSavepointTimestamp, rowSavepointCreator,
+                                RowFilterScope.asRowFilter(rowDefaultAccess, rowOwner, rowGroupReadOnly, rowGroupModify, rowGroupPrivileged), dkvl);
+                        if (existingRowETag != null) {
+                            forceUpdatedRow.setRowETag(existingRowETag);
+                        }
+                        uploader.add(ServerConsts.FORCE_UPDATE_OP, forceUpdatedRow);
+                        break;
+
+                    // Figure out what rows need to be updated
+                    case ServerConsts.UPDATE_OP:
+                        Row updatedRow = Row.forUpdate(rowId, rowETag, rowFormId, rowLocale, rowSavepointType,
+                                rowSavepointTimestamp, rowSavepointCreator,
+                                RowFilterScope.asRowFilter(rowDefaultAccess, rowOwner, rowGroupReadOnly, rowGroupModify, rowGroupPrivileged), dkvl);
+                        if (existingRowETag != null) {
+                            updatedRow.setRowETag(existingRowETag);
+                        }
+                        uploader.add(ServerConsts.UPDATE_OP, updatedRow);
+                        break;
+
+                    // Figure out what rows need to be added
+                    case ServerConsts.NEW_OP:
+                        Row insertedRow = Row.forInsert(rowId, rowFormId, rowLocale, rowSavepointType,
+                                rowSavepointTimestamp, rowSavepointCreator,
+                                RowFilterScope.asRowFilter(rowDefaultAccess, rowOwner, rowGroupReadOnly, rowGroupModify, rowGroupPrivileged), dkvl);
+                        if (existingRowETag != null) {
+                            insertedRow.setRowETag(existingRowETag);
+                        }
+                        uploader.add(ServerConsts.NEW_OP, insertedRow);
+                        break;
+
+                    // Figure out what rows need to be deleted
+                    case ServerConsts.DELETE_OP:
+                        Row deletedRow = Row.forUpdate(rowId, rowETag, rowFormId, rowLocale, rowSavepointType,
+                                rowSavepointTimestamp, rowSavepointCreator,
+                                RowFilterScope.asRowFilter(rowDefaultAccess, rowOwner, rowGroupReadOnly, rowGroupModify, rowGroupPrivileged), dkvl);
+                        if (existingRowETag != null) {
+                            deletedRow.setRowETag(existingRowETag);
+                        }
+                        deletedRow.setDeleted(true);
+                        uploader.add(ServerConsts.DELETE_OP, deletedRow);
+                        break;
 
-                // Then handleRowOutcomeList
-                handleRowOutcomeList(outcomeList);
+                    default:
+                        String msg = translations.getString(TranslationConsts.OPERATION_LABEL) + GenConsts.SPACE + operation + GenConsts.SPACE + translations.getString(TranslationConsts.IS_NOT_SUPPORTED);
+                        throw new IllegalArgumentException(msg);
+                }
             }
+
+            // Send the partially filled batches and wait for all outcomes
+            uploader.finish();
+        } finally {
+            uploader.close();
+            outcomeLog.close();
+            outcomeSummary = outcomeLog.getSummary();
+            csvReader.close();
         }
 
         Thread.sleep(ServerConsts.PUSH_FINISH_WAIT);
-        syncWrapper.updateTableList();
+        updateTableList(syncWrapper);
 
         return null;
     }
 
-    protected ArrayList<RowOutcome> handleRowBatches(SyncWrapper syncWrapper, String dataPath, String tableId,
-                                                     ArrayList<Row> rows) throws ClientProtocolException, IOException, JSONException {
+    private void reportUploadProgress(ResourceBundle translations, int rowsSent, long uploadStart) {
+        long elapsedMillis = Math.max(System.currentTimeMillis() - uploadStart, 1);
+        long rowsPerSecond = rowsSent * 1000L / elapsedMillis;
 
-        ArrayList<Row> batchedRows = new ArrayList<Row>();
-        RowOutcomeList rowOutcomeList = null;
-        ArrayList<RowOutcome> outcomes = new ArrayList<RowOutcome>();
-        int i = 0;
-        while (i < rows.size()) {
-            batchedRows.add(rows.get(i));
+        setString(String.format(translations.getString(TranslationConsts.UPDATE_PROGRESS_MSG), rowsSent, rowsPerSecond));
+    }
 
-            if (batchedRows.size() > ServerConsts.MAX_BATCH_SIZE) {
-                rowOutcomeList = syncWrapper.alterRowsUsingSingleBatch(tableId, batchedRows);
-                if (rowOutcomeList != null) {
-                    outcomes.addAll(rowOutcomeList.getRows());
-                }
+    /**
+     * @return number of rows pushed for each outcome type, available once the task is done
+     */
+    public Map<OutcomeType, Integer> getOutcomeSummary() {
+        return outcomeSummary;
+    }
 
-                batchedRows = new ArrayList<Row>();
-            }
-            i++;
-        }
+    private Path getRowETagIndexPath() {
+        return RowETagIndex.getIndexPath(Paths.get(outcomePath).toAbsolutePath().getParent(), tableId);
+    }
 
-        if (batchedRows.size() > 0) {
-            rowOutcomeList = syncWrapper.alterRowsUsingSingleBatch(tableId, batchedRows);
-            if (rowOutcomeList != null) {
-                outcomes.addAll(rowOutcomeList.getRows());
-            }
+    /**
+     * Same as SyncWrapper.alterRowsUsingSingleBatch, through the client of this task.
+     */
+    private RowOutcomeList alterRows(String schemaETag, ArrayList<Row> rows) throws IOException, JSONException {
+        SyncClient client = getSyncClient();
+        String dataETag = client.getTableDataETag(cloudEndpointInfo.getServerUrl(), cloudEndpointInfo.getAppId(),
+            tableId);
 
-        }
-        return outcomes;
+        return client.alterRowsUsingSingleBatch(cloudEndpointInfo.getServerUrl(), cloudEndpointInfo.getAppId(),
+            tableId, schemaETag, dataETag, rows);
     }
 
-    public void handleRowOutcomeList(ArrayList<RowOutcome> outcomes) throws IOException {
-        FileWriter fw = null;
-
-        try {
-            File outcomeFile = new File(outcomePath);
-            if (!outcomeFile.exists()) {
-                outcomeFile.getParentFile().mkdirs();
-                outcomeFile.createNewFile();
-            }
+    /**
+     * Other tasks may be pushing tables at the same time, the table list is
+     * the only request of this task that goes through the shared SyncWrapper.
+     */
+    private static void updateTableList(SyncWrapper syncWrapper) throws IOException, JSONException {
+        synchronized (syncWrapper) {
+            syncWrapper.updateTableList();
+        }
+    }
 
-            fw = new FileWriter(outcomeFile, true);
-            for (int i = 0; i < outcomes.size(); i++) {
-                RowOutcome outcome = outcomes.get(i);
-
-                Date currDate = new Date();
-                // Use RowOutcomeList to show the status of each row
-                // Eventually a database should be used to store the output
-                fw.write(currDate + ServerConsts.WRITER_ROW_ID + GenConsts.SPACE + outcome.getRowId() + GenConsts.SPACE + ServerConsts.WRITER_HAD_OUTCOME + GenConsts.SPACE
-                        + outcome.getOutcome());
-                fw.write(System.lineSeparator());
-                if (outcome.getOutcome() != OutcomeType.SUCCESS) {
-                    System.out.println(ServerConsts.WRITER_ROW_ID + GenConsts.SPACE + outcome.getRowId() + GenConsts.SPACE + ServerConsts.WRITER_HAD_OUTCOME + GenConsts.SPACE
-                            + outcome.getOutcome());
-                }
-            }
-        } finally {
-            if (fw != null) {
-                fw.close();
-            }
+    private synchronized SyncClient getSyncClient() throws IOException {
+        if (syncClient == null) {
+            syncClient = new SyncClient();
+            syncClient.init(new URL(cloudEndpointInfo.getHostUrl()).getHost(), cloudEndpointInfo.getUserName(),
+                cloudEndpointInfo.getPassword());
         }
+
+        return syncClient;
     }
 
-    public void setupRowIdToRowETagMap(SortedMap<String, String> idToETagMap, JSONArray rowsArray) {
-        try {
-            for (int i = 0; i < rowsArray.size(); i++) {
-                JSONObject rowObj = rowsArray.getJSONObject(i);
-                String rowId = rowObj.has(SyncClient.ID_JSON) && !rowObj.isNull(SyncClient.ID_JSON) ? rowObj
-                        .getString(SyncClient.ID_JSON) : null;
-                String rowETag = rowObj.has(SyncClient.ROW_ETAG_JSON)
-                        && !rowObj.isNull(SyncClient.ROW_ETAG_JSON) ? rowObj
-                        .getString(SyncClient.ROW_ETAG_JSON) : null;
-                if (rowId != null && rowETag != null) {
-                    idToETagMap.put(rowId, rowETag);
-                }
-            }
-        } catch (JSONException e) {
-            e.printStackTrace();
+    private synchronized void closeSyncClient() {
+        if (syncClient != null) {
+            syncClient.close();
+            syncClient = null;
         }
     }
 
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2016-2022 University of Washington
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *  Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *  Neither the name of the University of Washington nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE UNIVERSITY OF WASHINGTON AND CONTRIBUTORS “AS IS” AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE UNIVERSITY OF WASHINGTON OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+
+package edu.uw.cse.ifrcdemo.sharedlib.model.row;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Sorted column names of a table, shared by all compacted rows of that table.
+ * Each row stores its values in an array indexed by the column's ordinal.
+ */
+public final class ColumnSchema {
+  private final String[] names;
+  private final Map<String, Integer> ordinals;
+
+  public ColumnSchema(Collection<String> names) {
+    this.names = names.toArray(new String[0]);
+    Arrays.sort(this.names);
+
+    this.ordinals = new HashMap<>(this.names.length * 2);
+    for (int i = 0; i < this.names.length; i++) {
+      this.ordinals.put(this.names[i], i);
+    }
+  }
+
+  /**
+   * @return ordinal of the column, or -1 if the column is not in this schema
+   */
+  public int indexOf(Object name) {
+    Integer ordinal = ordinals.get(name);
+    return ordinal != null ? ordinal : -1;
+  }
+
+  public String getName(int ordinal) {
+    return names[ordinal];
+  }
+
+  public int size() {
+    return names.length;
+  }
+}
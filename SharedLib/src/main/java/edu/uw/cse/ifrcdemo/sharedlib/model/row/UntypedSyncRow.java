@@ -16,19 +16,38 @@ package edu.uw.cse.ifrcdemo.sharedlib.model.row;
 
 import com.fasterxml.jackson.annotation.JsonAnyGetter;
 import com.fasterxml.jackson.annotation.JsonAnySetter;
-import com.fasterxml.jackson.annotation.JsonUnwrapped;
 import edu.uw.cse.ifrcdemo.sharedlib.consts.GenConsts;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
 import java.util.TreeMap;
+import java.util.TreeSet;
 
 public class UntypedSyncRow extends BaseSyncRow {
-  @JsonAnySetter
-  @JsonUnwrapped
-  private final Map<String, String> columns;
+  // columns with more distinct values than this are not interned
+  private static final int MAX_INTERNED_VALUES_PER_COLUMN = 256;
+  private static final String[] NO_KEYS = new String[0];
+
+  // null until the row is compacted
+  private ColumnSchema schema;
+  private String[] values;
 
+  // every column before compaction, afterwards only columns that are
+  // outside the schema or hold null
+  private Map<String, String> columns;
+
+  /**
+   * @return the columns sorted by name. Compacted rows return a view over
+   * their shared schema and value array.
+   */
   @JsonAnyGetter
   public Map<String, String> getColumns() {
-    return columns;
+    return schema == null ? columns : new CompactColumns();
   }
 
   @JsonAnySetter
@@ -43,10 +62,230 @@ public class UntypedSyncRow extends BaseSyncRow {
     this.columns = new TreeMap<>();
   }
 
+  /**
+   * For subclasses that override {@link #getColumns()} and never read or
+   * write columns of their own.
+   */
+  protected UntypedSyncRow(Map<String, String> columns) {
+    this.columns = columns;
+  }
+
+  /**
+   * Moves the columns of rows read from the same table into a single shared
+   * {@link ColumnSchema}, one value array per row. Values of low cardinality
+   * columns are interned across the rows.
+   *
+   * Rows have to be compacted before they are shared between threads.
+   */
+  public static void compact(List<? extends UntypedSyncRow> rows) {
+    Set<String> names = new TreeSet<>();
+    for (UntypedSyncRow row : rows) {
+      if (row.schema == null) {
+        names.addAll(row.columns.keySet());
+      }
+    }
+
+    ColumnSchema schema = new ColumnSchema(names);
+    ValuePool[] pools = new ValuePool[schema.size()];
+    for (int i = 0; i < pools.length; i++) {
+      pools[i] = new ValuePool();
+    }
+
+    for (UntypedSyncRow row : rows) {
+      if (row.schema != null) {
+        continue;
+      }
+
+      String[] values = new String[schema.size()];
+      Map<String, String> nullColumns = null;
+
+      for (Map.Entry<String, String> column : row.columns.entrySet()) {
+        if (column.getValue() == null) {
+          if (nullColumns == null) {
+            nullColumns = new TreeMap<>();
+          }
+          nullColumns.put(column.getKey(), null);
+        } else {
+          int ordinal = schema.indexOf(column.getKey());
+          values[ordinal] = pools[ordinal].intern(column.getValue());
+        }
+      }
+
+      row.schema = schema;
+      row.values = values;
+      row.columns = nullColumns;
+    }
+  }
+
   @Override
   public String toString() {
     return "UntypedSyncRow{" +
-        "columns=" + columns +
+        "columns=" + getColumns() +
         "} " + super.toString();
   }
+
+  private static class ValuePool {
+    private Map<String, String> values = new HashMap<>();
+
+    String intern(String value) {
+      if (values == null) {
+        return value;
+      }
+
+      String pooled = values.putIfAbsent(value, value);
+      if (pooled != null) {
+        return pooled;
+      }
+
+      if (values.size() > MAX_INTERNED_VALUES_PER_COLUMN) {
+        // high cardinality column, pooling would only cost memory
+        values = null;
+      }
+      return value;
+    }
+  }
+
+  private class CompactColumns extends AbstractMap<String, String> {
+    @Override
+    public String get(Object key) {
+      int ordinal = schema.indexOf(key);
+      if (ordinal >= 0 && values[ordinal] != null) {
+        return values[ordinal];
+      }
+
+      return columns != null ? columns.get(key) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      int ordinal = schema.indexOf(key);
+      return (ordinal >= 0 && values[ordinal] != null) || (columns != null && columns.containsKey(key));
+    }
+
+    @Override
+    public String put(String key, String value) {
+      String previous = get(key);
+      int ordinal = schema.indexOf(key);
+
+      if (ordinal >= 0 && value != null) {
+        values[ordinal] = value;
+        if (columns != null) {
+          columns.remove(key);
+        }
+      } else {
+        if (ordinal >= 0) {
+          values[ordinal] = null;
+        }
+        if (columns == null) {
+          columns = new TreeMap<>();
+        }
+        columns.put(key, value);
+      }
+
+      return previous;
+    }
+
+    @Override
+    public String remove(Object key) {
+      String previous = get(key);
+
+      int ordinal = schema.indexOf(key);
+      if (ordinal >= 0) {
+        values[ordinal] = null;
+      }
+      if (columns != null) {
+        columns.remove(key);
+      }
+
+      return previous;
+    }
+
+    @Override
+    public int size() {
+      int size = columns != null ? columns.size() : 0;
+      for (String value : values) {
+        if (value != null) {
+          size++;
+        }
+      }
+
+      return size;
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+      return new AbstractSet<Entry<String, String>>() {
+        @Override
+        public Iterator<Entry<String, String>> iterator() {
+          return new ColumnIterator();
+        }
+
+        @Override
+        public int size() {
+          return CompactColumns.this.size();
+        }
+      };
+    }
+
+    /**
+     * Merges the schema columns and the remaining columns, both are sorted.
+     */
+    private class ColumnIterator implements Iterator<Entry<String, String>> {
+      private final String[] otherKeys = columns != null ? columns.keySet().toArray(NO_KEYS) : NO_KEYS;
+      private int ordinal = nextOrdinal(0);
+      private int otherIdx;
+      private String lastKey;
+
+      @Override
+      public boolean hasNext() {
+        return ordinal < schema.size() || otherIdx < otherKeys.length;
+      }
+
+      @Override
+      public Entry<String, String> next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+
+        if (otherIdx >= otherKeys.length ||
+            (ordinal < schema.size() && schema.getName(ordinal).compareTo(otherKeys[otherIdx]) < 0)) {
+          lastKey = schema.getName(ordinal);
+          ordinal = nextOrdinal(ordinal + 1);
+        } else {
+          lastKey = otherKeys[otherIdx++];
+        }
+
+        return new ColumnEntry(lastKey, get(lastKey));
+      }
+
+      @Override
+      public void remove() {
+        if (lastKey == null) {
+          throw new IllegalStateException();
+        }
+
+        CompactColumns.this.remove(lastKey);
+        lastKey = null;
+      }
+
+      private int nextOrdinal(int from) {
+        while (from < schema.size() && values[from] == null) {
+          from++;
+        }
+        return from;
+      }
+    }
+
+    private class ColumnEntry extends SimpleEntry<String, String> {
+      ColumnEntry(String key, String value) {
+        super(key, value);
+      }
+
+      @Override
+      public String setValue(String value) {
+        super.setValue(value);
+        return put(getKey(), value);
+      }
+    }
+  }
 }
@@ -24,10 +24,10 @@ import edu.uw.cse.ifrcdemo.sharedlib.logic.UpdateTask;
 import edu.uw.cse.ifrcdemo.sharedlib.suitcase.SuitcaseCliArgsBuilder;
 import edu.uw.cse.ifrcdemo.sharedlib.util.FileUtil;
 import edu.uw.cse.ifrcdemo.sharedlib.util.OdkPathUtil;
+import edu.uw.cse.ifrcdemo.sharedlib.util.SwingUtil;
 import edu.uw.cse.ifrcdemo.translations.LogStr;
 import java.io.File;
 import java.io.IOException;
-import java.io.UncheckedIOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.file.DirectoryStream;
@@ -39,15 +39,36 @@ import java.nio.file.SimpleFileVisitor;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.zip.DataFormatException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.wink.json4j.JSONArray;
 import org.apache.wink.json4j.JSONException;
 import org.apache.wink.json4j.JSONObject;
 import org.opendatakit.aggregate.odktables.rest.entity.PrivilegesInfo;
 import org.opendatakit.aggregate.odktables.rest.entity.TableResource;
 import org.opendatakit.aggregate.odktables.rest.entity.TableResourceList;
 import org.opendatakit.suitcase.model.CloudEndpointInfo;
+import org.opendatakit.suitcase.model.CsvConfig;
+import org.opendatakit.suitcase.model.ODKCsv;
+import org.opendatakit.suitcase.net.AttachmentManager;
+import org.opendatakit.suitcase.net.DownloadTask;
+import org.opendatakit.suitcase.net.SyncWrapper;
 import org.opendatakit.suitcase.ui.DialogUtils;
 import org.opendatakit.suitcase.ui.SuitcaseCLI;
 import org.opendatakit.suitcase.utils.FieldsValidatorUtils;
@@ -62,18 +83,32 @@ public class SuitcaseWrapper {
     private static final String HTTP_SCHEME = "http://";
     private static final String HTTPS_SCHEME = "https://";
 
+    private static final String PHASE_APP_ASSETS = "app assets";
+    private static final String PHASE_CREATE_TABLES = "create tables";
+    private static final String PHASE_LOGIN = "login";
+    private static final String PHASE_TABLES = "table assets and data";
+
+    private static final Logger logger = LogManager.getLogger(SuitcaseWrapper.class);
+
     private CloudEndpointInfo cloudEndpointInfo;
     private SyncClient syncClient;
     private Path basePath;
+    private int uploadWorkers = ServerConsts.UPLOAD_WORKERS;
+    private int downloadWorkers = ServerConsts.DOWNLOAD_WORKERS;
+    private final Map<String, Long> uploadPhaseTimings = new LinkedHashMap<>();
+    private boolean verifyUploadsWithServer = true;
+    private UploadManifest uploadManifest;
+    private final Map<String, String> serverMd5Hashes = new ConcurrentHashMap<>();
+    private final AtomicInteger skippedUploads = new AtomicInteger();
+
+    // SyncClient keeps its authentication state in an HttpClientContext that
+    // cannot be shared, so every worker thread talks to the server through a
+    // client of its own
+    private final ThreadLocal<SyncClient> workerSyncClient = new ThreadLocal<>();
 
     public SuitcaseWrapper(CloudEndpointInfo cloudEndpointInfo, Path path) {
         this.basePath = path;
-
-        this.syncClient = new SyncClient();
-        try {
-            this.syncClient.init(new URL(cloudEndpointInfo.getHostUrl()).getHost(), cloudEndpointInfo.getUserName(), cloudEndpointInfo.getPassword());
-        } catch (MalformedURLException e) { /* guaranteed to not happen */ }
-
+        this.syncClient = createSyncClient(cloudEndpointInfo);
         this.cloudEndpointInfo = attemptHttpUpgrade(syncClient, cloudEndpointInfo);
     }
 
@@ -89,7 +124,76 @@ public class SuitcaseWrapper {
         return syncClient;
     }
 
+    /**
+     * Sets the number of workers used by uploadAllTables. With a single
+     * worker, files and tables are uploaded one after another.
+     *
+     * Each worker, and each table push it runs, has its own connection and
+     * sends one request at a time, so this is also the number of requests
+     * sent to the server at the same time.
+     */
+    public void setUploadWorkers(int uploadWorkers) {
+        if (uploadWorkers < 1) {
+            throw new IllegalArgumentException("uploadWorkers must be positive");
+        }
+
+        this.uploadWorkers = uploadWorkers;
+    }
+
+    /**
+     * Sets the number of tables downloadAllTables fetches at the same time.
+     */
+    public void setDownloadWorkers(int downloadWorkers) {
+        if (downloadWorkers < 1) {
+            throw new IllegalArgumentException("downloadWorkers must be positive");
+        }
+
+        this.downloadWorkers = downloadWorkers;
+    }
+
+    /**
+     * By default a file is skipped only if the server's manifest has the same
+     * md5 hash, so files are uploaded again after the server was reset. When
+     * not verifying with the server, the local upload manifest alone decides,
+     * which saves the manifest requests but misses server resets.
+     */
+    public void setVerifyUploadsWithServer(boolean verifyUploadsWithServer) {
+        this.verifyUploadsWithServer = verifyUploadsWithServer;
+    }
+
+    /**
+     * @return the duration in milliseconds of each phase of the last
+     * uploadAllTables call, in the order the phases ran
+     */
+    public Map<String, Long> getUploadPhaseTimings() {
+        return Collections.unmodifiableMap(uploadPhaseTimings);
+    }
+
     public boolean uploadAllTables() throws IOException, JSONException {
+        uploadPhaseTimings.clear();
+        serverMd5Hashes.clear();
+        skippedUploads.set(0);
+
+        uploadManifest = UploadManifest.load(UploadManifest.getManifestPath(getUploadStateDirectory()),
+            cloudEndpointInfo.getServerUrl(), cloudEndpointInfo.getAppId());
+
+        if (verifyUploadsWithServer) {
+            addServerMd5Hashes(getSyncClient().getManifestForAppLevelFiles(
+                cloudEndpointInfo.getServerUrl(), cloudEndpointInfo.getAppId(), ServerConsts.SYNC_PROTOCOL_VERSION));
+        }
+
+        ExecutorService executor = newWorkerPool(uploadWorkers);
+        try {
+            return uploadAllTables(executor);
+        } finally {
+            executor.shutdownNow();
+            // keep whatever was uploaded, even if the upload failed part way
+            uploadManifest.save();
+            logger.info(LogStr.LOG_SKIPPED_UNCHANGED_FILES, skippedUploads.get());
+        }
+    }
+
+    private boolean uploadAllTables(ExecutorService executor) throws IOException, JSONException {
         // App level assets
         String assetsDir = FileUtils.getAssetsDirPath(getBasePath().toAbsolutePath().toString());
         ArrayList<String> assetsFiles = recurseDir(new File(assetsDir));
@@ -105,36 +209,61 @@ public class SuitcaseWrapper {
             assetsFiles.addAll(recurseDir(healthAssetsPath.toFile()));
         }
 
-        for (String filePath : assetsFiles) {
-            String relativePathOnServer = filePath.substring(getBasePath().toAbsolutePath().toString().length() + 1);
-            uploadFile(filePath, relativePathOnServer);
-        }
+        int relativePathSubstringIdx = getBasePath().toAbsolutePath().toString().length() + 1;
+        List<UploadStep> assetUploads = assetsFiles
+            .stream()
+            .map(filePath -> (UploadStep) () ->
+                uploadFileIfChanged(filePath, filePath.substring(relativePathSubstringIdx)))
+            .collect(Collectors.toList());
 
-        boolean success = true;
+        timePhase(PHASE_APP_ASSETS, () -> runAll(assetUploads, executor));
 
         Path tablesPath = getBasePath().resolve(SyncClient.TABLES_DIR);
         if (Files.exists(tablesPath)) {
-            Files
-                .find(tablesPath, 1, (path, attr) -> attr.isDirectory())
-                .map(Path::getFileName)
-                .map(Path::toString)
-                .filter(this::hasTableDefinition)
-                .forEach(name -> {
-                    try {
-                        createTable(name);
-                    } catch (IOException | DataFormatException | JSONException e) {
-                        throw new RuntimeException(e);
-                    }
-                });
+            List<UploadStep> tableCreations;
+            try (Stream<Path> tableDirs = Files.find(tablesPath, 1, (path, attr) -> attr.isDirectory())) {
+                tableCreations = tableDirs
+                    .map(Path::getFileName)
+                    .map(Path::toString)
+                    .filter(this::hasTableDefinition)
+                    .map(name -> (UploadStep) () -> {
+                        try {
+                            createTable(name);
+                        } catch (DataFormatException e) {
+                            throw new RuntimeException(e);
+                        }
+                    })
+                    .collect(Collectors.toList());
+            }
+
+            timePhase(PHASE_CREATE_TABLES, () -> runAll(tableCreations, executor));
         }
 
+        // tables are created by now, so a single login picks up all of them
+        timePhase(PHASE_LOGIN, () -> new LoginTask(cloudEndpointInfo, false).blockingExecute());
+
         // after creating tables, upload CSV and table level assets
-        for (String existingTable : getTableList()) {
-            uploadTableAsset(existingTable);
-            success &= uploadCsv(existingTable);
-        }
+        // tables do not reference each other on the server, so they can go in parallel
+        AtomicBoolean success = new AtomicBoolean(true);
+        List<UploadStep> tableUploads = getTableList()
+            .stream()
+            .map(existingTable -> (UploadStep) () -> {
+                if (verifyUploadsWithServer) {
+                    addServerMd5Hashes(getCurrentSyncClient().getManifestForTableId(cloudEndpointInfo.getServerUrl(),
+                        cloudEndpointInfo.getAppId(), existingTable, ServerConsts.SYNC_PROTOCOL_VERSION));
+                }
 
-        return success;
+                uploadTableAsset(existingTable);
+                if (!uploadCsv(existingTable)) {
+                    logger.error(LogStr.LOG_FAILED_TO_UPLOAD_TABLE, existingTable);
+                    success.set(false);
+                }
+            })
+            .collect(Collectors.toList());
+
+        timePhase(PHASE_TABLES, () -> runAll(tableUploads, executor));
+
+        return success.get();
     }
 
     private boolean uploadCsv(String tableName) {
@@ -148,12 +277,14 @@ public class SuitcaseWrapper {
         String error = FieldsValidatorUtils.checkUpdateFields(tableName, ServerConsts.SYNC_PROTOCOL_VERSION, path);
 
         if (error != null) {
-            DialogUtils.showError(error, true);
+            SwingUtil.invokeOnEdt(() -> DialogUtils.showError(error, true));
             return false;
         } else {
-            new LoginTask(cloudEndpointInfo, false).blockingExecute();
+            // tables are pushed in parallel, so each one logs its row outcomes to a file of its own
+            Path outcomePath = getUploadStateDirectory()
+                .resolve(tableName + GenConsts.UNDERSCORE + ServerConsts.DEFAULT_OUTCOME_FILE_NAME);
             UpdateTask updateTask = new UpdateTask(getCloudEndpointInfo(), path, null, tableName,
-                getBasePath().getParent().getParent().toAbsolutePath().toString(), true);
+                outcomePath.toString(), true);
             int returnCode = updateTask.blockingExecute();
             return returnCode == okCode;
         }
@@ -175,7 +306,7 @@ public class SuitcaseWrapper {
 
         for (String filePath : tableFiles) {
             String relativePathOnServer = filePath.substring(relativePathSubstringIdx);
-            uploadFile(filePath, relativePathOnServer);
+            uploadFileIfChanged(filePath, relativePathOnServer);
         }
     }
 
@@ -190,99 +321,224 @@ public class SuitcaseWrapper {
 
         List<String> tableList = getTableList();
 
-        tableList
-                .forEach(name -> {
+        // downloads below share the logged in SyncWrapper instead of logging in per table
+        int loginCode = new LoginTask(cloudEndpointInfo, false).blockingExecute();
+        if (loginCode != okCode) {
+            throw new SuitcaseException(LogStr.LOG_FAILED_TO_DOWNLOAD + String.join(", ", tableList));
+        }
+
+        Map<String, Throwable> failures = new ConcurrentHashMap<>();
+        ExecutorService executor = newWorkerPool(downloadWorkers);
+        try {
+            CompletableFuture<?>[] downloads = tableList
+                .stream()
+                .map(name -> CompletableFuture.runAsync(() -> {
                     try {
-                        downloadTable(name, withAttachment, withTableDef);
-                    } catch (IOException e) {
-                        throw new UncheckedIOException(e);
+                        downloadTable(name, withAttachment, withTableDef, this::runDownloadTask);
+                    } catch (IOException | RuntimeException e) {
+                        logger.error(LogStr.LOG_FAILED_TO_DOWNLOAD + name + LogStr.LOG_TABLE, e);
+                        failures.put(name, e);
                     }
-                });
+                }, executor))
+                .toArray(CompletableFuture<?>[]::new);
+
+            CompletableFuture.allOf(downloads).join();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        if (!failures.isEmpty()) {
+            SuitcaseException exception = new SuitcaseException(LogStr.LOG_FAILED_TO_DOWNLOAD +
+                String.join(", ", new TreeSet<>(failures.keySet())) + LogStr.LOG_TABLE);
+            failures.values().forEach(exception::addSuppressed);
+            throw exception;
+        }
     }
 
     public void downloadTable(String tableName, boolean withAttachment, boolean withTableDef)
         throws IOException, IllegalArgumentException {
+        downloadTable(tableName, withAttachment, withTableDef, this::runSuitcaseCli);
+    }
 
+    /**
+     * Fetches the table into a temporary directory of its own, so that
+     * concurrent downloads never share the app id directory, then moves the
+     * CSV and attachments into place.
+     */
+    private void downloadTable(String tableName, boolean withAttachment, boolean withTableDef,
+                               TableFetcher fetcher) throws IOException {
         String appId = cloudEndpointInfo.getAppId();
-        String basePathString = basePath.toAbsolutePath().toString();
+        Path downloadPath = Files.createTempDirectory(getBasePath().toAbsolutePath(), tableName);
+
+        try {
+            int retCode = -1;
+            try {
+                retCode = fetcher.fetch(tableName, withAttachment, downloadPath.toString());
+            } catch (IllegalArgumentException e) {
+                logger.error(LogStr.LOG_ILLEGAL_ARGUMENT_EXCEPTION_ON + tableName + LogStr.LOG_TABLE, e);
+                logger.error(LogStr.LOG_RETCODE + retCode);
+                return;
+            } finally {
+                if (retCode != 0) {
+                    logger.error(LogStr.LOG_FAILED_TO_DOWNLOAD + tableName + LogStr.LOG_TABLE);
+                    throw new SuitcaseException(LogStr.LOG_FAILED_TO_DOWNLOAD + tableName + LogStr.LOG_TABLE);
+                }
+            }
+
+            String suitcaseCsvFilename =
+                withAttachment ? SuitcaseConsts.DOWNLOAD_CSV_NAME : SuitcaseConsts.DOWNLOAD_NO_ATTACHMENT_CSV_NAME;
+
+            Path pathToAppId = downloadPath.resolve(appId);
+            Path pathToTable = pathToAppId.resolve(tableName);
+            Path pathToDownloadFile = pathToTable.resolve(suitcaseCsvFilename);
+            Path pathToCopyFile = FileUtil.getPathToCSV(basePath, tableName);
+
+            Files.move(pathToDownloadFile, pathToCopyFile, REPLACE_EXISTING);
+
+            if (withAttachment) {
+                // move attachments
+                Path pathToInstances = pathToTable.resolve(SyncClient.INSTANCES_DIR);
+                try (DirectoryStream<Path> dirStream = Files.newDirectoryStream(pathToInstances)) {
+                    if (dirStream.iterator().hasNext()) {
+                        Files.walkFileTree(pathToInstances, new AttachmentMovingFileVisitor(basePath, pathToAppId));
+                    }
+                }
+            }
+
+            if (withTableDef) {
+                Path tableDirectory = getBasePath().toAbsolutePath().resolve(tableName);
+                Files.createDirectory(tableDirectory);
 
+                downloadFile(
+                    tableDirectory.resolve(FileConsts.DEFINITION_CSV).toString(),
+                    "tables/" + tableName + "/" + FileConsts.DEFINITION_CSV
+                );
+
+                downloadFile(
+                    tableDirectory.resolve(FileConsts.PROPERTIES_CSV).toString(),
+                    "tables/" + tableName + "/" + FileConsts.PROPERTIES_CSV
+                );
+            }
+        } finally {
+            org.apache.commons.io.FileUtils.deleteQuietly(downloadPath.toFile());
+        }
+    }
+
+    private int runSuitcaseCli(String tableName, boolean withAttachment, String downloadPath) {
         String[] cliOpts = new SuitcaseCliArgsBuilder()
             .configureEndpoint(cloudEndpointInfo)
             .configureTableId(tableName)
-            .configurePath(basePathString)
+            .configurePath(downloadPath)
             .configureAttachmentDownload(withAttachment)
             .configureMetadataOption(true)
             .configureOperation(SuitcaseCliArgsBuilder.Operation.DOWNLOAD)
             .build();
 
-        int retCode = -1;
+        return new SuitcaseCLI(cliOpts).startCLI();
+    }
+
+    /**
+     * Same as the SuitcaseCLI download, minus the login SuitcaseCLI performs
+     * on every invocation. That login resets the shared SyncWrapper, which
+     * would break other downloads running at the same time.
+     *
+     * The rows are fetched through the worker's own client. DownloadTask then
+     * only writes the CSV, but it can still reach the shared SyncWrapper for
+     * attachments and for the columns of an empty table, so that part runs
+     * one table at a time.
+     */
+    private int runDownloadTask(String tableName, boolean withAttachment, String downloadPath) throws IOException {
+        String error = FieldsValidatorUtils.checkDownloadFields(tableName, downloadPath, cloudEndpointInfo);
+        if (error != null) {
+            throw new IllegalArgumentException(error);
+        }
+
+        ODKCsv csv;
         try {
-            retCode = new SuitcaseCLI(cliOpts).startCLI();
-        } catch (IllegalArgumentException e) {
-            System.err.println(LogStr.LOG_ILLEGAL_ARGUMENT_EXCEPTION_ON + tableName + LogStr.LOG_TABLE);
-            System.err.println(LogStr.LOG_RETCODE + retCode);
-            return;
-        } finally {
-            if (retCode != 0) {
-                System.err.println(LogStr.LOG_FAILED_TO_DOWNLOAD + tableName + LogStr.LOG_TABLE);
-                throw new SuitcaseException(LogStr.LOG_FAILED_TO_DOWNLOAD + tableName + LogStr.LOG_TABLE);
-            }
+            csv = new ODKCsv(new AttachmentManager(cloudEndpointInfo, tableName, downloadPath),
+                cloudEndpointInfo, tableName);
+            fetchRows(tableName, csv);
+        } catch (JSONException e) {
+            throw new IllegalArgumentException(e);
         }
 
-        String suitcaseCsvFilename =
-            withAttachment ? SuitcaseConsts.DOWNLOAD_CSV_NAME : SuitcaseConsts.DOWNLOAD_NO_ATTACHMENT_CSV_NAME;
+        CsvConfig config = new CsvConfig(withAttachment, false, true);
+        SyncWrapper syncWrapper = SyncWrapper.getInstance();
+        synchronized (syncWrapper) {
+            return new DownloadTask(cloudEndpointInfo, csv, config, downloadPath, false).blockingExecute();
+        }
+    }
 
-        Path pathToAppId = getBasePath().resolve(appId);
-        Path pathToTable = pathToAppId.resolve(tableName);
-        Path pathToDownloadFile = pathToTable.resolve(suitcaseCsvFilename);
-        Path pathToCopyFile = FileUtil.getPathToCSV(basePath, tableName);
+    private void fetchRows(String tableName, ODKCsv csv) throws IOException, JSONException {
+        String schemaETag = cloudEndpointInfo.getSchemaETag(tableName);
+        String cursor = null;
+        JSONObject rows;
 
-        Files.move(pathToDownloadFile, pathToCopyFile, REPLACE_EXISTING);
-        Files.deleteIfExists(pathToDownloadFile);
+        do {
+            rows = getCurrentSyncClient().getRows(cloudEndpointInfo.getServerUrl(), cloudEndpointInfo.getAppId(),
+                tableName, schemaETag, cursor, ServerConsts.ROW_FETCH_LIMIT);
+            if (rows == null) {
+                throw new IOException(LogStr.LOG_FAILED_TO_DOWNLOAD + tableName + LogStr.LOG_TABLE);
+            }
 
-        if (withAttachment) {
-            // move attachments
-            Path pathToInstances = pathToTable.resolve(SyncClient.INSTANCES_DIR);
-            try (DirectoryStream<Path> dirStream = Files.newDirectoryStream(pathToInstances)) {
-                if (dirStream.iterator().hasNext()) {
-                    Files.walkFileTree(pathToInstances, new AttachmentMovingFileVisitor(basePath, pathToAppId));
-                } else {
-                    Files.deleteIfExists(pathToInstances);
-                }
+            cursor = rows.optString(SyncClient.WEB_SAFE_RESUME_CURSOR_JSON);
+            JSONArray page = rows.getJSONArray(SyncClient.ROWS_STR_JSON);
+            // an empty csv makes DownloadTask look up the columns of the empty table
+            if (!page.isEmpty()) {
+                csv.tryAdd(page);
             }
-        }
+        } while (rows.getBoolean(SyncClient.HAS_MORE_RESULTS_JSON));
+    }
 
-        if (withTableDef) {
-            Path tableDirectory = getBasePath().toAbsolutePath().resolve(tableName);
-            Files.createDirectory(tableDirectory);
+    private void createTable(String tableName) throws IOException, DataFormatException, JSONException {
+        String tableDefPath = FileUtils.getTableDefinitionFilePath(getBasePath().toAbsolutePath().toString(), tableName);
+        JSONObject tableResult = getCurrentSyncClient().createTableWithCSV(cloudEndpointInfo.getServerUrl(), cloudEndpointInfo.getAppId(), tableName, GenConsts.EMPTY_STRING, tableDefPath);
+    }
 
-            downloadFile(
-                tableDirectory.resolve(FileConsts.DEFINITION_CSV).toString(),
-                "tables/" + tableName + "/" + FileConsts.DEFINITION_CSV
-            );
+    private void uploadFileIfChanged(String filePath, String relativePathOnServer) throws IOException {
+        // server manifests always use forward slashes
+        String manifestKey = relativePathOnServer.replace(File.separatorChar, '/');
+        Path file = Paths.get(filePath);
+        String md5Hash = uploadManifest.getMd5Hash(manifestKey, file);
 
-            downloadFile(
-                tableDirectory.resolve(FileConsts.PROPERTIES_CSV).toString(),
-                "tables/" + tableName + "/" + FileConsts.PROPERTIES_CSV
-            );
+        boolean unchanged = verifyUploadsWithServer
+            ? md5Hash.equals(serverMd5Hashes.get(manifestKey))
+            : uploadManifest.isUploaded(manifestKey, md5Hash);
+
+        if (unchanged) {
+            skippedUploads.incrementAndGet();
+        } else {
+            uploadFile(filePath, relativePathOnServer);
         }
 
-        Files.deleteIfExists(pathToTable);
-        Files.deleteIfExists(pathToAppId);
+        uploadManifest.recordUpload(manifestKey, file, md5Hash);
     }
 
-    private void createTable(String tableName) throws IOException, DataFormatException, JSONException {
-        String tableDefPath = FileUtils.getTableDefinitionFilePath(getBasePath().toAbsolutePath().toString(), tableName);
-        JSONObject tableResult = syncClient.createTableWithCSV(cloudEndpointInfo.getServerUrl(), cloudEndpointInfo.getAppId(), tableName, GenConsts.EMPTY_STRING, tableDefPath);
+    private void addServerMd5Hashes(JSONObject manifest) throws JSONException {
+        if (manifest == null || !manifest.has(ServerConsts.FILES_KEY)) {
+            return;
+        }
+
+        JSONArray files = manifest.getJSONArray(ServerConsts.FILES_KEY);
+        for (int i = 0; i < files.size(); i++) {
+            JSONObject file = files.getJSONObject(i);
+            if (file.has(ServerConsts.MD5_HASH_KEY) && !file.isNull(ServerConsts.MD5_HASH_KEY)) {
+                serverMd5Hashes.put(file.getString(ServerConsts.FILENAME_KEY), file.getString(ServerConsts.MD5_HASH_KEY));
+            }
+        }
+    }
+
+    private Path getUploadStateDirectory() {
+        return getBasePath().getParent().getParent().toAbsolutePath();
     }
 
     private void uploadFile(String filePath, String relativePathOnServer) throws IOException {
-        getSyncClient().uploadFile(getCloudEndpointInfo().getServerUrl(), getCloudEndpointInfo().getAppId(),
+        getCurrentSyncClient().uploadFile(getCloudEndpointInfo().getServerUrl(), getCloudEndpointInfo().getAppId(),
                 filePath, relativePathOnServer, ServerConsts.SYNC_PROTOCOL_VERSION);
     }
 
     private void downloadFile(String pathToSaveFile, String relativePathOnServer) throws IOException {
-        getSyncClient().downloadFile(
+        getCurrentSyncClient().downloadFile(
             getCloudEndpointInfo().getServerUrl(),
             getCloudEndpointInfo().getAppId(),
             pathToSaveFile,
@@ -314,6 +570,41 @@ public class SuitcaseWrapper {
         return file.exists() && file.length() > 0;
     }
 
+    /**
+     * @return the client of the current worker thread, or the shared client
+     * outside of the worker pools
+     */
+    private SyncClient getCurrentSyncClient() {
+        SyncClient client = workerSyncClient.get();
+        return client != null ? client : syncClient;
+    }
+
+    /**
+     * Creates a pool whose threads each open their own SyncClient, which is
+     * closed when the thread exits after the pool is shut down.
+     */
+    private ExecutorService newWorkerPool(int workers) {
+        return Executors.newFixedThreadPool(workers, runnable -> new Thread(() -> {
+            SyncClient client = createSyncClient(cloudEndpointInfo);
+            workerSyncClient.set(client);
+            try {
+                runnable.run();
+            } finally {
+                workerSyncClient.remove();
+                client.close();
+            }
+        }));
+    }
+
+    private static SyncClient createSyncClient(CloudEndpointInfo cloudEndpointInfo) {
+        SyncClient client = new SyncClient();
+        try {
+            client.init(new URL(cloudEndpointInfo.getHostUrl()).getHost(), cloudEndpointInfo.getUserName(), cloudEndpointInfo.getPassword());
+        } catch (MalformedURLException e) { /* guaranteed to not happen */ }
+
+        return client;
+    }
+
     private static CloudEndpointInfo attemptHttpUpgrade(SyncClient syncClient, CloudEndpointInfo unmodifiedEndpoint) {
         // CloudEndpointInfo ensures the url starts with http(s)://
         if (unmodifiedEndpoint.getHostUrl().startsWith(HTTPS_SCHEME)) {
@@ -341,6 +632,48 @@ public class SuitcaseWrapper {
         }
     }
 
+    private void timePhase(String phase, UploadStep step) throws IOException, JSONException {
+        long start = System.nanoTime();
+        try {
+            step.run();
+        } finally {
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            uploadPhaseTimings.put(phase, elapsed);
+            logger.info(LogStr.LOG_UPLOAD_PHASE_TOOK, phase, elapsed);
+        }
+    }
+
+    /**
+     * Runs every step on the executor and waits for all of them. The first
+     * failure is rethrown once the remaining steps have finished.
+     */
+    private static void runAll(List<UploadStep> steps, ExecutorService executor) throws IOException, JSONException {
+        CompletableFuture<?>[] futures = steps
+            .stream()
+            .map(step -> CompletableFuture.runAsync(() -> {
+                try {
+                    step.run();
+                } catch (IOException | JSONException e) {
+                    throw new CompletionException(e);
+                }
+            }, executor))
+            .toArray(CompletableFuture<?>[]::new);
+
+        try {
+            CompletableFuture.allOf(futures).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof JSONException) {
+                throw (JSONException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw e;
+        }
+    }
+
     private static ArrayList<String> recurseDir(File dir) {
         ArrayList<String> filePaths = new ArrayList<>();
         File listFile[] = dir.listFiles();
@@ -357,6 +690,16 @@ public class SuitcaseWrapper {
         return filePaths;
     }
 
+    @FunctionalInterface
+    private interface TableFetcher {
+        int fetch(String tableName, boolean withAttachment, String downloadPath) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface UploadStep {
+        void run() throws IOException, JSONException;
+    }
+
     private static class AttachmentMovingFileVisitor extends SimpleFileVisitor<Path> {
         private final Path pathToOutput;
         private final Path pathToAppId;
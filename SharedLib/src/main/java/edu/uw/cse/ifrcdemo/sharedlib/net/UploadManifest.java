@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2016-2022 University of Washington
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *  Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *  Neither the name of the University of Washington nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE UNIVERSITY OF WASHINGTON AND CONTRIBUTORS “AS IS” AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE UNIVERSITY OF WASHINGTON OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+
+package edu.uw.cse.ifrcdemo.sharedlib.net;
+
+import edu.uw.cse.ifrcdemo.sharedlib.consts.ServerConsts;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers the md5 hash of every file uploaded to a server, keyed by the
+ * file's path relative to the app directory.
+ *
+ * Hashes use the "md5:hex" form of the server's file manifests so the two
+ * can be compared directly. The size and modification time of each file are
+ * kept as well, a file that has not been touched since its upload is not
+ * hashed again. The manifest is discarded when the server or app changes.
+ */
+public class UploadManifest {
+    private static final String SEPARATOR = "\t";
+    private static final String MD5_ALGORITHM = "MD5";
+    private static final String MD5_PREFIX = "md5:";
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final Path path;
+    private final String serverUrl;
+    private final String appId;
+    private final Map<String, FileState> uploadedFiles;
+
+    private UploadManifest(Path path, String serverUrl, String appId) {
+        this.path = path;
+        this.serverUrl = serverUrl;
+        this.appId = appId;
+        this.uploadedFiles = new ConcurrentHashMap<>();
+    }
+
+    public static Path getManifestPath(Path directory) {
+        return directory.resolve(ServerConsts.UPLOAD_MANIFEST_FILE_NAME);
+    }
+
+    /**
+     * Loads the manifest at path, or returns an empty manifest if the file
+     * does not exist or was written for another server or app.
+     */
+    public static UploadManifest load(Path path, String serverUrl, String appId) throws IOException {
+        UploadManifest manifest = new UploadManifest(path, serverUrl, appId);
+
+        if (!Files.exists(path)) {
+            return manifest;
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String headerLine = reader.readLine();
+            String[] header = headerLine != null ? headerLine.split(SEPARATOR, -1) : null;
+            if (header == null || header.length != 2 ||
+                !Objects.equals(header[0], serverUrl) || !Objects.equals(header[1], appId)) {
+                return manifest;
+            }
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] entry = line.split(SEPARATOR, -1);
+                if (entry.length != 4) {
+                    continue;
+                }
+
+                try {
+                    manifest.uploadedFiles.put(entry[0],
+                        new FileState(Long.parseLong(entry[1]), Long.parseLong(entry[2]), entry[3]));
+                } catch (NumberFormatException e) {
+                    // corrupted entry, the file will be uploaded again
+                }
+            }
+        }
+
+        return manifest;
+    }
+
+    /**
+     * Returns the md5 hash of file, reusing the recorded hash when the file's
+     * size and modification time have not changed since it was recorded.
+     */
+    public String getMd5Hash(String relativePath, Path file) throws IOException {
+        long size = Files.size(file);
+        long lastModified = Files.getLastModifiedTime(file).toMillis();
+
+        FileState state = uploadedFiles.get(relativePath);
+        if (state != null && state.size == size && state.lastModified == lastModified) {
+            return state.md5Hash;
+        }
+
+        return computeMd5Hash(file);
+    }
+
+    public boolean isUploaded(String relativePath, String md5Hash) {
+        FileState state = uploadedFiles.get(relativePath);
+        return state != null && state.md5Hash.equals(md5Hash);
+    }
+
+    public void recordUpload(String relativePath, Path file, String md5Hash) throws IOException {
+        uploadedFiles.put(relativePath,
+            new FileState(Files.size(file), Files.getLastModifiedTime(file).toMillis(), md5Hash));
+    }
+
+    public int size() {
+        return uploadedFiles.size();
+    }
+
+    public void save() throws IOException {
+        Files.createDirectories(path.toAbsolutePath().getParent());
+
+        Path tempPath = path.resolveSibling(path.getFileName() + ServerConsts.TEMP_FILE_SUFFIX);
+        try (BufferedWriter writer = Files.newBufferedWriter(tempPath, StandardCharsets.UTF_8)) {
+            writer.write(serverUrl + SEPARATOR + appId);
+            writer.newLine();
+
+            for (Map.Entry<String, FileState> entry : uploadedFiles.entrySet()) {
+                FileState state = entry.getValue();
+                writer.write(entry.getKey() + SEPARATOR + state.size + SEPARATOR + state.lastModified +
+                    SEPARATOR + state.md5Hash);
+                writer.newLine();
+            }
+        }
+
+        Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    public static String computeMd5Hash(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance(MD5_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform is required to support MD5
+            throw new IllegalStateException(e);
+        }
+
+        byte[] buffer = new byte[8192];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+
+        byte[] hash = digest.digest();
+        StringBuilder sb = new StringBuilder(MD5_PREFIX.length() + hash.length * 2).append(MD5_PREFIX);
+        for (byte b : hash) {
+            sb.append(HEX_DIGITS[(b >> 4) & 0xF]).append(HEX_DIGITS[b & 0xF]);
+        }
+
+        return sb.toString();
+    }
+
+    private static class FileState {
+        private final long size;
+        private final long lastModified;
+        private final String md5Hash;
+
+        FileState(long size, long lastModified, String md5Hash) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.md5Hash = md5Hash;
+        }
+    }
+}
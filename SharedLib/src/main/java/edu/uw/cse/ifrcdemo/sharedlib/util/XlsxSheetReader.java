@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2016-2022 University of Washington
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *  Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *  Neither the name of the University of Washington nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE UNIVERSITY OF WASHINGTON AND CONTRIBUTORS “AS IS” AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE UNIVERSITY OF WASHINGTON OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+
+
+package edu.uw.cse.ifrcdemo.sharedlib.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.xml.XMLConstants;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+/**
+ * Reads a single sheet of an xlsx file with POI's event model.
+ *
+ * Only the shared strings, the styles and the requested sheet are parsed, the
+ * rest of the workbook is never loaded. The first non-blank row of the sheet
+ * is taken as the header and every following row is returned as a map from
+ * header to formatted cell value.
+ */
+public class XlsxSheetReader {
+  private static final String DISALLOW_DOCTYPE_FEATURE = "http://apache.org/xml/features/disallow-doctype-decl";
+
+  /**
+   * Returns the rows of sheetName, or an empty list when the workbook has no
+   * such sheet. Sheet names are matched ignoring case, as in XSSFWorkbook.
+   */
+  public static List<Map<String, String>> readSheet(Path path, String sheetName) throws IOException {
+    OPCPackage pkg;
+    try {
+      pkg = OPCPackage.open(path.toFile(), PackageAccess.READ);
+    } catch (OpenXML4JException | RuntimeException e) {
+      throw new IOException(e);
+    }
+
+    try {
+      XSSFReader reader = new XSSFReader(pkg);
+      XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+
+      while (sheets.hasNext()) {
+        try (InputStream sheet = sheets.next()) {
+          if (sheetName.equalsIgnoreCase(sheets.getSheetName())) {
+            RowCollector collector = new RowCollector();
+            XSSFSheetXMLHandler handler = new XSSFSheetXMLHandler(reader.getStylesTable(),
+                new ReadOnlySharedStringsTable(pkg), collector, new DataFormatter(), false);
+
+            XMLReader xmlReader = newXmlReader();
+            xmlReader.setContentHandler(handler);
+            xmlReader.parse(new InputSource(sheet));
+
+            return collector.rows;
+          }
+        }
+      }
+
+      return Collections.emptyList();
+    } catch (OpenXML4JException | SAXException | ParserConfigurationException | RuntimeException e) {
+      throw new IOException(e);
+    } finally {
+      // a read-only package is reverted, closing it would try to save it
+      pkg.revert();
+    }
+  }
+
+  private static XMLReader newXmlReader() throws ParserConfigurationException, SAXException {
+    SAXParserFactory factory = SAXParserFactory.newInstance();
+    factory.setNamespaceAware(true);
+    factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+    factory.setFeature(DISALLOW_DOCTYPE_FEATURE, true);
+    return factory.newSAXParser().getXMLReader();
+  }
+
+  private static class RowCollector implements SheetContentsHandler {
+    private final List<Map<String, String>> rows = new ArrayList<>();
+    private Map<Integer, String> header;
+    private Map<Integer, String> currentRow;
+
+    @Override
+    public void startRow(int rowNum) {
+      currentRow = new LinkedHashMap<>();
+    }
+
+    @Override
+    public void endRow(int rowNum) {
+      if (currentRow.isEmpty()) {
+        return;
+      }
+
+      if (header == null) {
+        header = currentRow;
+        return;
+      }
+
+      Map<String, String> row = new LinkedHashMap<>();
+      for (Map.Entry<Integer, String> cell : currentRow.entrySet()) {
+        String columnName = header.get(cell.getKey());
+        if (columnName != null) {
+          row.putIfAbsent(columnName, cell.getValue());
+        }
+      }
+
+      if (!row.isEmpty()) {
+        rows.add(row);
+      }
+    }
+
+    @Override
+    public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+      if (cellReference != null && formattedValue != null && !formattedValue.isEmpty()) {
+        currentRow.put((int) new CellReference(cellReference).getCol(), formattedValue);
+      }
+    }
+
+    @Override
+    public void headerFooter(String text, boolean isHeader, String tagName) {
+      // headers and footers are not part of the data
+    }
+  }
+}
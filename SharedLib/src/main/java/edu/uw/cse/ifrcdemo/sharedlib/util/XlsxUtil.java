@@ -17,26 +17,23 @@ package edu.uw.cse.ifrcdemo.sharedlib.util;
 import edu.uw.cse.ifrcdemo.sharedlib.consts.GenConsts;
 import edu.uw.cse.ifrcdemo.translations.TranslationConsts;
 import edu.uw.cse.ifrcdemo.translations.TranslationUtil;
-import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
-import java.util.Iterator;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.filefilter.NameFileFilter;
 import org.apache.commons.io.filefilter.NotFileFilter;
-import org.apache.poi.ss.usermodel.Cell;
-import org.apache.poi.ss.usermodel.Row;
-import org.apache.poi.ss.usermodel.Sheet;
-import org.apache.poi.ss.usermodel.Workbook;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
 
 public class XlsxUtil {
-  private static final int UNINITIALIZED = -12345;
   private static final String SETTING_NAME_CELL_VALUE = "setting_name";
   private static final String VALUE_CELL_VALUE = "value";
   private static final String FORM_ID_CELL_VALUE = "form_id";
@@ -45,6 +42,8 @@ public class XlsxUtil {
 
   private static final String[] FORM_LEVEL_FILE_COPY_BLACKLIST = new String[]{"formDef.json"};
 
+  private static final Map<Path, CachedSettings> SETTINGS_CACHE = new ConcurrentHashMap<>();
+
   public static Path organizeFormLevelFiles(Path xlsxPath, String tableId, String formId, Path outputPath) throws IOException {
     Path odkFormPath = OdkPathUtil.getFormPath(OdkPathUtil.getTablePath(outputPath, tableId), formId);
 
@@ -89,73 +88,62 @@ public class XlsxUtil {
   }
 
   public static String getSettingValue(String path, String settingName) throws IOException {
-    int settingNameColumnIndex = UNINITIALIZED;
-    int formIdColumnIndex = UNINITIALIZED;
-    int settingRowIndex = UNINITIALIZED;
-
-    String errMsg = TranslationUtil.getTranslations().getString(TranslationConsts.FORM_ID_PARSE_ERROR) + GenConsts.COLON + path;
-
-    FileInputStream fis = null;
-    Workbook workbook = null;
+    Map<String, String> settings;
     try {
-      fis = new FileInputStream(new File(path));
-      workbook = new XSSFWorkbook(fis);
-    } catch(IOException e1) {
-      throw new IOException(errMsg, e1);
-    } finally {
-      try {
-        if (fis != null)
-          fis.close();
-      } catch (IOException ioe) {
-        // move on  as clean up has failed.
-      }
+      settings = getSettings(Paths.get(path));
+    } catch (IOException | InvalidPathException e) {
+      throw new IOException(getParseErrorMessage(path), e);
     }
 
-    if(workbook == null) {
-      throw new IOException(errMsg);
+    String value = settings.get(settingName);
+    if (value == null) {
+      throw new IOException(getParseErrorMessage(path));
     }
 
-    Sheet settingsSheet = workbook.getSheet(SETTINGS_SHEET_NAME);
-    if(settingsSheet == null) {
-      throw new IOException(errMsg);
+    return value;
+  }
+
+  /**
+   * Returns the setting_name to value map of the settings sheet. The map is
+   * cached until the file's size or modification time changes.
+   */
+  public static Map<String, String> getSettings(Path path) throws IOException {
+    Path key = path.toAbsolutePath().normalize();
+    long size = Files.size(key);
+    long lastModified = Files.getLastModifiedTime(key).toMillis();
+
+    CachedSettings cached = SETTINGS_CACHE.get(key);
+    if (cached != null && cached.size == size && cached.lastModified == lastModified) {
+      return cached.settings;
     }
 
-    int topRow = settingsSheet.getTopRow();
-    Row header = settingsSheet.getRow(topRow);
-    Iterator<Cell> cellIterator = header.cellIterator();
-    while(cellIterator.hasNext()) {
-      Cell cell = cellIterator.next();
-      String contents = cell.getStringCellValue();
-      if(SETTING_NAME_CELL_VALUE.equals(contents)) {
-        settingNameColumnIndex = cell.getColumnIndex();
-      } else if(VALUE_CELL_VALUE.equals(contents)) {
-        formIdColumnIndex = cell.getColumnIndex();
-      }
-      if(settingNameColumnIndex != UNINITIALIZED && formIdColumnIndex != UNINITIALIZED) {
-        break;
+    Map<String, String> settings = new HashMap<>();
+    for (Map<String, String> row : XlsxSheetReader.readSheet(key, SETTINGS_SHEET_NAME)) {
+      String name = row.get(SETTING_NAME_CELL_VALUE);
+      String value = row.get(VALUE_CELL_VALUE);
+      if (name != null && value != null) {
+        settings.putIfAbsent(name, value);
       }
     }
 
-    if(settingNameColumnIndex == UNINITIALIZED || formIdColumnIndex == UNINITIALIZED) {
-      throw new IOException(errMsg);
-    }
+    cached = new CachedSettings(size, lastModified, Collections.unmodifiableMap(settings));
+    SETTINGS_CACHE.put(key, cached);
+    return cached.settings;
+  }
 
-    for(int i = topRow + 1; i <= settingsSheet.getLastRowNum(); i++) {
-      Row row = settingsSheet.getRow(i);
-      Cell cell = row.getCell(settingNameColumnIndex);
-      String contents = cell.getStringCellValue();
-      if(settingName.equals(contents)) {
-        settingRowIndex = i;
-        break;
-      }
-    }
+  private static String getParseErrorMessage(String path) {
+    return TranslationUtil.getTranslations().getString(TranslationConsts.FORM_ID_PARSE_ERROR) + GenConsts.COLON + path;
+  }
 
-    if(settingRowIndex == UNINITIALIZED) {
-      throw new IOException(errMsg);
-    }
+  private static class CachedSettings {
+    private final long size;
+    private final long lastModified;
+    private final Map<String, String> settings;
 
-    Row settingRow = settingsSheet.getRow(settingRowIndex);
-    Cell settingCell = settingRow.getCell(formIdColumnIndex);
-    return settingCell.getStringCellValue();
+    CachedSettings(long size, long lastModified, Map<String, String> settings) {
+      this.size = size;
+      this.lastModified = lastModified;
+      this.settings = settings;
+    }
   }
 }
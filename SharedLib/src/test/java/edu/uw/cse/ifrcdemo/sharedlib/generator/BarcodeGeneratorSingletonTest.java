@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2016-2022 University of Washington
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *  Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *  Neither the name of the University of Washington nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE UNIVERSITY OF WASHINGTON AND CONTRIBUTORS “AS IS” AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE UNIVERSITY OF WASHINGTON OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+
+package edu.uw.cse.ifrcdemo.sharedlib.generator;
+
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class BarcodeGeneratorSingletonTest {
+  private static final byte[] PNG_SIGNATURE = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n' };
+
+  @Test
+  void cachedPngIsIdenticalToUncachedRender() {
+    String value = "CACHE-0001";
+
+    String first = BarcodeGeneratorSingleton.generateBase64Barcode(value);
+    String cached = BarcodeGeneratorSingleton.generateBase64Barcode(value);
+    String uncached = renderDefault(value);
+
+    assertNotNull(first);
+    assertSame(first, cached);
+    assertArrayEquals(decode(uncached), decode(cached));
+    assertArrayEquals(PNG_SIGNATURE, Arrays.copyOf(decode(cached), PNG_SIGNATURE.length));
+  }
+
+  @Test
+  void batchMatchesUncachedRenderInOrder() {
+    List<String> values = Arrays.asList("BATCH-0001", "BATCH-0002", "BATCH-0001", "BATCH-0003");
+
+    List<String> barcodes = BarcodeGeneratorSingleton.generateBase64Barcodes(values);
+
+    assertEquals(values.size(), barcodes.size());
+    for (int i = 0; i < values.size(); i++) {
+      assertArrayEquals(decode(renderDefault(values.get(i))), decode(barcodes.get(i)));
+    }
+  }
+
+  private static String renderDefault(String value) {
+    return BarcodeGeneratorSingleton.renderBitmap(
+        value,
+        BarcodeGeneratorConst.DEFAULT_MIME_TYPE,
+        BarcodeGeneratorConst.DEFAULT_DPI,
+        false,
+        0
+    );
+  }
+
+  private static byte[] decode(String base64) {
+    return Base64.getDecoder().decode(base64);
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2016-2022 University of Washington
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *  Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *  Neither the name of the University of Washington nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE UNIVERSITY OF WASHINGTON AND CONTRIBUTORS “AS IS” AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE UNIVERSITY OF WASHINGTON OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+
+package edu.uw.cse.ifrcdemo.sharedlib.logic;
+
+import edu.uw.cse.ifrcdemo.sharedlib.consts.ServerConsts;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.opendatakit.aggregate.odktables.rest.entity.Row;
+import org.opendatakit.aggregate.odktables.rest.entity.RowOutcome;
+import org.opendatakit.aggregate.odktables.rest.entity.RowOutcome.OutcomeType;
+import org.opendatakit.aggregate.odktables.rest.entity.RowOutcomeList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RowBatchUploaderTest {
+  private static final String TABLE_ID = "test_table";
+
+  @Test
+  void uploadsAllRowsWithBoundedConcurrency() throws Exception {
+    StubSyncEndpoint endpoint = new StubSyncEndpoint();
+    List<RowOutcome> outcomes = new CopyOnWriteArrayList<>();
+
+    try (RowBatchUploader uploader =
+             new RowBatchUploader(endpoint::alterRows, (op, o) -> outcomes.addAll(o), TABLE_ID, 10, 3)) {
+      for (int i = 0; i < 200; i++) {
+        uploader.add(ServerConsts.NEW_OP, newRow("row-" + i));
+      }
+      uploader.finish();
+
+      assertEquals(200, uploader.getRowsSent());
+    }
+
+    assertEquals(200, outcomes.size());
+    assertEquals(20, endpoint.batches.size());
+    assertTrue(endpoint.maxConcurrent.get() <= 3);
+  }
+
+  @Test
+  void deleteIsSentBeforeReinsertOfSameRow() throws Exception {
+    StubSyncEndpoint endpoint = new StubSyncEndpoint();
+
+    try (RowBatchUploader uploader =
+             new RowBatchUploader(endpoint::alterRows, (op, o) -> {}, TABLE_ID, 5, 4)) {
+      Row deleted = newRow("row-1");
+      deleted.setDeleted(true);
+
+      uploader.add(ServerConsts.DELETE_OP, deleted);
+      uploader.add(ServerConsts.NEW_OP, newRow("row-1"));
+      uploader.add(ServerConsts.NEW_OP, newRow("row-2"));
+      uploader.finish();
+    }
+
+    assertEquals(2, endpoint.batches.size());
+    assertTrue(endpoint.batches.get(0).get(0).isDeleted());
+    assertEquals(2, endpoint.batches.get(1).size());
+  }
+
+  @Test
+  void failedForceUpdatesAreRetriedOnce() throws Exception {
+    StubSyncEndpoint endpoint = new StubSyncEndpoint();
+    endpoint.failFirstAttempt = true;
+    List<RowOutcome> outcomes = new CopyOnWriteArrayList<>();
+
+    try (RowBatchUploader uploader =
+             new RowBatchUploader(endpoint::alterRows, (op, o) -> outcomes.addAll(o), TABLE_ID, 5, 2)) {
+      uploader.add(ServerConsts.FORCE_UPDATE_OP, newRow("row-1"));
+      uploader.finish();
+    }
+
+    assertEquals(2, endpoint.batches.size());
+    assertEquals(1, outcomes.size());
+    assertEquals(OutcomeType.SUCCESS, outcomes.get(0).getOutcome());
+  }
+
+  private static Row newRow(String rowId) {
+    return Row.forInsert(rowId, null, null, null, null, null, null, new ArrayList<>());
+  }
+
+  private static class StubSyncEndpoint {
+    private final List<List<Row>> batches = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger concurrent = new AtomicInteger();
+    private final AtomicInteger maxConcurrent = new AtomicInteger();
+    private volatile boolean failFirstAttempt;
+
+    RowOutcomeList alterRows(String tableId, ArrayList<Row> rows) {
+      int current = concurrent.incrementAndGet();
+      maxConcurrent.accumulateAndGet(current, Math::max);
+
+      try {
+        batches.add(new ArrayList<>(rows));
+        Thread.sleep(5);
+
+        ArrayList<RowOutcome> outcomes = new ArrayList<>();
+        for (Row row : rows) {
+          RowOutcome outcome = new RowOutcome(row);
+          outcome.setOutcome(failFirstAttempt ? OutcomeType.IN_CONFLICT : OutcomeType.SUCCESS);
+          outcomes.add(outcome);
+        }
+        failFirstAttempt = false;
+
+        return new RowOutcomeList(outcomes, null);
+      } catch (InterruptedException e) {
+        throw new IllegalStateException(e);
+      } finally {
+        concurrent.decrementAndGet();
+      }
+    }
+  }
+}
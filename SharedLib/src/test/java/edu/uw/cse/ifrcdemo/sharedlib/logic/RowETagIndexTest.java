@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2016-2022 University of Washington
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *  Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *  Neither the name of the University of Washington nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE UNIVERSITY OF WASHINGTON AND CONTRIBUTORS “AS IS” AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE UNIVERSITY OF WASHINGTON OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+
+package edu.uw.cse.ifrcdemo.sharedlib.logic;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.commons.io.FileUtils;
+import org.apache.wink.json4j.JSONArray;
+import org.apache.wink.json4j.JSONException;
+import org.apache.wink.json4j.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.opendatakit.sync.client.SyncClient;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class RowETagIndexTest {
+  private static final String SERVER_URL = "https://server.example/odktables";
+  private static final String APP_ID = "default";
+  private static final String SCHEMA_ETAG = "schema-1";
+
+  private Path tempDir;
+  private Path indexPath;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    tempDir = Files.createTempDirectory("RowETagIndexTest");
+    indexPath = RowETagIndex.getIndexPath(tempDir, "test_table");
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    FileUtils.deleteDirectory(tempDir.toFile());
+  }
+
+  @Test
+  void fullFetchThenIncrementalRefresh() throws Exception {
+    List<String> requestedDataETags = new ArrayList<>();
+
+    RowETagIndex index = RowETagIndex.load(indexPath, SERVER_URL, APP_ID, SCHEMA_ETAG);
+    index.refresh(
+        (dataETag, cursor) -> cursor == null
+            ? page("data-1", true, "next", row("r1", "e1", false))
+            : page("data-1", false, null, row("r2", "e2", false)),
+        (dataETag, cursor) -> {
+          throw new IllegalStateException("index is empty, diff should not be used");
+        }
+    );
+    index.save();
+
+    assertEquals(2, index.size());
+    assertEquals("data-1", index.getDataETag());
+
+    RowETagIndex reloaded = RowETagIndex.load(indexPath, SERVER_URL, APP_ID, SCHEMA_ETAG);
+    assertEquals("e1", reloaded.getRowETag("r1"));
+    assertEquals("data-1", reloaded.getDataETag());
+
+    reloaded.refresh(
+        (dataETag, cursor) -> {
+          throw new IllegalStateException("index is populated, full fetch should not be used");
+        },
+        (dataETag, cursor) -> {
+          requestedDataETags.add(dataETag);
+          return page("data-2", false, null, row("r1", "e1-b", false), row("r2", "e2", true));
+        }
+    );
+
+    assertEquals("data-1", requestedDataETags.get(0));
+    assertEquals("e1-b", reloaded.getRowETag("r1"));
+    assertNull(reloaded.getRowETag("r2"));
+    assertEquals("data-2", reloaded.getDataETag());
+  }
+
+  @Test
+  void schemaChangeDiscardsIndex() throws Exception {
+    RowETagIndex index = RowETagIndex.load(indexPath, SERVER_URL, APP_ID, SCHEMA_ETAG);
+    index.refresh((dataETag, cursor) -> page("data-1", false, null, row("r1", "e1", false)), null);
+    index.save();
+
+    RowETagIndex reloaded = RowETagIndex.load(indexPath, SERVER_URL, APP_ID, "schema-2");
+    assertEquals(0, reloaded.size());
+    assertNull(reloaded.getDataETag());
+  }
+
+  @Test
+  void serverOrAppChangeDiscardsIndex() throws Exception {
+    RowETagIndex index = RowETagIndex.load(indexPath, SERVER_URL, APP_ID, SCHEMA_ETAG);
+    index.refresh((dataETag, cursor) -> page("data-1", false, null, row("r1", "e1", false)), null);
+    index.save();
+
+    assertEquals(0, RowETagIndex.load(indexPath, "https://other.example/odktables", APP_ID, SCHEMA_ETAG).size());
+    assertEquals(0, RowETagIndex.load(indexPath, SERVER_URL, "other_app", SCHEMA_ETAG).size());
+    assertEquals(1, RowETagIndex.load(indexPath, SERVER_URL, APP_ID, SCHEMA_ETAG).size());
+  }
+
+  @Test
+  void diffRuntimeFailureFallsBackToFullFetch() throws Exception {
+    RowETagIndex index = RowETagIndex.load(indexPath, SERVER_URL, APP_ID, SCHEMA_ETAG);
+    index.refresh((dataETag, cursor) -> page("data-1", false, null, row("r1", "e1", false)), null);
+
+    index.refresh(
+        (dataETag, cursor) -> page("data-9", false, null, row("r3", "e3", false)),
+        (dataETag, cursor) -> {
+          throw new IllegalArgumentException("unexpected response");
+        }
+    );
+
+    assertNull(index.getRowETag("r1"));
+    assertEquals("e3", index.getRowETag("r3"));
+    assertEquals("data-9", index.getDataETag());
+  }
+
+  @Test
+  void failedDiffFallsBackToFullFetch() throws Exception {
+    RowETagIndex index = RowETagIndex.load(indexPath, SERVER_URL, APP_ID, SCHEMA_ETAG);
+    index.refresh((dataETag, cursor) -> page("data-1", false, null, row("r1", "e1", false)), null);
+
+    index.refresh(
+        (dataETag, cursor) -> page("data-9", false, null, row("r3", "e3", false)),
+        (dataETag, cursor) -> {
+          throw new IOException("unknown dataETag");
+        }
+    );
+
+    assertEquals(1, index.size());
+    assertEquals("e3", index.getRowETag("r3"));
+    assertEquals("data-9", index.getDataETag());
+  }
+
+  private static JSONObject page(String dataETag, boolean hasMore, String cursor, JSONObject... rows)
+      throws JSONException {
+    JSONArray rowArray = new JSONArray();
+    for (JSONObject row : rows) {
+      rowArray.add(row);
+    }
+
+    JSONObject page = new JSONObject();
+    page.put(SyncClient.ROWS_STR_JSON, rowArray);
+    page.put(SyncClient.DATA_ETAG_JSON, dataETag);
+    page.put(SyncClient.HAS_MORE_RESULTS_JSON, hasMore);
+    if (cursor != null) {
+      page.put(SyncClient.WEB_SAFE_RESUME_CURSOR_JSON, cursor);
+    }
+    return page;
+  }
+
+  private static JSONObject row(String rowId, String rowETag, boolean deleted) throws JSONException {
+    JSONObject row = new JSONObject();
+    row.put(SyncClient.ID_JSON, rowId);
+    row.put(SyncClient.ROW_ETAG_JSON, rowETag);
+    row.put(SyncClient.DELETED_JSON, deleted);
+    return row;
+  }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2016-2022 University of Washington
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *  Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *  Neither the name of the University of Washington nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE UNIVERSITY OF WASHINGTON AND CONTRIBUTORS “AS IS” AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE UNIVERSITY OF WASHINGTON OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+
+package edu.uw.cse.ifrcdemo.sharedlib.logic;
+
+import edu.uw.cse.ifrcdemo.sharedlib.consts.ServerConsts;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.opendatakit.aggregate.odktables.rest.RFC4180CsvReader;
+import org.opendatakit.aggregate.odktables.rest.entity.Row;
+import org.opendatakit.aggregate.odktables.rest.entity.RowOutcome;
+import org.opendatakit.aggregate.odktables.rest.entity.RowOutcome.OutcomeType;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RowOutcomeLogTest {
+  private Path tempDir;
+  private Path logPath;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    tempDir = Files.createTempDirectory("RowOutcomeLogTest");
+    logPath = tempDir.resolve(ServerConsts.DEFAULT_OUTCOME_FILE_NAME);
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    FileUtils.deleteDirectory(tempDir.toFile());
+  }
+
+  @Test
+  void writesStructuredRowsAndSummary() throws IOException {
+    try (RowOutcomeLog log = new RowOutcomeLog(logPath, "table_a")) {
+      log.record(ServerConsts.NEW_OP, Arrays.asList(
+          outcome("r1", OutcomeType.SUCCESS),
+          outcome("r2", OutcomeType.IN_CONFLICT)
+      ));
+      log.record(ServerConsts.DELETE_OP, Arrays.asList(outcome("r3", OutcomeType.SUCCESS)));
+
+      assertEquals(2, (int) log.getSummary().get(OutcomeType.SUCCESS));
+      assertEquals(1, (int) log.getSummary().get(OutcomeType.IN_CONFLICT));
+    }
+
+    // a second session appends without repeating the header
+    try (RowOutcomeLog log = new RowOutcomeLog(logPath, "table_b")) {
+      log.record(ServerConsts.FORCE_UPDATE_OP, Arrays.asList(outcome("r4", OutcomeType.FAILED)));
+    }
+
+    List<String[]> lines = readCsv(logPath);
+    assertEquals(5, lines.size());
+    assertArrayEquals(RowOutcomeLog.HEADER, lines.get(0));
+    assertArrayEquals(new String[] { "table_a", "r2", ServerConsts.NEW_OP, "IN_CONFLICT" },
+        Arrays.copyOfRange(lines.get(2), 1, 5));
+    assertArrayEquals(new String[] { "table_b", "r4", ServerConsts.FORCE_UPDATE_OP, "FAILED" },
+        Arrays.copyOfRange(lines.get(4), 1, 5));
+  }
+
+  @Test
+  void fileInOlderFormatIsMovedAside() throws IOException {
+    List<String> legacyLines = Arrays.asList(
+        "Thu Jan 01 00:00:00 UTC 2020 rowId: r0 had outcome: SUCCESS",
+        "Thu Jan 01 00:00:00 UTC 2020 rowId: r1 had outcome: FAILED"
+    );
+    Files.write(logPath, legacyLines, StandardCharsets.UTF_8);
+
+    try (RowOutcomeLog log = new RowOutcomeLog(logPath, "table_a")) {
+      log.record(ServerConsts.NEW_OP, Arrays.asList(outcome("r2", OutcomeType.SUCCESS)));
+    }
+
+    List<String[]> lines = readCsv(logPath);
+    assertEquals(2, lines.size());
+    assertArrayEquals(RowOutcomeLog.HEADER, lines.get(0));
+
+    Path legacyPath = tempDir.resolve(ServerConsts.DEFAULT_OUTCOME_FILE_NAME + ServerConsts.LEGACY_OUTCOME_FILE_SUFFIX);
+    assertEquals(legacyLines, Files.readAllLines(legacyPath, StandardCharsets.UTF_8));
+  }
+
+  private static RowOutcome outcome(String rowId, OutcomeType type) {
+    RowOutcome outcome = new RowOutcome(Row.forInsert(rowId, null, null, null, null, null, null, new ArrayList<>()));
+    outcome.setOutcome(type);
+    return outcome;
+  }
+
+  private static List<String[]> readCsv(Path path) throws IOException {
+    List<String[]> lines = new ArrayList<>();
+
+    try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+      RFC4180CsvReader csvReader = new RFC4180CsvReader(reader);
+      String[] line;
+      while ((line = csvReader.readNext()) != null) {
+        lines.add(line);
+      }
+    }
+
+    return lines;
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2016-2022 University of Washington
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *  Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *  Neither the name of the University of Washington nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE UNIVERSITY OF WASHINGTON AND CONTRIBUTORS “AS IS” AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE UNIVERSITY OF WASHINGTON OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+
+
+package edu.uw.cse.ifrcdemo.sharedlib.model.row;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UntypedSyncRowTest {
+  @Test
+  void compactedRowsBehaveLikeSortedMaps() {
+    UntypedSyncRow row = newRow("c", "3", "a", "1", "b", "2");
+    Map<String, String> expected = new TreeMap<>(row.getColumns());
+
+    UntypedSyncRow.compact(Arrays.asList(row, newRow("d", "4")));
+
+    assertEquals(expected, row.getColumns());
+    assertEquals(Arrays.asList("a", "b", "c"), new ArrayList<>(row.getColumns().keySet()));
+    assertFalse(row.getColumns().containsKey("d"));
+    assertNull(row.getColumns().get("d"));
+  }
+
+  @Test
+  void compactedRowsRemainWritable() {
+    UntypedSyncRow row = newRow("b", "2", "d", "4");
+    UntypedSyncRow.compact(Arrays.asList(row));
+
+    Map<String, String> columns = row.getColumns();
+    assertEquals("2", columns.put("b", "20"));
+    columns.put("a", "1");
+    columns.put("c", null);
+    columns.remove("d");
+
+    assertEquals(Arrays.asList("a", "b", "c"), new ArrayList<>(row.getColumns().keySet()));
+    assertEquals("20", row.getColumns().get("b"));
+    assertTrue(row.getColumns().containsKey("c"));
+    assertEquals(3, row.getColumns().size());
+
+    Iterator<Map.Entry<String, String>> iterator = row.getColumns().entrySet().iterator();
+    iterator.next().setValue("10");
+    iterator.next();
+    iterator.remove();
+
+    assertEquals("10", row.getColumns().get("a"));
+    assertFalse(row.getColumns().containsKey("b"));
+  }
+
+  @Test
+  void lowCardinalityValuesAreShared() {
+    List<UntypedSyncRow> rows = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      rows.add(newRow("gender", new String("female"), "name", "name" + i));
+    }
+
+    UntypedSyncRow.compact(rows);
+
+    assertSame(rows.get(0).getColumns().get("gender"), rows.get(999).getColumns().get("gender"));
+    assertEquals("name999", rows.get(999).getColumns().get("name"));
+  }
+
+  @Test
+  void compactedRowsSerializeLikeOtherRows() throws Exception {
+    ObjectMapper mapper = new ObjectMapper();
+
+    UntypedSyncRow row = newRow("b", "2", "a", "1");
+    String before = mapper.writeValueAsString(row);
+    UntypedSyncRow.compact(Arrays.asList(row));
+
+    assertEquals(before, mapper.writeValueAsString(row));
+    assertEquals(row.getColumns(), mapper.readValue(before, UntypedSyncRow.class).getColumns());
+  }
+
+  private static UntypedSyncRow newRow(String... keyValues) {
+    UntypedSyncRow row = new UntypedSyncRow();
+    for (int i = 0; i < keyValues.length; i += 2) {
+      row.getColumns().put(keyValues[i], keyValues[i + 1]);
+    }
+
+    return row;
+  }
+}
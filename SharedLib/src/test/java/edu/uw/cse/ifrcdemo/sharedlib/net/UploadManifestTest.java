@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2016-2022 University of Washington
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *  Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *  Neither the name of the University of Washington nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE UNIVERSITY OF WASHINGTON AND CONTRIBUTORS “AS IS” AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE UNIVERSITY OF WASHINGTON OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+
+
+package edu.uw.cse.ifrcdemo.sharedlib.net;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UploadManifestTest {
+  private static final String SERVER_URL = "https://server-url.com/odktables";
+  private static final String APP_ID = "default";
+  private static final String RELATIVE_PATH = "assets/index.html";
+
+  private Path tempDir;
+  private Path manifestPath;
+  private Path file;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    tempDir = Files.createTempDirectory("UploadManifestTest");
+    manifestPath = UploadManifest.getManifestPath(tempDir);
+    file = Files.write(tempDir.resolve("index.html"), "hello".getBytes(StandardCharsets.UTF_8));
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    FileUtils.deleteDirectory(tempDir.toFile());
+  }
+
+  @Test
+  void hashMatchesServerManifestFormat() throws IOException {
+    assertEquals("md5:5d41402abc4b2a76b9719d911017c592", UploadManifest.computeMd5Hash(file));
+  }
+
+  @Test
+  void recordedUploadSurvivesReload() throws IOException {
+    UploadManifest manifest = UploadManifest.load(manifestPath, SERVER_URL, APP_ID);
+    String md5Hash = manifest.getMd5Hash(RELATIVE_PATH, file);
+    assertFalse(manifest.isUploaded(RELATIVE_PATH, md5Hash));
+
+    manifest.recordUpload(RELATIVE_PATH, file, md5Hash);
+    manifest.save();
+
+    UploadManifest reloaded = UploadManifest.load(manifestPath, SERVER_URL, APP_ID);
+    assertEquals(1, reloaded.size());
+    assertTrue(reloaded.isUploaded(RELATIVE_PATH, reloaded.getMd5Hash(RELATIVE_PATH, file)));
+
+    Files.write(file, "changed".getBytes(StandardCharsets.UTF_8));
+    assertFalse(reloaded.isUploaded(RELATIVE_PATH, reloaded.getMd5Hash(RELATIVE_PATH, file)));
+  }
+
+  @Test
+  void manifestForAnotherAppIsDiscarded() throws IOException {
+    UploadManifest manifest = UploadManifest.load(manifestPath, SERVER_URL, APP_ID);
+    manifest.recordUpload(RELATIVE_PATH, file, UploadManifest.computeMd5Hash(file));
+    manifest.save();
+
+    assertEquals(0, UploadManifest.load(manifestPath, SERVER_URL, "other_app").size());
+  }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2016-2022 University of Washington
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this list of conditions and the following disclaimer.
+ *  Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *  Neither the name of the University of Washington nor the names of its contributors may be used to endorse or promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE UNIVERSITY OF WASHINGTON AND CONTRIBUTORS “AS IS” AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE UNIVERSITY OF WASHINGTON OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+
+
+package edu.uw.cse.ifrcdemo.sharedlib.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.io.FileUtils;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class XlsxSheetReaderTest {
+  private static final int CHOICE_ROWS = 100000;
+
+  private Path tempDir;
+  private Path xlsxPath;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    tempDir = Files.createTempDirectory("XlsxSheetReaderTest");
+    xlsxPath = tempDir.resolve("form.xlsx");
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    FileUtils.deleteDirectory(tempDir.toFile());
+  }
+
+  @Test
+  void readsSettingsOfLargeWorkbook() throws IOException {
+    writeWorkbook(xlsxPath, "household", CHOICE_ROWS, false);
+
+    assertEquals("household", XlsxUtil.getFormId(xlsxPath.toString()));
+    assertEquals("household_table", XlsxUtil.getTableId(xlsxPath.toString()));
+  }
+
+  @Test
+  void readsSettingsFromSharedStrings() throws IOException {
+    writeWorkbook(xlsxPath, "household", CHOICE_ROWS, true);
+
+    Map<String, String> settings = XlsxUtil.getSettings(xlsxPath);
+    assertEquals("household", settings.get("form_id"));
+    assertEquals("household_table", settings.get("table_id"));
+    assertEquals(2, settings.size());
+  }
+
+  @Test
+  void readsWholeSheet() throws IOException {
+    writeWorkbook(xlsxPath, "household", CHOICE_ROWS, true);
+
+    List<Map<String, String>> choices = XlsxSheetReader.readSheet(xlsxPath, "choices");
+    assertEquals(CHOICE_ROWS, choices.size());
+    assertEquals("choice_list_7", choices.get(7).get("choice_list_name"));
+    assertEquals("7", choices.get(7).get("data_value"));
+    assertEquals("Choice 7", choices.get(7).get("display.title.text"));
+  }
+
+  @Test
+  void missingSheetIsEmpty() throws IOException {
+    writeWorkbook(xlsxPath, "household", 10, false);
+
+    assertTrue(XlsxSheetReader.readSheet(xlsxPath, "model").isEmpty());
+  }
+
+  @Test
+  void changedFileIsReadAgain() throws IOException {
+    writeWorkbook(xlsxPath, "household", 10, false);
+    assertEquals("household", XlsxUtil.getFormId(xlsxPath.toString()));
+
+    FileTime lastModified = Files.getLastModifiedTime(xlsxPath);
+    writeWorkbook(xlsxPath, "member", 10, false);
+    Files.setLastModifiedTime(xlsxPath, FileTime.fromMillis(lastModified.toMillis() + 2000));
+    assertNotEquals(lastModified, Files.getLastModifiedTime(xlsxPath));
+
+    assertEquals("member", XlsxUtil.getFormId(xlsxPath.toString()));
+  }
+
+  private static void writeWorkbook(Path path, String formId, int choiceRows, boolean sharedStrings)
+      throws IOException {
+    SXSSFWorkbook workbook = new SXSSFWorkbook(new XSSFWorkbook(), 100, true, sharedStrings);
+
+    try (OutputStream out = Files.newOutputStream(path)) {
+      Sheet survey = workbook.createSheet("survey");
+      writeRow(survey, 0, "type", "name", "display.prompt.text");
+      writeRow(survey, 1, "text", "name", "Name");
+
+      Sheet choices = workbook.createSheet("choices");
+      writeRow(choices, 0, "choice_list_name", "data_value", "display.title.text");
+      for (int i = 0; i < choiceRows; i++) {
+        Row row = choices.createRow(i + 1);
+        row.createCell(0).setCellValue("choice_list_" + i);
+        row.createCell(1).setCellValue(i);
+        row.createCell(2).setCellValue("Choice " + i);
+      }
+
+      Sheet settings = workbook.createSheet("settings");
+      writeRow(settings, 0, "setting_name", "value", "display.title.text");
+      writeRow(settings, 1, "form_id", formId);
+      writeRow(settings, 2, "table_id", "household_table");
+      writeRow(settings, 3, "survey", null, "Household");
+
+      workbook.write(out);
+    } finally {
+      workbook.dispose();
+      workbook.close();
+    }
+  }
+
+  private static void writeRow(Sheet sheet, int rowNum, String... values) {
+    Row row = sheet.createRow(rowNum);
+    for (int i = 0; i < values.length; i++) {
+      if (values[i] != null) {
+        row.createCell(i).setCellValue(values[i]);
+      }
+    }
+  }
+}
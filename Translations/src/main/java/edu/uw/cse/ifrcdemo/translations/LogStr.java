@@ -26,6 +26,9 @@ public class LogStr {
     public static final String LOG_TABLE_ALREADY_EXISTS = "table {} already exists";
     public static final String LOG_READ_ROWS_FOR = "read {} rows for {}";
     public static final String LOG_COMPUTING_INDEX_FOR = "computing index for {}";
+    public static final String LOG_PROJECTING_TABLE_FROM = "projecting table {} from {}";
+    public static final String LOG_CSV_CACHE_STATS = "csv cache {}";
+    public static final String LOG_LOADED_TABLE = "loaded {} rows of {} in {} ms";
     public static final String LOG_READING_FROM_CACHE = "reading {} from cache";
     public static final String LOG_READING_INDEXED_FROM_CACHE = "reading indexed {} from cache";
     public static final String LOG_CONVERT_TO_DATABASE_COLUMN = "convertToDatabaseColumn {}";
@@ -41,8 +44,13 @@ public class LogStr {
     public static final String LOG_BASE_TABLE_ROW_REFERENCES_A_NON_EXISTING_CUSTOM_TABLE_ROW_OF = "base table {} row {} references a non-existing custom table row {} of {}";
     public static final String LOG_BASE_TABLE_ROW_REFERENCES_A_NON_EXISTING_CUSTOM_TABLE = "base table {} row {} references a non-existing custom table {}";
     public static final String LOG_FAILED_TO_READ_IGNORED = "Failed to read {}, ignored";
+    public static final String LOG_INVALID_RESOURCE_URI = "invalid resource uri {}";
+    public static final String LOG_FAILED_TO_PARSE_BARCODE_CONFIGURATION = "failed to parse barcode configuration";
+    public static final String LOG_FAILED_TO_CREATE_BARCODE_GENERATOR = "failed to create barcode generator";
+    public static final String LOG_FAILED_TO_RENDER_BARCODE_FOR = "failed to render barcode for {}";
     public static final String LOG_SUCCESSFULLY_WROTE_REPORT_FOR_TO = "Successfully wrote report for {} to {}";
     public static final String LOG_FAILED_TO_GENERATE_PDF_FOR = "failed to generate pdf for {}";
+    public static final String LOG_REPORT_PROGRESS = "report {} of {} for authorization {} took {} ms";
     public static final String LOG_FAILED_TO_PARSE_IGNORED = "Failed to parse {}, ignored";
     public static final String LOG_ROW_OF_TABLE_HAS_AN_INVALID_AUTHORIZATION_ID = "row {} of table {} has an invalid authorization id";
     public static final String LOG_BENEFICIARY_ENTITY_CONFLICTS = "beneficiary_entity_conflicts: ";
@@ -67,6 +75,9 @@ public class LogStr {
         + "mobile database";
     public static final String LOG_ERROR_OCCURRED_WHILE_UPLOADING_TABLES= "error occurred while "
         + "uploading tables";
+    public static final String LOG_UPLOAD_PHASE_TOOK = "upload phase {} took {} ms";
+    public static final String LOG_SKIPPED_UNCHANGED_FILES = "skipped {} unchanged files";
+    public static final String LOG_FAILED_TO_UPLOAD_TABLE = "failed to upload table {}";
     public static final String LOG_FAILED_TO_CREATE_FX_DIALOG = "failed to create FxDialog";
     public static final String LOG_INSUFFICIENT_BENEFICIARY_DATA_TO_CREATE_DEMOGRAPHICS =
         "Insufficient Beneficiary data to create demographics";
@@ -178,6 +178,7 @@ public class TranslationConsts {
     public static final String MORE_INFO_MSG = "MoreInfoMsg";
     public static final String IS_NOT_SUPPORTED = "IsNotSupportMsg";
     public static final String UPDATE_IN_PROGRESS_MSG = "UpdatingInProgressMsg";
+    public static final String UPDATE_PROGRESS_MSG = "UpdateProgressMsg";
     public static final String DELETING_IN_PROGRESS_MSG = "DeletingInProgressMsg";
     public static final String FINISHED_RESETTING_SRV_MSG = "FinishResettingSrvMsg";
     public static final String LOGGING_INTO_SRV_MSG = "LogIntoSrvMsg";
@@ -234,6 +235,7 @@ public class TranslationConsts {
     public static final String CREATE_DIR_ERROR = "CreateDirError";
     public static final String CSV_EMPTY_ERROR = "CsvEmptyError";
     public static final String UPDATE_TASK_REQUIRES_VALID_FILE_ERROR = "UpdateTaskRequiresValidFileError";
+    public static final String TABLE_DOES_NOT_EXIST_ERROR = "TableDoesNotExistError";
     public static final String CSV_MISSING_METADATA_COLUMN_ERROR = "CsvMissingMetadataColumnError";
     public static final String UNEXPECTED_STATUS_CODE_ERROR = "UnexpectedStatusCodeError";
     public static final String FAILED_TO_READ_DATABASE_FILES_FROM_DISK_ERROR = "FailedToReadDatabaseFilesFromDiskError";
@@ -242,6 +244,7 @@ public class TranslationConsts {
     public static final String CANNOT_ACCESS_FILE_ERROR = "CannotAccessFileError";
     public static final String CANNOT_WRITE_DIR_ERROR = "CannotWriteDirError";
     public static final String CANNOT_READ_DIR_ERROR = "CannotReadDirError";
+    public static final String REPORTS_FAILED_ERROR = "ReportsFailedError";
     public static final String MISSING_BASE_TABLE_ERROR = "MissingBaseTableError";
     public static final String FAILED_PARSE_ERROR = "FailedParseError";
     public static final String FAILED_TO_PARSE_XML_CONFIGURATION_ERROR = "FailedToParseXmlConfigurationError";